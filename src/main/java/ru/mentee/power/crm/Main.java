@@ -1,6 +1,8 @@
 package ru.mentee.power.crm;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
 import org.apache.catalina.Context;
 import org.apache.catalina.startup.Tomcat;
 import ru.mentee.power.crm.servlet.LeadListServlet;
@@ -8,6 +10,8 @@ import ru.mentee.power.crm.spring.repository.DealRepository;
 import ru.mentee.power.crm.spring.repository.InMemoryDealRepository;
 import ru.mentee.power.crm.spring.repository.InMemoryLeadRepository;
 import ru.mentee.power.crm.spring.repository.LeadRepository;
+import ru.mentee.power.crm.spring.repository.wal.DurabilityMode;
+import ru.mentee.power.crm.spring.repository.wal.WriteAheadLog;
 import ru.mentee.power.crm.spring.service.LeadService;
 import ru.mentee.power.crm.util.TestDataUtils;
 
@@ -16,11 +20,40 @@ public class Main {
 
   static void main() throws Exception {
 
-    LeadRepository leadRepository = new InMemoryLeadRepository();
-    DealRepository dealRepository = new InMemoryDealRepository();
+    LeadRepository leadRepository;
+    DealRepository dealRepository;
+    String walDir = System.getProperty("crm.wal.dir");
+    if (walDir != null) {
+      // Журнал включается флагом -Dcrm.wal.dir, режим: -Dcrm.wal.mode, -Dcrm.wal.flush-interval-ms
+      DurabilityMode mode =
+          DurabilityMode.valueOf(System.getProperty("crm.wal.mode", "GROUP_COMMIT"));
+      Duration flushInterval = Duration.ofMillis(Long.getLong("crm.wal.flush-interval-ms", 10));
+      WriteAheadLog leadLog = WriteAheadLog.open(Path.of(walDir, "leads.wal"), mode, flushInterval);
+      WriteAheadLog dealLog = WriteAheadLog.open(Path.of(walDir, "deals.wal"), mode, flushInterval);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    leadLog.close();
+                    dealLog.close();
+                  }));
+      InMemoryLeadRepository leads = new InMemoryLeadRepository(leadLog);
+      InMemoryDealRepository deals = new InMemoryDealRepository(dealLog);
+      Duration snapshotInterval =
+          Duration.ofMillis(Long.getLong("crm.wal.snapshot-interval-ms", 60_000));
+      leadLog.scheduleCheckpoints(leads, snapshotInterval);
+      dealLog.scheduleCheckpoints(deals, snapshotInterval);
+      leadRepository = leads;
+      dealRepository = deals;
+    } else {
+      leadRepository = new InMemoryLeadRepository();
+      dealRepository = new InMemoryDealRepository();
+    }
     LeadService leadService = new LeadService(leadRepository, dealRepository);
 
-    TestDataUtils.initializeTestData(leadService);
+    if (leadService.findAll().isEmpty()) {
+      TestDataUtils.initializeTestData(leadService);
+    }
 
     Tomcat tomcat = new Tomcat();
     tomcat.setPort(8080);
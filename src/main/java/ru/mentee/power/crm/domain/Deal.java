@@ -1,46 +1,119 @@
 package ru.mentee.power.crm.domain;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
 /**
  * Сделка (Deal) - основная сущность воронки продаж. Является Aggregate Root: сам управляет своим
  * состоянием и защищает бизнес-правила.
+ *
+ * <p>Статус хранится вместе с номером версии в одном неизменяемом состоянии, которое заменяется
+ * через compare-and-set. Проверка перехода и запись выполняются атомарно без блокировок: из двух
+ * параллельных переходов, например NEGOTIATION → WON и NEGOTIATION → LOST, успешен ровно один, а
+ * второй перепроверяется уже от нового статуса и отклоняется.
+ *
+ * <p>Каждый успешный переход запоминается в том же состоянии, пока его не заберёт хранилище через
+ * {@link #drainStatusChanges()}. Поэтому несколько переходов между двумя сохранениями не теряются
+ * и выдаются в том порядке, в котором прошли их compare-and-set.
  */
-@AllArgsConstructor
 @Getter
 @ToString
 public class Deal {
+  private static final VarHandle STATE;
+
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(Deal.class, "state", State.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   private final UUID id;
   private final UUID leadId;
   private final BigDecimal amount;
-  private DealStatus status;
+
+  @Getter(AccessLevel.NONE)
+  private volatile State state;
+
   private final LocalDateTime createdAt;
 
+  /** Восстанавливает сделку с известным статусом, например из хранилища. */
+  public Deal(UUID id, UUID leadId, BigDecimal amount, DealStatus status, LocalDateTime createdAt) {
+    this.id = id;
+    this.leadId = leadId;
+    this.amount = amount;
+    this.state = new State(status, 0, null);
+    this.createdAt = createdAt;
+  }
+
   /** Создаёт новую сделку из существующего лида. Статус автоматически устанавливается в NEW. */
   public Deal(UUID leadId, BigDecimal amount) {
     this.id = UUID.randomUUID();
     this.leadId = Objects.requireNonNull(leadId, "leadId must not be null");
     this.amount = Objects.requireNonNull(amount, "amount must not be null");
-    this.status = DealStatus.NEW;
+    this.state = new State(DealStatus.NEW, 0, null);
     this.createdAt = LocalDateTime.now();
   }
 
+  /** Возвращает текущий статус сделки. */
+  public DealStatus getStatus() {
+    return state.status();
+  }
+
+  /** Возвращает число успешных переходов с момента создания (или восстановления) объекта. */
+  public long getVersion() {
+    return state.version();
+  }
+
   /**
    * Безопасно изменяет статус сделки, проверяя валидность перехода. Выбрасывает исключение, если
-   * переход запрещён State Machine.
+   * переход запрещён State Machine. Потокобезопасен: если статус изменился между проверкой и
+   * записью, переход проверяется заново от нового статуса.
    */
   public void transitionTo(DealStatus newStatus) {
     Objects.requireNonNull(newStatus, "newStatus must not be null");
-    if (!this.status.canTransitionTo(newStatus)) {
-      throw new IllegalStateException("Cannot transition from " + this.status + " to " + newStatus);
+    State current = state;
+    while (true) {
+      if (!current.status().canTransitionTo(newStatus)) {
+        throw new IllegalStateException(
+            "Cannot transition from " + current.status() + " to " + newStatus);
+      }
+      State witness = (State) STATE.compareAndExchange(this, current, current.next(newStatus));
+      if (witness == current) {
+        return;
+      }
+      current = witness;
+    }
+  }
+
+  /**
+   * Забирает переходы, совершённые с прошлого вызова, вместе со статусом, к которому они привели.
+   * Статус и список берутся из одного состояния, так что переход, успевший после вызова, попадёт
+   * уже в следующий.
+   */
+  public StatusChanges drainStatusChanges() {
+    State current = state;
+    while (true) {
+      if (current.pending() == null) {
+        return new StatusChanges(current.status(), List.of());
+      }
+      State witness = (State) STATE.compareAndExchange(this, current, current.drained());
+      if (witness == current) {
+        return new StatusChanges(current.status(), current.pending().toList());
+      }
+      current = witness;
     }
-    this.status = newStatus;
   }
 
   @Override
@@ -59,4 +132,33 @@ public class Deal {
   public int hashCode() {
     return Objects.hash(id);
   }
+
+  /** Смена статуса, совершённая {@link #transitionTo}. */
+  public record StatusChange(DealStatus from, DealStatus to) {}
+
+  /** Статус сделки и переходы, которые привели к нему с прошлого {@link #drainStatusChanges()}. */
+  public record StatusChanges(DealStatus status, List<StatusChange> changes) {}
+
+  /** Статус, номер версии и ещё не забранные переходы, заменяемые целиком. */
+  private record State(DealStatus status, long version, Pending pending) {
+    State next(DealStatus newStatus) {
+      return new State(newStatus, version + 1, new Pending(status, newStatus, pending));
+    }
+
+    State drained() {
+      return new State(status, version, null);
+    }
+  }
+
+  /** Неизменяемый список переходов, от последнего к первому. */
+  private record Pending(DealStatus from, DealStatus to, Pending earlier) {
+    List<StatusChange> toList() {
+      List<StatusChange> changes = new ArrayList<>();
+      for (Pending change = this; change != null; change = change.earlier()) {
+        changes.add(new StatusChange(change.from(), change.to()));
+      }
+      Collections.reverse(changes);
+      return changes;
+    }
+  }
 }
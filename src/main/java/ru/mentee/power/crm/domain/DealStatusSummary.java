@@ -0,0 +1,28 @@
+package ru.mentee.power.crm.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги одной колонки воронки продаж: сколько сделок в статусе и на какую сумму.
+ *
+ * @param status статус (колонка Kanban-доски)
+ * @param count количество сделок
+ * @param totalAmount сумма сделок
+ */
+public record DealStatusSummary(DealStatus status, long count, BigDecimal totalAmount) {
+
+  /** Итоги пустой колонки. */
+  public static DealStatusSummary empty(DealStatus status) {
+    return new DealStatusSummary(status, 0, BigDecimal.ZERO);
+  }
+
+  /** Итоги после добавления сделки на указанную сумму. */
+  public DealStatusSummary plus(BigDecimal amount) {
+    return new DealStatusSummary(status, count + 1, totalAmount.add(amount));
+  }
+
+  /** Итоги после удаления сделки на указанную сумму. */
+  public DealStatusSummary minus(BigDecimal amount) {
+    return new DealStatusSummary(status, count - 1, totalAmount.subtract(amount));
+  }
+}
@@ -0,0 +1,32 @@
+package ru.mentee.power.crm.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Событие воронки продаж: сделка перешла из одного статуса в другой. События только дописываются в
+ * журнал и никогда не изменяются, а текущее состояние воронки восстанавливается их повторным
+ * применением.
+ *
+ * @param dealId идентификатор сделки
+ * @param from прежний статус или {@code null}, если событие фиксирует появление сделки
+ * @param to новый статус
+ * @param occurredAt момент перехода
+ * @param amount сумма сделки на момент перехода
+ */
+public record DealTransition(
+    UUID dealId, DealStatus from, DealStatus to, Instant occurredAt, BigDecimal amount) {
+
+  public DealTransition {
+    Objects.requireNonNull(dealId, "dealId must not be null");
+    Objects.requireNonNull(to, "to must not be null");
+    Objects.requireNonNull(occurredAt, "occurredAt must not be null");
+  }
+
+  /** Проверяет, фиксирует ли событие появление сделки, а не смену статуса. */
+  public boolean isCreation() {
+    return from == null;
+  }
+}
@@ -3,6 +3,7 @@ package ru.mentee.power.crm.domain;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /** Контракт на репозиторий сущности. */
 public interface Repository<T> {
@@ -17,4 +18,12 @@ public interface Repository<T> {
 
   /** Возвращает все сущности в репозитории. */
   List<T> findAll();
+
+  /**
+   * Возвращает сущности потоком. Реализация по умолчанию копирует {@link #findAll()}; хранилища
+   * переопределяют её, чтобы обходить данные без промежуточного списка.
+   */
+  default Stream<T> stream() {
+    return findAll().stream();
+  }
 }
@@ -0,0 +1,18 @@
+package ru.mentee.power.crm.entity;
+
+/** Имена регионов кэша второго уровня Hibernate для справочных данных. */
+public final class CacheRegions {
+  /** Сущности {@link Company}. */
+  public static final String COMPANY = "company";
+
+  /** Сущности {@link Product}. */
+  public static final String PRODUCT = "product";
+
+  /** Результаты запросов компаний по названию. */
+  public static final String COMPANY_QUERIES = "company-queries";
+
+  /** Результаты запросов продуктов по артикулу и активности. */
+  public static final String PRODUCT_QUERIES = "product-queries";
+
+  private CacheRegions() {}
+}
@@ -1,6 +1,7 @@
 package ru.mentee.power.crm.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -8,14 +9,22 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /***/
 @Data
@@ -23,8 +32,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.COMPANY)
 @Table(name = "companies")
 public class Company {
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
   @Id
   @GeneratedValue(strategy = GenerationType.UUID)
@@ -33,6 +45,14 @@ public class Company {
   @Column(nullable = false)
   private String name;
 
+  /**
+   * Нормализованное название (см. {@link #normalizeName}), уникальное среди компаний. Заполняется
+   * из {@link #name} перед сохранением.
+   */
+  @Column(name = "name_key", nullable = false, unique = true)
+  @Setter(AccessLevel.NONE)
+  private String nameKey;
+
   private String industry;
 
   @OneToMany(mappedBy = "company", cascade = CascadeType.PERSIST)
@@ -40,6 +60,20 @@ public class Company {
   @JsonIgnore
   private List<Lead> leads = new ArrayList<>();
 
+  /**
+   * Приводит название к ключу уникальности: пробельные символы схлопываются в один пробел, края
+   * обрезаются, регистр нижний. Так же ключ считает миграция 010 для существующих строк.
+   */
+  public static String normalizeName(String name) {
+    return WHITESPACE.matcher(name).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+  }
+
+  @PrePersist
+  @PreUpdate
+  protected void updateNameKey() {
+    this.nameKey = name != null ? normalizeName(name) : null;
+  }
+
   /** Добавляет лид к компании и устанавливает обратную связь. */
   public void addLead(Lead lead) {
     leads.add(lead);
@@ -0,0 +1,55 @@
+package ru.mentee.power.crm.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealTransition;
+
+/** Сохранённый переход сделки по воронке ({@link DealTransition}). Строки только дописываются. */
+@Entity
+@Table(name = "deal_transitions")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DealTransitionEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "deal_id", nullable = false, updatable = false)
+  private UUID dealId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "from_status", updatable = false)
+  private DealStatus fromStatus;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "to_status", nullable = false, updatable = false)
+  private DealStatus toStatus;
+
+  @Column(name = "occurred_at", nullable = false, updatable = false)
+  private Instant occurredAt;
+
+  @Column(precision = 15, scale = 2, updatable = false)
+  private BigDecimal amount;
+
+  public DealTransitionEntry(DealTransition event) {
+    this.dealId = event.dealId();
+    this.fromStatus = event.from();
+    this.toStatus = event.to();
+    this.occurredAt = event.occurredAt();
+    this.amount = event.amount();
+  }
+}
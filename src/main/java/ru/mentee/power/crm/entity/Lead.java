@@ -2,6 +2,7 @@ package ru.mentee.power.crm.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -13,6 +14,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Version;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -27,13 +29,20 @@ import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 /** Сущность лида для работы с БД */
 @Entity
-@Table(name = "leads")
+@Table(
+    name = "leads",
+    uniqueConstraints =
+        @UniqueConstraint(name = Lead.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"))
+@EntityListeners(LeadEmailListener.class)
 @Data
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor
 @Builder
 public class Lead {
 
+  /** Имя ограничения уникальности email в таблице leads (миграция 013). */
+  public static final String EMAIL_UNIQUE_CONSTRAINT = "uq_leads_email";
+
   @Id
   @GeneratedValue(strategy = GenerationType.UUID)
   private UUID id;
@@ -46,7 +55,7 @@ public class Lead {
   @Column(nullable = false)
   private String name;
 
-  @Column(nullable = false, unique = true)
+  @Column(nullable = false)
   private String email;
 
   @Column(nullable = false)
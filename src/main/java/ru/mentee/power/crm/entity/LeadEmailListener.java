@@ -0,0 +1,33 @@
+package ru.mentee.power.crm.entity;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA-слушатель сущности {@link Lead}: сообщает каждому {@link LeadEmailObserver} о вставке,
+ * обновлении и удалении, включая сделанные напрямую через репозиторий в обход сервиса.
+ *
+ * <p>Наблюдатели вызываются ещё до INSERT/UPDATE. Экземпляр создаёт Hibernate через контейнер
+ * Spring; наблюдателей может не быть в контексте (например, в {@code @DataJpaTest}), тогда
+ * слушатель ничего не делает.
+ */
+public class LeadEmailListener {
+  private final ObjectProvider<LeadEmailObserver> observers;
+
+  public LeadEmailListener(ObjectProvider<LeadEmailObserver> observers) {
+    this.observers = observers;
+  }
+
+  @PrePersist
+  @PreUpdate
+  void onSave(Lead lead) {
+    observers.orderedStream().forEach(observer -> observer.onSaved(lead.getEmail()));
+  }
+
+  @PostRemove
+  void onRemove(Lead lead) {
+    observers.orderedStream().forEach(observer -> observer.onDeleted(lead.getEmail()));
+  }
+}
@@ -0,0 +1,14 @@
+package ru.mentee.power.crm.entity;
+
+/**
+ * Получает email лидов при их сохранении и удалении через JPA (см. {@link LeadEmailListener}).
+ * Реализации — бины Spring из слоя сервисов, поэтому сущность от них не зависит.
+ */
+public interface LeadEmailObserver {
+
+  /** Лид сохранён с этим email (вставка или обновление). */
+  void onSaved(String email);
+
+  /** Лид с этим email удалён. */
+  void onDeleted(String email);
+}
@@ -1,5 +1,6 @@
 package ru.mentee.power.crm.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -17,6 +18,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /** Сущность продукт для работы с CRM. */
 @Data
@@ -25,6 +28,8 @@ import lombok.NoArgsConstructor;
 @EqualsAndHashCode(of = "sku")
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.PRODUCT)
 @Table(name = "products")
 public class Product {
 
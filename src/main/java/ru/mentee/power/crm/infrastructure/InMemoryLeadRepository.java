@@ -1,39 +1,54 @@
 package ru.mentee.power.crm.infrastructure;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import ru.mentee.power.crm.domain.Lead;
 import ru.mentee.power.crm.domain.Repository;
 
-/** Реализация в памяти для сущностей Lead. */
+/**
+ * Реализация в памяти для сущностей Lead. Лиды хранятся в {@link UuidMap}, поэтому добавление,
+ * удаление и поиск по ID выполняются за O(1) без упаковки ключей, а {@link #findAll()} и {@link
+ * #stream()} возвращают лиды в порядке добавления.
+ */
 public class InMemoryLeadRepository implements Repository<Lead> {
 
-  private final List<Lead> storage = new ArrayList<>();
+  private final UuidMap<Lead> storage = new UuidMap<>();
 
   @Override
   public void add(Lead entity) {
     if (entity == null) {
       throw new IllegalArgumentException("Lead must not be null");
     }
-    if (!storage.contains(entity)) {
-      storage.add(entity);
-    }
+    storage.putIfAbsent(entity.getId(), entity);
   }
 
   @Override
   public void remove(UUID id) {
-    storage.removeIf(lead -> lead.getId().equals(id));
+    if (id != null) {
+      storage.remove(id);
+    }
   }
 
   @Override
   public Optional<Lead> findById(UUID id) {
-    return storage.stream().filter(lead -> lead.getId().equals(id)).findFirst();
+    return id != null ? Optional.ofNullable(storage.get(id)) : Optional.empty();
   }
 
   @Override
   public List<Lead> findAll() {
-    return new ArrayList<>(storage);
+    return storage.values();
+  }
+
+  /**
+   * Обходит хранилище без копирования. До деления сплитератор точно знает размер (SIZED), но
+   * падает с {@link java.util.ConcurrentModificationException} при изменении хранилища во время
+   * обхода.
+   */
+  @Override
+  public Stream<Lead> stream() {
+    return StreamSupport.stream(storage.spliterator(), false);
   }
 }
@@ -0,0 +1,319 @@
+package ru.mentee.power.crm.infrastructure;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица с ключом-UUID, хранящая ключ как две половины {@code long}.
+ *
+ * <p>Записи лежат плотно в порядке добавления: ключи в одном массиве {@code long[]} (старшая и
+ * младшая половины рядом), значения — в параллельном массиве {@code Object[]}. Хеш-индекс {@code
+ * int[]} хранит номера записей и заполнен не больше чем наполовину. Нет ни упакованных ключей, ни
+ * объектов-записей: на элемент приходится 16 байт ключа, ссылка и две ячейки индекса. Коллизии в
+ * индексе разрешаются линейным пробированием, а удаление сдвигает следующие ячейки назад, поэтому
+ * поиск не деградирует после удалений.
+ *
+ * <p>Обход идёт в порядке добавления; замена значения порядок не меняет. Удалённая запись
+ * оставляет пропуск в плотных массивах, пропуски убираются при следующем расширении.
+ *
+ * <p>Класс не потокобезопасен. Подходит для любой реализации {@link
+ * ru.mentee.power.crm.domain.Repository}, у сущностей которой есть UUID.
+ *
+ * @param <V> тип значений; {@code null} не допускается
+ */
+public final class UuidMap<V> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  /** Номер записи плюс один; 0 — пустая ячейка. */
+  private int[] slots;
+
+  private long[] keys;
+  private Object[] values;
+
+  /** Сколько позиций плотных массивов занято, включая пропуски удалённых записей. */
+  private int end;
+
+  private int size;
+  private int modCount;
+
+  /** Создаёт пустую таблицу. */
+  public UuidMap() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /** Возвращает количество элементов за O(1). */
+  public int size() {
+    return size;
+  }
+
+  /** Возвращает значение по ключу или {@code null}. */
+  public V get(UUID key) {
+    return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /** Возвращает значение по половинам ключа или {@code null}, не создавая объект UUID. */
+  public V get(long mostSigBits, long leastSigBits) {
+    int slot = find(mostSigBits, leastSigBits);
+    return slot >= 0 ? value(slots[slot] - 1) : null;
+  }
+
+  /** Проверяет наличие ключа. */
+  public boolean containsKey(UUID key) {
+    return find(key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+  }
+
+  /**
+   * Сохраняет значение, если ключа ещё нет.
+   *
+   * @return текущее значение, если ключ уже был, иначе {@code null}
+   */
+  public V putIfAbsent(UUID key, V value) {
+    return put(key, value, false);
+  }
+
+  /**
+   * Сохраняет значение, заменяя прежнее.
+   *
+   * @return прежнее значение или {@code null}
+   */
+  public V put(UUID key, V value) {
+    return put(key, value, true);
+  }
+
+  /**
+   * Удаляет ключ.
+   *
+   * @return удалённое значение или {@code null}, если ключа не было
+   */
+  public V remove(UUID key) {
+    int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    if (slot < 0) {
+      return null;
+    }
+    int entry = slots[slot] - 1;
+    V removed = value(entry);
+    values[entry] = null;
+    deleteSlot(slot);
+    while (end > 0 && values[end - 1] == null) {
+      end--;
+    }
+    size--;
+    modCount++;
+    return removed;
+  }
+
+  /** Копирует значения в новый список в порядке добавления. */
+  public List<V> values() {
+    List<V> result = new ArrayList<>(size);
+    forEach(result::add);
+    return result;
+  }
+
+  /** Передаёт все значения получателю в порядке добавления. */
+  public void forEach(Consumer<? super V> action) {
+    int expected = modCount;
+    for (int entry = 0; entry < end; entry++) {
+      if (values[entry] != null) {
+        action.accept(value(entry));
+      }
+    }
+    if (modCount != expected) {
+      throw new ConcurrentModificationException();
+    }
+  }
+
+  /**
+   * Возвращает сплитератор значений в порядке добавления. До деления он знает точный размер
+   * (SIZED); после деления размер лишь оценивается, так как пропуски удалённых записей
+   * распределены неравномерно.
+   */
+  public Spliterator<V> spliterator() {
+    return new ValueSpliterator(0, end, size, true, modCount);
+  }
+
+  private V put(UUID key, V value, boolean replace) {
+    if (value == null) {
+      throw new NullPointerException("Value must not be null");
+    }
+    long most = key.getMostSignificantBits();
+    long least = key.getLeastSignificantBits();
+    int slot = find(most, least);
+    if (slot >= 0) {
+      int entry = slots[slot] - 1;
+      V previous = value(entry);
+      if (replace) {
+        values[entry] = value;
+      }
+      return previous;
+    }
+    if (end == values.length) {
+      // Много пропусков — хватит уплотнения, иначе таблица растёт вдвое
+      rebuild((size + 1) * 2 > values.length ? slots.length * 2 : slots.length);
+    }
+    append(most, least, value);
+    size++;
+    modCount++;
+    return null;
+  }
+
+  /** Возвращает ячейку индекса с ключом или -1. */
+  private int find(long most, long least) {
+    int mask = slots.length - 1;
+    for (int slot = hash(most, least) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = slots[slot] - 1;
+      if (keys[2 * entry] == most && keys[2 * entry + 1] == least) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private void append(long most, long least, Object value) {
+    int entry = end++;
+    keys[2 * entry] = most;
+    keys[2 * entry + 1] = least;
+    values[entry] = value;
+    int mask = slots.length - 1;
+    int slot = hash(most, least) & mask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = entry + 1;
+  }
+
+  /** Удаление со сдвигом назад: ячейки цепочки подтягиваются в освободившуюся. */
+  private void deleteSlot(int hole) {
+    int mask = slots.length - 1;
+    int slot = hole;
+    while (true) {
+      slot = (slot + 1) & mask;
+      if (slots[slot] == 0) {
+        break;
+      }
+      int entry = slots[slot] - 1;
+      int home = hash(keys[2 * entry], keys[2 * entry + 1]) & mask;
+      boolean movable = hole <= slot ? home <= hole || home > slot : home <= hole && home > slot;
+      if (movable) {
+        slots[hole] = slots[slot];
+        hole = slot;
+      }
+    }
+    slots[hole] = 0;
+  }
+
+  /** Переносит живые записи в новые массивы, сохраняя порядок и убирая пропуски. */
+  private void rebuild(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    int oldEnd = end;
+    allocate(capacity);
+    for (int entry = 0; entry < oldEnd; entry++) {
+      if (oldValues[entry] != null) {
+        append(oldKeys[2 * entry], oldKeys[2 * entry + 1], oldValues[entry]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    slots = new int[capacity];
+    keys = new long[capacity];
+    values = new Object[capacity / 2];
+    end = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V value(int entry) {
+    return (V) values[entry];
+  }
+
+  private static int hash(long most, long least) {
+    long mixed = (most ^ least) * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+
+  /** Сплитератор по диапазону плотных массивов. */
+  private final class ValueSpliterator implements Spliterator<V> {
+    private int index;
+    private final int fence;
+    private long estimate;
+    private boolean sized;
+    private final int expectedModCount;
+
+    ValueSpliterator(int index, int fence, long estimate, boolean sized, int expectedModCount) {
+      this.index = index;
+      this.fence = fence;
+      this.estimate = estimate;
+      this.sized = sized;
+      this.expectedModCount = expectedModCount;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super V> action) {
+      checkForComodification();
+      while (index < fence) {
+        Object next = values[index++];
+        if (next != null) {
+          if (sized) {
+            estimate--;
+          }
+          action.accept(castValue(next));
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super V> action) {
+      checkForComodification();
+      Object[] table = values;
+      for (; index < fence; index++) {
+        if (table[index] != null) {
+          action.accept(castValue(table[index]));
+        }
+      }
+      estimate = 0;
+      checkForComodification();
+    }
+
+    @Override
+    public Spliterator<V> trySplit() {
+      int middle = (index + fence) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      ValueSpliterator prefix =
+          new ValueSpliterator(index, middle, estimate >>> 1, false, expectedModCount);
+      index = middle;
+      estimate -= prefix.estimate;
+      sized = false;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | DISTINCT | (sized ? SIZED : 0);
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V castValue(Object value) {
+      return (V) value;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package ru.mentee.power.crm.spring.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.mentee.power.crm.entity.CacheRegions;
+
+/**
+ * Кэш второго уровня Hibernate для справочных данных: компаний и продуктов. Регионы создаются
+ * заранее с ограничением размера и временем жизни из {@code crm.cache.*}; регион, которого нет в
+ * списке, — ошибка конфигурации, а не молча созданный кэш без ограничений.
+ *
+ * <p>Записи через Hibernate обновляют кэш сущностей сразу (READ_WRITE), а кэш запросов сбрасывается
+ * по отметкам времени изменения таблиц. Прямые изменения в БД в обход Hibernate видны только по
+ * истечении времени жизни.
+ */
+@Configuration
+public class HibernateCacheConfig {
+  private static final List<String> ENTITY_REGIONS =
+      List.of(CacheRegions.COMPANY, CacheRegions.PRODUCT);
+  private static final List<String> QUERY_REGIONS =
+      List.of(
+          CacheRegions.COMPANY_QUERIES,
+          CacheRegions.PRODUCT_QUERIES,
+          RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+  /** Свой менеджер на каждый контекст Spring, чтобы контексты тестов не делили регионы. */
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      @Value("${crm.cache.entity.max-entries:10000}") long entityMaxEntries,
+      @Value("${crm.cache.entity.ttl:1h}") Duration entityTtl,
+      @Value("${crm.cache.query.max-entries:5000}") long queryMaxEntries,
+      @Value("${crm.cache.query.ttl:10m}") Duration queryTtl) {
+    ConfigurationBuilder config = ConfigurationBuilder.newConfigurationBuilder();
+    for (String region : ENTITY_REGIONS) {
+      config = config.withCache(region, region(entityMaxEntries, ttl(entityTtl)));
+    }
+    for (String region : QUERY_REGIONS) {
+      config = config.withCache(region, region(queryMaxEntries, ttl(queryTtl)));
+    }
+    // Отметки изменения таблиц не должны истекать раньше результатов запросов
+    config =
+        config.withCache(
+            RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+            region(1_000, ExpiryPolicyBuilder.noExpiration()));
+    EhcacheCachingProvider provider =
+        (EhcacheCachingProvider)
+            Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+    return provider.getCacheManager(
+        URI.create("urn:crm:hibernate-cache:" + UUID.randomUUID()), config.build());
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheProperties(
+      CacheManager hibernateCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+      properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+      // Статистика нужна для метрик попаданий в кэш
+      properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+    };
+  }
+
+  /**
+   * Метрики {@code crm.cache.requests} (hit/miss) и {@code crm.cache.hit.ratio} по регионам; доля
+   * попаданий не определена (NaN), пока к региону не было обращений.
+   */
+  @Bean
+  public MeterBinder hibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+    return registry -> {
+      Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      for (String region : ENTITY_REGIONS) {
+        bind(registry, region, statistics::getDomainDataRegionStatistics);
+      }
+      for (String region : List.of(CacheRegions.COMPANY_QUERIES, CacheRegions.PRODUCT_QUERIES)) {
+        bind(registry, region, statistics::getQueryRegionStatistics);
+      }
+    };
+  }
+
+  private static void bind(
+      MeterRegistry registry, String region, Function<String, CacheRegionStatistics> lookup) {
+    FunctionCounter.builder("crm.cache.requests", region, count(lookup, true))
+        .tag("region", region)
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("crm.cache.requests", region, count(lookup, false))
+        .tag("region", region)
+        .tag("result", "miss")
+        .register(registry);
+    Gauge.builder("crm.cache.hit.ratio", region, name -> hitRatio(lookup.apply(name)))
+        .tag("region", region)
+        .description("Доля попаданий в регион кэша второго уровня Hibernate")
+        .register(registry);
+  }
+
+  private static ToDoubleFunction<String> count(
+      Function<String, CacheRegionStatistics> lookup, boolean hits) {
+    return name -> {
+      CacheRegionStatistics statistics = lookup.apply(name);
+      if (statistics == null) {
+        return 0;
+      }
+      return hits ? statistics.getHitCount() : statistics.getMissCount();
+    };
+  }
+
+  private static double hitRatio(CacheRegionStatistics statistics) {
+    if (statistics == null) {
+      return Double.NaN;
+    }
+    long requests = statistics.getHitCount() + statistics.getMissCount();
+    return requests == 0 ? Double.NaN : (double) statistics.getHitCount() / requests;
+  }
+
+  private static CacheConfiguration<Object, Object> region(
+      long maxEntries, ExpiryPolicy<Object, Object> expiry) {
+    return CacheConfigurationBuilder.newCacheConfigurationBuilder(
+            Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+        .withExpiry(expiry)
+        .build();
+  }
+
+  private static ExpiryPolicy<Object, Object> ttl(Duration ttl) {
+    return ExpiryPolicyBuilder.timeToLiveExpiration(ttl);
+  }
+}
@@ -0,0 +1,53 @@
+package ru.mentee.power.crm.spring.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Подсчёт SQL-запросов Hibernate, чтобы N+1 на ленивых связях ({@code Lead.company}, {@code
+ * Deal.dealProducts}, {@code Company.leads}) находился сразу, а не в проде. Запросы видит {@link
+ * QueryCounter} как {@code StatementInspector}; области открывают фильтр на каждый HTTP-запрос и
+ * слушатель транзакций, который Spring Boot сам подключает к менеджеру транзакций.
+ *
+ * <p>Превышение {@code crm.query-count.request-threshold} или {@code transaction-threshold}
+ * пишется в лог с самым частым запросом; с {@code fail-on-threshold} — завершается {@code
+ * QueryCountExceededException}. Тесты проверяют число запросов через тот же {@link QueryCounter}.
+ */
+@Configuration
+@EnableConfigurationProperties(QueryCountProperties.class)
+@ConditionalOnProperty(
+    name = "crm.query-count.enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class QueryCountConfig {
+
+  @Bean
+  public QueryCounter queryCounter() {
+    return new QueryCounter();
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer queryCountInspector(QueryCounter queryCounter) {
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+  }
+
+  @Bean
+  public QueryCountFilter queryCountFilter(
+      QueryCounter queryCounter, QueryCountProperties properties) {
+    return new QueryCountFilter(
+        queryCounter,
+        new QueryCountLimit(properties.getRequestThreshold(), properties.isFailOnThreshold()));
+  }
+
+  @Bean
+  public QueryCountTransactionListener queryCountTransactionListener(
+      QueryCounter queryCounter, QueryCountProperties properties) {
+    return new QueryCountTransactionListener(
+        queryCounter,
+        new QueryCountLimit(properties.getTransactionThreshold(), properties.isFailOnThreshold()));
+  }
+}
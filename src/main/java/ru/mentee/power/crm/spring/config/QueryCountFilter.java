@@ -0,0 +1,33 @@
+package ru.mentee.power.crm.spring.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Считает запросы Hibernate за HTTP-запрос. Асинхронная часть ответа (потоковая выгрузка) идёт в
+ * другом потоке и в подсчёт не попадает.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+  private final QueryCounter queryCounter;
+  private final QueryCountLimit limit;
+
+  QueryCountFilter(QueryCounter queryCounter, QueryCountLimit limit) {
+    this.queryCounter = queryCounter;
+    this.limit = limit;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    try (QueryCounter.Scope scope =
+        queryCounter.open(request.getMethod() + " " + request.getRequestURI())) {
+      filterChain.doFilter(request, response);
+      limit.check(scope);
+    }
+  }
+}
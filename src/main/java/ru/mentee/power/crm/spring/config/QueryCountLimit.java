@@ -0,0 +1,21 @@
+package ru.mentee.power.crm.spring.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.mentee.power.crm.spring.exception.QueryCountExceededException;
+
+/** Порог числа запросов для области и реакция на его превышение. */
+record QueryCountLimit(int threshold, boolean failOnThreshold) {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryCounter.class);
+
+  void check(QueryCounter.Scope scope) {
+    if (scope.count() <= threshold) {
+      return;
+    }
+    String message = scope.describe() + " (threshold " + threshold + ")";
+    if (failOnThreshold) {
+      throw new QueryCountExceededException(message);
+    }
+    LOG.warn(message);
+  }
+}
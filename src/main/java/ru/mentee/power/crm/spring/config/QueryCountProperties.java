@@ -0,0 +1,22 @@
+package ru.mentee.power.crm.spring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Пороги числа SQL-запросов ({@code crm.query-count.*}). */
+@Data
+@ConfigurationProperties("crm.query-count")
+public class QueryCountProperties {
+
+  /** Включает подсчёт запросов Hibernate. */
+  private boolean enabled = true;
+
+  /** Сколько запросов допустимо за один HTTP-запрос. */
+  private int requestThreshold = 30;
+
+  /** Сколько запросов допустимо за одну транзакцию. */
+  private int transactionThreshold = 20;
+
+  /** Бросать {@code QueryCountExceededException} вместо предупреждения в лог. */
+  private boolean failOnThreshold;
+}
@@ -0,0 +1,66 @@
+package ru.mentee.power.crm.spring.config;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Считает запросы Hibernate за физическую транзакцию: от начала до фиксации или отката. Метод,
+ * участвующий во внешней транзакции, отдельно не считается; транзакция {@code REQUIRES_NEW}
+ * получает свою область, а её запросы входят и во внешнюю.
+ *
+ * <p>Порог проверяется после фиксации, когда Hibernate уже сбросил изменения. Поэтому при {@code
+ * fail-on-threshold} исключение получает вызывающий код, а данные остаются зафиксированными.
+ * Откаченные транзакции не проверяются: их исключение и так дойдёт до вызывающего.
+ */
+public class QueryCountTransactionListener implements TransactionExecutionListener {
+  private final QueryCounter queryCounter;
+  private final QueryCountLimit limit;
+  private final ThreadLocal<Deque<OpenTransaction>> transactions =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  QueryCountTransactionListener(QueryCounter queryCounter, QueryCountLimit limit) {
+    this.queryCounter = queryCounter;
+    this.limit = limit;
+  }
+
+  @Override
+  public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+    if (beginFailure == null) {
+      String name = transaction.getTransactionName();
+      transactions
+          .get()
+          .push(new OpenTransaction(transaction, queryCounter.open(name.isEmpty() ? "tx" : name)));
+    }
+  }
+
+  @Override
+  public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+    QueryCounter.Scope scope = finish(transaction);
+    if (scope != null && commitFailure == null) {
+      limit.check(scope);
+    }
+  }
+
+  @Override
+  public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+    finish(transaction);
+  }
+
+  /** Закрывает область транзакции; повторное завершение той же транзакции ничего не делает. */
+  private QueryCounter.Scope finish(TransactionExecution transaction) {
+    Deque<OpenTransaction> open = transactions.get();
+    if (open.isEmpty() || open.peek().transaction() != transaction) {
+      return null;
+    }
+    QueryCounter.Scope scope = open.pop().scope();
+    scope.close();
+    if (open.isEmpty()) {
+      transactions.remove();
+    }
+    return scope;
+  }
+
+  private record OpenTransaction(TransactionExecution transaction, QueryCounter.Scope scope) {}
+}
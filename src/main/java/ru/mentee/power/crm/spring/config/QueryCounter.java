@@ -0,0 +1,93 @@
+package ru.mentee.power.crm.spring.config;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Счётчик SQL-запросов Hibernate по областям: HTTP-запросу, транзакции, блоку кода в тесте. Области
+ * привязаны к потоку и вкладываются друг в друга; запрос засчитывается всем открытым областям
+ * потока, поэтому область HTTP-запроса включает запросы всех его транзакций.
+ *
+ * <p>Считаются подготовленные Hibernate выражения: JDBC-пакет из многих вставок — одно выражение,
+ * а SQL в обход Hibernate (JdbcTemplate) и запросы из других потоков не видны.
+ */
+public class QueryCounter implements StatementInspector {
+  private static final int MAX_DISTINCT_STATEMENTS = 100;
+
+  private final ThreadLocal<Deque<Scope>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+  @Override
+  public String inspect(String sql) {
+    for (Scope scope : scopes.get()) {
+      scope.record(sql);
+    }
+    return sql;
+  }
+
+  /** Открывает область в текущем потоке; закрыть её нужно в этом же потоке. */
+  public Scope open(String name) {
+    Scope scope = new Scope(name);
+    scopes.get().push(scope);
+    return scope;
+  }
+
+  /** Область подсчёта: число запросов и сколько раз встретился каждый из них. */
+  public final class Scope implements AutoCloseable {
+    private final String name;
+    private final Map<String, Integer> statements = new LinkedHashMap<>();
+    private int count;
+    private boolean closed;
+
+    private Scope(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public int count() {
+      return count;
+    }
+
+    /** Запросы с числом повторов; различных запросов хранится не больше ста. */
+    public Map<String, Integer> statements() {
+      return Collections.unmodifiableMap(statements);
+    }
+
+    /** Число запросов и самый частый из них — при N+1 это запрос в цикле. */
+    public String describe() {
+      if (count == 0) {
+        return name + ": 0 SQL statements";
+      }
+      Map.Entry<String, Integer> top =
+          Collections.max(statements.entrySet(), Map.Entry.comparingByValue());
+      return "%s: %d SQL statements, most repeated %d times: %s"
+          .formatted(name, count, top.getValue(), top.getKey());
+    }
+
+    private void record(String sql) {
+      count++;
+      if (statements.containsKey(sql) || statements.size() < MAX_DISTINCT_STATEMENTS) {
+        statements.merge(sql, 1, Integer::sum);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      Deque<Scope> open = scopes.get();
+      open.remove(this);
+      if (open.isEmpty()) {
+        scopes.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package ru.mentee.power.crm.spring.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Чтение с реплик: транзакции {@code @Transactional(readOnly = true)} получают соединение из пулов
+ * реплик, остальные — из основного пула {@code spring.datasource}. Включается свойством {@code
+ * crm.datasource.read-replicas.enabled}.
+ *
+ * <p>Выбор делает {@link LazyConnectionDataSourceProxy}: соединение берётся только на первом
+ * запросе, когда транзакция уже пометила его read-only. Поэтому read-only метод, вызванный внутри
+ * пишущей транзакции, читает с основной БД и видит её незафиксированные изменения. Отдельные
+ * read-only транзакции сразу после записи могут не увидеть её, если реплика отстаёт (не больше
+ * {@code max-lag} на момент последней проверки).
+ */
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+@ConditionalOnProperty(name = "crm.datasource.read-replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+  /** Основной пул, как его построил бы Spring Boot без этой конфигурации. */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean(destroyMethod = "close")
+  public ReplicaRoutingDataSource replicaDataSource(
+      HikariDataSource primaryDataSource, ReadReplicaProperties properties) {
+    List<ReadReplicaProperties.Replica> instances = properties.getInstances();
+    if (instances.isEmpty()) {
+      throw new IllegalStateException(
+          "crm.datasource.read-replicas.instances must list at least one replica");
+    }
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (int i = 0; i < instances.size(); i++) {
+      ReadReplicaProperties.Replica instance = instances.get(i);
+      HikariDataSource pool =
+          DataSourceBuilder.create()
+              .type(HikariDataSource.class)
+              .url(instance.getUrl())
+              .username(instance.getUsername())
+              .password(instance.getPassword())
+              .build();
+      pool.setPoolName("replica-" + i);
+      pool.setMaximumPoolSize(instance.getMaximumPoolSize());
+      pool.setReadOnly(true);
+      replicas.put(pool.getPoolName(), pool);
+    }
+    return new ReplicaRoutingDataSource(
+        primaryDataSource,
+        replicas,
+        properties.getMaxLag(),
+        properties.getLagCheckInterval(),
+        properties.getLagQuery());
+  }
+
+  /** Основной {@link DataSource} приложения: его получают JPA, JdbcTemplate и Liquibase. */
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+    dataSource.setReadOnlyDataSource(replicaDataSource);
+    return dataSource;
+  }
+
+  /** Метрика {@code crm.datasource.replica.lag} — последнее измеренное отставание в секундах. */
+  @Bean
+  public MeterBinder replicaLagMetrics(ReplicaRoutingDataSource replicaDataSource) {
+    return registry -> {
+      for (String replica : replicaDataSource.replicaNames()) {
+        Gauge.builder("crm.datasource.replica.lag", replicaDataSource, r -> r.lagSeconds(replica))
+            .tag("replica", replica)
+            .baseUnit("seconds")
+            .register(registry);
+      }
+    };
+  }
+}
@@ -0,0 +1,49 @@
+package ru.mentee.power.crm.spring.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Настройки реплик для чтения ({@code crm.datasource.read-replicas.*}). */
+@Data
+@ConfigurationProperties("crm.datasource.read-replicas")
+public class ReadReplicaProperties {
+
+  /**
+   * Запрос отставания реплики PostgreSQL в секундах. Пока реплика проиграла весь полученный WAL,
+   * отставание нулевое, иначе — возраст последней проигранной транзакции.
+   */
+  public static final String POSTGRES_LAG_QUERY =
+      """
+      SELECT CASE
+          WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()
+              THEN 0
+          ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+      END
+      """;
+
+  /** Включает маршрутизацию; без неё всё идёт в {@code spring.datasource}. */
+  private boolean enabled;
+
+  /** Реплика с большим отставанием не используется, чтения уходят на основную БД. */
+  private Duration maxLag = Duration.ofSeconds(1);
+
+  /** Как часто измерять отставание реплик. */
+  private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+  /** Запрос, возвращающий отставание реплики в секундах одним числом. */
+  private String lagQuery = POSTGRES_LAG_QUERY;
+
+  private List<Replica> instances = new ArrayList<>();
+
+  /** Подключение к одной реплике; пул — Hikari с размером {@code maximumPoolSize}. */
+  @Data
+  public static class Replica {
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+  }
+}
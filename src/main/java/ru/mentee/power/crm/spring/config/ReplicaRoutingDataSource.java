@@ -0,0 +1,159 @@
+package ru.mentee.power.crm.spring.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Источник соединений для транзакций только на чтение: реплики по кругу, а если ни одна не годится
+ * — основная БД. Реплика годится, если последнее измерение отставания успешно и не больше {@code
+ * maxLag}; недоступная или ещё не проверенная реплика не используется.
+ *
+ * <p>Отставание измеряется запросом {@code lagQuery} в фоновом потоке раз в {@code
+ * lagCheckInterval} (или вызовом {@link #refreshLag}), поэтому между проверками реплика может
+ * отстать сильнее порога.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final long maxLagMillis;
+  private final String lagQuery;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService lagChecks;
+
+  /**
+   * @param replicas реплики по имени для логов и метрик
+   * @param lagCheckInterval период фоновой проверки; {@code null} — только через {@link
+   *     #refreshLag}
+   */
+  public ReplicaRoutingDataSource(
+      DataSource primary,
+      Map<String, DataSource> replicas,
+      Duration maxLag,
+      Duration lagCheckInterval,
+      String lagQuery) {
+    this.primary = primary;
+    this.replicas =
+        replicas.entrySet().stream().map(e -> new Replica(e.getKey(), e.getValue())).toList();
+    this.maxLagMillis = maxLag.toMillis();
+    this.lagQuery = lagQuery;
+    if (lagCheckInterval == null) {
+      this.lagChecks = null;
+      return;
+    }
+    this.lagChecks =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("replica-lag-check").daemon().unstarted(runnable));
+    this.lagChecks.scheduleWithFixedDelay(
+        this::refreshLag, 0, lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+      if (replica.isUsable()) {
+        try {
+          return replica.dataSource.getConnection();
+        } catch (SQLException ex) {
+          replica.update(Long.MAX_VALUE, ex);
+        }
+      }
+    }
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLException("Read replicas use the credentials of their own pools");
+  }
+
+  /** Измеряет отставание каждой реплики; ошибка подключения или запроса исключает реплику. */
+  public void refreshLag() {
+    for (Replica replica : replicas) {
+      try (Connection connection = replica.dataSource.getConnection();
+          Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(lagQuery)) {
+        resultSet.next();
+        replica.update(Math.round(resultSet.getDouble(1) * 1000), null);
+      } catch (SQLException | RuntimeException ex) {
+        replica.update(Long.MAX_VALUE, ex);
+      }
+    }
+  }
+
+  /** Последнее измеренное отставание реплики в секундах; бесконечность, если она недоступна. */
+  public double lagSeconds(String replicaName) {
+    long lag =
+        replicas.stream()
+            .filter(replica -> replica.name.equals(replicaName))
+            .findFirst()
+            .orElseThrow()
+            .lagMillis;
+    return lag == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : lag / 1000.0;
+  }
+
+  public List<String> replicaNames() {
+    return replicas.stream().map(replica -> replica.name).toList();
+  }
+
+  /** Останавливает проверки и закрывает пулы реплик; основной источник остаётся открытым. */
+  @Override
+  public void close() {
+    if (lagChecks != null) {
+      lagChecks.shutdownNow();
+    }
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof AutoCloseable pool) {
+        try {
+          pool.close();
+        } catch (Exception ex) {
+          LOG.warn("Failed to close read replica {}", replica.name, ex);
+        }
+      }
+    }
+  }
+
+  private final class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private volatile long lagMillis = Long.MAX_VALUE;
+
+    private Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+
+    private boolean isUsable() {
+      return lagMillis <= maxLagMillis;
+    }
+
+    private synchronized void update(long newLagMillis, Exception failure) {
+      boolean wasUsable = isUsable();
+      lagMillis = newLagMillis;
+      if (wasUsable && !isUsable()) {
+        if (failure != null) {
+          LOG.warn("Read replica {} is unavailable, reading from primary", name, failure);
+        } else {
+          LOG.warn("Read replica {} lags {} ms, reading from primary", name, newLagMillis);
+        }
+      } else if (!wasUsable && isUsable()) {
+        LOG.info("Read replica {} is back in rotation, lag {} ms", name, newLagMillis);
+      }
+    }
+  }
+}
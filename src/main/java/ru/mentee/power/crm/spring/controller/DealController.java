@@ -1,6 +1,7 @@
 package ru.mentee.power.crm.spring.controller;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -10,7 +11,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
+import ru.mentee.power.crm.spring.repository.DealPipelineProjection;
 import ru.mentee.power.crm.spring.service.DealService;
 import ru.mentee.power.crm.spring.service.LeadService;
 
@@ -43,9 +47,24 @@ public class DealController {
   @GetMapping("/kanban")
   public String kanbanView(Model model) {
     model.addAttribute("dealsByStatus", dealService.getDealsByStatusForKanban());
+    model.addAttribute("statusSummary", dealService.getStatusSummary());
     return DEALS_KANBAN;
   }
 
+  /** Возвращает в JSON количество и сумму сделок по каждому статусу воронки. */
+  @GetMapping("/summary")
+  @ResponseBody
+  public List<DealStatusSummary> statusSummary() {
+    return dealService.getStatusSummary();
+  }
+
+  /** Возвращает в JSON итоги воронки, восстановленные из журнала переходов сделок. */
+  @GetMapping("/pipeline")
+  @ResponseBody
+  public List<DealPipelineProjection.Stage> pipeline() {
+    return dealService.getPipeline().stages();
+  }
+
   /** Показывает форму конвертации лида в сделку. */
   @GetMapping("/convert/{leadId}")
   public String showConvertForm(@PathVariable UUID leadId, Model model) {
@@ -1,6 +1,7 @@
 package ru.mentee.power.crm.spring.controller;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -10,9 +11,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import ru.mentee.power.crm.domain.DealStatus;
 import ru.mentee.power.crm.entity.Lead;
 import ru.mentee.power.crm.spring.dto.CreateDealRequest;
+import ru.mentee.power.crm.spring.repository.DealPipelineProjection;
 import ru.mentee.power.crm.spring.service.JpaDealService;
 import ru.mentee.power.crm.spring.service.JpaLeadService;
 
@@ -24,9 +27,11 @@ public class JpaDealController {
 
   private static final String DEALS_LIST = "jpa-deals/list";
   private static final String DEALS_KANBAN = "jpa-deals/kanban";
+  private static final String DEALS_KANBAN_COLUMN = "jpa-deals/kanban-column";
   private static final String DEALS_CONVERT = "jpa-deals/convert";
   private static final String REDIRECT_DEALS = "redirect:/jpa-deals";
   private static final String REDIRECT_DEALS_KANBAN = "redirect:/jpa-deals/kanban";
+  private static final int KANBAN_COLUMN_SIZE = 20;
 
   private final JpaDealService dealService;
   private final JpaLeadService leadService;
@@ -34,17 +39,35 @@ public class JpaDealController {
   /** Отображает список всех сделок. */
   @GetMapping
   public String listDeals(Model model) {
-    model.addAttribute("deals", dealService.getAllDeals());
+    model.addAttribute("deals", dealService.getDealListItems());
     return DEALS_LIST;
   }
 
-  /** Отображает Kanban-доску воронки продаж. */
+  /** Отображает Kanban-доску воронки продаж: итоги и самые новые сделки каждого статуса. */
   @GetMapping("/kanban")
   public String kanbanView(Model model) {
-    model.addAttribute("dealsByStatus", dealService.getDealsByStatusForKanban());
+    model.addAttribute("columns", dealService.getKanbanBoard(KANBAN_COLUMN_SIZE));
     return DEALS_KANBAN;
   }
 
+  /** Возвращает в JSON итоги воронки, восстановленные из журнала переходов JPA-сделок. */
+  @GetMapping("/pipeline")
+  @ResponseBody
+  public List<DealPipelineProjection.Stage> pipeline() {
+    return dealService.getPipeline().stages();
+  }
+
+  /** Отображает страницу одной колонки Kanban-доски, начиная с курсора. */
+  @GetMapping("/kanban/{status}")
+  public String kanbanColumn(
+      @PathVariable DealStatus status,
+      @RequestParam(required = false) String cursor,
+      Model model) {
+    model.addAttribute("status", status);
+    model.addAttribute("page", dealService.getKanbanColumn(status, cursor, KANBAN_COLUMN_SIZE));
+    return DEALS_KANBAN_COLUMN;
+  }
+
   /** Показывает форму конвертации лида в сделку. */
   @GetMapping("/convert/{leadId}")
   public String showConvertForm(@PathVariable UUID leadId, Model model) {
@@ -3,6 +3,7 @@ package ru.mentee.power.crm.spring.controller;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 import jakarta.validation.Valid;
+import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -14,9 +15,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
 import ru.mentee.power.crm.spring.service.JpaCompanyService;
@@ -49,7 +52,7 @@ public class JpaLeadController {
       statusEnum = StatusEnum.valueOf(status);
     }
 
-    var leads = leadService.findLeads(search, statusEnum);
+    var leads = leadService.findLeadItems(search, statusEnum);
     model.addAttribute("leads", leads);
     model.addAttribute("search", search != null ? search : "");
     model.addAttribute("status", status != null ? status : "");
@@ -57,6 +60,23 @@ public class JpaLeadController {
     return LEADS_LIST;
   }
 
+  /**
+   * Возвращает в JSON лучшие совпадения ранжированного поиска по имени, email и компании. В отличие
+   * от списка, совпадения упорядочены по близости к запросу и ограничены {@code limit}.
+   */
+  @GetMapping("/search")
+  @ResponseBody
+  public List<LeadListItem> searchLeads(
+      @RequestParam String q,
+      @RequestParam(required = false) String status,
+      @RequestParam(defaultValue = "50") int limit) {
+    StatusEnum statusEnum = null;
+    if (status != null && !status.isEmpty()) {
+      statusEnum = StatusEnum.valueOf(status);
+    }
+    return leadService.searchLeadItems(q, statusEnum, limit);
+  }
+
   /** Показывает форму для создания нового лида */
   @GetMapping("/new")
   public String showCreateForm(Model model) {
@@ -0,0 +1,10 @@
+package ru.mentee.power.crm.spring.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import ru.mentee.power.crm.domain.DealStatus;
+
+/** Строка таблицы сделок: только отображаемые столбцы, без позиций сделки и версии. */
+public record DealListItem(
+    UUID id, BigDecimal amount, DealStatus status, UUID leadId, OffsetDateTime createdAt) {}
@@ -0,0 +1,11 @@
+package ru.mentee.power.crm.spring.dto;
+
+import ru.mentee.power.crm.domain.DealStatusSummary;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
+
+/**
+ * Колонка Kanban-доски: итоги статуса по всем сделкам и первая страница самых новых из них.
+ *
+ * @param deals сделки колонки; курсор ведёт к следующей странице этой колонки
+ */
+public record KanbanColumn(DealStatusSummary summary, KeysetPage<DealListItem> deals) {}
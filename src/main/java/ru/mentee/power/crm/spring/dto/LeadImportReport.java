@@ -0,0 +1,30 @@
+package ru.mentee.power.crm.spring.dto;
+
+import java.util.List;
+
+/**
+ * Итоги массового импорта лидов.
+ *
+ * @param processed сколько записей прочитано из файла
+ * @param imported сколько лидов сохранено
+ * @param failed сколько записей отклонено
+ * @param errors ошибки по строкам; не больше заданного предела, остальные только подсчитаны
+ * @param durationMs длительность импорта в миллисекундах
+ */
+public record LeadImportReport(
+    long processed, long imported, long failed, List<RowError> errors, long durationMs) {
+
+  /** Проверяет, попали ли в {@link #errors()} все отклонённые записи. */
+  public boolean errorsTruncated() {
+    return errors.size() < failed;
+  }
+
+  /**
+   * Ошибка одной записи файла.
+   *
+   * @param line номер строки файла
+   * @param email email из записи, если его удалось прочитать
+   * @param message причина отказа
+   */
+  public record RowError(long line, String email, String message) {}
+}
@@ -0,0 +1,12 @@
+package ru.mentee.power.crm.spring.dto;
+
+import java.util.UUID;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+
+/**
+ * Строка таблицы лидов: только отображаемые столбцы и название компании, без управляемой сущности.
+ *
+ * @param companyName название компании или {@code null}, если компании нет
+ */
+public record LeadListItem(
+    UUID id, String name, String email, String phone, String companyName, StatusEnum status) {}
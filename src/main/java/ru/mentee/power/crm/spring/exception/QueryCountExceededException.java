@@ -0,0 +1,8 @@
+package ru.mentee.power.crm.spring.exception;
+
+/** HTTP-запрос или транзакция выполнили больше SQL-запросов, чем разрешает порог. */
+public class QueryCountExceededException extends IllegalStateException {
+  public QueryCountExceededException(String message) {
+    super(message);
+  }
+}
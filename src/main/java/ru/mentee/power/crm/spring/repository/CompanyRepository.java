@@ -1,21 +1,33 @@
 package ru.mentee.power.crm.spring.repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.Optional;
 import java.util.UUID;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.mentee.power.crm.entity.CacheRegions;
 import ru.mentee.power.crm.entity.Company;
 
 /** Репозиторий для работы с компаниями. */
-public interface CompanyRepository extends JpaRepository<Company, UUID> {
+public interface CompanyRepository extends JpaRepository<Company, UUID>, CompanyUpsertRepository {
 
   /** Находит компанию по ID и загружает связанные лиды за один запрос (решение N+1). */
   @EntityGraph(attributePaths = {"leads"})
   @Query("SELECT c FROM Company c WHERE c.id = :id")
   Optional<Company> findByIdWithLeads(@Param("id") UUID id);
 
-  /** Находит компанию по точному названию. */
+  /**
+   * Находит компанию по точному названию, без нормализации (для поиска с созданием см. {@link
+   * #upsertByName}). Результат берётся из кэша запросов; любая запись в таблицу companies делает
+   * кэш этого запроса недействительным.
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+    @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.COMPANY_QUERIES)
+  })
   Optional<Company> findByName(String name);
 }
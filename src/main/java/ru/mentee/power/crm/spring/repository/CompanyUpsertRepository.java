@@ -0,0 +1,17 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.UUID;
+
+/** Атомарное создание компании по названию; реализация зависит от СУБД. */
+public interface CompanyUpsertRepository {
+
+  /**
+   * Возвращает id компании с тем же нормализованным названием (см. {@link
+   * ru.mentee.power.crm.entity.Company#normalizeName}) или создаёт её одним запросом к БД.
+   * Конкурентные вызовы с одним названием не создают дубликатов: в PostgreSQL конфликт
+   * разрешается через {@code ON CONFLICT DO NOTHING}, в H2 проигравший получает нарушение
+   * уникальности и может повторить вызов. Выполняется в собственной транзакции, так что такая
+   * ошибка не затрагивает транзакцию вызывающего.
+   */
+  UUID upsertByName(String name);
+}
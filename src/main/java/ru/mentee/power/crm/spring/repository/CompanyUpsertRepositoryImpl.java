@@ -0,0 +1,132 @@
+package ru.mentee.power.crm.spring.repository;
+
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.mentee.power.crm.entity.CacheRegions;
+import ru.mentee.power.crm.entity.Company;
+
+/**
+ * Реализация {@link CompanyUpsertRepository} на уникальном ключе {@code name_key} из миграции 010.
+ * Запрос выбирается по диалекту Hibernate один раз при создании: для PostgreSQL — {@code INSERT
+ * ... ON CONFLICT DO NOTHING RETURNING}, для остальных СУБД (H2 в тестах) — {@code MERGE}.
+ *
+ * <p>Вставка выполняется в отдельной транзакции ({@code REQUIRES_NEW}): ошибка проигравшего в
+ * гонке откатывает только её, а созданная компания фиксируется сразу и не исчезает вместе с
+ * откатом вызывающего, пока её id уже лежит в кэше сервиса. Цена — второе соединение из пула на
+ * время вставки.
+ */
+class CompanyUpsertRepositoryImpl implements CompanyUpsertRepository {
+
+  /**
+   * Вставка и чтение существующей строки в одном запросе. Основной SELECT видит снимок на начало
+   * запроса, поэтому если конфликтующая строка зафиксирована конкурентной транзакцией уже после
+   * него, результат пуст и id дочитывается отдельно.
+   */
+  private static final String INSERT_ON_CONFLICT =
+      """
+      WITH inserted AS (
+          INSERT INTO companies (id, name, name_key)
+          VALUES (:id, :name, :nameKey)
+          ON CONFLICT (name_key) DO NOTHING
+          RETURNING id
+      )
+      SELECT id FROM inserted
+      UNION ALL
+      SELECT id FROM companies WHERE name_key = :nameKey
+      LIMIT 1
+      """;
+
+  private static final String MERGE =
+      """
+      MERGE INTO companies c
+      USING (VALUES (CAST(:id AS UUID), CAST(:name AS VARCHAR(255)),
+                     CAST(:nameKey AS VARCHAR(255)))) AS s (id, name, name_key)
+      ON c.name_key = s.name_key
+      WHEN NOT MATCHED THEN INSERT (id, name, name_key) VALUES (s.id, s.name, s.name_key)
+      """;
+
+  private static final String SELECT_ID = "SELECT id FROM companies WHERE name_key = :nameKey";
+
+  private final EntityManager entityManager;
+  private final SessionFactoryImplementor sessionFactory;
+  private final boolean postgres;
+
+  CompanyUpsertRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+    this.sessionFactory =
+        entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    this.postgres = sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+  }
+
+  @Override
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public UUID upsertByName(String name) {
+    String nameKey = Company.normalizeName(name);
+    UUID id = UUID.randomUUID();
+    UUID result = postgres ? insertOnConflict(id, name, nameKey) : merge(id, name, nameKey);
+    if (id.equals(result)) {
+      evictCompanyQueries();
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private UUID insertOnConflict(UUID id, String name, String nameKey) {
+    List<UUID> ids =
+        entityManager
+            .createNativeQuery(INSERT_ON_CONFLICT, UUID.class)
+            .setParameter("id", id)
+            .setParameter("name", name)
+            .setParameter("nameKey", nameKey)
+            .getResultList();
+    return ids.isEmpty() ? selectId(nameKey) : ids.getFirst();
+  }
+
+  @SuppressWarnings("rawtypes")
+  private UUID merge(UUID id, String name, String nameKey) {
+    int inserted =
+        entityManager
+            .createNativeQuery(MERGE)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(Company.class)
+            .setParameter("id", id)
+            .setParameter("name", name)
+            .setParameter("nameKey", nameKey)
+            .executeUpdate();
+    return inserted > 0 ? id : selectId(nameKey);
+  }
+
+  private UUID selectId(String nameKey) {
+    return (UUID)
+        entityManager
+            .createNativeQuery(SELECT_ID, UUID.class)
+            .setParameter("nameKey", nameKey)
+            .getSingleResult();
+  }
+
+  /**
+   * Новая строка вставлена в обход Hibernate, поэтому закэшированный пустой результат {@code
+   * findByName} сбрасывается вручную — сразу и ещё раз после коммита, чтобы в регион не попал
+   * результат, прочитанный конкурентной транзакцией до фиксации вставки.
+   */
+  private void evictCompanyQueries() {
+    sessionFactory.getCache().evictQueryRegion(CacheRegions.COMPANY_QUERIES);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              sessionFactory.getCache().evictQueryRegion(CacheRegions.COMPANY_QUERIES);
+            }
+          });
+    }
+  }
+}
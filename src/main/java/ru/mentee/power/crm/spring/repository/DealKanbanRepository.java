@@ -0,0 +1,15 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.List;
+import ru.mentee.power.crm.spring.dto.DealListItem;
+
+/** Выборка сделок для Kanban-доски одним запросом. */
+public interface DealKanbanRepository {
+
+  /**
+   * Возвращает до {@code perStatus} самых новых сделок каждого статуса, упорядоченных внутри
+   * статуса по (createdAt, id) от новых к старым. Каждый статус читается отдельной ветвью с LIMIT
+   * по индексу idx_deals_status_created_at_id, поэтому время не зависит от числа сделок.
+   */
+  List<DealListItem> findTopPerStatus(int perStatus);
+}
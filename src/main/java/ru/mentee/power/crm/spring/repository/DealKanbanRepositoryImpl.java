@@ -0,0 +1,66 @@
+package ru.mentee.power.crm.spring.repository;
+
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.hibernate.query.NativeQuery;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.spring.dto.DealListItem;
+
+/**
+ * Реализация {@link DealKanbanRepository}: по ветви UNION ALL с ORDER BY и LIMIT на каждый статус.
+ * Так планировщик берёт из индекса только первые строки каждого статуса — то же, что дал бы
+ * LATERAL-join по списку статусов, но запрос одинаково работает в PostgreSQL и H2. Оконная функция
+ * {@code row_number()} здесь не подходит: она нумерует все сделки таблицы.
+ */
+class DealKanbanRepositoryImpl implements DealKanbanRepository {
+
+  private static final String TOP_PER_STATUS =
+      Arrays.stream(DealStatus.values())
+          .map(
+              status ->
+                  """
+                  (SELECT d.id, d.amount, d.status, d.lead_id, d.created_at FROM deals d
+                   WHERE d.status = '%s'
+                   ORDER BY d.created_at DESC, d.id DESC
+                   LIMIT :perStatus)
+                  """
+                      .formatted(status.name()))
+          .collect(Collectors.joining("UNION ALL\n"));
+
+  private final EntityManager entityManager;
+
+  DealKanbanRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<DealListItem> findTopPerStatus(int perStatus) {
+    List<Object[]> rows =
+        entityManager
+            .createNativeQuery(TOP_PER_STATUS)
+            .unwrap(NativeQuery.class)
+            .addScalar("id", UUID.class)
+            .addScalar("amount", BigDecimal.class)
+            .addScalar("status", String.class)
+            .addScalar("lead_id", UUID.class)
+            .addScalar("created_at", OffsetDateTime.class)
+            .setParameter("perStatus", perStatus)
+            .getResultList();
+    return rows.stream()
+        .map(
+            row ->
+                new DealListItem(
+                    (UUID) row[0],
+                    (BigDecimal) row[1],
+                    DealStatus.valueOf((String) row[2]),
+                    (UUID) row[3],
+                    (OffsetDateTime) row[4]))
+        .toList();
+  }
+}
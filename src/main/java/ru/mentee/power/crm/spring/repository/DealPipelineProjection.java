@@ -0,0 +1,163 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.infrastructure.UuidMap;
+
+/**
+ * Проекции воронки, восстановленные из {@link DealTransitionLog}: текущий статус каждой сделки,
+ * сколько сделок сейчас в каждой стадии и на какую сумму, сколько сделок когда-либо её достигли и
+ * сколько в среднем в ней провели.
+ *
+ * <p>Проекция — неизменяемый снимок журнала на момент построения. Каждый раздел журнала
+ * воспроизводится в свой {@link Shard}, общие итоги складываются из итогов разделов, а статус
+ * сделки ищется только в разделе, которому она принадлежит. Время в стадии учитывается, когда
+ * сделка из неё вышла; для сделок, чьё появление не попало в журнал, первая стадия не учитывается.
+ */
+public final class DealPipelineProjection {
+  private static final DealStatus[] STATUSES = DealStatus.values();
+
+  private final Shard[] shards;
+  private final ToIntFunction<UUID> partitionOf;
+  private final List<Stage> stages;
+
+  DealPipelineProjection(Shard[] shards, ToIntFunction<UUID> partitionOf) {
+    this.shards = shards;
+    this.partitionOf = partitionOf;
+    this.stages = merge(shards);
+  }
+
+  /** Возвращает статус сделки после последнего перехода в журнале. */
+  public Optional<DealStatus> currentStatus(UUID dealId) {
+    DealState state = shards[partitionOf.applyAsInt(dealId)].deals.get(dealId);
+    return state != null ? Optional.of(STATUSES[state.status]) : Optional.empty();
+  }
+
+  /** Возвращает итоги по всем стадиям в порядке воронки. */
+  public List<Stage> stages() {
+    return stages;
+  }
+
+  /** Возвращает итоги одной стадии. */
+  public Stage stage(DealStatus status) {
+    return stages.get(status.ordinal());
+  }
+
+  /** Возвращает число сделок, встреченных в журнале. */
+  public long deals() {
+    long deals = 0;
+    for (Shard shard : shards) {
+      deals += shard.deals.size();
+    }
+    return deals;
+  }
+
+  /** Возвращает число применённых событий. */
+  public long events() {
+    long events = 0;
+    for (Shard shard : shards) {
+      events += shard.events;
+    }
+    return events;
+  }
+
+  private static List<Stage> merge(Shard[] shards) {
+    List<Stage> stages = new ArrayList<>(STATUSES.length);
+    for (DealStatus status : STATUSES) {
+      int stage = status.ordinal();
+      long current = 0;
+      long reached = 0;
+      long exited = 0;
+      long millisInStage = 0;
+      BigDecimal currentAmount = BigDecimal.ZERO;
+      for (Shard shard : shards) {
+        current += shard.current[stage];
+        reached += shard.reached[stage];
+        exited += shard.exited[stage];
+        millisInStage += shard.millisInStage[stage];
+        currentAmount = currentAmount.add(shard.currentAmount[stage]);
+      }
+      stages.add(
+          new Stage(
+              status, current, currentAmount, reached, exited, Duration.ofMillis(millisInStage)));
+    }
+    return List.copyOf(stages);
+  }
+
+  /**
+   * Итоги одной стадии воронки.
+   *
+   * @param status стадия
+   * @param current сколько сделок находится в ней сейчас
+   * @param currentAmount сумма этих сделок
+   * @param reached сколько сделок когда-либо в неё переходили
+   * @param exited сколько сделок из неё вышли
+   * @param timeInStage суммарное время, проведённое в стадии вышедшими сделками
+   */
+  public record Stage(
+      DealStatus status,
+      long current,
+      BigDecimal currentAmount,
+      long reached,
+      long exited,
+      Duration timeInStage) {
+
+    /** Среднее время в стадии у вышедших из неё сделок. */
+    public Duration averageTimeInStage() {
+      return exited > 0 ? timeInStage.dividedBy(exited) : Duration.ZERO;
+    }
+  }
+
+  /** Проекция одного раздела журнала. Строится одним потоком, после построения не меняется. */
+  static final class Shard {
+    private final UuidMap<DealState> deals = new UuidMap<>();
+    private final long[] current = new long[STATUSES.length];
+    private final BigDecimal[] currentAmount = new BigDecimal[STATUSES.length];
+    private final long[] reached = new long[STATUSES.length];
+    private final long[] exited = new long[STATUSES.length];
+    private final long[] millisInStage = new long[STATUSES.length];
+    private long events;
+
+    Shard() {
+      Arrays.fill(currentAmount, BigDecimal.ZERO);
+    }
+
+    /** Применяет очередное событие раздела: сделка перешла в статус {@code to}. */
+    void apply(
+        long mostSigBits, long leastSigBits, DealStatus to, long epochMillis, BigDecimal amount) {
+      DealState state = deals.get(mostSigBits, leastSigBits);
+      if (state == null) {
+        state = new DealState();
+        deals.put(new UUID(mostSigBits, leastSigBits), state);
+      } else {
+        int previous = state.status;
+        current[previous]--;
+        currentAmount[previous] = currentAmount[previous].subtract(state.amount);
+        exited[previous]++;
+        millisInStage[previous] += epochMillis - state.enteredAt;
+      }
+      int next = to.ordinal();
+      state.status = next;
+      state.enteredAt = epochMillis;
+      state.amount = amount != null ? amount : BigDecimal.ZERO;
+      current[next]++;
+      currentAmount[next] = currentAmount[next].add(state.amount);
+      reached[next]++;
+      events++;
+    }
+  }
+
+  /** Состояние сделки при воспроизведении: текущая стадия, момент входа в неё и сумма. */
+  private static final class DealState {
+    private int status;
+    private long enteredAt;
+    private BigDecimal amount;
+  }
+}
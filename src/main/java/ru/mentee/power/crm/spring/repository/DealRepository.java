@@ -1,10 +1,13 @@
 package ru.mentee.power.crm.spring.repository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import ru.mentee.power.crm.domain.Deal;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
 
 /** Репозиторий для работы со сделками (Deal). */
 public interface DealRepository {
@@ -17,9 +20,18 @@ public interface DealRepository {
   /** Возвращает все существующие сделки. */
   List<Deal> findAll();
 
+  /** Возвращает сделки потоком без копирования в список; обход слабо согласован. */
+  Stream<Deal> stream();
+
   /** Возвращает все сделки с заданным статусом. */
   List<Deal> findByStatus(DealStatus status);
 
+  /** Возвращает сделки, сгруппированные по статусу; пустые статусы в результат не попадают. */
+  Map<DealStatus, List<Deal>> findAllGroupedByStatus();
+
+  /** Возвращает количество и сумму сделок по каждому статусу в порядке воронки. */
+  List<DealStatusSummary> summarizeByStatus();
+
   /** Удаляет сделку по ID. */
   void deleteById(UUID id);
 }
@@ -0,0 +1,217 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.springframework.stereotype.Repository;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealTransition;
+
+/**
+ * Журнал переходов сделок по воронке, в который события только дописываются. Из журнала
+ * повторным применением событий строится {@link DealPipelineProjection}: текущие статусы, время в
+ * каждой стадии и воронка.
+ *
+ * <p>Журнал разбит на разделы по хешу ID сделки, так что все события одной сделки лежат в одном
+ * разделе в порядке записи. Поэтому разделы воспроизводятся независимо и параллельно, а их итоги
+ * потом просто складываются. Внутри раздела события хранятся по столбцам в блоках примитивных
+ * массивов (половины UUID, время в миллисекундах, оба статуса в одном байте и ссылка на сумму) —
+ * около 30 байт на событие без отдельного объекта на каждое.
+ *
+ * <p>Запись в раздел сериализована его монитором, чтение блокировок не берёт: читатель видит все
+ * события, опубликованные до того, как он прочитал размер раздела. Время событий хранится с
+ * точностью до миллисекунды.
+ *
+ * <p>Сам журнал живёт в памяти. Бин журнала ведёт историю сделок {@link InMemoryDealRepository},
+ * и эти события живут столько же, сколько и сами сделки. У JPA-сделок свой экземпляр журнала в
+ * {@link ru.mentee.power.crm.spring.service.DealTransitionRecorder}: их переходы дополнительно
+ * сохраняются в таблицу {@code deal_transitions} и при старте приложения воспроизводятся заново.
+ */
+@Repository
+public class DealTransitionLog {
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final DealStatus[] STATUSES = DealStatus.values();
+
+  private final Partition[] partitions;
+  private final Clock clock;
+
+  /** Создаёт журнал с числом разделов по числу процессоров. */
+  public DealTransitionLog() {
+    this(Runtime.getRuntime().availableProcessors(), Clock.systemUTC());
+  }
+
+  /**
+   * Создаёт журнал с заданным числом разделов (округляется вверх до степени двойки) и часами, по
+   * которым {@link #record} проставляет время событий.
+   */
+  public DealTransitionLog(int partitions, Clock clock) {
+    int count = Integer.highestOneBit(Math.max(1, partitions));
+    if (count < partitions) {
+      count <<= 1;
+    }
+    this.partitions = new Partition[count];
+    for (int i = 0; i < count; i++) {
+      this.partitions[i] = new Partition();
+    }
+    this.clock = clock;
+  }
+
+  /**
+   * Дописывает переход сделки с текущим временем.
+   *
+   * @param from прежний статус или {@code null} для новой сделки
+   * @return записанное событие
+   */
+  public DealTransition record(UUID dealId, DealStatus from, DealStatus to, BigDecimal amount) {
+    DealTransition event = transition(dealId, from, to, amount);
+    append(event);
+    return event;
+  }
+
+  /**
+   * Создаёт событие перехода с текущим временем, не дописывая его в журнал. Время обрезается до
+   * миллисекунд — точности журнала, так что сохранённое и воспроизведённое события совпадают.
+   *
+   * @param from прежний статус или {@code null} для новой сделки
+   */
+  public DealTransition transition(
+      UUID dealId, DealStatus from, DealStatus to, BigDecimal amount) {
+    return new DealTransition(
+        dealId, from, to, clock.instant().truncatedTo(ChronoUnit.MILLIS), amount);
+  }
+
+  /** Дописывает готовое событие в раздел его сделки. */
+  public void append(DealTransition event) {
+    partitions[partitionOf(event.dealId())].append(event);
+  }
+
+  /** Возвращает общее число событий в журнале. */
+  public long size() {
+    long size = 0;
+    for (Partition partition : partitions) {
+      size += partition.size;
+    }
+    return size;
+  }
+
+  /** Возвращает число разделов журнала. */
+  public int partitions() {
+    return partitions.length;
+  }
+
+  /**
+   * Передаёт получателю все события журнала по разделам. Порядок записи сохраняется для событий
+   * одной сделки, но не между разными сделками.
+   */
+  public void replay(Consumer<DealTransition> consumer) {
+    for (Partition partition : partitions) {
+      partition.replay(consumer);
+    }
+  }
+
+  /** Строит проекции воронки, воспроизводя разделы журнала параллельно. */
+  public DealPipelineProjection project() {
+    return project(true);
+  }
+
+  /** Строит те же проекции в одном потоке, раздел за разделом. */
+  public DealPipelineProjection projectSequentially() {
+    return project(false);
+  }
+
+  private DealPipelineProjection project(boolean parallel) {
+    IntStream indexes = IntStream.range(0, partitions.length);
+    DealPipelineProjection.Shard[] shards =
+        (parallel ? indexes.parallel() : indexes)
+            .mapToObj(i -> partitions[i].project())
+            .toArray(DealPipelineProjection.Shard[]::new);
+    return new DealPipelineProjection(shards, this::partitionOf);
+  }
+
+  private int partitionOf(UUID dealId) {
+    long hash = dealId.getMostSignificantBits() ^ dealId.getLeastSignificantBits();
+    hash ^= hash >>> 32;
+    return ((int) hash ^ (int) hash >>> 16) & (partitions.length - 1);
+  }
+
+  private static byte encode(DealStatus from, DealStatus to) {
+    return (byte) ((from != null ? from.ordinal() + 1 : 0) << 4 | to.ordinal());
+  }
+
+  /** Раздел журнала: события сделок с одинаковым номером раздела в порядке записи. */
+  private static final class Partition {
+    private Chunk[] chunks = new Chunk[4];
+    private volatile int size;
+
+    synchronized void append(DealTransition event) {
+      int index = size;
+      int chunk = index >>> CHUNK_BITS;
+      if (chunk == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunk * 2);
+      }
+      if (chunks[chunk] == null) {
+        chunks[chunk] = new Chunk();
+      }
+      chunks[chunk].set(index & (CHUNK_SIZE - 1), event);
+      size = index + 1;
+    }
+
+    void replay(Consumer<DealTransition> consumer) {
+      int count = size;
+      Chunk[] snapshot = chunks;
+      for (int i = 0; i < count; i++) {
+        consumer.accept(snapshot[i >>> CHUNK_BITS].get(i & (CHUNK_SIZE - 1)));
+      }
+    }
+
+    DealPipelineProjection.Shard project() {
+      int count = size;
+      Chunk[] snapshot = chunks;
+      DealPipelineProjection.Shard shard = new DealPipelineProjection.Shard();
+      for (int i = 0; i < count; i++) {
+        Chunk chunk = snapshot[i >>> CHUNK_BITS];
+        int slot = i & (CHUNK_SIZE - 1);
+        shard.apply(
+            chunk.mostSigBits[slot],
+            chunk.leastSigBits[slot],
+            STATUSES[chunk.statuses[slot] & 0x0F],
+            chunk.epochMillis[slot],
+            chunk.amounts[slot]);
+      }
+      return shard;
+    }
+  }
+
+  /** Блок событий раздела, разложенных по столбцам. */
+  private static final class Chunk {
+    private final long[] mostSigBits = new long[CHUNK_SIZE];
+    private final long[] leastSigBits = new long[CHUNK_SIZE];
+    private final long[] epochMillis = new long[CHUNK_SIZE];
+    private final byte[] statuses = new byte[CHUNK_SIZE];
+    private final BigDecimal[] amounts = new BigDecimal[CHUNK_SIZE];
+
+    void set(int slot, DealTransition event) {
+      mostSigBits[slot] = event.dealId().getMostSignificantBits();
+      leastSigBits[slot] = event.dealId().getLeastSignificantBits();
+      epochMillis[slot] = event.occurredAt().toEpochMilli();
+      statuses[slot] = encode(event.from(), event.to());
+      amounts[slot] = event.amount();
+    }
+
+    DealTransition get(int slot) {
+      int from = statuses[slot] >>> 4 & 0x0F;
+      return new DealTransition(
+          new UUID(mostSigBits[slot], leastSigBits[slot]),
+          from > 0 ? STATUSES[from - 1] : null,
+          STATUSES[statuses[slot] & 0x0F],
+          Instant.ofEpochMilli(epochMillis[slot]),
+          amounts[slot]);
+    }
+  }
+}
@@ -1,29 +1,87 @@
 package ru.mentee.power.crm.spring.repository;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import ru.mentee.power.crm.domain.Deal;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
+import ru.mentee.power.crm.spring.repository.wal.DealRecords;
+import ru.mentee.power.crm.spring.repository.wal.SnapshotSource;
+import ru.mentee.power.crm.spring.repository.wal.WriteAheadLog;
 
 /**
  * In-memory реализация репозитория сделок. Хранит данные в ConcurrentHashMap для
- * потокобезопасности.
+ * потокобезопасности. {@link #findAll()} отдаёт неизменяемый снимок, который копируется не чаще
+ * одного раза между записями. Если передан {@link WriteAheadLog}, каждое сохранение и удаление
+ * журналируется под блокировкой ключа, а при создании репозитория воспроизводятся снимок и хвост
+ * журнала.
+ *
+ * <p>Сделки дополнительно разложены по колонкам, по одной на {@link DealStatus}, и каждая колонка
+ * ведёт текущие количество и сумму своих сделок. Поэтому выборка по статусу и Kanban-доска стоят
+ * O(размера результата), а итоги по воронке — O(числа статусов). Колонки обновляются при каждом
+ * сохранении (в том числе после смены статуса) и удалении под той же блокировкой ключа, так что
+ * сделка учитывается по статусу на момент последнего {@link #save(Deal)}.
+ *
+ * <p>Если передан {@link DealTransitionLog}, под той же блокировкой в него дописывается появление
+ * сделки и каждый её переход с прошлого сохранения (см. {@link Deal#drainStatusChanges()}), в том
+ * числе промежуточные, если их было несколько. События одной сделки идут в журнале в порядке
+ * переходов. При восстановлении из WAL события не порождаются.
  */
 @Repository
-public class InMemoryDealRepository implements DealRepository {
+public class InMemoryDealRepository implements DealRepository, SnapshotSource {
   private final Map<UUID, Deal> storage = new ConcurrentHashMap<>();
+  private final Map<UUID, DealStatus> indexedStatus = new ConcurrentHashMap<>();
+  private final Map<DealStatus, StatusColumn> columns = newColumns();
+  private final VersionedSnapshot<Deal> allDeals = new VersionedSnapshot<>(storage::values);
+  private final WriteAheadLog wal;
+  private final DealTransitionLog transitions;
+
+  /** Создаёт пустой репозиторий без журналирования. */
+  public InMemoryDealRepository() {
+    this(null, null);
+  }
+
+  /** Создаёт пустой репозиторий, который пишет переходы сделок в указанный журнал событий. */
+  @Autowired
+  public InMemoryDealRepository(DealTransitionLog transitions) {
+    this(null, transitions);
+  }
+
+  /** Создаёт репозиторий, журналируемый в указанный WAL, и восстанавливает состояние из него. */
+  public InMemoryDealRepository(WriteAheadLog wal) {
+    this(wal, null);
+  }
+
+  /**
+   * Создаёт репозиторий, журналируемый в указанный WAL, и восстанавливает состояние из него.
+   * Переходы сделок после восстановления пишутся в журнал событий, если он передан.
+   */
+  public InMemoryDealRepository(WriteAheadLog wal, DealTransitionLog transitions) {
+    this.wal = wal;
+    this.transitions = transitions;
+    if (wal != null) {
+      wal.replay(
+          record -> DealRecords.apply(record, deal -> store(deal, false), id -> remove(id, false)));
+    }
+  }
 
   @Override
   public void save(Deal deal) {
     if (deal.getId() == null) {
       throw new IllegalArgumentException("Deal must not be null");
     }
-    storage.put(deal.getId(), deal);
+    awaitDurable(journaled(() -> store(deal, true)));
   }
 
   @Override
@@ -33,16 +91,169 @@ public class InMemoryDealRepository implements DealRepository {
 
   @Override
   public List<Deal> findAll() {
-    return new ArrayList<>(storage.values());
+    return allDeals.get();
+  }
+
+  @Override
+  public Stream<Deal> stream() {
+    return storage.values().stream();
   }
 
   @Override
   public List<Deal> findByStatus(DealStatus status) {
-    return storage.values().stream().filter(deal -> deal.getStatus() == status).toList();
+    StatusColumn column = column(status);
+    return column != null ? List.copyOf(column.deals.values()) : List.of();
+  }
+
+  @Override
+  public Map<DealStatus, List<Deal>> findAllGroupedByStatus() {
+    Map<DealStatus, List<Deal>> grouped = new EnumMap<>(DealStatus.class);
+    for (StatusColumn column : columns.values()) {
+      List<Deal> deals = List.copyOf(column.deals.values());
+      if (!deals.isEmpty()) {
+        grouped.put(column.status, deals);
+      }
+    }
+    return grouped;
+  }
+
+  @Override
+  public List<DealStatusSummary> summarizeByStatus() {
+    return columns.values().stream().map(column -> column.summary.get()).toList();
   }
 
   @Override
   public void deleteById(UUID id) {
-    storage.remove(id);
+    awaitDurable(journaled(() -> remove(id, true)));
+  }
+
+  /** Выгружает все сделки в виде записей журнала, не блокируя писателей. */
+  @Override
+  public void writeSnapshot(Consumer<byte[]> sink) {
+    for (Deal deal : storage.values()) {
+      sink.accept(DealRecords.save(deal));
+    }
+  }
+
+  private long store(Deal deal, boolean journaled) {
+    long[] ticket = new long[1];
+    storage.compute(
+        deal.getId(),
+        (key, existing) -> {
+          Deal.StatusChanges changes = deal.drainStatusChanges();
+          if (journaled && wal != null) {
+            ticket[0] = wal.append(DealRecords.save(deal, changes.status()));
+          }
+          DealStatus previous = reindex(key, existing, deal, changes.status());
+          if (journaled && transitions != null) {
+            recordTransitions(deal, previous, changes);
+          }
+          allDeals.invalidate();
+          return deal;
+        });
+    return ticket[0];
+  }
+
+  private long remove(UUID id, boolean journaled) {
+    long[] ticket = new long[1];
+    storage.computeIfPresent(
+        id,
+        (key, existing) -> {
+          if (journaled && wal != null) {
+            ticket[0] = wal.append(DealRecords.delete(key));
+          }
+          reindex(key, existing, null, null);
+          allDeals.invalidate();
+          return null;
+        });
+    return ticket[0];
+  }
+
+  /**
+   * Дописывает в журнал событий переходы, совершённые сделкой с прошлого сохранения, в порядке их
+   * совершения. Если цепочка не продолжает проиндексированный статус — например, сохраняется
+   * другой объект с тем же ID, — разрыв записывается одним переходом, как есть.
+   */
+  private void recordTransitions(Deal deal, DealStatus previous, Deal.StatusChanges changes) {
+    DealStatus reached = previous;
+    for (Deal.StatusChange change : changes.changes()) {
+      if (reached != change.from()) {
+        transitions.record(deal.getId(), reached, change.from(), deal.getAmount());
+      }
+      transitions.record(deal.getId(), change.from(), change.to(), deal.getAmount());
+      reached = change.to();
+    }
+    if (reached != changes.status()) {
+      transitions.record(deal.getId(), reached, changes.status(), deal.getAmount());
+    }
+  }
+
+  /**
+   * Переносит сделку из колонки прежнего статуса в колонку {@code status}. Вызывается под
+   * блокировкой ключа; прежний статус берётся из индекса, а не из объекта, который мог измениться
+   * на месте.
+   *
+   * @return прежний статус сделки или {@code null}, если её ещё не было
+   */
+  private DealStatus reindex(UUID id, Deal previous, Deal current, DealStatus status) {
+    DealStatus previousStatus = indexedStatus.remove(id);
+    StatusColumn from = column(previousStatus);
+    if (from != null) {
+      from.remove(id, previous.getAmount());
+    }
+    StatusColumn to = current != null ? column(status) : null;
+    if (to != null) {
+      indexedStatus.put(id, status);
+      to.add(current);
+    }
+    return previousStatus;
+  }
+
+  private StatusColumn column(DealStatus status) {
+    return status != null ? columns.get(status) : null;
+  }
+
+  private static Map<DealStatus, StatusColumn> newColumns() {
+    Map<DealStatus, StatusColumn> columns = new EnumMap<>(DealStatus.class);
+    for (DealStatus status : DealStatus.values()) {
+      columns.put(status, new StatusColumn(status));
+    }
+    return columns;
+  }
+
+  private long journaled(LongSupplier mutation) {
+    return wal != null ? wal.journaled(mutation) : mutation.getAsLong();
+  }
+
+  private void awaitDurable(long ticket) {
+    if (wal != null && ticket > 0) {
+      wal.awaitDurable(ticket);
+    }
+  }
+
+  /** Колонка Kanban-доски: сделки одного статуса и их текущие итоги. */
+  private static final class StatusColumn {
+    private final DealStatus status;
+    private final Map<UUID, Deal> deals = new ConcurrentHashMap<>();
+    private final AtomicReference<DealStatusSummary> summary;
+
+    StatusColumn(DealStatus status) {
+      this.status = status;
+      this.summary = new AtomicReference<>(DealStatusSummary.empty(status));
+    }
+
+    void add(Deal deal) {
+      deals.put(deal.getId(), deal);
+      summary.updateAndGet(totals -> totals.plus(amountOf(deal.getAmount())));
+    }
+
+    void remove(UUID id, BigDecimal amount) {
+      deals.remove(id);
+      summary.updateAndGet(totals -> totals.minus(amountOf(amount)));
+    }
+
+    private static BigDecimal amountOf(BigDecimal amount) {
+      return amount != null ? amount : BigDecimal.ZERO;
+    }
   }
 }
@@ -1,38 +1,117 @@
 package ru.mentee.power.crm.spring.repository;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Repository;
 import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
+import ru.mentee.power.crm.spring.repository.wal.LeadRecords;
+import ru.mentee.power.crm.spring.repository.wal.SnapshotSource;
+import ru.mentee.power.crm.spring.repository.wal.WriteAheadLog;
 
-/** Lead repository using HashMap for O(1) ID-based lookup. */
+/**
+ * Thread-safe lead repository backed by {@link ConcurrentHashMap} for O(1) ID-based lookup.
+ *
+ * <p>Reads never block. Writes to one ID are serialized by {@code compute} on that key, so the ID
+ * storage, the email index and the insertion-order index always change together. Email uniqueness
+ * is reserved with {@code putIfAbsent} in {@link #saveIfEmailAbsent(Lead)}. A per-status secondary
+ * index lets {@link #findByStatus(LeadStatus)} cost time proportional to the result size, and a
+ * trigram inverted index over name, email and company serves {@link #searchByText(String)}.
+ * {@link #findAll()} hands out an immutable snapshot that is copied at most once per write.
+ *
+ * <p>Company names are dictionary-encoded: every stored lead references the single canonical
+ * instance of its company string. A per-company-code index, ordered by insertion sequence like the
+ * status index, lets {@link #findByCompany(String)} cost time proportional to the result size. The
+ * dictionary never forgets a name (see {@link StringDictionary}), so it is bounded by the number of
+ * distinct companies ever saved, not by the companies still referenced.
+ *
+ * <p>When constructed with a {@link WriteAheadLog}, every save and delete is appended to the log
+ * while the ID is locked (so log order matches memory order) and awaited for durability after the
+ * lock is released. The log (snapshot plus tail) is replayed on construction, and the repository
+ * can be checkpointed as a {@link SnapshotSource}.
+ */
 @Repository
-public class InMemoryLeadRepository implements LeadRepository {
+public class InMemoryLeadRepository implements LeadRepository, SnapshotSource {
 
-  private final Map<UUID, Lead> storage = new LinkedHashMap<>();
-  private final Map<String, UUID> emailIndex = new HashMap<>();
+  private final ConcurrentMap<UUID, Entry> storage = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, UUID> emailIndex = new ConcurrentHashMap<>();
+  private final ConcurrentNavigableMap<Long, Lead> insertionOrder = new ConcurrentSkipListMap<>();
+  private final Map<LeadStatus, ConcurrentNavigableMap<Long, Lead>> statusIndex =
+      new EnumMap<>(LeadStatus.class);
+  private final ConcurrentMap<Integer, ConcurrentNavigableMap<Long, Lead>> companyIndex =
+      new ConcurrentHashMap<>();
+  private final TrigramIndex textIndex = new TrigramIndex();
+  private final StringDictionary companies = new StringDictionary();
+  private final AtomicLong sequence = new AtomicLong();
+  private final VersionedSnapshot<Lead> allLeads = new VersionedSnapshot<>(insertionOrder::values);
+  private final WriteAheadLog wal;
 
-  /** Saves a lead (rejects null). */
-  @Override
-  public Lead save(Lead lead) {
-    if (lead == null) {
-      throw new IllegalArgumentException("Lead must not be null");
+  /** Creates an empty, non-durable repository. */
+  public InMemoryLeadRepository() {
+    this(null);
+  }
+
+  /** Creates a repository journaled to the given log and restores its state by replay. */
+  public InMemoryLeadRepository(WriteAheadLog wal) {
+    for (LeadStatus status : LeadStatus.values()) {
+      statusIndex.put(status, new ConcurrentSkipListMap<>());
     }
+    this.wal = wal;
+    if (wal != null) {
+      wal.replay(
+          record -> LeadRecords.apply(record, lead -> store(lead, false), id -> remove(id, false)));
+    }
+  }
 
-    storage.put(lead.id(), lead);
-    emailIndex.put(lead.email(), lead.id());
+  /** Saves a lead (rejects null). Does not check email uniqueness. */
+  @Override
+  public Lead save(Lead lead) {
+    requireLead(lead);
+    store(lead);
     return lead;
   }
 
+  /** Saves a lead only if its email is free or already owned by the same ID. */
+  @Override
+  public boolean saveIfEmailAbsent(Lead lead) {
+    requireLead(lead);
+    UUID owner = null;
+    if (lead.email() != null) {
+      owner = emailIndex.putIfAbsent(lead.email(), lead.id());
+      if (owner != null && !owner.equals(lead.id())) {
+        return false;
+      }
+    }
+    try {
+      store(lead);
+    } catch (RuntimeException e) {
+      if (owner == null) {
+        unindexEmail(lead.email(), lead.id());
+      }
+      throw e;
+    }
+    return true;
+  }
+
   /** Returns lead by ID, or null if not found. */
   @Override
   public Optional<Lead> findById(UUID id) {
-    return Optional.ofNullable(storage.get(id));
+    Entry entry = storage.get(id);
+    return entry != null ? Optional.of(entry.lead()) : Optional.empty();
   }
 
   /** Finds a lead by email using an index for O(1) lookup. */
@@ -42,22 +121,91 @@ public class InMemoryLeadRepository implements LeadRepository {
       return Optional.empty();
     }
     UUID id = emailIndex.get(email);
-    return (id != null) ? Optional.ofNullable(storage.get(id)) : Optional.empty();
+    return (id != null) ? findById(id) : Optional.empty();
   }
 
-  /** Returns a new list of all leads (defensive copy). */
+  /** Returns an immutable snapshot of all leads in insertion order, shared between writes. */
   @Override
   public List<Lead> findAll() {
-    return new ArrayList<>(storage.values());
+    return allLeads.get();
+  }
+
+  /**
+   * Streams leads in insertion order straight from the skip-list index. The spliterator is weakly
+   * consistent, never blocks writers and splits for parallel streams.
+   */
+  @Override
+  public Stream<Lead> stream() {
+    return insertionOrder.values().stream();
+  }
+
+  /**
+   * Returns up to {@code limit} leads in insertion order after the cursor. The cursor encodes the
+   * insertion sequence of the last lead, so every page is one skip-list seek plus {@code limit}
+   * steps regardless of depth.
+   */
+  @Override
+  public KeysetPage<Lead> findPage(String cursor, int limit) {
+    requireLimit(limit);
+    ConcurrentNavigableMap<Long, Lead> tail =
+        cursor == null ? insertionOrder : insertionOrder.tailMap(position(cursor), false);
+    List<Lead> items = new ArrayList<>(limit);
+    long last = 0;
+    for (Map.Entry<Long, Lead> entry : tail.entrySet()) {
+      if (items.size() == limit) {
+        return new KeysetPage<>(List.copyOf(items), KeysetCursor.encode(last));
+      }
+      items.add(entry.getValue());
+      last = entry.getKey();
+    }
+    return new KeysetPage<>(List.copyOf(items), null);
+  }
+
+  /** Returns leads of the given company in insertion order using the company-code index. */
+  @Override
+  public List<Lead> findByCompany(String company) {
+    int code = companies.lookup(company);
+    if (code == StringDictionary.NULL_CODE) {
+      return List.of();
+    }
+    ConcurrentNavigableMap<Long, Lead> leads = companyIndex.get(code);
+    return leads != null ? List.copyOf(leads.values()) : List.of();
+  }
+
+  /** Returns leads with the given status in insertion order using the status index. */
+  @Override
+  public List<Lead> findByStatus(LeadStatus status) {
+    if (status == null) {
+      return List.of();
+    }
+    return new ArrayList<>(statusIndex.get(status).values());
+  }
+
+  /**
+   * Finds leads whose name, email or company contains the term (case-insensitive). Terms of three
+   * or more characters are served by the trigram index, which keys documents by insertion sequence:
+   * candidates come back already in insertion order and only they are verified.
+   */
+  @Override
+  public List<Lead> searchByText(String term) {
+    String query = TrigramIndex.normalize(term);
+    if (query.length() < TrigramIndex.GRAM_LENGTH) {
+      return findAll().stream().filter(lead -> matches(lead, query)).toList();
+    }
+    List<Lead> matched = new ArrayList<>();
+    for (long position : textIndex.candidates(query)) {
+      Lead lead = insertionOrder.get(position);
+      if (lead != null && matches(lead, query)) {
+        matched.add(lead);
+      }
+    }
+    return List.copyOf(matched);
   }
 
   /** Removes lead by ID. */
   @Override
   public void deleteById(UUID id) {
-    Lead lead = storage.remove(id);
-    if (lead != null) {
-      emailIndex.remove(lead.email());
-    }
+    awaitDurable(journaled(() -> remove(id, true)));
   }
 
   /** Returns number of stored leads. */
@@ -65,4 +213,171 @@ public class InMemoryLeadRepository implements LeadRepository {
   public int size() {
     return storage.size();
   }
+
+  /** Writes every lead as a log record in insertion order without blocking writers. */
+  @Override
+  public void writeSnapshot(Consumer<byte[]> sink) {
+    for (Lead lead : insertionOrder.values()) {
+      sink.accept(LeadRecords.save(lead));
+    }
+  }
+
+  private long remove(UUID id, boolean journaled) {
+    long[] ticket = new long[1];
+    storage.computeIfPresent(
+        id,
+        (key, existing) -> {
+          if (journaled) {
+            ticket[0] = journal(LeadRecords.delete(key));
+          }
+          insertionOrder.remove(existing.sequence());
+          unindexStatus(existing.lead().status(), existing.sequence());
+          unindexCompany(existing.company(), existing.sequence());
+          unindexEmail(existing.lead().email(), key);
+          textIndex.update(existing.sequence(), textGrams(existing.lead()), Set.of());
+          allLeads.invalidate();
+          return null;
+        });
+    return ticket[0];
+  }
+
+  private void store(Lead lead) {
+    awaitDurable(journaled(() -> store(lead, true)));
+  }
+
+  private long store(Lead original, boolean journaled) {
+    int company = companies.encode(original.company());
+    Lead lead = canonical(original, companies.decode(company));
+    long[] ticket = new long[1];
+    storage.compute(
+        lead.id(),
+        (key, existing) -> {
+          if (journaled) {
+            ticket[0] = journal(LeadRecords.save(lead));
+          }
+          long position;
+          Set<Long> previousGrams = Set.of();
+          if (existing == null) {
+            position = sequence.incrementAndGet();
+          } else {
+            position = existing.sequence();
+            previousGrams = textGrams(existing.lead());
+            String previousEmail = existing.lead().email();
+            if (!Objects.equals(previousEmail, lead.email())) {
+              unindexEmail(previousEmail, key);
+            }
+            if (existing.lead().status() != lead.status()) {
+              unindexStatus(existing.lead().status(), position);
+            }
+            if (existing.company() != company) {
+              unindexCompany(existing.company(), position);
+            }
+          }
+          if (lead.email() != null) {
+            emailIndex.put(lead.email(), key);
+          }
+          textIndex.update(position, previousGrams, textGrams(lead));
+          insertionOrder.put(position, lead);
+          if (lead.status() != null) {
+            statusIndex.get(lead.status()).put(position, lead);
+          }
+          indexCompany(company, position, lead);
+          allLeads.invalidate();
+          return new Entry(position, company, lead);
+        });
+    return ticket[0];
+  }
+
+  private long journaled(LongSupplier mutation) {
+    return wal != null ? wal.journaled(mutation) : mutation.getAsLong();
+  }
+
+  private long journal(byte[] record) {
+    return wal != null ? wal.append(record) : 0;
+  }
+
+  private void awaitDurable(long ticket) {
+    if (wal != null && ticket > 0) {
+      wal.awaitDurable(ticket);
+    }
+  }
+
+  private void unindexEmail(String email, UUID id) {
+    if (email != null) {
+      emailIndex.remove(email, id);
+    }
+  }
+
+  private void unindexStatus(LeadStatus status, long position) {
+    if (status != null) {
+      statusIndex.get(status).remove(position);
+    }
+  }
+
+  /**
+   * Adds the lead to its company's index. Creating, filling and dropping a company's map all run
+   * under {@code compute} on its code, so a concurrent removal cannot drop a map being filled.
+   */
+  private void indexCompany(int code, long position, Lead lead) {
+    if (code == StringDictionary.NULL_CODE) {
+      return;
+    }
+    companyIndex.compute(
+        code,
+        (key, leads) -> {
+          ConcurrentNavigableMap<Long, Lead> target =
+              leads != null ? leads : new ConcurrentSkipListMap<>();
+          target.put(position, lead);
+          return target;
+        });
+  }
+
+  private void unindexCompany(int code, long position) {
+    if (code == StringDictionary.NULL_CODE) {
+      return;
+    }
+    companyIndex.computeIfPresent(
+        code,
+        (key, leads) -> {
+          leads.remove(position);
+          return leads.isEmpty() ? null : leads;
+        });
+  }
+
+  /** Replaces the company with its dictionary instance so equal names share one string. */
+  private static Lead canonical(Lead lead, String company) {
+    if (lead.company() == company) {
+      return lead;
+    }
+    return new Lead(lead.id(), lead.name(), lead.email(), lead.phone(), company, lead.status());
+  }
+
+  private static Set<Long> textGrams(Lead lead) {
+    return TrigramIndex.grams(lead.name(), lead.email(), lead.company());
+  }
+
+  private static boolean matches(Lead lead, String query) {
+    return TrigramIndex.normalize(lead.name()).contains(query)
+        || TrigramIndex.normalize(lead.email()).contains(query)
+        || TrigramIndex.normalize(lead.company()).contains(query);
+  }
+
+  private static long position(String cursor) {
+    return Long.parseLong(KeysetCursor.decode(cursor, 1)[0]);
+  }
+
+  private static void requireLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+  }
+
+  private static void requireLead(Lead lead) {
+    if (lead == null) {
+      throw new IllegalArgumentException("Lead must not be null");
+    }
+  }
+
+  /** Lead with its company code and insertion position, kept stable across overwrites. */
+  private record Entry(long sequence, int company, Lead lead) {}
 }
@@ -1,15 +1,25 @@
 package ru.mentee.power.crm.spring.repository;
 
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
 import ru.mentee.power.crm.entity.Deal;
+import ru.mentee.power.crm.spring.dto.DealListItem;
 
 /** Репозиторий для работы со сделками (Deal) */
-public interface JpaDealRepository extends JpaRepository<Deal, UUID> {
+public interface JpaDealRepository extends JpaRepository<Deal, UUID>, DealKanbanRepository {
 
   /**
    * Находит сделку по ID и загружает связанные позиции (DealProduct) вместе с информацией о
@@ -18,4 +28,61 @@ public interface JpaDealRepository extends JpaRepository<Deal, UUID> {
   @EntityGraph(attributePaths = {"dealProducts", "dealProducts.product"})
   @Query("SELECT d FROM Deal d WHERE d.id = :id")
   Optional<Deal> findDealWithProducts(@Param("id") UUID id);
+
+  /** Строки таблицы сделок в порядке (createdAt, id); позиции и версия сделок не читаются. */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.spring.dto.DealListItem(
+          d.id, d.amount, d.status, d.leadId, d.createdAt)
+      FROM Deal d
+      ORDER BY d.createdAt, d.id
+      """)
+  List<DealListItem> findListItems();
+
+  /** Количество и сумма сделок по каждому статусу, посчитанные в БД; пустых статусов нет. */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.domain.DealStatusSummary(d.status, COUNT(d), SUM(d.amount))
+      FROM Deal d
+      GROUP BY d.status
+      """)
+  List<DealStatusSummary> summarizeByStatus();
+
+  /** Первая страница колонки Kanban-доски: сделки статуса от новых к старым. */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.spring.dto.DealListItem(
+          d.id, d.amount, d.status, d.leadId, d.createdAt)
+      FROM Deal d
+      WHERE d.status = :status
+      ORDER BY d.createdAt DESC, d.id DESC
+      """)
+  List<DealListItem> findColumnFirstPage(@Param("status") DealStatus status, Pageable pageable);
+
+  /** Страница колонки Kanban-доски: сделки статуса старше ключа (createdAt, id). */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.spring.dto.DealListItem(
+          d.id, d.amount, d.status, d.leadId, d.createdAt)
+      FROM Deal d
+      WHERE d.status = :status AND (d.createdAt, d.id) < (:createdAt, :id)
+      ORDER BY d.createdAt DESC, d.id DESC
+      """)
+  List<DealListItem> findColumnPageBefore(
+      @Param("status") DealStatus status,
+      @Param("createdAt") OffsetDateTime createdAt,
+      @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Потоковый обход всех сделок в порядке (createdAt, id) пачками по {@link
+   * JpaLeadRepository#STREAM_FETCH_SIZE} строк. Позиции сделок не загружаются. Требует открытой
+   * транзакции; поток нужно закрыть.
+   */
+  @QueryHints(
+      @QueryHint(
+          name = HibernateHints.HINT_FETCH_SIZE,
+          value = JpaLeadRepository.STREAM_FETCH_SIZE))
+  @Query("SELECT d FROM Deal d ORDER BY d.createdAt, d.id")
+  Stream<Deal> streamAll();
 }
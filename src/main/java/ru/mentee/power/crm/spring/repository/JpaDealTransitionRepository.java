@@ -0,0 +1,31 @@
+package ru.mentee.power.crm.spring.repository;
+
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.mentee.power.crm.domain.DealTransition;
+import ru.mentee.power.crm.entity.DealTransitionEntry;
+
+/** Репозиторий сохранённых переходов сделок по воронке. */
+public interface JpaDealTransitionRepository extends JpaRepository<DealTransitionEntry, Long> {
+
+  /**
+   * Потоковое чтение всех переходов в порядке записи, без загрузки сущностей. Требует открытой
+   * транзакции; поток нужно закрыть.
+   */
+  @QueryHints(
+      @QueryHint(
+          name = HibernateHints.HINT_FETCH_SIZE,
+          value = JpaLeadRepository.STREAM_FETCH_SIZE))
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.domain.DealTransition(
+          t.dealId, t.fromStatus, t.toStatus, t.occurredAt, t.amount)
+      FROM DealTransitionEntry t
+      ORDER BY t.id
+      """)
+  Stream<DealTransition> streamAllInOrder();
+}
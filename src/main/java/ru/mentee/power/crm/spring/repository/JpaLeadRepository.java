@@ -1,24 +1,30 @@
 package ru.mentee.power.crm.spring.repository;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 /** Контракт на операции по сохранению лидов с использованием CRUD и поиска по email адресу. */
-public interface JpaLeadRepository extends JpaRepository<Lead, UUID> {
+public interface JpaLeadRepository extends JpaRepository<Lead, UUID>, LeadSearchRepository {
   /** Нативный поиск по email */
   @Query(value = "SELECT * FROM leads WHERE email = ?1", nativeQuery = true)
   Optional<Lead> findByEmailNative(String email);
@@ -27,7 +33,11 @@ public interface JpaLeadRepository extends JpaRepository<Lead, UUID> {
   @Query(value = "SELECT * FROM leads WHERE status = ?1", nativeQuery = true)
   List<Lead> findByStatusNative(String status);
 
-  /** Поиск по тексту + статусу (аналог findLeads) */
+  /**
+   * Поиск по тексту + статусу (аналог findLeads). Перебирает все строки: LIKE с {@code %} в начале
+   * и OR по столбцам двух таблиц индексами не обслуживаются; для текстового поиска есть {@link
+   * #searchRanked}.
+   */
   @Query(
       value =
           """
@@ -44,6 +54,40 @@ public interface JpaLeadRepository extends JpaRepository<Lead, UUID> {
       nativeQuery = true)
   List<Lead> findLeadsNative(@Param("search") String search, @Param("status") String status);
 
+  /**
+   * Строки таблицы лидов с фильтром по статусу ({@code null} — все) в порядке (createdAt, id).
+   * Название компании приходит тем же запросом; сущности и прокси компаний не создаются.
+   */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.spring.dto.LeadListItem(
+          l.id, l.name, l.email, l.phone, c.name, l.status)
+      FROM Lead l LEFT JOIN l.company c
+      WHERE :status IS NULL OR l.status = :status
+      ORDER BY l.createdAt, l.id
+      """)
+  List<LeadListItem> findListItems(@Param("status") StatusEnum status);
+
+  /**
+   * Строки таблицы лидов, у которых имя, email или название компании содержат {@code search} без
+   * учёта регистра — те же совпадения, что у {@link #findLeadsNative}, — в порядке (createdAt, id).
+   */
+  @Query(
+      """
+      SELECT new ru.mentee.power.crm.spring.dto.LeadListItem(
+          l.id, l.name, l.email, l.phone, c.name, l.status)
+      FROM Lead l LEFT JOIN l.company c
+      WHERE (:status IS NULL OR l.status = :status)
+        AND (
+          LOWER(l.name) LIKE LOWER(CONCAT('%', :search, '%'))
+          OR LOWER(l.email) LIKE LOWER(CONCAT('%', :search, '%'))
+          OR LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
+        )
+      ORDER BY l.createdAt, l.id
+      """)
+  List<LeadListItem> findListItemsMatching(
+      @Param("search") String search, @Param("status") StatusEnum status);
+
   // Derived query methods (Spring генерирует SQL автоматически)
 
   /** Поиск лида по email (точное совпадение). SQL: SELECT * FROM leads WHERE email = ? */
@@ -61,6 +105,10 @@ public interface JpaLeadRepository extends JpaRepository<Lead, UUID> {
   /** Проверка существования по email. SQL: SELECT COUNT(*) > 0 FROM leads WHERE email = ? */
   boolean existsByEmail(String email);
 
+  /** Возвращает те email из переданных, у которых уже есть лид; один запрос на всю пачку. */
+  @Query("SELECT l.email FROM Lead l WHERE l.email IN :emails")
+  List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
   /**
    * Поиск лидов по части email (LIKE запрос). SQL: SELECT * FROM leads WHERE email LIKE
    * '%emailPart%'
@@ -120,6 +168,61 @@ public interface JpaLeadRepository extends JpaRepository<Lead, UUID> {
   @Query("SELECT l FROM Lead l WHERE l.status IN :statuses")
   Page<Lead> findByStatusInPaged(@Param("statuses") List<StatusEnum> statuses, Pageable pageable);
 
+  // Keyset-пагинация: позиция задаётся ключом (created_at, id), а не OFFSET
+
+  /** Первая страница лидов в порядке (createdAt, id). Размер страницы берётся из pageable. */
+  @Query("SELECT l FROM Lead l ORDER BY l.createdAt, l.id")
+  List<Lead> findFirstPage(Pageable pageable);
+
+  /**
+   * Страница лидов, следующих за ключом (createdAt, id). Сравнение кортежей использует индекс
+   * idx_leads_created_at_id, поэтому глубокие страницы стоят столько же, сколько первая.
+   */
+  @Query(
+      """
+      SELECT l FROM Lead l
+      WHERE (l.createdAt, l.id) > (:createdAt, :id)
+      ORDER BY l.createdAt, l.id
+      """)
+  List<Lead> findPageAfter(
+      @Param("createdAt") OffsetDateTime createdAt, @Param("id") UUID id, Pageable pageable);
+
+  /** Первая страница лидов компании в порядке (createdAt, id). */
+  @Query("SELECT l FROM Lead l WHERE l.company = :company ORDER BY l.createdAt, l.id")
+  List<Lead> findFirstPageByCompany(@Param("company") Company company, Pageable pageable);
+
+  /** Страница лидов компании, следующих за ключом (createdAt, id). */
+  @Query(
+      """
+      SELECT l FROM Lead l
+      WHERE l.company = :company AND (l.createdAt, l.id) > (:createdAt, :id)
+      ORDER BY l.createdAt, l.id
+      """)
+  List<Lead> findPageByCompanyAfter(
+      @Param("company") Company company,
+      @Param("createdAt") OffsetDateTime createdAt,
+      @Param("id") UUID id,
+      Pageable pageable);
+
+  // Потоковое чтение
+
+  /** Размер пачки строк, которую JDBC-драйвер получает за один запрос к курсору. */
+  String STREAM_FETCH_SIZE = "500";
+
+  /**
+   * Потоковый обход всех лидов в порядке (createdAt, id). Драйвер читает строки пачками по {@link
+   * #STREAM_FETCH_SIZE}, а не всю выборку сразу. Требует открытой транзакции; поток нужно закрыть,
+   * а прочитанные сущности — отсоединять от контекста, чтобы память оставалась постоянной.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+  @Query("SELECT l FROM Lead l ORDER BY l.createdAt, l.id")
+  Stream<Lead> streamAll();
+
+  /** Потоковое чтение одних email, без загрузки сущностей; используется для прогрева фильтра. */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+  @Query("SELECT l.email FROM Lead l")
+  Stream<String> streamAllEmails();
+
   // Bulk операции
 
   /**
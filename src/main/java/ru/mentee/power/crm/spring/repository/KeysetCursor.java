@@ -0,0 +1,50 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Кодирует ключ позиции keyset-пагинации в непрозрачную для клиента строку (Base64 URL-safe).
+ *
+ * <p>Клиенты не должны разбирать курсор: формат может меняться вместе с ключом сортировки.
+ */
+public final class KeysetCursor {
+
+  private static final String SEPARATOR = "|";
+  private static final Pattern SPLITTER = Pattern.compile(Pattern.quote(SEPARATOR));
+
+  private KeysetCursor() {}
+
+  /** Кодирует составной ключ последнего элемента страницы. */
+  public static String encode(Object... keys) {
+    StringBuilder joined = new StringBuilder();
+    for (Object key : keys) {
+      if (!joined.isEmpty()) {
+        joined.append(SEPARATOR);
+      }
+      joined.append(key);
+    }
+    byte[] bytes = joined.toString().getBytes(StandardCharsets.UTF_8);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * Декодирует курсор в части ключа.
+   *
+   * @throws IllegalArgumentException если курсор повреждён или содержит другое число частей
+   */
+  public static String[] decode(String cursor, int keyCount) {
+    String joined;
+    try {
+      joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+    String[] keys = SPLITTER.split(joined, -1);
+    if (keys.length != keyCount) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,37 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset-пагинации: элементы и непрозрачный курсор следующей страницы.
+ *
+ * <p>Курсор указывает на ключ последнего элемента, поэтому следующая страница читается с позиции
+ * индекса, а не пропуском {@code OFFSET} строк, и глубокие страницы стоят столько же, сколько
+ * первая. {@code nextCursor == null} означает, что страница последняя.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+  /**
+   * Собирает страницу из выборки, запрошенной с запасом в одну строку: лишняя строка отбрасывается
+   * и лишь сигнализирует, что есть следующая страница.
+   */
+  public static <T> KeysetPage<T> of(
+      List<T> rows, int limit, Function<? super T, String> cursorOf) {
+    if (rows.size() <= limit) {
+      return new KeysetPage<>(List.copyOf(rows), null);
+    }
+    List<T> items = List.copyOf(rows.subList(0, limit));
+    return new KeysetPage<>(items, cursorOf.apply(items.getLast()));
+  }
+
+  /** Возвращает {@code true}, если за этой страницей есть следующая. */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  /** Преобразует элементы страницы, сохраняя курсор. */
+  public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+    return new KeysetPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+  }
+}
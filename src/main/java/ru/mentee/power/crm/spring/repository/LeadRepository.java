@@ -3,22 +3,55 @@ package ru.mentee.power.crm.spring.repository;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
 
 /** Контракт на операции по сохранению лидов с использованием CRUD и поиска по email адресу. */
 public interface LeadRepository {
   /** Сохраняет лида и возвращает сохраненный экземпляр. */
   Lead save(Lead lead);
 
+  /**
+   * Атомарно сохраняет лида, если его email ещё не занят другим лидом (семантика putIfAbsent).
+   *
+   * @return {@code true}, если лид сохранён, {@code false}, если email уже принадлежит другому лиду
+   */
+  boolean saveIfEmailAbsent(Lead lead);
+
   /** Находит лида по-уникальному ID. */
   Optional<Lead> findById(UUID id);
 
   /** Находит лида по email адресу. */
   Optional<Lead> findByEmail(String email);
 
+  /**
+   * Возвращает страницу лидов в порядке добавления после позиции курсора ({@code null} — с начала).
+   * Стоимость страницы не зависит от её глубины.
+   *
+   * @throws IllegalArgumentException если курсор повреждён или {@code limit} не положителен
+   */
+  KeysetPage<Lead> findPage(String cursor, int limit);
+
+  /** Возвращает лидов указанной компании (точное совпадение названия) в порядке добавления. */
+  List<Lead> findByCompany(String company);
+
+  /** Возвращает лидов с указанным статусом за время, пропорциональное размеру результата. */
+  List<Lead> findByStatus(LeadStatus status);
+
+  /** Находит лидов, у которых имя, email или компания содержат подстроку без учёта регистра. */
+  List<Lead> searchByText(String term);
+
   /** Возвращает все записи лидов. */
   List<Lead> findAll();
 
+  /**
+   * Возвращает лидов потоком в порядке добавления, не материализуя весь набор в список. Поток
+   * слабо согласован: записи, сделанные во время обхода, могут быть видны или нет. Подходит для
+   * параллельной обработки.
+   */
+  Stream<Lead> stream();
+
   /** Удаляет лида по его ID. */
   void deleteById(UUID id);
 
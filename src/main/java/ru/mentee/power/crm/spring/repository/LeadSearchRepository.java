@@ -0,0 +1,25 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.List;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
+
+/** Ранжированный текстовый поиск лидов; реализация зависит от СУБД. */
+public interface LeadSearchRepository {
+
+  /**
+   * Ищет лидов, у которых имя, email или название компании содержат {@code term} без учёта
+   * регистра. Символы {@code %} и {@code _} в запросе ищутся буквально.
+   *
+   * <p>В PostgreSQL поиск идёт по триграммным GIN-индексам и дополнительно находит имена и
+   * компании с опечатками; в H2 — простым перебором по LIKE. Сначала идут точные совпадения
+   * подстроки, затем более похожие; при равенстве — в порядке создания.
+   *
+   * @param status фильтр по статусу или {@code null}
+   * @param limit максимальное число результатов
+   */
+  List<Lead> searchRanked(String term, String status, int limit);
+
+  /** То же, что {@link #searchRanked}, но одним запросом возвращает строки таблицы лидов. */
+  List<LeadListItem> searchRankedItems(String term, String status, int limit);
+}
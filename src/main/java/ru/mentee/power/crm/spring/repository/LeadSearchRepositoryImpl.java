@@ -0,0 +1,135 @@
+package ru.mentee.power.crm.spring.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+
+/**
+ * Реализация {@link LeadSearchRepository}. Запрос выбирается по диалекту Hibernate один раз при
+ * создании: для PostgreSQL — по триграммным индексам из миграции 009, для остальных СУБД (H2 в
+ * тестах) — переносимый LIKE без индекса. Список столбцов {@code {columns}} подставляется при
+ * создании: сущности целиком или строки таблицы {@link LeadListItem}.
+ */
+class LeadSearchRepositoryImpl implements LeadSearchRepository {
+
+  /**
+   * Каждое условие вынесено в отдельную ветку UNION, чтобы у каждой был свой GIN-индекс: OR между
+   * столбцами разных таблиц планировщик обслуживает только полным перебором. Оператор {@code <%}
+   * находит запрос в имени с опечатками (pg_trgm.word_similarity_threshold, по умолчанию 0.6).
+   */
+  private static final String TRIGRAM_SEARCH =
+      """
+      WITH matched AS (
+          SELECT l.id FROM leads l
+          WHERE lower(l.name) LIKE :pattern OR :term <% lower(l.name)
+          UNION
+          SELECT l.id FROM leads l
+          WHERE lower(l.email) LIKE :pattern
+          UNION
+          SELECT l.id FROM leads l
+          JOIN companies c ON c.id = l.company_id
+          WHERE lower(c.name) LIKE :pattern OR :term <% lower(c.name)
+      )
+      SELECT {columns} FROM matched m
+      JOIN leads l ON l.id = m.id
+      LEFT JOIN companies c ON c.id = l.company_id
+      WHERE (:anyStatus OR l.status = :status)
+      ORDER BY
+          CASE
+              WHEN lower(l.name) = :term OR lower(l.email) = :term THEN 0
+              WHEN lower(l.name) LIKE :prefix OR lower(l.email) LIKE :prefix THEN 1
+              WHEN lower(l.name) LIKE :pattern OR lower(l.email) LIKE :pattern
+                  OR lower(c.name) LIKE :pattern THEN 2
+              ELSE 3
+          END,
+          greatest(
+              word_similarity(:term, lower(l.name)),
+              similarity(:term, lower(l.email)),
+              coalesce(word_similarity(:term, lower(c.name)), 0)) DESC,
+          l.created_at, l.id
+      """;
+
+  /** Поиск строк таблицы: только отображаемые столбцы лида и название компании. */
+  private static final String ITEM_COLUMNS =
+      "l.id, l.name, l.email, l.phone, c.name AS company_name, l.status";
+
+  private static final String LIKE_SEARCH =
+      """
+      SELECT {columns} FROM leads l
+      LEFT JOIN companies c ON c.id = l.company_id
+      WHERE (:anyStatus OR l.status = :status)
+        AND (
+          LOWER(l.name) LIKE :pattern
+          OR LOWER(l.email) LIKE :pattern
+          OR LOWER(c.name) LIKE :pattern
+        )
+      ORDER BY
+          CASE
+              WHEN LOWER(l.name) = :term OR LOWER(l.email) = :term THEN 0
+              WHEN LOWER(l.name) LIKE :prefix OR LOWER(l.email) LIKE :prefix THEN 1
+              ELSE 2
+          END,
+          l.created_at, l.id
+      """;
+
+  private final EntityManager entityManager;
+  private final String searchQuery;
+  private final String itemSearchQuery;
+
+  LeadSearchRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+    SessionFactoryImplementor sessionFactory =
+        entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    String query =
+        sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect
+            ? TRIGRAM_SEARCH
+            : LIKE_SEARCH;
+    this.searchQuery = query.replace("{columns}", "l.*");
+    this.itemSearchQuery = query.replace("{columns}", ITEM_COLUMNS);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Lead> searchRanked(String term, String status, int limit) {
+    return bind(entityManager.createNativeQuery(searchQuery, Lead.class), term, status, limit)
+        .getResultList();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<LeadListItem> searchRankedItems(String term, String status, int limit) {
+    List<Object[]> rows =
+        bind(entityManager.createNativeQuery(itemSearchQuery), term, status, limit)
+            .getResultList();
+    return rows.stream()
+        .map(
+            row ->
+                new LeadListItem(
+                    (UUID) row[0],
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    (String) row[4],
+                    StatusEnum.valueOf((String) row[5])))
+        .toList();
+  }
+
+  private static Query bind(Query query, String term, String status, int limit) {
+    String normalized = term.strip().toLowerCase(Locale.ROOT);
+    String escaped = normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    return query
+        .setParameter("term", normalized)
+        .setParameter("pattern", "%" + escaped + "%")
+        .setParameter("prefix", escaped + "%")
+        .setParameter("anyStatus", status == null)
+        .setParameter("status", status != null ? status : "")
+        .setMaxResults(limit);
+  }
+}
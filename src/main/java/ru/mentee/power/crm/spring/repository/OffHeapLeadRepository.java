@@ -0,0 +1,836 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
+
+/**
+ * Колоночное хранилище лидов вне кучи на Foreign Memory API.
+ *
+ * <p>Каждый лид занимает слот в колонках фиксированной ширины: ID (два {@code long}), статус (один
+ * байт), код компании в словаре ({@code int}), порядковый номер вставки ({@code long}), а также
+ * смещение и длина имени, email и телефона. Сами строки лежат в UTF-8 в общей куче строк. Объекты
+ * {@link Lead} создаются только при чтении, поэтому в Java-куче остаются лишь словарь компаний и
+ * два массива {@code int} с хеш-индексами по ID и email.
+ *
+ * <p>Новый лид всегда занимает слот в конце, так что порядок слотов совпадает с порядком вставки.
+ * Удалённый слот остаётся пустым, пока удалённых не станет больше половины: тогда живые слоты
+ * сдвигаются к началу с сохранением порядка, индексы перестраиваются, а колонки ужимаются. Поэтому
+ * сканы проходят не больше двух слотов на живой лид. Курсоры страниц и потоки опираются на номер
+ * вставки, а не на номер слота, и уплотнение их не сбивает.
+ *
+ * <p>Запись сериализуется блокировкой записи, чтения идут параллельно под блокировкой чтения.
+ * Поиск по статусу, компании и тексту последовательно сканирует колонки; фильтры по статусу и
+ * компании при этом сравнивают только целые коды. Память освобождается в {@link #close()}.
+ */
+public class OffHeapLeadRepository implements LeadRepository, AutoCloseable {
+
+  private static final int NAME = 0;
+  private static final int EMAIL = 1;
+  private static final int PHONE = 2;
+  private static final int FIELDS = 3;
+
+  private static final byte DELETED = -1;
+  private static final byte NO_STATUS = 0;
+  private static final int NULL_LENGTH = -1;
+  private static final LeadStatus[] STATUSES = LeadStatus.values();
+
+  private static final long ID_BYTES = 2L * Long.BYTES;
+  private static final long OFFSET_BYTES = (long) FIELDS * Long.BYTES;
+  private static final long LENGTH_BYTES = (long) FIELDS * Integer.BYTES;
+  private static final long COMPANY_BYTES = Integer.BYTES;
+  private static final long SEQUENCE_BYTES = Long.BYTES;
+  private static final int INITIAL_SLOTS = 1024;
+  private static final long INITIAL_HEAP_BYTES = 64 * 1024;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private SlotTable idIndex = new SlotTable();
+  private SlotTable emailIndex = new SlotTable();
+  private final StringDictionary companyDictionary = new StringDictionary();
+
+  private Block ids;
+  private Block statuses;
+  private Block offsets;
+  private Block lengths;
+  private Block companies;
+  private Block sequences;
+  private Block strings;
+  private int capacity;
+  private int slots;
+  private int live;
+  private long nextSequence;
+  private int compactions;
+  private long heapUsed;
+  private long heapGarbage;
+
+  /** Создаёт пустое хранилище. */
+  public OffHeapLeadRepository() {
+    capacity = INITIAL_SLOTS;
+    ids = Block.allocate(capacity * ID_BYTES);
+    statuses = Block.allocate(capacity);
+    offsets = Block.allocate(capacity * OFFSET_BYTES);
+    lengths = Block.allocate(capacity * LENGTH_BYTES);
+    companies = Block.allocate(capacity * COMPANY_BYTES);
+    sequences = Block.allocate(capacity * SEQUENCE_BYTES);
+    strings = Block.allocate(INITIAL_HEAP_BYTES);
+  }
+
+  @Override
+  public Lead save(Lead lead) {
+    requireLead(lead);
+    lock.writeLock().lock();
+    try {
+      store(lead);
+      return lead;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean saveIfEmailAbsent(Lead lead) {
+    requireLead(lead);
+    lock.writeLock().lock();
+    try {
+      if (lead.email() != null) {
+        int owner = findByEmailSlot(lead.email());
+        if (owner >= 0 && !idAt(owner).equals(lead.id())) {
+          return false;
+        }
+      }
+      store(lead);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Lead> findById(UUID id) {
+    if (id == null) {
+      return Optional.empty();
+    }
+    lock.readLock().lock();
+    try {
+      int slot = findSlot(id);
+      return slot >= 0 ? Optional.of(materialize(slot)) : Optional.empty();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Lead> findByEmail(String email) {
+    if (email == null) {
+      return Optional.empty();
+    }
+    lock.readLock().lock();
+    try {
+      int slot = findByEmailSlot(email);
+      return slot >= 0 ? Optional.of(materialize(slot)) : Optional.empty();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Сканирует однобайтовую колонку статусов и материализует только совпавшие слоты. */
+  @Override
+  public List<Lead> findByStatus(LeadStatus status) {
+    if (status == null) {
+      return List.of();
+    }
+    byte code = (byte) (status.ordinal() + 1);
+    lock.readLock().lock();
+    try {
+      List<Lead> result = new ArrayList<>();
+      for (int slot = 0; slot < slots; slot++) {
+        if (statusCode(slot) == code) {
+          result.add(materialize(slot));
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Курсор хранит номер вставки последнего лида страницы: он переживает уплотнение слотов, а
+   * следующая страница начинается с двоичного поиска по колонке номеров.
+   */
+  @Override
+  public KeysetPage<Lead> findPage(String cursor, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+    long from = cursor == null ? 0 : Long.parseLong(KeysetCursor.decode(cursor, 1)[0]) + 1;
+    lock.readLock().lock();
+    try {
+      List<Lead> items = new ArrayList<>(limit);
+      long last = from - 1;
+      for (int slot = firstSlotFrom(from); slot < slots; slot++) {
+        if (statusCode(slot) == DELETED) {
+          continue;
+        }
+        if (items.size() == limit) {
+          return new KeysetPage<>(List.copyOf(items), KeysetCursor.encode(last));
+        }
+        items.add(materialize(slot));
+        last = sequenceAt(slot);
+      }
+      return new KeysetPage<>(List.copyOf(items), null);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Lead> findByCompany(String company) {
+    int code = companyDictionary.lookup(company);
+    if (code == StringDictionary.NULL_CODE) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      List<Lead> result = new ArrayList<>();
+      for (int slot = 0; slot < slots; slot++) {
+        if (companyCode(slot) == code && statusCode(slot) != DELETED) {
+          result.add(materialize(slot));
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Lead> searchByText(String term) {
+    String query = term == null ? "" : term.toLowerCase(Locale.ROOT);
+    lock.readLock().lock();
+    try {
+      List<Lead> result = new ArrayList<>();
+      for (int slot = 0; slot < slots; slot++) {
+        if (statusCode(slot) != DELETED
+            && (contains(slot, NAME, query)
+                || contains(slot, EMAIL, query)
+                || containsIgnoreCase(companyDictionary.decode(companyCode(slot)), query))) {
+          result.add(materialize(slot));
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Lead> findAll() {
+    lock.readLock().lock();
+    try {
+      List<Lead> result = new ArrayList<>(live);
+      for (int slot = 0; slot < slots; slot++) {
+        if (statusCode(slot) != DELETED) {
+          result.add(materialize(slot));
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Обходит слоты, существовавшие на момент вызова. Блокировка чтения берётся на каждый лид или
+   * пачку лидов, а не на весь обход, поэтому писатели не ждут окончания потока.
+   */
+  @Override
+  public Stream<Lead> stream() {
+    lock.readLock().lock();
+    try {
+      return StreamSupport.stream(new SlotSpliterator(0, nextSequence), false);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void deleteById(UUID id) {
+    if (id == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      int slot = findSlot(id);
+      if (slot < 0) {
+        return;
+      }
+      idIndex.remove(idHash(slot), slot);
+      unindexEmail(slot);
+      for (int field = 0; field < FIELDS; field++) {
+        heapGarbage += Math.max(0, length(slot, field));
+      }
+      statuses.segment().set(ValueLayout.JAVA_BYTE, slot, DELETED);
+      live--;
+      int dead = slots - live;
+      if (dead > INITIAL_SLOTS && dead * 2 > slots) {
+        compactSlots();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return live;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Возвращает объём памяти вне кучи, занятый колонками и кучей строк, в байтах. */
+  public long offHeapBytes() {
+    lock.readLock().lock();
+    try {
+      return ids.size()
+          + statuses.size()
+          + offsets.size()
+          + lengths.size()
+          + companies.size()
+          + sequences.size()
+          + strings.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Освобождает всю память вне кучи. После закрытия хранилище использовать нельзя. */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      ids.arena().close();
+      statuses.arena().close();
+      offsets.arena().close();
+      lengths.arena().close();
+      companies.arena().close();
+      sequences.arena().close();
+      strings.arena().close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void store(Lead lead) {
+    byte[][] values = {encode(lead.name()), encode(lead.email()), encode(lead.phone())};
+    int total = 0;
+    for (byte[] value : values) {
+      total += value == null ? 0 : value.length;
+    }
+    ensureHeapCapacity(total);
+    int slot = findSlot(lead.id());
+    if (slot >= 0) {
+      unindexEmail(slot);
+      for (int field = 0; field < FIELDS; field++) {
+        heapGarbage += Math.max(0, length(slot, field));
+      }
+    } else {
+      ensureSlotCapacity();
+      slot = slots++;
+      UUID id = lead.id();
+      MemorySegment idColumn = ids.segment();
+      idColumn.setAtIndex(ValueLayout.JAVA_LONG, 2L * slot, id.getMostSignificantBits());
+      idColumn.setAtIndex(ValueLayout.JAVA_LONG, 2L * slot + 1, id.getLeastSignificantBits());
+      sequences.segment().setAtIndex(ValueLayout.JAVA_LONG, slot, nextSequence++);
+      idIndex.insert(idHash(slot), slot, this::idHash);
+      live++;
+    }
+    for (int field = 0; field < FIELDS; field++) {
+      writeString(slot, field, values[field]);
+    }
+    int company = companyDictionary.encode(lead.company());
+    companies.segment().setAtIndex(ValueLayout.JAVA_INT, slot, company);
+    byte code = lead.status() == null ? NO_STATUS : (byte) (lead.status().ordinal() + 1);
+    statuses.segment().set(ValueLayout.JAVA_BYTE, slot, code);
+    if (lead.email() != null) {
+      int previousOwner = findByEmailSlot(lead.email());
+      if (previousOwner >= 0) {
+        emailIndex.remove(emailHash(previousOwner), previousOwner);
+      }
+      emailIndex.insert(emailHash(slot), slot, this::emailHash);
+    }
+  }
+
+  private Lead materialize(int slot) {
+    byte code = statusCode(slot);
+    return new Lead(
+        idAt(slot),
+        readString(slot, NAME),
+        readString(slot, EMAIL),
+        readString(slot, PHONE),
+        companyDictionary.decode(companyCode(slot)),
+        code == NO_STATUS ? null : STATUSES[code - 1]);
+  }
+
+  private int findSlot(UUID id) {
+    long msb = id.getMostSignificantBits();
+    long lsb = id.getLeastSignificantBits();
+    MemorySegment idColumn = ids.segment();
+    return idIndex.find(
+        mix(msb ^ lsb),
+        slot ->
+            idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot) == msb
+                && idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot + 1) == lsb);
+  }
+
+  private int findByEmailSlot(String email) {
+    MemorySegment query = MemorySegment.ofArray(email.getBytes(StandardCharsets.UTF_8));
+    int hash = hashBytes(query, 0, query.byteSize());
+    return emailIndex.find(
+        hash,
+        slot -> {
+          int length = length(slot, EMAIL);
+          long from = offset(slot, EMAIL);
+          MemorySegment heap = strings.segment();
+          return length == query.byteSize()
+              && MemorySegment.mismatch(heap, from, from + length, query, 0, length) == -1;
+        });
+  }
+
+  private void unindexEmail(int slot) {
+    if (length(slot, EMAIL) != NULL_LENGTH) {
+      emailIndex.remove(emailHash(slot), slot);
+    }
+  }
+
+  private UUID idAt(int slot) {
+    MemorySegment idColumn = ids.segment();
+    return new UUID(
+        idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot),
+        idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot + 1));
+  }
+
+  private int idHash(int slot) {
+    MemorySegment idColumn = ids.segment();
+    return mix(
+        idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot)
+            ^ idColumn.getAtIndex(ValueLayout.JAVA_LONG, 2L * slot + 1));
+  }
+
+  private int emailHash(int slot) {
+    return hashBytes(strings.segment(), offset(slot, EMAIL), length(slot, EMAIL));
+  }
+
+  private byte statusCode(int slot) {
+    return statuses.segment().get(ValueLayout.JAVA_BYTE, slot);
+  }
+
+  private int companyCode(int slot) {
+    return companies.segment().getAtIndex(ValueLayout.JAVA_INT, slot);
+  }
+
+  private long sequenceAt(int slot) {
+    return sequences.segment().getAtIndex(ValueLayout.JAVA_LONG, slot);
+  }
+
+  /** Первый слот с номером вставки не меньше {@code sequence}: номера растут вместе со слотами. */
+  private int firstSlotFrom(long sequence) {
+    int low = 0;
+    int high = slots;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sequenceAt(middle) < sequence) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private long offset(int slot, int field) {
+    return offsets.segment().getAtIndex(ValueLayout.JAVA_LONG, (long) slot * FIELDS + field);
+  }
+
+  private int length(int slot, int field) {
+    return lengths.segment().getAtIndex(ValueLayout.JAVA_INT, (long) slot * FIELDS + field);
+  }
+
+  private String readString(int slot, int field) {
+    int length = length(slot, field);
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    MemorySegment value = strings.segment().asSlice(offset(slot, field), length);
+    return new String(value.toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+  }
+
+  private boolean contains(int slot, int field, String query) {
+    return containsIgnoreCase(readString(slot, field), query);
+  }
+
+  private static boolean containsIgnoreCase(String value, String query) {
+    return value != null && value.toLowerCase(Locale.ROOT).contains(query);
+  }
+
+  private static byte[] encode(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Дописывает строку в кучу; место заранее резервирует {@link #ensureHeapCapacity}. */
+  private void writeString(int slot, int field, byte[] bytes) {
+    long index = (long) slot * FIELDS + field;
+    if (bytes == null) {
+      lengths.segment().setAtIndex(ValueLayout.JAVA_INT, index, NULL_LENGTH);
+      return;
+    }
+    MemorySegment.copy(bytes, 0, strings.segment(), ValueLayout.JAVA_BYTE, heapUsed, bytes.length);
+    offsets.segment().setAtIndex(ValueLayout.JAVA_LONG, index, heapUsed);
+    lengths.segment().setAtIndex(ValueLayout.JAVA_INT, index, bytes.length);
+    heapUsed += bytes.length;
+  }
+
+  private void ensureSlotCapacity() {
+    if (slots < capacity) {
+      return;
+    }
+    resizeColumns(capacity * 2);
+  }
+
+  private void resizeColumns(int newCapacity) {
+    capacity = newCapacity;
+    ids = ids.resize(capacity * ID_BYTES);
+    statuses = statuses.resize(capacity);
+    offsets = offsets.resize(capacity * OFFSET_BYTES);
+    lengths = lengths.resize(capacity * LENGTH_BYTES);
+    companies = companies.resize(capacity * COMPANY_BYTES);
+    sequences = sequences.resize(capacity * SEQUENCE_BYTES);
+  }
+
+  /**
+   * Сдвигает живые слоты к началу колонок в прежнем порядке, перестраивает индексы по ID и email и
+   * ужимает колонки до ёмкости не меньше удвоенного числа живых лидов. Смещения строк переезжают
+   * вместе со слотами; если больше половины кучи строк — мусор, она уплотняется следом.
+   */
+  private void compactSlots() {
+    int target = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      if (statusCode(slot) == DELETED) {
+        continue;
+      }
+      if (slot != target) {
+        moveSlot(slot, target);
+      }
+      target++;
+    }
+    slots = target;
+    compactions++;
+    idIndex = new SlotTable();
+    emailIndex = new SlotTable();
+    for (int slot = 0; slot < slots; slot++) {
+      idIndex.insert(idHash(slot), slot, this::idHash);
+      if (length(slot, EMAIL) != NULL_LENGTH) {
+        emailIndex.insert(emailHash(slot), slot, this::emailHash);
+      }
+    }
+    int newCapacity = capacity;
+    while (newCapacity > INITIAL_SLOTS && newCapacity >= slots * 4) {
+      newCapacity /= 2;
+    }
+    if (newCapacity < capacity) {
+      resizeColumns(newCapacity);
+    }
+    if (heapGarbage * 2 > heapUsed) {
+      compactHeap(heapUsed - heapGarbage);
+    }
+  }
+
+  private void moveSlot(int from, int to) {
+    MemorySegment.copy(ids.segment(), from * ID_BYTES, ids.segment(), to * ID_BYTES, ID_BYTES);
+    statuses.segment().set(ValueLayout.JAVA_BYTE, to, statusCode(from));
+    MemorySegment.copy(
+        offsets.segment(), from * OFFSET_BYTES, offsets.segment(), to * OFFSET_BYTES, OFFSET_BYTES);
+    MemorySegment.copy(
+        lengths.segment(), from * LENGTH_BYTES, lengths.segment(), to * LENGTH_BYTES, LENGTH_BYTES);
+    companies.segment().setAtIndex(ValueLayout.JAVA_INT, to, companyCode(from));
+    sequences.segment().setAtIndex(ValueLayout.JAVA_LONG, to, sequenceAt(from));
+  }
+
+  /**
+   * Если строка не помещается, переносит живые строки в новую кучу с запасом не меньше чем вдвое;
+   * мусор удалённых и перезаписанных значений при этом отбрасывается.
+   */
+  private void ensureHeapCapacity(int bytes) {
+    if (heapUsed + bytes <= strings.size()) {
+      return;
+    }
+    compactHeap(heapUsed - heapGarbage + bytes);
+  }
+
+  private void compactHeap(long required) {
+    long newSize = INITIAL_HEAP_BYTES;
+    while (newSize < required * 2) {
+      newSize *= 2;
+    }
+    Block compacted = Block.allocate(newSize);
+    long position = 0;
+    for (int slot = 0; slot < slots; slot++) {
+      if (statusCode(slot) == DELETED) {
+        continue;
+      }
+      for (int field = 0; field < FIELDS; field++) {
+        int length = length(slot, field);
+        if (length > 0) {
+          MemorySegment.copy(
+              strings.segment(), offset(slot, field), compacted.segment(), position, length);
+          long index = (long) slot * FIELDS + field;
+          offsets.segment().setAtIndex(ValueLayout.JAVA_LONG, index, position);
+          position += length;
+        }
+      }
+    }
+    strings.arena().close();
+    strings = compacted;
+    heapUsed = position;
+    heapGarbage = 0;
+  }
+
+  private static int hashBytes(MemorySegment segment, long offset, long length) {
+    int hash = 1;
+    for (long i = 0; i < length; i++) {
+      hash = 31 * hash + segment.get(ValueLayout.JAVA_BYTE, offset + i);
+    }
+    return mix(hash);
+  }
+
+  private static int mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    return (int) value;
+  }
+
+  private static void requireLead(Lead lead) {
+    if (lead == null) {
+      throw new IllegalArgumentException("Lead must not be null");
+    }
+  }
+
+  /**
+   * Сплитератор по диапазону номеров вставки, делящийся пополам до диапазонов в пару тысяч
+   * номеров. Позиция хранится номером вставки, а слот ищется заново после уплотнения, случившегося
+   * между захватами блокировки. Размер лишь оценивается: часть лидов могла быть удалена.
+   */
+  private final class SlotSpliterator implements Spliterator<Lead> {
+    private static final int MIN_SPLIT_SLOTS = 1024;
+    private static final int BATCH_SIZE = 256;
+
+    private long sequence;
+    private final long fence;
+    private int slot;
+    private int slotCompactions = -1;
+
+    SlotSpliterator(long sequence, long fence) {
+      this.sequence = sequence;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Lead> action) {
+      Lead next = null;
+      lock.readLock().lock();
+      try {
+        seek();
+        while (next == null && hasNextSlot()) {
+          next = advance();
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (next == null) {
+        return false;
+      }
+      action.accept(next);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Lead> action) {
+      List<Lead> batch = new ArrayList<>(BATCH_SIZE);
+      boolean more = true;
+      while (more) {
+        lock.readLock().lock();
+        try {
+          seek();
+          while (batch.size() < BATCH_SIZE && hasNextSlot()) {
+            Lead lead = advance();
+            if (lead != null) {
+              batch.add(lead);
+            }
+          }
+          more = hasNextSlot();
+        } finally {
+          lock.readLock().unlock();
+        }
+        batch.forEach(action);
+        batch.clear();
+      }
+    }
+
+    @Override
+    public Spliterator<Lead> trySplit() {
+      if (fence - sequence < 2 * MIN_SPLIT_SLOTS) {
+        return null;
+      }
+      long middle = (sequence + fence) >>> 1;
+      SlotSpliterator prefix = new SlotSpliterator(sequence, middle);
+      sequence = middle;
+      slotCompactions = -1;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - sequence;
+    }
+
+    /** Находит слот текущего номера вставки, если слоты сдвигались с прошлого захвата. */
+    private void seek() {
+      if (slotCompactions != compactions) {
+        slot = firstSlotFrom(sequence);
+        slotCompactions = compactions;
+      }
+    }
+
+    private boolean hasNextSlot() {
+      return slot < slots && sequenceAt(slot) < fence;
+    }
+
+    /** Переходит к следующему слоту и возвращает лид текущего или {@code null}, если он удалён. */
+    private Lead advance() {
+      int current = slot++;
+      sequence = sequenceAt(current) + 1;
+      return statusCode(current) != DELETED ? materialize(current) : null;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+  }
+
+  /** Сегмент памяти вместе с ареной, которая им владеет. */
+  private record Block(Arena arena, MemorySegment segment) {
+
+    static Block allocate(long bytes) {
+      Arena arena = Arena.ofShared();
+      return new Block(arena, arena.allocate(bytes, Long.BYTES));
+    }
+
+    long size() {
+      return segment.byteSize();
+    }
+
+    /** Копирует содержимое, сколько поместится, в блок нового размера и освобождает текущий. */
+    Block resize(long bytes) {
+      Block resized = allocate(bytes);
+      MemorySegment.copy(segment, 0, resized.segment(), 0, Math.min(bytes, segment.byteSize()));
+      arena.close();
+      return resized;
+    }
+  }
+
+  /**
+   * Хеш-таблица с открытой адресацией, хранящая номера слотов в массиве {@code int}. Ключи не
+   * хранятся: сравнение выполняет вызывающий код по данным слота.
+   */
+  private static final class SlotTable {
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+
+    private int[] entries = new int[16];
+    private int used;
+    private int live;
+
+    int find(int hash, IntPredicate matches) {
+      int mask = entries.length - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        int entry = entries[i];
+        if (entry == EMPTY) {
+          return -1;
+        }
+        if (entry != TOMBSTONE && matches.test(entry - 1)) {
+          return entry - 1;
+        }
+      }
+    }
+
+    void insert(int hash, int slot, IntUnaryOperator hashOf) {
+      if ((used + 1) * 2 > entries.length) {
+        rehash(hashOf);
+      }
+      int mask = entries.length - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        int entry = entries[i];
+        if (entry == EMPTY || entry == TOMBSTONE) {
+          if (entry == EMPTY) {
+            used++;
+          }
+          entries[i] = slot + 1;
+          live++;
+          return;
+        }
+      }
+    }
+
+    void remove(int hash, int slot) {
+      int mask = entries.length - 1;
+      for (int i = hash & mask; entries[i] != EMPTY; i = (i + 1) & mask) {
+        if (entries[i] == slot + 1) {
+          entries[i] = TOMBSTONE;
+          live--;
+          return;
+        }
+      }
+    }
+
+    private void rehash(IntUnaryOperator hashOf) {
+      int[] previous = entries;
+      int length = Integer.highestOneBit(Math.max(16, (live + 1) * 4 - 1));
+      entries = new int[length];
+      used = 0;
+      live = 0;
+      int mask = length - 1;
+      for (int entry : previous) {
+        if (entry > 0) {
+          int i = hashOf.applyAsInt(entry - 1) & mask;
+          while (entries[i] != EMPTY) {
+            i = (i + 1) & mask;
+          }
+          entries[i] = entry;
+          used++;
+          live++;
+        }
+      }
+    }
+  }
+}
@@ -1,19 +1,31 @@
 package ru.mentee.power.crm.spring.repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import ru.mentee.power.crm.entity.CacheRegions;
 import ru.mentee.power.crm.entity.Product;
 
 /** Репозиторий для работы с товарами (Product). */
 @Repository
 public interface ProductJpaRepository extends JpaRepository<Product, UUID> {
 
-  /** Находит продукт по уникальному артикулу (SKU). */
+  /** Находит продукт по уникальному артикулу (SKU); результат кэшируется. */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+    @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.PRODUCT_QUERIES)
+  })
   Optional<Product> findBySku(String sku);
 
-  /** Возвращает список всех активных продуктов. */
+  /** Возвращает список всех активных продуктов; результат кэшируется. */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+    @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.PRODUCT_QUERIES)
+  })
   List<Product> findByActiveTrue();
 }
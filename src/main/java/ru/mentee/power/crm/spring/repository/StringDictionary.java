@@ -0,0 +1,74 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Потокобезопасный словарь для кодирования часто повторяющихся строк целыми кодами.
+ *
+ * <p>Каждое различное значение хранится в одном экземпляре и получает постоянный код. Словарь
+ * только растёт: коды не переиспользуются, поэтому их можно хранить рядом с данными без
+ * синхронизации. Значение {@code null} кодируется как {@link #NULL_CODE}.
+ *
+ * <p>Значения не удаляются, даже когда на них больше никто не ссылается: подсчёт ссылок пришлось
+ * бы вести под той же блокировкой, что и запись данных, а освободившийся код нельзя выдать
+ * заново, пока его может прочитать конкурентный читатель. Поэтому словарь годится для столбцов с
+ * ограниченным набором значений, таких как компании лидов: его размер равен числу различных
+ * значений, когда-либо встречавшихся хранилищу, и при постоянно новых значениях растёт без
+ * предела. Память словаря освобождается вместе с хранилищем.
+ */
+class StringDictionary {
+
+  /** Код для {@code null}. */
+  static final int NULL_CODE = -1;
+
+  private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+  private volatile String[] values = new String[16];
+  private int size;
+
+  /** Возвращает код значения, добавляя его в словарь при первом обращении. */
+  int encode(String value) {
+    if (value == null) {
+      return NULL_CODE;
+    }
+    Integer code = codes.get(value);
+    return code != null ? code : add(value);
+  }
+
+  /** Возвращает код значения или {@link #NULL_CODE}, если значения нет в словаре. */
+  int lookup(String value) {
+    if (value == null) {
+      return NULL_CODE;
+    }
+    Integer code = codes.get(value);
+    return code != null ? code : NULL_CODE;
+  }
+
+  /** Возвращает единственный экземпляр строки с данным кодом. */
+  String decode(int code) {
+    return code == NULL_CODE ? null : values[code];
+  }
+
+  /** Возвращает количество различных значений. */
+  int size() {
+    return codes.size();
+  }
+
+  private synchronized int add(String value) {
+    Integer existing = codes.get(value);
+    if (existing != null) {
+      return existing;
+    }
+    int code = size;
+    String[] current = values;
+    if (code == current.length) {
+      current = Arrays.copyOf(current, code * 2);
+    }
+    current[code] = value;
+    values = current;
+    size++;
+    codes.put(value, code);
+    return code;
+  }
+}
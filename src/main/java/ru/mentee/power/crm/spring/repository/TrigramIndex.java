@@ -0,0 +1,246 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Потокобезопасный инвертированный индекс триграмм для поиска подстрок без учёта регистра.
+ *
+ * <p>Каждое поле разбивается на триграммы отдельно, поэтому триграммы не пересекают границы полей.
+ * Индекс даёт только кандидатов: вызывающий код обязан проверить совпадение по исходным строкам.
+ *
+ * <p>Документы идентифицируются номером вставки, и список документов триграммы хранится
+ * отсортированным массивом {@code long} — 8 байт на вхождение вместо узла множества с UUID. Новые
+ * документы получают растущие номера, поэтому обычно дописываются в конец. Удалённое вхождение
+ * остаётся в массиве как надгробие (номер с инвертированными битами), пока надгробий не станет
+ * больше половины; тогда массив пересобирается. Изменения списка выполняются под {@code compute}
+ * на его триграмме, чтения блокировок не берут.
+ */
+class TrigramIndex {
+
+  /** Минимальная длина запроса, при которой индекс может сузить выборку. */
+  static final int GRAM_LENGTH = 3;
+
+  private static final long[] NONE = {};
+
+  private final ConcurrentMap<Long, Postings> postings = new ConcurrentHashMap<>();
+
+  /**
+   * Переиндексирует документ с номером вставки {@code sequence}: удаляет исчезнувшие триграммы и
+   * добавляет новые.
+   */
+  void update(long sequence, Set<Long> oldGrams, Set<Long> newGrams) {
+    for (Long gram : oldGrams) {
+      if (!newGrams.contains(gram)) {
+        postings.computeIfPresent(
+            gram,
+            (key, list) -> {
+              list.remove(sequence);
+              return list.isEmpty() ? null : list;
+            });
+      }
+    }
+    for (Long gram : newGrams) {
+      if (!oldGrams.contains(gram)) {
+        postings.compute(
+            gram,
+            (key, list) -> {
+              Postings target = list != null ? list : new Postings();
+              target.add(sequence);
+              return target;
+            });
+      }
+    }
+  }
+
+  /**
+   * Возвращает номера вставки документов, содержащих все триграммы запроса, по возрастанию.
+   * Пересечение начинается с самого короткого списка, а остальные проверяются двоичным поиском,
+   * поэтому стоимость пропорциональна длине короткого списка, а не размеру индекса.
+   */
+  long[] candidates(String normalizedQuery) {
+    Set<Long> grams = grams(normalizedQuery);
+    View[] views = new View[grams.size()];
+    int index = 0;
+    for (Long gram : grams) {
+      Postings list = postings.get(gram);
+      if (list == null) {
+        return NONE;
+      }
+      views[index++] = list.view;
+    }
+    if (views.length == 0) {
+      return NONE;
+    }
+    Arrays.sort(views, Comparator.comparingInt(View::size));
+    View smallest = views[0];
+    long[] result = new long[smallest.size()];
+    int found = 0;
+    for (int i = 0; i < smallest.size(); i++) {
+      long entry = smallest.get(i);
+      if (entry >= 0 && containedInAll(views, entry)) {
+        result[found++] = entry;
+      }
+    }
+    return Arrays.copyOf(result, found);
+  }
+
+  /** Возвращает число различных триграмм в индексе. */
+  int grams() {
+    return postings.size();
+  }
+
+  /** Возвращает объём массивов со списками документов в байтах, включая запас и надгробия. */
+  long postingBytes() {
+    long bytes = 0;
+    for (Postings list : postings.values()) {
+      bytes += (long) list.view.entries().length * Long.BYTES;
+    }
+    return bytes;
+  }
+
+  /** Приводит строку к форме, в которой она индексируется и ищется. */
+  static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  /** Собирает триграммы всех переданных полей; null-поля пропускаются. */
+  static Set<Long> grams(String... fields) {
+    Set<Long> result = new HashSet<>();
+    for (String field : fields) {
+      String text = normalize(field);
+      for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+        result.add(pack(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+      }
+    }
+    return result;
+  }
+
+  private static boolean containedInAll(View[] views, long sequence) {
+    for (int i = 1; i < views.length; i++) {
+      int found = views[i].search(sequence);
+      if (found < 0 || views[i].get(found) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long pack(char first, char second, char third) {
+    return ((long) first << 32) | ((long) second << 16) | third;
+  }
+
+  /**
+   * Список документов одной триграммы. Изменяется только под {@code compute} индекса на его
+   * триграмме. Читатель берёт {@link View} один раз: дописывание в конец не трогает видимую ему
+   * часть массива, вставка в середину и пересборка публикуют новый массив, а надгробие ставится
+   * атомарной записью одного элемента.
+   */
+  private static final class Postings {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private volatile View view = new View(new long[INITIAL_CAPACITY], 0);
+    private int live;
+
+    void add(long sequence) {
+      View current = view;
+      long[] entries = current.entries();
+      int size = current.size();
+      if (size == 0 || View.sequenceOf(current.get(size - 1)) < sequence) {
+        if (size == entries.length) {
+          entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size] = sequence;
+        view = new View(entries, size + 1);
+        live++;
+        return;
+      }
+      int found = current.search(sequence);
+      if (found >= 0) {
+        if (current.get(found) < 0) {
+          View.ENTRY.setOpaque(entries, found, sequence);
+          live++;
+        }
+        return;
+      }
+      int insertAt = -found - 1;
+      long[] grown = new long[Math.max(size + 1, entries.length)];
+      System.arraycopy(entries, 0, grown, 0, insertAt);
+      grown[insertAt] = sequence;
+      System.arraycopy(entries, insertAt, grown, insertAt + 1, size - insertAt);
+      view = new View(grown, size + 1);
+      live++;
+    }
+
+    void remove(long sequence) {
+      View current = view;
+      int found = current.search(sequence);
+      if (found < 0 || current.get(found) < 0) {
+        return;
+      }
+      View.ENTRY.setOpaque(current.entries(), found, ~sequence);
+      live--;
+      if (live > 0 && live * 2 < current.size()) {
+        compact(current);
+      }
+    }
+
+    boolean isEmpty() {
+      return live == 0;
+    }
+
+    /** Переносит живые номера в новый массив с запасом вдвое, отбрасывая надгробия. */
+    private void compact(View current) {
+      long[] entries = new long[Math.max(INITIAL_CAPACITY, live * 2)];
+      int size = 0;
+      for (int i = 0; i < current.size(); i++) {
+        long entry = current.get(i);
+        if (entry >= 0) {
+          entries[size++] = entry;
+        }
+      }
+      view = new View(entries, size);
+    }
+  }
+
+  /**
+   * Неизменяемый срез списка: первые {@code size} элементов массива, отсортированные по номеру
+   * вставки. Отрицательный элемент — надгробие удалённого номера {@code ~entry}.
+   */
+  private record View(long[] entries, int size) {
+    static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    long get(int index) {
+      return (long) ENTRY.getOpaque(entries, index);
+    }
+
+    /** Двоичный поиск номера среди живых и удалённых; как {@link Arrays#binarySearch}. */
+    int search(long sequence) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        long value = sequenceOf(get(middle));
+        if (value < sequence) {
+          low = middle + 1;
+        } else if (value > sequence) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+      return -(low + 1);
+    }
+
+    static long sequenceOf(long entry) {
+      return entry >= 0 ? entry : ~entry;
+    }
+  }
+}
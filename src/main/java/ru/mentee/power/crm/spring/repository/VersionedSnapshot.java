@@ -0,0 +1,45 @@
+package ru.mentee.power.crm.spring.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Неизменяемый снимок коллекции, который пересобирается не чаще одного раза на версию данных.
+ *
+ * <p>Писатели только увеличивают номер версии. Читатель получает опубликованный снимок за O(1),
+ * если с момента его сборки записей не было, иначе копирует источник один раз и публикует копию для
+ * остальных читателей. Снимок, собранный во время параллельной записи, не публикуется.
+ */
+class VersionedSnapshot<T> {
+
+  private final Supplier<? extends Collection<T>> source;
+  private final AtomicLong version = new AtomicLong();
+  private volatile Snapshot<T> published;
+
+  VersionedSnapshot(Supplier<? extends Collection<T>> source) {
+    this.source = source;
+  }
+
+  /** Помечает текущий снимок устаревшим. Вызывается после каждого изменения источника. */
+  void invalidate() {
+    version.incrementAndGet();
+  }
+
+  /** Возвращает неизменяемый согласованный снимок источника. */
+  List<T> get() {
+    long current = version.get();
+    Snapshot<T> snapshot = published;
+    if (snapshot != null && snapshot.version() == current) {
+      return snapshot.items();
+    }
+    List<T> items = List.copyOf(source.get());
+    if (version.get() == current) {
+      published = new Snapshot<>(current, items);
+    }
+    return items;
+  }
+
+  private record Snapshot<T>(long version, List<T> items) {}
+}
@@ -0,0 +1,76 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+import ru.mentee.power.crm.domain.Deal;
+import ru.mentee.power.crm.domain.DealStatus;
+
+/** Двоичный формат записей журнала сделок: сохранение (включая смену статуса) и удаление. */
+public final class DealRecords {
+
+  private static final byte SAVE = 1;
+  private static final byte DELETE = 2;
+
+  private DealRecords() {}
+
+  /** Кодирует текущее состояние сделки. */
+  public static byte[] save(Deal deal) {
+    return save(deal, deal.getStatus());
+  }
+
+  /** Кодирует сделку с указанным статусом, например тем, под которым её проиндексировали. */
+  public static byte[] save(Deal deal, DealStatus status) {
+    return RecordCodec.encode(
+        out -> {
+          out.writeByte(SAVE);
+          RecordCodec.writeUuid(out, deal.getId());
+          RecordCodec.writeUuid(out, deal.getLeadId());
+          out.writeUTF(deal.getAmount().toPlainString());
+          out.writeUTF(status.name());
+          RecordCodec.writeNullable(
+              out, deal.getCreatedAt() != null ? deal.getCreatedAt().toString() : null);
+        });
+  }
+
+  /** Кодирует удаление сделки. */
+  public static byte[] delete(UUID id) {
+    return RecordCodec.encode(
+        out -> {
+          out.writeByte(DELETE);
+          RecordCodec.writeUuid(out, id);
+        });
+  }
+
+  /** Декодирует запись и передаёт её соответствующему обработчику. */
+  public static void apply(ByteBuffer record, Consumer<Deal> onSave, Consumer<UUID> onDelete) {
+    try (DataInputStream in = RecordCodec.open(record)) {
+      byte type = in.readByte();
+      UUID id = RecordCodec.readUuid(in);
+      switch (type) {
+        case SAVE -> {
+          UUID leadId = RecordCodec.readUuid(in);
+          BigDecimal amount = new BigDecimal(in.readUTF());
+          DealStatus status = DealStatus.valueOf(in.readUTF());
+          String createdAt = RecordCodec.readNullable(in);
+          onSave.accept(
+              new Deal(
+                  id,
+                  leadId,
+                  amount,
+                  status,
+                  createdAt != null ? LocalDateTime.parse(createdAt) : null));
+        }
+        case DELETE -> onDelete.accept(id);
+        default -> throw new IllegalStateException("Unknown deal log record type: " + type);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot decode deal log record", e);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+/** Режим сброса журнала упреждающей записи на диск. */
+public enum DurabilityMode {
+  /** fsync сразу после каждой записи; параллельные записи могут разделить один fsync. */
+  SYNC,
+  /** Фоновый поток выполняет fsync раз в интервал; писатели ждут ближайшего общего сброса. */
+  GROUP_COMMIT
+}
@@ -0,0 +1,65 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.function.Consumer;
+import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
+
+/** Двоичный формат записей журнала лидов: сохранение и удаление. */
+public final class LeadRecords {
+
+  private static final byte SAVE = 1;
+  private static final byte DELETE = 2;
+
+  private LeadRecords() {}
+
+  /** Кодирует сохранение лида. */
+  public static byte[] save(Lead lead) {
+    return RecordCodec.encode(
+        out -> {
+          out.writeByte(SAVE);
+          RecordCodec.writeUuid(out, lead.id());
+          RecordCodec.writeNullable(out, lead.name());
+          RecordCodec.writeNullable(out, lead.email());
+          RecordCodec.writeNullable(out, lead.phone());
+          RecordCodec.writeNullable(out, lead.company());
+          RecordCodec.writeNullable(out, lead.status() != null ? lead.status().name() : null);
+        });
+  }
+
+  /** Кодирует удаление лида. */
+  public static byte[] delete(UUID id) {
+    return RecordCodec.encode(
+        out -> {
+          out.writeByte(DELETE);
+          RecordCodec.writeUuid(out, id);
+        });
+  }
+
+  /** Декодирует запись и передаёт её соответствующему обработчику. */
+  public static void apply(ByteBuffer record, Consumer<Lead> onSave, Consumer<UUID> onDelete) {
+    try (DataInputStream in = RecordCodec.open(record)) {
+      byte type = in.readByte();
+      UUID id = RecordCodec.readUuid(in);
+      switch (type) {
+        case SAVE -> {
+          String name = RecordCodec.readNullable(in);
+          String email = RecordCodec.readNullable(in);
+          String phone = RecordCodec.readNullable(in);
+          String company = RecordCodec.readNullable(in);
+          String status = RecordCodec.readNullable(in);
+          LeadStatus leadStatus = status != null ? LeadStatus.valueOf(status) : null;
+          onSave.accept(new Lead(id, name, email, phone, company, leadStatus));
+        }
+        case DELETE -> onDelete.accept(id);
+        default -> throw new IllegalStateException("Unknown lead log record type: " + type);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot decode lead log record", e);
+    }
+  }
+}
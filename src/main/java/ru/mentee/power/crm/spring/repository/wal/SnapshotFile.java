@@ -0,0 +1,156 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Двоичный снимок состояния, записываемый и читаемый через memory-mapped файлы.
+ *
+ * <p>Формат: {@code [MAGIC][номер последнего покрытого сегмента]}, далее кадры в том же формате,
+ * что и в журнале. Файл отображается окнами по {@link #WINDOW_BYTES} через {@link Arena}, поэтому
+ * каждое окно освобождается сразу, а размер снимка не ограничен размером одного буфера.
+ */
+final class SnapshotFile {
+
+  private static final int MAGIC = 0x43524D53; // "CRMS"
+  private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+  private static final int WINDOW_BYTES = 8 * 1024 * 1024;
+
+  private SnapshotFile() {}
+
+  /** Записывает снимок, сбрасывает его на диск и возвращает размер в байтах. */
+  static long write(Path file, long coveredSegment, SnapshotSource source) throws IOException {
+    long size;
+    try (FileChannel channel =
+            FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Window window = new Window(channel, FileChannel.MapMode.READ_WRITE, Long.MAX_VALUE)) {
+      window.ensure(HEADER_BYTES).putInt(MAGIC).putLong(coveredSegment);
+      source.writeSnapshot(
+          payload -> {
+            try {
+              window
+                  .ensure(WriteAheadLog.FRAME_HEADER_BYTES + payload.length)
+                  .putInt(payload.length)
+                  .putInt(WriteAheadLog.checksum(payload))
+                  .put(payload);
+            } catch (IOException e) {
+              throw new UncheckedIOException("Cannot write snapshot " + file, e);
+            }
+          });
+      size = window.position();
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+      channel.force(true);
+    }
+    return size;
+  }
+
+  /** Читает номер последнего сегмента журнала, покрытого снимком. */
+  static long coveredSegment(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // дочитываем заголовок целиком
+      }
+      header.flip();
+      if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+        throw new IOException("Not a CRM snapshot: " + file);
+      }
+      return header.getLong();
+    }
+  }
+
+  /** Передаёт записи снимка получателю в порядке записи. */
+  static void read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        Window window = new Window(channel, FileChannel.MapMode.READ_ONLY, channel.size())) {
+      long size = channel.size();
+      ByteBuffer header = window.ensure(HEADER_BYTES);
+      header.getInt();
+      header.getLong();
+      while (window.position() + WriteAheadLog.FRAME_HEADER_BYTES <= size) {
+        ByteBuffer frame = window.ensure(WriteAheadLog.FRAME_HEADER_BYTES);
+        int length = frame.getInt();
+        int expectedChecksum = frame.getInt();
+        byte[] payload = new byte[length];
+        window.ensure(length).get(payload);
+        if (WriteAheadLog.checksum(payload) != expectedChecksum) {
+          throw new IOException("Corrupted snapshot record in " + file);
+        }
+        consumer.accept(ByteBuffer.wrap(payload).asReadOnlyBuffer());
+      }
+    }
+  }
+
+  /** Скользящее окно отображения файла в память; окно освобождается при переходе к следующему. */
+  private static final class Window implements AutoCloseable {
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final long limit;
+    private long start;
+    private Arena arena;
+    private MemorySegment segment;
+    private ByteBuffer buffer;
+
+    Window(FileChannel channel, FileChannel.MapMode mode, long limit) throws IOException {
+      this.channel = channel;
+      this.mode = mode;
+      this.limit = limit;
+      map(0, 0);
+    }
+
+    /** Гарантирует, что в окне доступно ещё {@code bytes} байт, и возвращает буфер окна. */
+    ByteBuffer ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        long next = position();
+        release();
+        map(next, bytes);
+      }
+      return buffer;
+    }
+
+    long position() {
+      return start + buffer.position();
+    }
+
+    @Override
+    public void close() {
+      release();
+    }
+
+    private void map(long from, int atLeast) throws IOException {
+      long length = Math.min(Math.max(WINDOW_BYTES, atLeast), limit - from);
+      if (length < atLeast) {
+        throw new IOException("Unexpected end of snapshot");
+      }
+      start = from;
+      arena = Arena.ofConfined();
+      segment = channel.map(mode, from, length, arena);
+      buffer = segment.asByteBuffer();
+    }
+
+    private void release() {
+      if (arena == null) {
+        return;
+      }
+      if (mode == FileChannel.MapMode.READ_WRITE) {
+        segment.force();
+      }
+      arena.close();
+      arena = null;
+    }
+  }
+}
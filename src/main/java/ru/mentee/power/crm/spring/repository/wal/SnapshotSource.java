@@ -0,0 +1,14 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import java.util.function.Consumer;
+
+/** Хранилище, состояние которого можно выгрузить в снимок журнала. */
+public interface SnapshotSource {
+
+  /**
+   * Передаёт текущее состояние в виде записей журнала, по одной на сущность. Не должен блокировать
+   * писателей: достаточно слабо согласованного обхода, так как хвост журнала после снимка
+   * воспроизводится поверх него идемпотентно.
+   */
+  void writeSnapshot(Consumer<byte[]> sink);
+}
@@ -0,0 +1,485 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Журнал упреждающей записи (WAL) поверх {@link FileChannel}, доступный только на дозапись.
+ *
+ * <p>Каждая запись хранится в кадре {@code [длина][CRC32C][данные]}. Запись разделена на две фазы:
+ * {@link #append(byte[])} быстро кладёт кадр в файл и возвращает позицию-квитанцию, а {@link
+ * #awaitDurable(long)} ждёт, пока fsync покроет эту позицию. Так репозиторий может упорядочить
+ * записи под своей блокировкой, а ждать диск уже без неё. Один fsync подтверждает все записи,
+ * накопленные к моменту его начала (group commit).
+ *
+ * <p>Журнал состоит из сегментов {@code <file>.<N>}. {@link #checkpoint(SnapshotSource)} начинает
+ * новый сегмент, записывает снимок {@code <file>.snapshot} и удаляет покрытые им сегменты, поэтому
+ * восстановление читает только снимок и короткий хвост журнала.
+ *
+ * <p>Неудачный fsync запоминается: после него ОС может уже отбросить несохранённые страницы,
+ * поэтому журнал больше не подтверждает долговечность. Текущие и последующие {@link
+ * #awaitDurable(long)} в обоих режимах завершаются той же ошибкой, а не ждут вечно; журнал нужно
+ * закрыть и открыть заново.
+ */
+public final class WriteAheadLog implements Closeable {
+
+  static final int FRAME_HEADER_BYTES = Integer.BYTES * 2;
+
+  private static final Logger LOG = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private final Path file;
+  private final Path snapshotFile;
+  private final DurabilityMode mode;
+  private final ScheduledExecutorService flusher;
+  private final Object writeLock = new Object();
+  private final Object syncLock = new Object();
+  private final Object checkpointLock = new Object();
+  private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+  private final UnaryOperator<FileChannel> channelWrapper;
+
+  private ScheduledExecutorService checkpointer;
+  private FileChannel channel;
+  private long segment;
+  private long writePosition;
+  private volatile long durablePosition;
+  private volatile IOException syncFailure;
+  private volatile boolean closed;
+
+  private WriteAheadLog(
+      Path file,
+      DurabilityMode mode,
+      long segment,
+      FileChannel channel,
+      UnaryOperator<FileChannel> channelWrapper) {
+    this.file = file;
+    this.snapshotFile = sibling(file, "snapshot");
+    this.mode = mode;
+    this.segment = segment;
+    this.channel = channel;
+    this.channelWrapper = channelWrapper;
+    this.flusher =
+        mode == DurabilityMode.GROUP_COMMIT
+            ? Executors.newSingleThreadScheduledExecutor(
+                runnable -> Thread.ofPlatform().name("wal-flusher").daemon().unstarted(runnable))
+            : null;
+  }
+
+  /**
+   * Открывает (или создаёт) журнал. В режиме {@link DurabilityMode#GROUP_COMMIT} запускает фоновый
+   * сброс с заданным интервалом.
+   */
+  public static WriteAheadLog open(Path file, DurabilityMode mode, Duration flushInterval) {
+    return open(file, mode, flushInterval, UnaryOperator.identity());
+  }
+
+  /** То же, но каждый открытый канал сегмента оборачивается (для тестов отказов диска). */
+  static WriteAheadLog open(
+      Path file,
+      DurabilityMode mode,
+      Duration flushInterval,
+      UnaryOperator<FileChannel> channelWrapper) {
+    Objects.requireNonNull(mode, "mode must not be null");
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      long covered = coveredSegment(sibling(file, "snapshot"));
+      List<Long> segments = segments(file);
+      for (Long stale : segments) {
+        if (stale <= covered) {
+          // Остатки контрольной точки, прерванной после записи снимка
+          Files.deleteIfExists(sibling(file, stale.toString()));
+        }
+      }
+      long last = segments.isEmpty() ? covered + 1 : Math.max(covered + 1, segments.getLast());
+      FileChannel channel = channelWrapper.apply(openSegment(sibling(file, Long.toString(last))));
+      WriteAheadLog log = new WriteAheadLog(file, mode, last, channel, channelWrapper);
+      if (log.flusher != null) {
+        long intervalMs = Math.max(1, flushInterval.toMillis());
+        log.flusher.scheduleWithFixedDelay(
+            log::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+      }
+      return log;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open write-ahead log " + file, e);
+    }
+  }
+
+  /** Передаёт получателю записи снимка, а затем целые записи журнала после него. */
+  public void replay(Consumer<ByteBuffer> consumer) {
+    synchronized (checkpointLock) {
+      try {
+        if (Files.exists(snapshotFile)) {
+          SnapshotFile.read(snapshotFile, consumer);
+        }
+        long covered = coveredSegment(snapshotFile);
+        for (Long index : segments(file)) {
+          if (index > covered) {
+            try (FileChannel reader =
+                FileChannel.open(sibling(file, index.toString()), StandardOpenOption.READ)) {
+              scan(reader, consumer);
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot replay write-ahead log " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Выполняет изменение состояния, которое пишет в журнал, так что контрольная точка не может
+   * разделить запись в журнал и применение изменения в памяти.
+   *
+   * @return результат изменения (обычно квитанция {@link #append(byte[])})
+   */
+  public long journaled(LongSupplier mutation) {
+    rotationLock.readLock().lock();
+    try {
+      return mutation.getAsLong();
+    } finally {
+      rotationLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Дописывает запись в конец журнала без ожидания fsync.
+   *
+   * @return квитанция для {@link #awaitDurable(long)}
+   */
+  public long append(byte[] payload) {
+    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length);
+    frame.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+    synchronized (writeLock) {
+      ensureOpen();
+      try {
+        while (frame.hasRemaining()) {
+          channel.write(frame);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot append to write-ahead log " + file, e);
+      }
+      writePosition += frame.limit();
+      return writePosition;
+    }
+  }
+
+  /**
+   * Блокирует поток, пока запись с данной квитанцией не окажется на диске.
+   *
+   * @throws UncheckedIOException если fsync журнала не удался
+   */
+  public void awaitDurable(long ticket) {
+    if (durablePosition >= ticket) {
+      return;
+    }
+    if (mode == DurabilityMode.SYNC) {
+      flush();
+      return;
+    }
+    synchronized (syncLock) {
+      while (durablePosition < ticket) {
+        ensureOpen();
+        ensureSynced();
+        try {
+          syncLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for write-ahead log", e);
+        }
+      }
+    }
+  }
+
+  /** Дописывает запись и дожидается её сброса на диск. */
+  public void appendDurably(byte[] payload) {
+    awaitDurable(append(payload));
+  }
+
+  /** Сбрасывает на диск всё, что было записано к моменту вызова. */
+  public void flush() {
+    synchronized (syncLock) {
+      long target;
+      FileChannel current;
+      synchronized (writeLock) {
+        target = writePosition;
+        current = channel;
+      }
+      if (durablePosition >= target) {
+        return;
+      }
+      ensureSynced();
+      force(current);
+      durablePosition = target;
+      syncLock.notifyAll();
+    }
+  }
+
+  /**
+   * Делает контрольную точку: переключает журнал на новый сегмент, записывает снимок источника и
+   * удаляет сегменты, которые он покрывает. Писатели блокируются только на время переключения
+   * сегмента, но не на время записи снимка.
+   *
+   * @return размер снимка в байтах
+   */
+  public long checkpoint(SnapshotSource source) {
+    synchronized (checkpointLock) {
+      try {
+        long covered = rotate();
+        Path temporary = sibling(file, "snapshot.tmp");
+        long size = SnapshotFile.write(temporary, covered, source);
+        Files.move(
+            temporary,
+            snapshotFile,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        for (Long index : segments(file)) {
+          if (index <= covered) {
+            Files.deleteIfExists(sibling(file, index.toString()));
+          }
+        }
+        LOG.info("Checkpoint of {}: {} bytes, segments up to {} removed", file, size, covered);
+        return size;
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot checkpoint write-ahead log " + file, e);
+      }
+    }
+  }
+
+  /** Запускает периодические контрольные точки в отдельном фоновом потоке. */
+  public synchronized void scheduleCheckpoints(SnapshotSource source, Duration interval) {
+    if (checkpointer != null) {
+      throw new IllegalStateException("Checkpoints are already scheduled for " + file);
+    }
+    checkpointer =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("wal-checkpoint").daemon().unstarted(runnable));
+    long intervalMs = Math.max(1, interval.toMillis());
+    checkpointer.scheduleWithFixedDelay(
+        () -> {
+          try {
+            checkpoint(source);
+          } catch (RuntimeException e) {
+            LOG.error("Background checkpoint of {} failed", file, e);
+          }
+        },
+        intervalMs,
+        intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Возвращает базовый путь журнала. */
+  public Path file() {
+    return file;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    synchronized (this) {
+      if (checkpointer != null) {
+        checkpointer.shutdown();
+      }
+    }
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      synchronized (syncLock) {
+        syncLock.notifyAll();
+      }
+      try {
+        synchronized (writeLock) {
+          channel.close();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot close write-ahead log " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Закрывает текущий сегмент и открывает следующий. Ждёт завершения уже начатых изменений, чтобы
+   * всё, что попало в старые сегменты, было видно в памяти до начала снимка.
+   *
+   * @return номер последнего закрытого сегмента
+   */
+  private long rotate() throws IOException {
+    rotationLock.writeLock().lock();
+    try {
+      synchronized (syncLock) {
+        synchronized (writeLock) {
+          ensureOpen();
+          ensureSynced();
+          force(channel);
+          durablePosition = writePosition;
+          syncLock.notifyAll();
+          long closedSegment = segment;
+          FileChannel previous = channel;
+          channel =
+              channelWrapper.apply(openSegment(sibling(file, Long.toString(closedSegment + 1))));
+          segment = closedSegment + 1;
+          previous.close();
+          return closedSegment;
+        }
+      }
+    } finally {
+      rotationLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Сбрасывает канал на диск. Неудача запоминается, и все ждущие {@link #awaitDurable(long)}
+   * будятся, чтобы получить ошибку. Вызывается под {@code syncLock}.
+   */
+  private void force(FileChannel target) {
+    try {
+      target.force(false);
+    } catch (IOException e) {
+      syncFailure = e;
+      syncLock.notifyAll();
+      throw syncFailed(e);
+    }
+  }
+
+  private void ensureSynced() {
+    IOException failure = syncFailure;
+    if (failure != null) {
+      throw syncFailed(failure);
+    }
+  }
+
+  private UncheckedIOException syncFailed(IOException cause) {
+    return new UncheckedIOException("Cannot fsync write-ahead log " + file, cause);
+  }
+
+  private void flushQuietly() {
+    if (syncFailure != null) {
+      return; // ошибка уже передана писателям, повторять fsync бессмысленно
+    }
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOG.error("Background fsync of {} failed", file, e);
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Write-ahead log is closed: " + file);
+    }
+  }
+
+  /** Открывает сегмент на дозапись, отрезая «оборванный» при сбое хвост. */
+  private static FileChannel openSegment(Path segmentFile) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            segmentFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    long validEnd = scan(channel, record -> {});
+    if (validEnd < channel.size()) {
+      LOG.warn("Truncating torn tail of {} at byte {}", segmentFile, validEnd);
+      channel.truncate(validEnd);
+    }
+    channel.position(validEnd);
+    return channel;
+  }
+
+  /** Номер последнего сегмента, покрытого снимком, или 0, если снимка нет. */
+  private static long coveredSegment(Path snapshot) throws IOException {
+    return Files.exists(snapshot) ? SnapshotFile.coveredSegment(snapshot) : 0;
+  }
+
+  /** Номера существующих сегментов журнала по возрастанию. */
+  private static List<Long> segments(Path file) throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    Pattern pattern = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "\\.(\\d+)");
+    List<Long> result = new ArrayList<>();
+    try (Stream<Path> children = Files.list(dir)) {
+      children.forEach(
+          child -> {
+            Matcher matcher = pattern.matcher(child.getFileName().toString());
+            if (matcher.matches()) {
+              result.add(Long.parseLong(matcher.group(1)));
+            }
+          });
+    }
+    result.sort(null);
+    return result;
+  }
+
+  private static Path sibling(Path file, String suffix) {
+    return file.resolveSibling(file.getFileName() + "." + suffix);
+  }
+
+  /** Читает кадры с начала файла и возвращает позицию конца последнего целого кадра. */
+  private static long scan(FileChannel channel, Consumer<ByteBuffer> consumer) throws IOException {
+    long size = channel.size();
+    long position = 0;
+    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+    while (position + FRAME_HEADER_BYTES <= size) {
+      header.clear();
+      readFully(channel, header, position);
+      header.flip();
+      int length = header.getInt();
+      int expectedChecksum = header.getInt();
+      if (length < 0 || position + FRAME_HEADER_BYTES + length > size) {
+        break;
+      }
+      ByteBuffer payload = ByteBuffer.allocate(length);
+      readFully(channel, payload, position + FRAME_HEADER_BYTES);
+      if (checksum(payload.array()) != expectedChecksum) {
+        break;
+      }
+      consumer.accept(payload.flip().asReadOnlyBuffer());
+      position += FRAME_HEADER_BYTES + length;
+    }
+    return position;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer target, long position)
+      throws IOException {
+    while (target.hasRemaining()) {
+      if (channel.read(target, position + target.position()) < 0) {
+        throw new IOException("Unexpected end of write-ahead log");
+      }
+    }
+  }
+
+  static int checksum(byte[] payload) {
+    CRC32C crc = new CRC32C();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+}
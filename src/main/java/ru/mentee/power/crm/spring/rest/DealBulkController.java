@@ -0,0 +1,31 @@
+package ru.mentee.power.crm.spring.rest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mentee.power.crm.spring.service.BulkExportService;
+import ru.mentee.power.crm.spring.service.BulkFormat;
+
+/** REST контроллер массовых операций со сделками. */
+@RestController
+@RequestMapping("/api/deals")
+@RequiredArgsConstructor
+public class DealBulkController {
+
+  private final BulkExportService bulkExportService;
+
+  /** Выгружает все сделки из БД файлом в формате {@code csv} или {@code ndjson}. */
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportDeals(
+      @RequestParam(defaultValue = "csv") String format) {
+    BulkFormat bulkFormat = BulkFormat.fromName(format);
+    return LeadBulkController.attachment(
+        bulkFormat.fileName("deals"),
+        bulkFormat,
+        output -> bulkExportService.exportDeals(output, bulkFormat));
+  }
+}
@@ -0,0 +1,66 @@
+package ru.mentee.power.crm.spring.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.mentee.power.crm.spring.dto.LeadImportReport;
+import ru.mentee.power.crm.spring.service.BulkExportService;
+import ru.mentee.power.crm.spring.service.BulkFormat;
+import ru.mentee.power.crm.spring.service.LeadImportService;
+
+/** REST контроллер массовых операций с лидами. */
+@RestController
+@RequestMapping("/api/leads")
+@RequiredArgsConstructor
+public class LeadBulkController {
+
+  private final LeadImportService leadImportService;
+  private final BulkExportService bulkExportService;
+
+  /**
+   * Импортирует лидов из тела запроса в формате CSV ({@code text/csv}) или NDJSON ({@code
+   * application/x-ndjson}). Тело читается потоком, по мере записи пачек в БД. Ошибки отдельных
+   * строк не прерывают импорт и перечисляются в отчёте.
+   */
+  @PostMapping(path = "/import", consumes = {"text/csv", "application/x-ndjson"})
+  public ResponseEntity<LeadImportReport> importLeads(
+      @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+      throws IOException {
+    return ResponseEntity.ok(
+        leadImportService.importLeads(body, BulkFormat.fromContentType(contentType)));
+  }
+
+  /**
+   * Выгружает всех лидов файлом в формате {@code csv} или {@code ndjson}. Строки пишутся в ответ по
+   * мере чтения из БД, поэтому память сервера не зависит от размера выгрузки.
+   */
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportLeads(
+      @RequestParam(defaultValue = "csv") String format) {
+    BulkFormat bulkFormat = BulkFormat.fromName(format);
+    return attachment(
+        bulkFormat.fileName("leads"),
+        bulkFormat,
+        output -> bulkExportService.exportLeads(output, bulkFormat));
+  }
+
+  static ResponseEntity<StreamingResponseBody> attachment(
+      String fileName, BulkFormat format, StreamingResponseBody body) {
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_TYPE, format.mediaType() + ";charset=UTF-8")
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(fileName).build().toString())
+        .body(body);
+  }
+}
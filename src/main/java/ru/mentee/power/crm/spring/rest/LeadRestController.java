@@ -13,6 +13,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.mentee.power.crm.spring.dto.generated.CreateLeadRequest;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse;
 import ru.mentee.power.crm.spring.dto.generated.UpdateLeadRequest;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 import ru.mentee.power.crm.spring.rest.generated.LeadManagementApi;
 import ru.mentee.power.crm.spring.service.LeadRestServiceAdapter;
 
@@ -22,11 +23,19 @@ import ru.mentee.power.crm.spring.service.LeadRestServiceAdapter;
 @RestController
 @Validated
 public class LeadRestController implements LeadManagementApi {
+  /** Заголовок с курсором следующей страницы списка лидов */
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   private final LeadRestServiceAdapter leadRestServiceAdapter;
 
   @Override
-  public ResponseEntity<List<LeadResponse>> getLeads() {
-    return ResponseEntity.ok(leadRestServiceAdapter.findAllLeads());
+  public ResponseEntity<List<LeadResponse>> getLeads(String cursor, Integer limit) {
+    KeysetPage<LeadResponse> page = leadRestServiceAdapter.findLeadsPage(cursor, limit);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.hasNext()) {
+      response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+    }
+    return response.body(page.items());
   }
 
   @Override
@@ -0,0 +1,82 @@
+package ru.mentee.power.crm.spring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.mentee.power.crm.entity.Company;
+
+/**
+ * Массовая выгрузка лидов и сделок в CSV или NDJSON. Записи читаются из БД потоком и сразу пишутся
+ * в вывод, поэтому расход памяти не зависит от числа строк. Выгрузка лидов совместима с импортом
+ * {@link LeadImportService}: лишние столбцы при импорте игнорируются.
+ */
+@Service
+@RequiredArgsConstructor
+public class BulkExportService {
+  private static final List<String> LEAD_COLUMNS =
+      List.of("id", "name", "email", "phone", "companyId", "status", "createdAt", "updatedAt");
+  private static final List<String> DEAL_COLUMNS =
+      List.of("id", "leadId", "title", "amount", "status", "createdAt");
+
+  private final JpaLeadService leadService;
+  private final JpaDealService dealService;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Выгружает всех лидов в порядке создания. Поток вывода не закрывается.
+   *
+   * @return количество выгруженных лидов
+   */
+  public long exportLeads(OutputStream output, BulkFormat format) throws IOException {
+    BulkWriter writer = BulkWriter.open(output, format, objectMapper, LEAD_COLUMNS);
+    try {
+      long exported =
+          leadService.forEachLead(
+              lead -> {
+                Company company = lead.getCompany();
+                writer.write(
+                    lead.getId(),
+                    lead.getName(),
+                    lead.getEmail(),
+                    lead.getPhone(),
+                    company != null ? company.getId() : null,
+                    lead.getStatus(),
+                    lead.getCreatedAt(),
+                    lead.getUpdatedAt());
+              });
+      writer.flush();
+      return exported;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Выгружает все сделки в порядке создания, без позиций. Поток вывода не закрывается.
+   *
+   * @return количество выгруженных сделок
+   */
+  public long exportDeals(OutputStream output, BulkFormat format) throws IOException {
+    BulkWriter writer = BulkWriter.open(output, format, objectMapper, DEAL_COLUMNS);
+    try {
+      long exported =
+          dealService.forEachDeal(
+              deal ->
+                  writer.write(
+                      deal.getId(),
+                      deal.getLeadId(),
+                      deal.getTitle(),
+                      deal.getAmount(),
+                      deal.getStatus(),
+                      deal.getCreatedAt()));
+      writer.flush();
+      return exported;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package ru.mentee.power.crm.spring.service;
+
+import java.util.Locale;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+
+/** Формат файла массового импорта и выгрузки. */
+public enum BulkFormat {
+  /** CSV по RFC 4180, первая строка — заголовок с именами столбцов. */
+  CSV("text/csv", ".csv"),
+  /** По одному JSON-объекту на строку. */
+  NDJSON("application/x-ndjson", ".ndjson");
+
+  private final String mediaType;
+  private final String extension;
+
+  BulkFormat(String mediaType, String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  /** Возвращает MIME-тип формата. */
+  public String mediaType() {
+    return mediaType;
+  }
+
+  /** Возвращает имя файла с расширением формата. */
+  public String fileName(String baseName) {
+    return baseName + extension;
+  }
+
+  /**
+   * Определяет формат по имени без учёта регистра: {@code csv} или {@code ndjson}.
+   *
+   * @throws BadRequestException если формат не поддерживается
+   */
+  public static BulkFormat fromName(String name) {
+    for (BulkFormat format : values()) {
+      if (format.name().equalsIgnoreCase(name)) {
+        return format;
+      }
+    }
+    throw new BadRequestException("Неподдерживаемый формат файла: " + name);
+  }
+
+  /**
+   * Определяет формат по заголовку Content-Type.
+   *
+   * @throws BadRequestException если тип не поддерживается
+   */
+  public static BulkFormat fromContentType(String contentType) {
+    String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+    for (BulkFormat format : values()) {
+      if (type.startsWith(format.mediaType)) {
+        return format;
+      }
+    }
+    throw new BadRequestException("Неподдерживаемый формат файла: " + contentType);
+  }
+
+  /**
+   * Определяет формат по расширению имени файла.
+   *
+   * @throws BadRequestException если расширение не поддерживается
+   */
+  public static BulkFormat fromFileName(String fileName) {
+    String name = fileName.toLowerCase(Locale.ROOT);
+    for (BulkFormat format : values()) {
+      if (name.endsWith(format.extension)) {
+        return format;
+      }
+    }
+    throw new BadRequestException("Неподдерживаемый формат файла: " + fileName);
+  }
+}
@@ -0,0 +1,127 @@
+package ru.mentee.power.crm.spring.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Потоковая запись выгрузки построчно: каждая запись сразу уходит в буфер вывода и не копится в
+ * памяти. CSV пишется по RFC 4180 с заголовком из имён столбцов, NDJSON — по одному JSON-объекту с
+ * теми же полями на строку.
+ *
+ * <p>Поток вывода не закрывается: по окончании записи достаточно вызвать {@link #flush()}.
+ */
+final class BulkWriter implements Flushable {
+  private final Writer out;
+  private final List<String> columns;
+  private final JsonGenerator json;
+
+  private BulkWriter(Writer out, List<String> columns, JsonGenerator json) {
+    this.out = out;
+    this.columns = columns;
+    this.json = json;
+  }
+
+  /** Открывает запись; для CSV сразу пишет заголовок. */
+  static BulkWriter open(
+      OutputStream output, BulkFormat format, ObjectMapper mapper, List<String> columns)
+      throws IOException {
+    Writer out =
+        new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+    if (format == BulkFormat.CSV) {
+      BulkWriter writer = new BulkWriter(out, columns, null);
+      writer.writeCsv(columns.toArray());
+      return writer;
+    }
+    JsonGenerator json = mapper.getFactory().createGenerator(out);
+    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    // Генератор сбрасывает в буфер после каждой записи, а сам буфер — только по заполнении
+    json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    // Объекты разделяются переводом строки, который пишется после каждого из них
+    json.setRootValueSeparator(null);
+    return new BulkWriter(out, columns, json);
+  }
+
+  /**
+   * Пишет одну запись; значения идут в порядке столбцов. {@code null} в CSV — пустое значение.
+   *
+   * @throws UncheckedIOException если запись в поток не удалась, например клиент отключился
+   */
+  void write(Object... values) {
+    if (values.length != columns.size()) {
+      throw new IllegalArgumentException(
+          "Ожидалось значений: " + columns.size() + ", получено: " + values.length);
+    }
+    try {
+      if (json == null) {
+        writeCsv(values);
+      } else {
+        writeJson(values);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (json != null) {
+      json.flush();
+    }
+    out.flush();
+  }
+
+  private void writeCsv(Object[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      if (values[i] != null) {
+        writeCsvValue(values[i].toString());
+      }
+    }
+    out.write("\r\n");
+  }
+
+  private void writeCsvValue(String value) throws IOException {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    out.write(value.replace("\"", "\"\""));
+    out.write('"');
+  }
+
+  private void writeJson(Object[] values) throws IOException {
+    json.writeStartObject();
+    for (int i = 0; i < values.length; i++) {
+      json.writeFieldName(columns.get(i));
+      Object value = values[i];
+      if (value == null) {
+        json.writeNull();
+      } else if (value instanceof BigDecimal number) {
+        json.writeNumber(number);
+      } else {
+        json.writeString(value.toString());
+      }
+    }
+    json.writeEndObject();
+    json.flush();
+    out.write('\n');
+  }
+}
@@ -3,12 +3,14 @@ package ru.mentee.power.crm.spring.service;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.mentee.power.crm.domain.Deal;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
+import ru.mentee.power.crm.spring.repository.DealPipelineProjection;
 import ru.mentee.power.crm.spring.repository.DealRepository;
+import ru.mentee.power.crm.spring.repository.DealTransitionLog;
 
 /**
  * Сервис для управления сделками (Deal). Координирует взаимодействие между агрегатами Lead и Deal,
@@ -18,10 +20,11 @@ import ru.mentee.power.crm.spring.repository.DealRepository;
 @RequiredArgsConstructor
 public class DealService {
   private final DealRepository dealRepository;
+  private final DealTransitionLog transitionLog;
 
   /**
    * Изменяет статус существующей сделки с проверкой валидности перехода. Делегирует валидацию
-   * самому объекту Deal.
+   * самому объекту Deal. Репозиторий дописывает переход в журнал событий воронки при сохранении.
    */
   public Deal transitionDealStatus(UUID dealId, DealStatus newStatus) {
     Deal deal =
@@ -38,8 +41,25 @@ public class DealService {
     return dealRepository.findAll();
   }
 
-  /** Группирует все сделки по статусам для отображения Kanban-доски. */
+  /**
+   * Группирует все сделки по статусам для отображения Kanban-доски. Репозиторий хранит сделки уже
+   * разложенными по статусам, поэтому группировка не перебирает все сделки заново.
+   */
   public Map<DealStatus, List<Deal>> getDealsByStatusForKanban() {
-    return dealRepository.findAll().stream().collect(Collectors.groupingBy(Deal::getStatus));
+    return dealRepository.findAllGroupedByStatus();
+  }
+
+  /** Возвращает количество и сумму сделок в каждой колонке воронки. */
+  public List<DealStatusSummary> getStatusSummary() {
+    return dealRepository.summarizeByStatus();
+  }
+
+  /**
+   * Восстанавливает проекции воронки (текущие статусы, время в стадиях, число сделок, дошедших до
+   * каждой стадии) повторным применением журнала переходов. В журнале только сделки этого
+   * репозитория; воронку JPA-сделок строит {@link JpaDealService#getPipeline()}.
+   */
+  public DealPipelineProjection getPipeline() {
+    return transitionLog.project();
   }
 }
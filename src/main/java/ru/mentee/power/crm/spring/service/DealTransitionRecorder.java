@@ -0,0 +1,105 @@
+package ru.mentee.power.crm.spring.service;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealTransition;
+import ru.mentee.power.crm.entity.DealTransitionEntry;
+import ru.mentee.power.crm.spring.repository.DealTransitionLog;
+import ru.mentee.power.crm.spring.repository.JpaDealTransitionRepository;
+
+/**
+ * Ведёт историю JPA-сделок в {@link DealTransitionLog} так, чтобы она переживала перезапуск:
+ * переход сохраняется в таблицу {@code deal_transitions} в той же транзакции, что и сделка, а в
+ * журнал в памяти попадает только после её фиксации. При создании бина, ещё до приёма запросов,
+ * журнал заполняется из таблицы в порядке записи.
+ *
+ * <p>Журнал принадлежит рекордеру: общий бин {@link DealTransitionLog} ведёт историю сделок {@link
+ * ru.mentee.power.crm.spring.repository.InMemoryDealRepository}, и воронка каждого стека строится
+ * только по его собственным сделкам.
+ */
+@Component
+public class DealTransitionRecorder {
+  private static final Logger LOG = LoggerFactory.getLogger(DealTransitionRecorder.class);
+
+  private final DealTransitionLog transitionLog;
+  private final JpaDealTransitionRepository transitionRepository;
+  private final TransactionTemplate readOnlyTransaction;
+
+  /** Создаёт рекордер с собственным пустым журналом, который заполнится при {@link #replay()}. */
+  @Autowired
+  public DealTransitionRecorder(
+      JpaDealTransitionRepository transitionRepository,
+      PlatformTransactionManager transactionManager) {
+    this(new DealTransitionLog(), transitionRepository, transactionManager);
+  }
+
+  /** Создаёт рекордер, который воспроизводит и дописывает историю в указанный журнал. */
+  public DealTransitionRecorder(
+      DealTransitionLog transitionLog,
+      JpaDealTransitionRepository transitionRepository,
+      PlatformTransactionManager transactionManager) {
+    this.transitionLog = transitionLog;
+    this.transitionRepository = transitionRepository;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+  }
+
+  /** Возвращает журнал переходов JPA-сделок. */
+  public DealTransitionLog transitionLog() {
+    return transitionLog;
+  }
+
+  /** Воспроизводит сохранённые переходы в журнал. */
+  @PostConstruct
+  void replay() {
+    long start = System.nanoTime();
+    readOnlyTransaction.executeWithoutResult(
+        status -> {
+          try (Stream<DealTransition> transitions = transitionRepository.streamAllInOrder()) {
+            transitions.forEach(transitionLog::append);
+          }
+        });
+    LOG.info(
+        "Deal transition log replayed {} events in {} ms",
+        transitionLog.size(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Сохраняет переход сделки в текущей транзакции и дописывает его в журнал после фиксации, так что
+   * откатившиеся переходы в журнал не попадают. Без транзакции событие дописывается сразу после
+   * сохранения.
+   *
+   * @param from прежний статус или {@code null} для новой сделки
+   */
+  public void record(UUID dealId, DealStatus from, DealStatus to, BigDecimal amount) {
+    DealTransition event = transitionLog.transition(dealId, from, to, amount);
+    transitionRepository.save(new DealTransitionEntry(event));
+    afterCommit(() -> transitionLog.append(event));
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+}
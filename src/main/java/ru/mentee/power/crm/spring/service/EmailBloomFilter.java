@@ -0,0 +1,308 @@
+package ru.mentee.power.crm.spring.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фильтр Блума по email лидов: отвечает «точно нет» или «возможно есть» без обращения к БД.
+ *
+ * <p>Биты лежат в массиве {@code long[]} и выставляются атомарным OR, поэтому добавления из разных
+ * потоков не блокируют ни друг друга, ни проверки. k позиций бита получаются двойным хешированием
+ * из одного 64-битного хеша строки.
+ *
+ * <p>Из фильтра Блума нельзя удалять: email удалённого лида остаётся «возможно есть» и лишь
+ * повышает долю ложных срабатываний. Такие записи учитываются как устаревшие, и {@link
+ * #needsRebuild()} сообщает, когда фильтр пора пересобрать по данным БД. Во время пересборки новые
+ * email попадают в оба набора битов, а прежний набор проверяется ещё одно поколение: так не
+ * теряются email из транзакций, которые начались до пересборки и закоммитились после чтения БД.
+ *
+ * <p>До первой пересборки (прогрева) фильтр на всё отвечает «возможно есть», то есть ведёт себя
+ * так, будто его нет.
+ */
+@Component
+public class EmailBloomFilter implements MeterBinder {
+
+  /** Минимальное число устаревших записей, ради которого стоит перечитывать таблицу лидов. */
+  static final long MIN_STALE_FOR_REBUILD = 10_000;
+
+  private static final String METRIC_PREFIX = "crm.leads.email.filter.";
+
+  private final long expectedInsertions;
+  private final double falsePositiveProbability;
+
+  private volatile Bits current;
+  private volatile Bits retired;
+  private volatile Bits rebuilding;
+  private volatile boolean ready;
+
+  private final LongAdder stale = new LongAdder();
+  private final LongAdder absent = new LongAdder();
+  private final LongAdder maybePresent = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+
+  /**
+   * @param expectedInsertions сколько email фильтр держит с заданной точностью до пересборки
+   * @param falsePositiveProbability целевая доля ложных «возможно есть»
+   */
+  public EmailBloomFilter(
+      @Value("${crm.leads.email-filter.expected-insertions:1000000}") long expectedInsertions,
+      @Value("${crm.leads.email-filter.false-positive-probability:0.01}")
+          double falsePositiveProbability) {
+    if (expectedInsertions < 1) {
+      throw new IllegalArgumentException("Expected insertions must be positive");
+    }
+    if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+      throw new IllegalArgumentException("False positive probability must be in (0, 1)");
+    }
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveProbability = falsePositiveProbability;
+    this.current = Bits.sized(expectedInsertions, falsePositiveProbability);
+  }
+
+  /**
+   * Выполняет запрос к БД, только если email может быть в фильтре; иначе сразу возвращает пустой
+   * результат. Заодно считает попадания и ложные срабатывания для метрик.
+   */
+  public <T> Optional<T> findIfMightContain(String email, Function<String, Optional<T>> query) {
+    if (!ready) {
+      return query.apply(email);
+    }
+    if (!mightContain(email)) {
+      absent.increment();
+      return Optional.empty();
+    }
+    maybePresent.increment();
+    Optional<T> found = query.apply(email);
+    if (found.isEmpty()) {
+      falsePositives.increment();
+    }
+    return found;
+  }
+
+  /** Проверяет email без учёта в метриках. До прогрева всегда возвращает {@code true}. */
+  public boolean mightContain(String email) {
+    if (!ready) {
+      return true;
+    }
+    long hash = hash(email);
+    Bits previous = retired;
+    return current.mightContain(hash) || (previous != null && previous.mightContain(hash));
+  }
+
+  /**
+   * Добавляет email; безопасно вызывать из любого потока, в том числе во время пересборки. {@code
+   * null} игнорируется: лид без email не пройдёт ограничение NOT NULL.
+   */
+  public void add(String email) {
+    if (email == null) {
+      return;
+    }
+    long hash = hash(email);
+    current.add(hash);
+    Bits next = rebuilding;
+    if (next != null) {
+      next.add(hash);
+    }
+  }
+
+  /** Отмечает, что один из добавленных email больше не принадлежит ни одному лиду. */
+  public void markStale() {
+    stale.increment();
+  }
+
+  /**
+   * Сообщает, что фильтр пора пересобрать: устаревших записей стало больше половины или живых
+   * email больше, чем рассчитан набор битов.
+   */
+  public boolean needsRebuild() {
+    if (!ready || rebuilding != null) {
+      return false;
+    }
+    Bits bits = current;
+    long elements = bits.elements.sum();
+    long staleEntries = stale.sum();
+    boolean tooStale = staleEntries >= MIN_STALE_FOR_REBUILD && staleEntries > elements / 2;
+    return tooStale || elements > bits.capacity;
+  }
+
+  /**
+   * Собирает новый набор битов из всех email БД и атомарно подменяет им текущий. Размер выбирается
+   * с двукратным запасом к ожидаемому числу email, но не меньше настроенного.
+   *
+   * @param expectedElements текущее число лидов в БД
+   */
+  public synchronized void rebuild(long expectedElements, Stream<String> emails) {
+    Bits next =
+        Bits.sized(Math.max(expectedInsertions, expectedElements * 2), falsePositiveProbability);
+    retired = null;
+    stale.reset();
+    rebuilding = next;
+    try {
+      emails.forEach(email -> next.add(hash(email)));
+      retired = current;
+      current = next;
+      ready = true;
+    } finally {
+      rebuilding = null;
+    }
+  }
+
+  /** Возвращает накопленную статистику проверок. */
+  public Stats stats() {
+    return new Stats(absent.sum(), maybePresent.sum(), falsePositives.sum());
+  }
+
+  /** Оценка доли ложных срабатываний по заполненности битов: (доля единиц)^k. */
+  public double expectedFalsePositiveProbability() {
+    return current.expectedFalsePositiveProbability();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder(METRIC_PREFIX + "checks", absent, LongAdder::sum)
+        .tag("result", "absent")
+        .description("Email checks answered by the filter without a database lookup")
+        .register(registry);
+    FunctionCounter.builder(METRIC_PREFIX + "checks", maybePresent, LongAdder::sum)
+        .tag("result", "maybe_present")
+        .description("Email checks that required a database lookup")
+        .register(registry);
+    FunctionCounter.builder(METRIC_PREFIX + "false.positives", falsePositives, LongAdder::sum)
+        .description("Database lookups that found no lead after a maybe-present answer")
+        .register(registry);
+    Gauge.builder(METRIC_PREFIX + "hit.ratio", this, filter -> filter.stats().hitRatio())
+        .description("Share of email checks that skipped the database")
+        .register(registry);
+    Gauge.builder(
+            METRIC_PREFIX + "false.positive.ratio",
+            this,
+            filter -> filter.stats().falsePositiveRatio())
+        .description("Observed share of absent emails reported as maybe present")
+        .register(registry);
+    Gauge.builder(
+            METRIC_PREFIX + "expected.false.positive.ratio",
+            this,
+            EmailBloomFilter::expectedFalsePositiveProbability)
+        .description("False positive probability estimated from the bit fill ratio")
+        .register(registry);
+    Gauge.builder(METRIC_PREFIX + "stale.entries", stale, LongAdder::sum)
+        .description("Deleted emails still present in the filter")
+        .register(registry);
+  }
+
+  /** 64-битный FNV-1a по символам с финальным перемешиванием. */
+  static long hash(String email) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < email.length(); i++) {
+      hash = (hash ^ email.charAt(i)) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  /**
+   * Статистика проверок.
+   *
+   * @param absent ответов «точно нет», сэкономивших запрос к БД
+   * @param maybePresent ответов «возможно есть», после которых пришлось идти в БД
+   * @param falsePositives из них — запросов, не нашедших лида
+   */
+  public record Stats(long absent, long maybePresent, long falsePositives) {
+
+    /** Доля проверок, обошедшихся без БД. */
+    public double hitRatio() {
+      long checks = absent + maybePresent;
+      return checks == 0 ? 0 : (double) absent / checks;
+    }
+
+    /** Доля отсутствующих email, на которые фильтр ошибочно ответил «возможно есть». */
+    public double falsePositiveRatio() {
+      long trulyAbsent = absent + falsePositives;
+      return trulyAbsent == 0 ? 0 : (double) falsePositives / trulyAbsent;
+    }
+  }
+
+  /** Набор битов фиксированного размера. */
+  private static final class Bits {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double LN2 = Math.log(2);
+    private static final long MAX_BITS = 1L << 32;
+    private static final int MAX_HASHES = 16;
+
+    private final long[] words;
+    private final long mask;
+    private final int hashes;
+    private final long capacity;
+    private final LongAdder elements = new LongAdder();
+
+    private Bits(long bits, int hashes, long capacity) {
+      this.words = new long[(int) (bits >>> 6)];
+      this.mask = bits - 1;
+      this.hashes = hashes;
+      this.capacity = capacity;
+    }
+
+    /** Оптимальный размер m = -n ln p / ln²2, округлённый вверх до степени двойки. */
+    static Bits sized(long capacity, double falsePositiveProbability) {
+      double optimal = -capacity * Math.log(falsePositiveProbability) / (LN2 * LN2);
+      long bits = Math.min(MAX_BITS, Math.max(64, ceilPowerOfTwo((long) Math.ceil(optimal))));
+      long hashes = Math.round((double) bits / capacity * LN2);
+      return new Bits(bits, (int) Math.max(1, Math.min(MAX_HASHES, hashes)), capacity);
+    }
+
+    void add(long hash) {
+      long step = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+      boolean changed = false;
+      for (int i = 0; i < hashes; i++) {
+        long bit = (hash + i * step) & mask;
+        int index = (int) (bit >>> 6);
+        long word = 1L << bit;
+        if (((long) WORDS.getAcquire(words, index) & word) == 0) {
+          WORDS.getAndBitwiseOr(words, index, word);
+          changed = true;
+        }
+      }
+      if (changed) {
+        elements.increment();
+      }
+    }
+
+    boolean mightContain(long hash) {
+      long step = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+      for (int i = 0; i < hashes; i++) {
+        long bit = (hash + i * step) & mask;
+        if (((long) WORDS.getAcquire(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    double expectedFalsePositiveProbability() {
+      long set = 0;
+      for (int i = 0; i < words.length; i++) {
+        set += Long.bitCount((long) WORDS.getAcquire(words, i));
+      }
+      return Math.pow((double) set / (mask + 1), hashes);
+    }
+
+    private static long ceilPowerOfTwo(long value) {
+      return value <= 1 ? 1 : Long.highestOneBit(value - 1) << 1;
+    }
+  }
+}
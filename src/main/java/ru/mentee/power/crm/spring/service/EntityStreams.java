@@ -0,0 +1,43 @@
+package ru.mentee.power.crm.spring.service;
+
+import jakarta.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+/** Обход потоковой выборки сущностей с постоянным расходом памяти. */
+final class EntityStreams {
+  /** Контекст очищается после каждой пачки, которую драйвер читает из курсора. */
+  private static final int CLEAR_INTERVAL = Integer.parseInt(JpaLeadRepository.STREAM_FETCH_SIZE);
+
+  private EntityStreams() {}
+
+  /**
+   * Передаёт сущности из потока в {@code action}, не давая им копиться в контексте. Вызывается
+   * внутри транзакционного метода. Если транзакцию открыл он сам, контекст очищается целиком через
+   * каждые {@link JpaLeadRepository#STREAM_FETCH_SIZE} сущностей; внутри чужой транзакции её
+   * сущности трогать нельзя, и отсоединяется только каждая прочитанная сущность.
+   *
+   * @return количество обработанных сущностей
+   */
+  static <T> long forEach(
+      Stream<T> entities, Consumer<? super T> action, EntityManager entityManager) {
+    boolean ownTransaction =
+        TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+    long processed = 0;
+    Iterator<T> iterator = entities.iterator();
+    while (iterator.hasNext()) {
+      T entity = iterator.next();
+      action.accept(entity);
+      processed++;
+      if (!ownTransaction) {
+        entityManager.detach(entity);
+      } else if (processed % CLEAR_INTERVAL == 0) {
+        entityManager.clear();
+      }
+    }
+    return processed;
+  }
+}
@@ -1,26 +1,94 @@
 package ru.mentee.power.crm.spring.service;
 
-import lombok.RequiredArgsConstructor;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
 
-/** Сервис для работы с компаниями. */
+/**
+ * Сервис для работы с компаниями.
+ *
+ * <p>Перед атомарным {@link CompanyRepository#upsertByName} стоит ограниченный LRU-кэш «ключ
+ * названия → id», поэтому повторный поиск уже встречавшейся компании не обращается к БД. Кэш
+ * рассчитан на то, что компании не переименовываются и не удаляются; кто делает это в обход
+ * сервиса, должен вызвать {@link #evict} или {@link #clearIdCache}.
+ */
 @Service
-@RequiredArgsConstructor
 public class JpaCompanyService {
 
   private final CompanyRepository companyRepository;
+  private final Map<String, UUID> idsByNameKey;
 
-  /** Находит или создает новую компанию. */
+  /**
+   * @param maxCachedIds сколько названий держать в кэше id; давно не использованные вытесняются
+   */
+  public JpaCompanyService(
+      CompanyRepository companyRepository,
+      @Value("${crm.companies.id-cache.max-entries:10000}") int maxCachedIds) {
+    if (maxCachedIds < 1) {
+      throw new IllegalArgumentException("Company id cache size must be positive");
+    }
+    this.companyRepository = companyRepository;
+    this.idsByNameKey =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+                return size() > maxCachedIds;
+              }
+            });
+  }
+
+  /**
+   * Находит или создает новую компанию. Названия, отличающиеся только регистром и пробелами,
+   * считаются одной компанией. Сама компания читается по id из кэша второго уровня; если по
+   * закэшированному id её уже нет, запись кэша сбрасывается и компания ищется заново.
+   *
+   * <p>Вставка идёт в собственной транзакции (см. {@link CompanyRepository#upsertByName}), поэтому
+   * проигранная в H2 гонка двух вставок не помечает транзакцию вызывающего к откату, и повтор
+   * находит уже созданную строку даже внутри чужой транзакции.
+   */
+  @Retryable(
+      retryFor = {DataIntegrityViolationException.class, ConcurrencyFailureException.class},
+      backoff = @Backoff(delay = 10))
   public Company findOrCreateByName(String name) {
     return companyRepository
-        .findByName(name)
+        .findById(resolveId(name))
         .orElseGet(
             () -> {
-              Company company = new Company();
-              company.setName(name);
-              return companyRepository.save(company);
+              evict(name);
+              return companyRepository.findById(resolveId(name)).orElseThrow();
             });
   }
+
+  /** Убирает название из кэша id, например после переименования или удаления компании. */
+  public void evict(String name) {
+    idsByNameKey.remove(Company.normalizeName(name));
+  }
+
+  /** Очищает кэш id, например после массового удаления компаний. */
+  public void clearIdCache() {
+    idsByNameKey.clear();
+  }
+
+  private UUID resolveId(String name) {
+    String nameKey = Company.normalizeName(name);
+    if (nameKey.isEmpty()) {
+      throw new IllegalArgumentException("Company name must not be blank");
+    }
+    UUID id = idsByNameKey.get(nameKey);
+    if (id == null) {
+      id = companyRepository.upsertByName(name.strip());
+      idsByNameKey.put(nameKey, id);
+    }
+    return id;
+  }
 }
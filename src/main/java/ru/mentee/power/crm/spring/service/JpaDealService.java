@@ -1,25 +1,49 @@
 package ru.mentee.power.crm.spring.service;
 
+import jakarta.persistence.EntityManager;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
 import ru.mentee.power.crm.entity.Deal;
+import ru.mentee.power.crm.spring.dto.DealListItem;
+import ru.mentee.power.crm.spring.dto.KanbanColumn;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+import ru.mentee.power.crm.spring.repository.DealPipelineProjection;
 import ru.mentee.power.crm.spring.repository.JpaDealRepository;
+import ru.mentee.power.crm.spring.repository.KeysetCursor;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 
 /** JPA-версия сервиса для управления сделками. */
 @Service
 @RequiredArgsConstructor
 public class JpaDealService {
 
+  /** Максимальный размер страницы колонки Kanban-доски. */
+  public static final int MAX_PAGE_SIZE = 100;
+
   private final JpaDealRepository dealRepository;
+  private final DealTransitionRecorder transitionRecorder;
+  private final EntityManager entityManager;
 
   /**
    * Изменяет статус существующей сделки. Для JPA-версии бизнес-логика упрощена (без state machine).
+   * Смена статуса сохраняется в истории воронки вместе со сделкой (см. {@link
+   * DealTransitionRecorder}), так что откатившиеся переходы в историю не попадают.
    */
   @Transactional
   public Deal transitionDealStatus(UUID dealId, DealStatus newStatus) {
@@ -28,8 +52,21 @@ public class JpaDealService {
             .findById(dealId)
             .orElseThrow(() -> new IllegalArgumentException("Deal not found: " + dealId));
 
+    DealStatus previous = deal.getStatus();
     deal.setStatus(newStatus);
-    return dealRepository.save(deal);
+    Deal saved = dealRepository.save(deal);
+    if (previous != newStatus) {
+      transitionRecorder.record(dealId, previous, newStatus, saved.getAmount());
+    }
+    return saved;
+  }
+
+  /**
+   * Восстанавливает проекции воронки JPA-сделок повторным применением их журнала переходов (см.
+   * {@link DealTransitionRecorder}).
+   */
+  public DealPipelineProjection getPipeline() {
+    return transitionRecorder.transitionLog().project();
   }
 
   /** Возвращает все существующие сделки. */
@@ -37,8 +74,91 @@ public class JpaDealService {
     return dealRepository.findAll();
   }
 
-  /** Группирует все сделки по статусам для отображения Kanban-доски. */
-  public Map<DealStatus, List<Deal>> getDealsByStatusForKanban() {
-    return dealRepository.findAll().stream().collect(Collectors.groupingBy(Deal::getStatus));
+  /** Возвращает строки для таблицы сделок, не загружая сущности и их позиции. */
+  @Transactional(readOnly = true)
+  public List<DealListItem> getDealListItems() {
+    return dealRepository.findListItems();
+  }
+
+  /**
+   * Обходит все сделки потоком с постоянным расходом памяти (см. {@link EntityStreams#forEach}).
+   *
+   * @return количество обработанных сделок
+   */
+  @Transactional(readOnly = true)
+  public long forEachDeal(Consumer<? super Deal> action) {
+    try (Stream<Deal> deals = dealRepository.streamAll()) {
+      return EntityStreams.forEach(deals, action, entityManager);
+    }
+  }
+
+  /**
+   * Собирает Kanban-доску двумя запросами, не читая всю таблицу в память: итоги по статусам
+   * считаются через GROUP BY, а в каждую колонку попадают {@code perColumn} самых новых сделок.
+   * Колонки идут в порядке {@link DealStatus}, пустые статусы тоже присутствуют.
+   */
+  @Transactional(readOnly = true)
+  public List<KanbanColumn> getKanbanBoard(int perColumn) {
+    requirePageLimit(perColumn);
+    Map<DealStatus, DealStatusSummary> summaries = new EnumMap<>(DealStatus.class);
+    for (DealStatusSummary summary : dealRepository.summarizeByStatus()) {
+      summaries.put(summary.status(), summary);
+    }
+    Map<DealStatus, List<DealListItem>> top =
+        dealRepository.findTopPerStatus(perColumn + 1).stream()
+            .collect(
+                Collectors.groupingBy(
+                    DealListItem::status,
+                    () -> new EnumMap<>(DealStatus.class),
+                    Collectors.toList()));
+    return Arrays.stream(DealStatus.values())
+        .map(
+            status ->
+                new KanbanColumn(
+                    summaries.getOrDefault(status, DealStatusSummary.empty(status)),
+                    KeysetPage.of(
+                        top.getOrDefault(status, List.of()), perColumn, JpaDealService::cursorOf)))
+        .toList();
+  }
+
+  /** Следующая страница одной колонки Kanban-доски по курсору из {@link KanbanColumn#deals()}. */
+  @Transactional(readOnly = true)
+  public KeysetPage<DealListItem> getKanbanColumn(DealStatus status, String cursor, int limit) {
+    requirePageLimit(limit);
+    Pageable rows = PageRequest.ofSize(limit + 1);
+    if (cursor == null || cursor.isBlank()) {
+      return KeysetPage.of(
+          dealRepository.findColumnFirstPage(status, rows), limit, JpaDealService::cursorOf);
+    }
+    DealKey key = DealKey.decode(cursor);
+    return KeysetPage.of(
+        dealRepository.findColumnPageBefore(status, key.createdAt(), key.id(), rows),
+        limit,
+        JpaDealService::cursorOf);
+  }
+
+  private static void requirePageLimit(int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new BadRequestException(
+          "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE + ", получено: " + limit);
+    }
+  }
+
+  /** Время обрезается до микросекунд — точности столбца created_at. */
+  private static String cursorOf(DealListItem deal) {
+    return KeysetCursor.encode(deal.createdAt().truncatedTo(ChronoUnit.MICROS), deal.id());
+  }
+
+  /** Ключ позиции сделки в колонке Kanban-доски. */
+  private record DealKey(OffsetDateTime createdAt, UUID id) {
+
+    static DealKey decode(String cursor) {
+      try {
+        String[] keys = KeysetCursor.decode(cursor, 2);
+        return new DealKey(OffsetDateTime.parse(keys[0]), UUID.fromString(keys[1]));
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+        throw new BadRequestException("Некорректный курсор страницы: " + cursor);
+      }
+    }
   }
 }
@@ -2,13 +2,22 @@ package ru.mentee.power.crm.spring.service;
 
 import feign.FeignException;
 import io.github.resilience4j.retry.annotation.Retry;
+import jakarta.persistence.EntityManager;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +34,7 @@ import ru.mentee.power.crm.model.LeadStatus;
 import ru.mentee.power.crm.spring.client.EmailValidationFeignClient;
 import ru.mentee.power.crm.spring.client.EmailValidationResponse;
 import ru.mentee.power.crm.spring.dto.CreateDealRequest;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 import ru.mentee.power.crm.spring.exception.BadRequestException;
 import ru.mentee.power.crm.spring.exception.DuplicateEmailException;
@@ -32,6 +42,8 @@ import ru.mentee.power.crm.spring.exception.EntityNotFoundException;
 import ru.mentee.power.crm.spring.exception.IllegalLeadStateException;
 import ru.mentee.power.crm.spring.repository.JpaDealRepository;
 import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetCursor;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 
 /** Сервисный слой бизнес логики */
 @Service
@@ -39,18 +51,28 @@ import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
 public class JpaLeadService {
   private static final Logger LOG = LoggerFactory.getLogger(JpaLeadService.class);
 
+  /** Максимальный размер страницы keyset-пагинации. */
+  public static final int MAX_PAGE_SIZE = 200;
+
+  /** Максимальное число результатов текстового поиска. */
+  public static final int MAX_SEARCH_RESULTS = 200;
+
   private final JpaLeadRepository leadRepository;
   private final LeadProcessor leadProcessor;
   private final JpaDealRepository dealRepository;
   private final EmailValidationFeignClient emailValidationClient;
+  private final EntityManager entityManager;
+  private final EmailBloomFilter emailFilter;
+  private final DealTransitionRecorder transitionRecorder;
 
   /**
    * Создает нового лида с валидацией email через внешний сервис Если сервис валидации недоступен -
-   * создает лида без валидации (graceful degradation)
+   * создает лида без валидации (graceful degradation). Проверка дубликата идёт в БД, только если
+   * фильтр Блума допускает, что такой email уже есть.
    */
   @Retry(name = "email-validation", fallbackMethod = "createLeadFallback")
   public Lead createLead(Lead lead) {
-    if (leadRepository.findByEmailNative(lead.getEmail()).isPresent()) {
+    if (findByEmailIfKnown(lead.getEmail()).isPresent()) {
       throw new DuplicateEmailException(lead.getEmail());
     }
 
@@ -61,7 +83,7 @@ public class JpaLeadService {
         throw new BadRequestException("Invalid email: " + validation.reason());
       }
 
-      return leadRepository.save(lead);
+      return insertLead(lead);
 
     } catch (FeignException.BadRequest _) {
       throw new BadRequestException("Email validation service rejected the email");
@@ -79,7 +101,7 @@ public class JpaLeadService {
             + "Creating lead without validation. Error: {}",
         feignException.getMessage());
 
-    return leadRepository.save(lead);
+    return insertLead(lead);
   }
 
   /** Находит всех лидов в БД */
@@ -110,6 +132,7 @@ public class JpaLeadService {
 
     existing.setName(updatedLead.getName());
     existing.setEmail(updatedLead.getEmail());
+    emailFilter.add(updatedLead.getEmail());
     existing.setPhone(updatedLead.getPhone());
     existing.setCompany(updatedLead.getCompany());
     existing.setStatus(updatedLead.getStatus());
@@ -133,6 +156,40 @@ public class JpaLeadService {
     return leadRepository.findLeadsNative(search, statusStr);
   }
 
+  /**
+   * Как {@link #findLeads}, но возвращает строки для таблицы лидов: отображаемые столбцы и
+   * название компании одним запросом, без загрузки сущностей. Совпадения те же и все, в порядке
+   * создания.
+   */
+  @Transactional(readOnly = true)
+  public List<LeadListItem> findLeadItems(String search, StatusEnum status) {
+    if (search == null || search.isBlank()) {
+      return leadRepository.findListItems(status);
+    }
+    return leadRepository.findListItemsMatching(search, status);
+  }
+
+  /**
+   * Ранжированный текстовый поиск (см. {@link
+   * ru.mentee.power.crm.spring.repository.LeadSearchRepository#searchRanked}): в отличие от
+   * {@link #findLeadItems} возвращает не все совпадения, а не больше {@code limit} лучших, находя
+   * в PostgreSQL и имена с опечатками.
+   *
+   * @param limit от 1 до {@link #MAX_SEARCH_RESULTS}
+   */
+  @Transactional(readOnly = true)
+  public List<LeadListItem> searchLeadItems(String term, StatusEnum status, int limit) {
+    if (term == null || term.isBlank()) {
+      throw new BadRequestException("Поисковый запрос не должен быть пустым");
+    }
+    if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+      throw new BadRequestException(
+          "Число результатов должно быть от 1 до " + MAX_SEARCH_RESULTS + ", получено: " + limit);
+    }
+    String statusStr = (status != null) ? status.name() : null;
+    return leadRepository.searchRankedItems(term, statusStr, limit);
+  }
+
   /** Поиск лида по email (derived method). */
   public Optional<Lead> findByEmail(String email) {
     return leadRepository.findByEmail(email);
@@ -159,6 +216,56 @@ public class JpaLeadService {
     return leadRepository.findByCompany(company, pageable);
   }
 
+  /**
+   * Keyset-страница лидов в порядке (createdAt, id). В отличие от {@link #getFirstPage(int)}, не
+   * использует OFFSET, поэтому любая страница стоит столько же, сколько первая.
+   *
+   * @param cursor непрозрачный курсор из предыдущей страницы или {@code null} для первой страницы
+   * @throws BadRequestException если курсор повреждён или размер страницы вне допустимых границ
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<Lead> findPage(String cursor, int limit) {
+    requirePageLimit(limit);
+    Pageable rows = PageRequest.ofSize(limit + 1);
+    if (cursor == null || cursor.isBlank()) {
+      return KeysetPage.of(leadRepository.findFirstPage(rows), limit, JpaLeadService::cursorOf);
+    }
+    LeadKey key = LeadKey.decode(cursor);
+    return KeysetPage.of(
+        leadRepository.findPageAfter(key.createdAt(), key.id(), rows),
+        limit,
+        JpaLeadService::cursorOf);
+  }
+
+  /**
+   * Обходит всех лидов потоком с постоянным расходом памяти: строки читаются пачками, а
+   * прочитанные сущности не копятся в контексте (см. {@link EntityStreams#forEach}).
+   *
+   * @return количество обработанных лидов
+   */
+  @Transactional(readOnly = true)
+  public long forEachLead(Consumer<? super Lead> action) {
+    try (Stream<Lead> leads = leadRepository.streamAll()) {
+      return EntityStreams.forEach(leads, action, entityManager);
+    }
+  }
+
+  /** Keyset-аналог {@link #searchByCompany(Company, int, int)}. */
+  @Transactional(readOnly = true)
+  public KeysetPage<Lead> findPageByCompany(Company company, String cursor, int limit) {
+    requirePageLimit(limit);
+    Pageable rows = PageRequest.ofSize(limit + 1);
+    if (cursor == null || cursor.isBlank()) {
+      return KeysetPage.of(
+          leadRepository.findFirstPageByCompany(company, rows), limit, JpaLeadService::cursorOf);
+    }
+    LeadKey key = LeadKey.decode(cursor);
+    return KeysetPage.of(
+        leadRepository.findPageByCompanyAfter(company, key.createdAt(), key.id(), rows),
+        limit,
+        JpaLeadService::cursorOf);
+  }
+
   /**
    * Массовое обновление статуса (используется @Modifying метод). ВАЖНО: @Transactional обязательна
    * для @Modifying!
@@ -191,7 +298,8 @@ public class JpaLeadService {
 
   /**
    * Конвертирует существующий лид в новую сделку. Обновляет статус лида на CONVERTED. Демонстрирует
-   * транзакционность: если amount = null -> rollback.
+   * транзакционность: если amount = null -> rollback. Появление сделки записывается в историю
+   * воронки в той же транзакции.
    */
   @Transactional
   public void convertLeadToDeal(UUID leadId, CreateDealRequest request) {
@@ -210,6 +318,7 @@ public class JpaLeadService {
     deal.setTitle(request.getTitle());
     deal.setStatus(DealStatus.NEW);
     dealRepository.save(deal);
+    transitionRecorder.record(deal.getId(), null, deal.getStatus(), deal.getAmount());
 
     lead.setStatus(StatusEnum.CONVERTED);
     leadRepository.save(lead);
@@ -233,8 +342,7 @@ public class JpaLeadService {
             existing -> {
               if (!existing.getEmail().equals(updatedLead.getEmail())) {
                 boolean emailExists =
-                    leadRepository
-                        .findByEmailNative(updatedLead.getEmail())
+                    findByEmailIfKnown(updatedLead.getEmail())
                         .map(lead -> !lead.getId().equals(id))
                         .orElse(false);
 
@@ -246,6 +354,8 @@ public class JpaLeadService {
               }
               existing.setName(updatedLead.getName());
               existing.setEmail(updatedLead.getEmail());
+              // UPDATE уйдёт в БД только при flush, а фильтр должен знать email уже сейчас
+              emailFilter.add(updatedLead.getEmail());
               existing.setPhone(updatedLead.getPhone());
               existing.setCompany(updatedLead.getCompany());
               existing.setStatus(updatedLead.getStatus());
@@ -263,4 +373,75 @@ public class JpaLeadService {
     }
     return false;
   }
+
+  /** Поиск по email, который обходится без запроса к БД, если фильтр Блума email не знает. */
+  private Optional<Lead> findByEmailIfKnown(String email) {
+    return emailFilter.findIfMightContain(email, leadRepository::findByEmailNative);
+  }
+
+  /**
+   * Вставляет нового лида сразу в БД. Фильтр Блума знает только email, сохранённые этим
+   * экземпляром приложения, поэтому дубликат, вставленный другим, ловит ограничение {@link
+   * Lead#EMAIL_UNIQUE_CONSTRAINT}; его нарушение отдаётся как {@link DuplicateEmailException}, а
+   * не как ошибка сервера. Прочие нарушения целостности пробрасываются как есть.
+   */
+  private Lead insertLead(Lead lead) {
+    try {
+      return leadRepository.saveAndFlush(lead);
+    } catch (DataIntegrityViolationException e) {
+      if (isEmailViolation(e)) {
+        throw new DuplicateEmailException(lead.getEmail());
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Проверяет, что нарушено именно {@link Lead#EMAIL_UNIQUE_CONSTRAINT}. Имя сравнивается без схемы
+   * и кавычек; H2 вместо ограничения называет его индекс ({@code
+   * "PUBLIC.UQ_LEADS_EMAIL_INDEX_4 ON PUBLIC.LEADS(EMAIL ...)"}), поэтому суффикс индекса
+   * отбрасывается.
+   */
+  private static boolean isEmailViolation(DataIntegrityViolationException e) {
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException violation
+          && violation.getConstraintName() != null) {
+        String name = violation.getConstraintName().replace("\"", "").strip();
+        int end = name.indexOf(' ');
+        name = (end < 0 ? name : name.substring(0, end)).toLowerCase(Locale.ROOT);
+        name = name.substring(name.lastIndexOf('.') + 1);
+        return name.equals(Lead.EMAIL_UNIQUE_CONSTRAINT)
+            || name.startsWith(Lead.EMAIL_UNIQUE_CONSTRAINT + "_index_");
+      }
+    }
+    return false;
+  }
+
+  private static void requirePageLimit(int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new BadRequestException(
+          "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE + ", получено: " + limit);
+    }
+  }
+
+  /**
+   * Время обрезается до микросекунд — точности столбца created_at, иначе курсор от ещё не
+   * перечитанной сущности не совпал бы с сохранённым значением.
+   */
+  private static String cursorOf(Lead lead) {
+    return KeysetCursor.encode(lead.getCreatedAt().truncatedTo(ChronoUnit.MICROS), lead.getId());
+  }
+
+  /** Ключ позиции лида в ленте keyset-пагинации. */
+  private record LeadKey(OffsetDateTime createdAt, UUID id) {
+
+    static LeadKey decode(String cursor) {
+      try {
+        String[] keys = KeysetCursor.decode(cursor, 2);
+        return new LeadKey(OffsetDateTime.parse(keys[0]), UUID.fromString(keys[1]));
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+        throw new BadRequestException("Некорректный курсор страницы: " + cursor);
+      }
+    }
+  }
 }
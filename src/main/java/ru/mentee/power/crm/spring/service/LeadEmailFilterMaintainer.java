@@ -0,0 +1,104 @@
+package ru.mentee.power.crm.spring.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mentee.power.crm.entity.LeadEmailListener;
+import ru.mentee.power.crm.entity.LeadEmailObserver;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+/**
+ * Поддерживает {@link EmailBloomFilter} в согласии с таблицей лидов: прогревает его при старте
+ * приложения, получает изменения от {@link LeadEmailListener} как {@link LeadEmailObserver} и
+ * пересобирает в фоне, когда фильтр накопил слишком много удалённых email или переполнился.
+ */
+@Component
+public class LeadEmailFilterMaintainer implements LeadEmailObserver {
+  private static final Logger LOG = LoggerFactory.getLogger(LeadEmailFilterMaintainer.class);
+
+  private final EmailBloomFilter filter;
+  private final JpaLeadRepository leadRepository;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ExecutorService rebuilds =
+      Executors.newSingleThreadExecutor(
+          runnable -> Thread.ofPlatform().name("lead-email-filter").daemon().unstarted(runnable));
+  private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+  public LeadEmailFilterMaintainer(
+      EmailBloomFilter filter,
+      JpaLeadRepository leadRepository,
+      PlatformTransactionManager transactionManager) {
+    this.filter = filter;
+    this.leadRepository = leadRepository;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+  }
+
+  /** Прогрев: до его окончания сервис проверяет каждый email в БД, как без фильтра. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    rebuild();
+  }
+
+  /** Перечитывает все email из БД в новый набор битов фильтра. */
+  public void rebuild() {
+    long start = System.nanoTime();
+    Long leads =
+        readOnlyTransaction.execute(
+            status -> {
+              long count = leadRepository.count();
+              try (Stream<String> emails = leadRepository.streamAllEmails()) {
+                filter.rebuild(count, emails);
+              }
+              return count;
+            });
+    LOG.info(
+        "Email Bloom filter rebuilt from {} leads in {} ms",
+        leads,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  @Override
+  public void onSaved(String email) {
+    filter.add(email);
+    rebuildIfNeeded();
+  }
+
+  @Override
+  public void onDeleted(String email) {
+    if (email != null) {
+      filter.markStale();
+      rebuildIfNeeded();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    rebuilds.shutdownNow();
+  }
+
+  private void rebuildIfNeeded() {
+    if (!filter.needsRebuild() || !rebuildScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    rebuilds.execute(
+        () -> {
+          try {
+            rebuild();
+          } catch (RuntimeException e) {
+            LOG.error("Background rebuild of the email Bloom filter failed", e);
+          } finally {
+            rebuildScheduled.set(false);
+          }
+        });
+  }
+}
@@ -0,0 +1,56 @@
+package ru.mentee.power.crm.spring.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.mentee.power.crm.spring.dto.LeadImportReport;
+
+/**
+ * Импорт лидов из файла при запуске приложения, включается свойством {@code
+ * crm.leads.import.file}. Формат определяется по расширению ({@code .csv} или {@code .ndjson}).
+ * Чтобы приложение завершилось после импорта, его запускают без веб-сервера, например:
+ *
+ * <pre>
+ * java -jar crm.jar --spring.main.web-application-type=none --crm.leads.import.file=leads.csv
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty("crm.leads.import.file")
+public class LeadImportCommand implements ApplicationRunner {
+  private static final Logger LOG = LoggerFactory.getLogger(LeadImportCommand.class);
+
+  private final LeadImportService importService;
+  private final Path file;
+
+  public LeadImportCommand(
+      LeadImportService importService, @Value("${crm.leads.import.file}") Path file) {
+    this.importService = importService;
+    this.file = file;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    LeadImportReport report;
+    try (InputStream input = Files.newInputStream(file)) {
+      report = importService.importLeads(input, BulkFormat.fromFileName(file.toString()));
+    }
+    LOG.info(
+        "Imported {} of {} leads from {} ({} rejected) in {} ms",
+        report.imported(),
+        report.processed(),
+        file,
+        report.failed(),
+        report.durationMs());
+    for (LeadImportReport.RowError error : report.errors()) {
+      LOG.warn("{}:{} {} — {}", file, error.line(), error.email(), error.message());
+    }
+  }
+}
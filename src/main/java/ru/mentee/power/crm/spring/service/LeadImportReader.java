@@ -0,0 +1,210 @@
+package ru.mentee.power.crm.spring.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+
+/**
+ * Потоковый разбор файла импорта лидов: читает по одной записи и не держит файл в памяти целиком.
+ * Ошибка в отдельной строке не прерывает разбор, а возвращается как {@link LeadImportRow#error()}.
+ *
+ * <p>CSV читается по RFC 4180: первая запись — заголовок, значения в кавычках могут содержать
+ * запятые, удвоенные кавычки и переводы строк. NDJSON — по одному JSON-объекту на строку. Пустые
+ * строки пропускаются в обоих форматах.
+ */
+final class LeadImportReader implements Closeable {
+  private static final List<String> REQUIRED_COLUMNS = List.of("name", "email", "phone");
+
+  private final BufferedReader in;
+  private final BulkFormat format;
+  private final ObjectMapper json;
+  private final Map<String, Integer> columns = new HashMap<>();
+  private int headerSize;
+  private long line;
+
+  private LeadImportReader(InputStream input, BulkFormat format, ObjectMapper json) {
+    this.in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+    this.format = format;
+    this.json = json;
+  }
+
+  /**
+   * Открывает поток на чтение; для CSV сразу разбирает заголовок.
+   *
+   * @throws BadRequestException если в заголовке CSV нет обязательных столбцов
+   */
+  static LeadImportReader open(InputStream input, BulkFormat format, ObjectMapper json)
+      throws IOException {
+    LeadImportReader reader = new LeadImportReader(input, format, json);
+    if (format == BulkFormat.CSV) {
+      reader.readHeader();
+    }
+    return reader;
+  }
+
+  /** Читает до {@code limit} записей; пустой список означает конец потока. */
+  List<LeadImportRow> next(int limit) throws IOException {
+    List<LeadImportRow> rows = new ArrayList<>(limit);
+    LeadImportRow row;
+    while (rows.size() < limit && (row = next()) != null) {
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /** Читает следующую запись или возвращает {@code null} в конце потока. */
+  LeadImportRow next() throws IOException {
+    return format == BulkFormat.CSV ? nextCsv() : nextJson();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void readHeader() throws IOException {
+    List<String> header = readCsvRecord();
+    if (header == null) {
+      throw new BadRequestException("Файл импорта пуст: нет заголовка CSV");
+    }
+    headerSize = header.size();
+    for (int i = 0; i < header.size(); i++) {
+      String column = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+      columns.putIfAbsent(column.replace("_", ""), i);
+    }
+    for (String required : REQUIRED_COLUMNS) {
+      if (!columns.containsKey(required)) {
+        throw new BadRequestException("В заголовке CSV нет столбца " + required);
+      }
+    }
+  }
+
+  private LeadImportRow nextCsv() throws IOException {
+    List<String> record;
+    long start;
+    do {
+      start = line + 1;
+      try {
+        record = readCsvRecord();
+      } catch (UnclosedQuoteException e) {
+        return LeadImportRow.failed(start, "Незакрытая кавычка в CSV");
+      }
+      if (record == null) {
+        return null;
+      }
+    } while (record.size() == 1 && record.getFirst().isBlank());
+    if (record.size() != headerSize) {
+      return LeadImportRow.failed(
+          start, "Ожидалось столбцов: " + headerSize + ", получено: " + record.size());
+    }
+    return new LeadImportRow(
+        start,
+        column(record, "name"),
+        column(record, "email"),
+        column(record, "phone"),
+        column(record, "companyid"),
+        column(record, "status"),
+        null);
+  }
+
+  private String column(List<String> record, String name) {
+    Integer index = columns.get(name);
+    return index != null ? record.get(index) : null;
+  }
+
+  /** Читает одну запись CSV, которая может занимать несколько строк файла. */
+  private List<String> readCsvRecord() throws IOException {
+    String text = in.readLine();
+    if (text == null) {
+      return null;
+    }
+    line++;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (true) {
+      if (i == text.length()) {
+        if (!quoted) {
+          fields.add(field.toString());
+          return fields;
+        }
+        // Перевод строки внутри кавычек принадлежит значению
+        text = in.readLine();
+        if (text == null) {
+          throw new UnclosedQuoteException();
+        }
+        line++;
+        field.append('\n');
+        i = 0;
+        continue;
+      }
+      char c = text.charAt(i++);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i < text.length() && text.charAt(i) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+  }
+
+  private LeadImportRow nextJson() throws IOException {
+    String text;
+    do {
+      text = in.readLine();
+      if (text == null) {
+        return null;
+      }
+      line++;
+    } while (text.isBlank());
+    JsonNode node;
+    try {
+      node = json.readTree(text);
+    } catch (JsonProcessingException e) {
+      return LeadImportRow.failed(line, "Некорректный JSON: " + e.getOriginalMessage());
+    }
+    if (!node.isObject()) {
+      return LeadImportRow.failed(line, "Ожидался JSON-объект");
+    }
+    return new LeadImportRow(
+        line,
+        text(node, "name"),
+        text(node, "email"),
+        text(node, "phone"),
+        text(node, "companyId"),
+        text(node, "status"),
+        null);
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value != null && !value.isNull() ? value.asText() : null;
+  }
+
+  /** Файл закончился внутри значения в кавычках. */
+  private static final class UnclosedQuoteException extends IOException {}
+}
@@ -0,0 +1,22 @@
+package ru.mentee.power.crm.spring.service;
+
+/**
+ * Строка файла импорта лидов в сыром виде, до проверки.
+ *
+ * @param line номер строки файла, с которой начинается запись
+ * @param error ошибка разбора строки или {@code null}, если строка разобрана
+ */
+record LeadImportRow(
+    long line,
+    String name,
+    String email,
+    String phone,
+    String companyId,
+    String status,
+    String error) {
+
+  /** Строка, которую не удалось разобрать. */
+  static LeadImportRow failed(long line, String error) {
+    return new LeadImportRow(line, null, null, null, null, null, error);
+  }
+}
@@ -0,0 +1,360 @@
+package ru.mentee.power.crm.spring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.client.EmailValidationFeignClient;
+import ru.mentee.power.crm.spring.client.EmailValidationResponse;
+import ru.mentee.power.crm.spring.dto.LeadImportReport;
+import ru.mentee.power.crm.spring.dto.generated.CreateLeadRequest;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+import ru.mentee.power.crm.spring.mapper.LeadMapper;
+import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+/**
+ * Массовый импорт лидов из CSV или NDJSON. Файл разбирается потоком и обрабатывается пачками по
+ * {@code batchSize} записей в три ступени:
+ *
+ * <ol>
+ *   <li>чтение — в вызывающем потоке, не больше {@code maxPendingBatches} пачек впереди записи, так
+ *       что медленная БД притормаживает и чтение входного потока;
+ *   <li>проверка — параллельно в пуле потоков: те же ограничения, что у {@code POST /api/leads},
+ *       статус и, если включено, внешняя проверка email;
+ *   <li>запись — по порядку пачек, каждая в своей транзакции, JDBC-пакетами по {@code
+ *       hibernate.jdbc.batch_size} строк. UUID генерируются в приложении, поэтому вставка не ждёт
+ *       ключей от БД.
+ * </ol>
+ *
+ * <p>Дубликаты отсекаются внутри пачки и против БД одним запросом на пачку; в этот запрос попадают
+ * только email, которые {@link EmailBloomFilter} считает возможно существующими. Повтор email из
+ * уже записанной пачки находится тем же запросом. Если пачка всё же не вставилась (например, тот
+ * же email успели создать параллельно), она повторяется построчно, и в отчёт попадают только
+ * виновные строки.
+ */
+@Service
+public class LeadImportService {
+  private static final Logger LOG = LoggerFactory.getLogger(LeadImportService.class);
+
+  /** Сколько ошибок по строкам попадает в отчёт; остальные только подсчитываются. */
+  static final int MAX_REPORTED_ERRORS = 1_000;
+
+  private final JpaLeadRepository leadRepository;
+  private final CompanyRepository companyRepository;
+  private final LeadMapper leadMapper;
+  private final Validator validator;
+  private final EmailBloomFilter emailFilter;
+  private final EmailValidationFeignClient emailValidationClient;
+  private final EntityManager entityManager;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate transaction;
+  private final int batchSize;
+  private final int maxPendingBatches;
+  private final boolean remoteEmailValidation;
+  private final ExecutorService validators;
+
+  public LeadImportService(
+      JpaLeadRepository leadRepository,
+      CompanyRepository companyRepository,
+      LeadMapper leadMapper,
+      Validator validator,
+      EmailBloomFilter emailFilter,
+      EmailValidationFeignClient emailValidationClient,
+      EntityManager entityManager,
+      ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      @Value("${crm.leads.import.batch-size:1000}") int batchSize,
+      @Value("${crm.leads.import.parallelism:0}") int parallelism,
+      @Value("${crm.leads.import.remote-email-validation:false}") boolean remoteEmailValidation) {
+    this.leadRepository = leadRepository;
+    this.companyRepository = companyRepository;
+    this.leadMapper = leadMapper;
+    this.validator = validator;
+    this.emailFilter = emailFilter;
+    this.emailValidationClient = emailValidationClient;
+    this.entityManager = entityManager;
+    this.objectMapper = objectMapper;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.batchSize = Math.max(1, batchSize);
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.maxPendingBatches = threads * 2;
+    this.remoteEmailValidation = remoteEmailValidation;
+    AtomicInteger counter = new AtomicInteger();
+    this.validators =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable ->
+                Thread.ofPlatform()
+                    .name("lead-import-" + counter.incrementAndGet())
+                    .daemon()
+                    .unstarted(runnable));
+  }
+
+  /**
+   * Импортирует лидов из потока. Поток читается до конца, но не закрывается. Поля записи: name,
+   * email, phone, companyId и необязательный status; в CSV они задаются заголовком.
+   *
+   * @throws BadRequestException если у CSV нет заголовка или в нём нет обязательных столбцов
+   */
+  public LeadImportReport importLeads(InputStream input, BulkFormat format) {
+    long started = System.nanoTime();
+    Report report = new Report();
+    Map<UUID, Boolean> knownCompanies = new HashMap<>();
+    Deque<Future<List<ValidatedRow>>> pending = new ArrayDeque<>();
+    try {
+      LeadImportReader reader = LeadImportReader.open(input, format, objectMapper);
+      List<LeadImportRow> rows;
+      while (!(rows = reader.next(batchSize)).isEmpty()) {
+        report.processed += rows.size();
+        List<LeadImportRow> batch = rows;
+        pending.addLast(validators.submit(() -> batch.stream().map(this::validate).toList()));
+        if (pending.size() >= maxPendingBatches) {
+          write(await(pending.removeFirst()), knownCompanies, report);
+        }
+      }
+      while (!pending.isEmpty()) {
+        write(await(pending.removeFirst()), knownCompanies, report);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read lead import", e);
+    } finally {
+      pending.forEach(future -> future.cancel(true));
+    }
+    long durationMs = (System.nanoTime() - started) / 1_000_000;
+    LOG.info(
+        "Lead import: {} rows, {} imported, {} rejected in {} ms",
+        report.processed,
+        report.imported,
+        report.failed,
+        durationMs);
+    return new LeadImportReport(
+        report.processed, report.imported, report.failed, List.copyOf(report.errors), durationMs);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    validators.shutdownNow();
+  }
+
+  /** Проверяет одну запись; вызывается параллельно из пула проверки. */
+  private ValidatedRow validate(LeadImportRow row) {
+    if (row.error() != null) {
+      return ValidatedRow.rejected(row, row.error());
+    }
+    UUID companyId;
+    try {
+      companyId = isBlank(row.companyId()) ? null : UUID.fromString(row.companyId().trim());
+    } catch (IllegalArgumentException e) {
+      return ValidatedRow.rejected(row, "Некорректный companyId: " + row.companyId());
+    }
+    StatusEnum status;
+    try {
+      status =
+          isBlank(row.status())
+              ? StatusEnum.NEW
+              : StatusEnum.valueOf(row.status().trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return ValidatedRow.rejected(row, "Неизвестный статус: " + row.status());
+    }
+    CreateLeadRequest request =
+        new CreateLeadRequest(trim(row.name()), trim(row.email()), trim(row.phone()), companyId);
+    Set<ConstraintViolation<CreateLeadRequest>> violations = validator.validate(request);
+    if (!violations.isEmpty()) {
+      return ValidatedRow.rejected(
+          row,
+          violations.stream()
+              .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+              .sorted()
+              .collect(Collectors.joining("; ")));
+    }
+    if (remoteEmailValidation) {
+      try {
+        EmailValidationResponse validation =
+            emailValidationClient.validateEmail(request.getEmail());
+        if (!validation.valid()) {
+          return ValidatedRow.rejected(row, "Invalid email: " + validation.reason());
+        }
+      } catch (FeignException.BadRequest e) {
+        return ValidatedRow.rejected(row, "Email validation service rejected the email");
+      } catch (FeignException e) {
+        // Как и при создании одного лида: сервис недоступен — принимаем без проверки
+        LOG.debug("Email validation unavailable for import line {}", row.line(), e);
+      }
+    }
+    return new ValidatedRow(row, request, status, null);
+  }
+
+  /** Отсекает дубликаты и записывает пачку одной транзакцией. */
+  private void write(List<ValidatedRow> rows, Map<UUID, Boolean> knownCompanies, Report report) {
+    Map<String, ValidatedRow> unique = new LinkedHashMap<>();
+    for (ValidatedRow row : rows) {
+      if (row.error() != null) {
+        report.reject(row, row.error());
+      } else {
+        ValidatedRow first = unique.putIfAbsent(row.request().getEmail(), row);
+        if (first != null) {
+          report.reject(row, "Email повторяется в файле, строка " + first.row().line());
+        }
+      }
+    }
+    List<String> candidates = unique.keySet().stream().filter(emailFilter::mightContain).toList();
+    if (!candidates.isEmpty()) {
+      for (String existing : leadRepository.findExistingEmails(candidates)) {
+        ValidatedRow row = unique.remove(existing);
+        if (row != null) {
+          report.reject(row, "Лид с таким email уже существует");
+        }
+      }
+    }
+    resolveCompanies(unique.values(), knownCompanies);
+    List<ValidatedRow> accepted = new ArrayList<>(unique.size());
+    for (ValidatedRow row : unique.values()) {
+      if (Boolean.TRUE.equals(knownCompanies.get(row.request().getCompanyId()))) {
+        accepted.add(row);
+      } else {
+        report.reject(row, "Компания не найдена: " + row.request().getCompanyId());
+      }
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+    try {
+      insert(accepted);
+      report.imported += accepted.size();
+    } catch (DataAccessException | PersistenceException | TransactionException e) {
+      LOG.warn("Lead import batch failed, retrying row by row: {}", e.getMessage());
+      for (ValidatedRow row : accepted) {
+        try {
+          insert(List.of(row));
+          report.imported++;
+        } catch (DataAccessException | PersistenceException | TransactionException rowFailure) {
+          report.reject(row, "Не удалось сохранить: " + rootMessage(rowFailure));
+        }
+      }
+    }
+  }
+
+  /** Дополняет кэш известных компаний одним запросом на все новые ID пачки. */
+  private void resolveCompanies(Iterable<ValidatedRow> rows, Map<UUID, Boolean> knownCompanies) {
+    Set<UUID> unknown = new HashSet<>();
+    for (ValidatedRow row : rows) {
+      if (!knownCompanies.containsKey(row.request().getCompanyId())) {
+        unknown.add(row.request().getCompanyId());
+      }
+    }
+    if (unknown.isEmpty()) {
+      return;
+    }
+    for (UUID id : unknown) {
+      knownCompanies.put(id, false);
+    }
+    for (Company company : companyRepository.findAllById(unknown)) {
+      knownCompanies.put(company.getId(), true);
+    }
+  }
+
+  private void insert(List<ValidatedRow> rows) {
+    transaction.executeWithoutResult(
+        status -> {
+          for (ValidatedRow row : rows) {
+            Lead lead = leadMapper.toEntity(row.request());
+            UUID companyId = row.request().getCompanyId();
+            lead.setCompany(entityManager.getReference(Company.class, companyId));
+            lead.setStatus(row.status());
+            entityManager.persist(lead);
+          }
+          entityManager.flush();
+          entityManager.clear();
+        });
+  }
+
+  private static List<ValidatedRow> await(Future<List<ValidatedRow>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while validating lead import", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Lead import validation failed", e.getCause());
+    }
+  }
+
+  private static String rootMessage(Throwable error) {
+    Throwable root = error;
+    while (root.getCause() != null && root.getCause() != root) {
+      root = root.getCause();
+    }
+    return root.getMessage();
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.isBlank();
+  }
+
+  private static String trim(String value) {
+    return value != null ? value.trim() : null;
+  }
+
+  /** Запись после проверки: готовый запрос на создание или причина отказа. */
+  private record ValidatedRow(
+      LeadImportRow row, CreateLeadRequest request, StatusEnum status, String error) {
+
+    static ValidatedRow rejected(LeadImportRow row, String error) {
+      return new ValidatedRow(row, null, null, error);
+    }
+
+    String email() {
+      return request != null ? request.getEmail() : row.email();
+    }
+  }
+
+  /** Накопитель итогов импорта; меняется только в вызывающем потоке. */
+  private static final class Report {
+    private final List<LeadImportReport.RowError> errors = new ArrayList<>();
+    private long processed;
+    private long imported;
+    private long failed;
+
+    void reject(ValidatedRow row, String message) {
+      failed++;
+      if (errors.size() < MAX_REPORTED_ERRORS) {
+        errors.add(new LeadImportReport.RowError(row.row().line(), row.email(), message));
+      }
+    }
+  }
+}
@@ -14,6 +14,7 @@ import ru.mentee.power.crm.spring.dto.generated.UpdateLeadRequest;
 import ru.mentee.power.crm.spring.exception.EntityNotFoundException;
 import ru.mentee.power.crm.spring.mapper.LeadMapper;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 
 /** Адаптер сервис для работы Rest контроллера с DTO */
 @Service
@@ -30,6 +31,11 @@ public class LeadRestServiceAdapter {
     return leadService.findAll().stream().map(leadMapper::toResponse).toList();
   }
 
+  /** Находит keyset-страницу лидов и преобразует её элементы в DTO */
+  public KeysetPage<LeadResponse> findLeadsPage(String cursor, int limit) {
+    return leadService.findPage(cursor, limit).map(leadMapper::toResponse);
+  }
+
   /** Находит лида по ID */
   public LeadResponse findLeadById(UUID id) {
     return leadService
@@ -5,7 +5,6 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +52,11 @@ public class LeadService {
             lead.company(),
             lead.status());
 
-    return leadRepository.save(newLead);
+    // Повторная проверка атомарна: защищает от гонки двух параллельных запросов с одним email
+    if (!leadRepository.saveIfEmailAbsent(newLead)) {
+      throw new IllegalStateException("Lead with email already exists: " + lead.email());
+    }
+    return newLead;
   }
 
   /** Returns all leads stored in the repository. */
@@ -73,7 +76,7 @@ public class LeadService {
 
   /** Возвращает список лидов с указанным статусом. */
   public List<Lead> findByStatus(LeadStatus status) {
-    return leadRepository.findAll().stream().filter(lead -> lead.status().equals(status)).toList();
+    return leadRepository.findByStatus(status);
   }
 
   /** Обновление существующего лида. */
@@ -104,24 +107,17 @@ public class LeadService {
 
   /** Выполняет поиск и фильтрацию лидов по текстовому запросу и статусу. */
   public List<Lead> findLeads(String search, LeadStatus status) {
-    List<Lead> leads = leadRepository.findAll();
-    Stream<Lead> stream = leads.stream();
-
-    if (search != null && !search.trim().isEmpty()) {
-      String lowerSearch = search.toLowerCase().trim();
-      stream =
-          stream.filter(
-              lead ->
-                  lead.name().toLowerCase().contains(lowerSearch)
-                      || lead.email().toLowerCase().contains(lowerSearch)
-                      || lead.company().toLowerCase().contains(lowerSearch));
+    if (search == null || search.trim().isEmpty()) {
+      // Фильтр по статусу обслуживается индексом репозитория, без полного сканирования
+      return status != null ? leadRepository.findByStatus(status) : leadRepository.findAll();
     }
 
-    if (status != null) {
-      stream = stream.filter(lead -> lead.status().equals(status));
+    // Подстрока ищется по триграммному индексу, статус проверяется только у найденных лидов
+    List<Lead> matched = leadRepository.searchByText(search.trim());
+    if (status == null) {
+      return matched;
     }
-
-    return stream.toList();
+    return matched.stream().filter(lead -> lead.status() == status).toList();
   }
 
   /**
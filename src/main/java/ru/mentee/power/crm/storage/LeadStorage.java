@@ -1,80 +1,134 @@
 package ru.mentee.power.crm.storage;
 
-import java.util.Objects;
+import java.util.Arrays;
 import java.util.UUID;
 import ru.mentee.power.crm.domain.Lead;
 
-/** Хранилище лидов (потенциальных клиентов) на основе массива фиксированного размера. */
+/**
+ * Хранилище лидов (потенциальных клиентов) на основе расширяемых хеш-таблиц с открытой адресацией.
+ *
+ * <p>Лиды лежат в плотном массиве в порядке добавления, а две таблицы с линейным пробированием
+ * хранят номера ячеек этого массива: одна по ID, другая по email. Поэтому добавление, поиск по ID и
+ * проверка дубликата email выполняются за O(1) в среднем, а {@link #size()} — за O(1) всегда.
+ * Таблицы удваиваются, когда заполнены наполовину, так что ограничения на число лидов нет.
+ */
 public class LeadStorage {
 
-  /** Максимальное количество проводов, которые можно хранить. */
-  private static final int MAX_SIZE = 100;
+  /** Начальная ёмкость массива лидов. */
+  private static final int INITIAL_CAPACITY = 16;
 
-  /** Внутренний массив для хранения лидов. */
-  private final Lead[] leads = new Lead[MAX_SIZE];
+  /** Пустая ячейка хеш-таблицы; занятые ячейки хранят номер лида плюс один. */
+  private static final int EMPTY = 0;
 
-  /** Добавляет новый кабель в хранилище. */
+  /** Лиды в порядке добавления. */
+  private Lead[] leads = new Lead[INITIAL_CAPACITY];
+
+  /** Индекс по ID. */
+  private int[] idTable = new int[INITIAL_CAPACITY * 2];
+
+  /** Индекс по email. */
+  private int[] emailTable = new int[INITIAL_CAPACITY * 2];
+
+  private int size;
+
+  /**
+   * Добавляет новый лид в хранилище.
+   *
+   * @return {@code false}, если лид с таким email уже есть
+   */
   public boolean add(Lead lead) {
     if (lead == null) {
       throw new NullPointerException("Lead must not be null");
     }
 
-    int firstNullIndex = -1;
-
-    for (int i = 0; i < leads.length; i++) {
-      if (leads[i] == null) {
-        if (firstNullIndex == -1) {
-          firstNullIndex = i;
-        }
-      } else {
-        if (Objects.equals(leads[i].getContact().email(), lead.getContact().email())) {
-          return false;
-        }
-      }
+    String email = lead.getContact().email();
+    if (findByEmailIndex(email) >= 0) {
+      return false;
     }
 
-    if (firstNullIndex != -1) {
-      leads[firstNullIndex] = lead;
-      return true;
-    } else {
-      throw new IllegalStateException("Storage is full, cannot add more leads");
+    if (size == leads.length) {
+      grow();
+    }
+    int index = size++;
+    leads[index] = lead;
+    insert(emailTable, email.hashCode(), index);
+    if (findIndex(lead.getId()) < 0) {
+      insert(idTable, lead.getId().hashCode(), index);
     }
+    return true;
   }
 
-  /** Возвращает копию всех сохранённых лидов. */
+  /** Возвращает копию всех сохранённых лидов в порядке добавления. */
   public Lead[] findAll() {
-    Lead[] result = new Lead[size()];
-    int resultIndex = 0;
-    for (Lead lead : leads) {
-      if (lead != null) {
-        result[resultIndex++] = lead;
-      }
-    }
-    return result;
+    return Arrays.copyOf(leads, size);
   }
 
-  /** Возвращает текущее количество проводов в хранилище. */
+  /** Возвращает текущее количество лидов в хранилище. */
   public int size() {
-    int count = 0;
-    for (Lead lead : leads) {
-      if (lead != null) {
-        count++;
-      }
-    }
-    return count;
+    return size;
   }
 
-  /** Находит и возвращает зацепку по уникальному идентификатору. */
+  /** Находит лид по уникальному идентификатору или возвращает {@code null}. */
   public Lead findById(UUID id) {
     if (id == null) {
       throw new NullPointerException("Lead ID must not be null");
     }
+    int index = findIndex(id);
+    return index >= 0 ? leads[index] : null;
+  }
+
+  private int findIndex(UUID id) {
+    int mask = idTable.length - 1;
+    for (int slot = spread(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+      int entry = idTable[slot];
+      if (entry == EMPTY) {
+        return -1;
+      }
+      if (leads[entry - 1].getId().equals(id)) {
+        return entry - 1;
+      }
+    }
+  }
 
-    for (Lead lead : leads) {
-      if (lead != null && Objects.equals(lead.getId(), id)) {
-        return lead;
+  private int findByEmailIndex(String email) {
+    int mask = emailTable.length - 1;
+    for (int slot = spread(email.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+      int entry = emailTable[slot];
+      if (entry == EMPTY) {
+        return -1;
+      }
+      if (leads[entry - 1].getContact().email().equals(email)) {
+        return entry - 1;
       }
     }
-    return null;
+  }
+
+  /** Удваивает массив лидов и перестраивает обе таблицы, сохраняя заполненность не выше 1/2. */
+  private void grow() {
+    leads = Arrays.copyOf(leads, leads.length * 2);
+    idTable = new int[leads.length * 2];
+    emailTable = new int[leads.length * 2];
+    for (int index = 0; index < size; index++) {
+      Lead lead = leads[index];
+      insert(emailTable, lead.getContact().email().hashCode(), index);
+      if (findIndex(lead.getId()) < 0) {
+        insert(idTable, lead.getId().hashCode(), index);
+      }
+    }
+  }
+
+  private static void insert(int[] table, int hash, int index) {
+    int mask = table.length - 1;
+    int slot = spread(hash) & mask;
+    while (table[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = index + 1;
+  }
+
+  /** Перемешивает старшие биты хеша в младшие, чтобы маска не отбрасывала их. */
+  private static int spread(int hash) {
+    int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
   }
 }
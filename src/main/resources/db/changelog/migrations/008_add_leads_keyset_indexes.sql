@@ -0,0 +1,8 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-37-1
+
+-- Индекс для keyset-пагинации ленты лидов по (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_leads_created_at_id ON leads (created_at, id);
+
+-- Индекс для keyset-пагинации лидов внутри компании
+CREATE INDEX IF NOT EXISTS idx_leads_company_created_at_id ON leads (company_id, created_at, id);
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-38-1 dbms:postgresql
+
+-- Триграммы для поиска подстроки (LIKE '%term%') и нечёткого поиска по названиям.
+-- В H2 расширения нет: там поиск идёт без индекса, см. LeadSearchRepositoryImpl
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_leads_name_trgm ON leads USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_leads_email_trgm ON leads USING gin (lower(email) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_companies_name_trgm ON companies USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,37 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-39-1
+
+-- Ключ уникальности названия компании: см. Company.normalizeName
+ALTER TABLE companies
+ADD COLUMN name_key VARCHAR(255);
+
+UPDATE companies SET name_key = LOWER(TRIM(name));
+
+--changeset your-name:BCORE-39-2 dbms:postgresql
+
+-- Пробелы внутри названия схлопываются так же, как в Company.normalizeName
+UPDATE companies SET name_key = LOWER(TRIM(REGEXP_REPLACE(name, '\s+', ' ', 'g')));
+
+-- Дубликаты по ключу сливаются в компанию с наименьшим id: лиды переносятся, лишние строки удаляются
+WITH ranked AS (
+    SELECT id, first_value(id) OVER (PARTITION BY name_key ORDER BY id) AS keep_id
+    FROM companies
+)
+UPDATE leads l
+SET company_id = r.keep_id
+FROM ranked r
+WHERE l.company_id = r.id
+  AND r.id <> r.keep_id;
+
+DELETE FROM companies c
+USING companies k
+WHERE c.name_key = k.name_key
+  AND c.id > k.id;
+
+--changeset your-name:BCORE-39-3
+
+ALTER TABLE companies
+ALTER COLUMN name_key SET NOT NULL;
+
+ALTER TABLE companies
+ADD CONSTRAINT uq_companies_name_key UNIQUE (name_key);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-40-1
+
+-- Индекс для колонок Kanban-доски: последние сделки статуса и keyset-пагинация по (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_deals_status_created_at_id ON deals (status, created_at, id);
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-41-1
+
+-- Переходы сделок по воронке: строки только дописываются и при старте воспроизводятся в журнал
+-- в порядке id. Внешнего ключа на deals нет — история удалённых сделок остаётся в воронке.
+CREATE TABLE IF NOT EXISTS deal_transitions
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    deal_id     UUID                     NOT NULL,
+    from_status VARCHAR(50),
+    to_status   VARCHAR(50)              NOT NULL,
+    occurred_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    amount      DECIMAL(15, 2)
+);
@@ -0,0 +1,34 @@
+--liquibase formatted sql
+--changeset your-name:BCORE-42-1 dbms:postgresql
+
+-- Именованное ограничение уникальности email (Lead.EMAIL_UNIQUE_CONSTRAINT): по его имени
+-- сервис отличает дубликат email от прочих нарушений целостности
+ALTER TABLE leads
+ADD CONSTRAINT uq_leads_email UNIQUE (email);
+
+-- Безымянное ограничение из 002 больше не нужно
+ALTER TABLE leads
+DROP CONSTRAINT IF EXISTS leads_email_key;
+
+--changeset your-name:BCORE-42-2 dbms:h2
+
+-- H2 дал ограничению из 002 случайное имя, а новое переиспользовало бы его индекс, поэтому столбец
+-- пересоздаётся: вместе со старым столбцом уходят его ограничение и индекс
+ALTER TABLE leads
+ADD COLUMN email_new VARCHAR(255);
+
+UPDATE leads SET email_new = email;
+
+ALTER TABLE leads
+DROP COLUMN email;
+
+ALTER TABLE leads
+ALTER COLUMN email_new RENAME TO email;
+
+ALTER TABLE leads
+ALTER COLUMN email SET NOT NULL;
+
+ALTER TABLE leads
+ADD CONSTRAINT uq_leads_email UNIQUE (email);
+
+CREATE INDEX IF NOT EXISTS idx_leads_email ON leads (email);
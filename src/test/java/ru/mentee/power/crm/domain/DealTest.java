@@ -4,10 +4,25 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
 
 class DealTest {
+  private static final int HOT_DEALS = 4;
 
   @Test
   void shouldCreateDeal_withNewStatus() {
@@ -47,4 +62,215 @@ class DealTest {
         .isInstanceOf(IllegalStateException.class)
         .hasMessageContaining("Cannot transition from WON to NEW");
   }
+
+  @Test
+  void shouldHandOutEachTransitionOnceInOrder() {
+    // Given
+    Deal deal = new Deal(UUID.randomUUID(), new BigDecimal("100000"));
+    deal.transitionTo(DealStatus.QUALIFIED);
+    deal.transitionTo(DealStatus.PROPOSAL_SENT);
+
+    // When
+    Deal.StatusChanges first = deal.drainStatusChanges();
+    Deal.StatusChanges second = deal.drainStatusChanges();
+
+    // Then
+    assertThat(first.status()).isEqualTo(DealStatus.PROPOSAL_SENT);
+    assertThat(first.changes())
+        .containsExactly(
+            new Deal.StatusChange(DealStatus.NEW, DealStatus.QUALIFIED),
+            new Deal.StatusChange(DealStatus.QUALIFIED, DealStatus.PROPOSAL_SENT));
+    assertThat(second.status()).isEqualTo(DealStatus.PROPOSAL_SENT);
+    assertThat(second.changes()).isEmpty();
+    assertThat(deal.getVersion()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldLetExactlyOneOfConflictingConcurrentTransitionsWin() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      for (int round = 0; round < 200; round++) {
+        // Given: сделка на последнем шаге перед терминальным статусом
+        Deal deal = new Deal(UUID.randomUUID(), BigDecimal.TEN);
+        deal.transitionTo(DealStatus.QUALIFIED);
+        deal.transitionTo(DealStatus.PROPOSAL_SENT);
+        deal.transitionTo(DealStatus.NEGOTIATION);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When: половина потоков закрывает сделку как WON, половина — как LOST
+        for (int t = 0; t < 8; t++) {
+          DealStatus target = t % 2 == 0 ? DealStatus.WON : DealStatus.LOST;
+          futures.add(
+              executor.submit(
+                  () -> {
+                    start.await();
+                    try {
+                      deal.transitionTo(target);
+                      succeeded.incrementAndGet();
+                    } catch (IllegalStateException expected) {
+                      // проигравший поток видит уже терминальный статус
+                    }
+                    return null;
+                  }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get(10, TimeUnit.SECONDS);
+        }
+
+        // Then
+        assertThat(succeeded).hasValue(1);
+        assertThat(deal.getStatus()).isIn(DealStatus.WON, DealStatus.LOST);
+        assertThat(deal.getVersion()).isEqualTo(4);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldCountEverySuccessfulTransitionOnHotDealsUnderContention() throws Exception {
+    // Given / When: 8 потоков двигают по воронке одни и те же горячие сделки
+    runContention(8, 5_000, () -> new CasDeal(hotDeal()));
+
+    // Then: runContention сверил число успешных переходов с суммой версий сделок
+  }
+
+  /**
+   * Бенчмарк: 16 потоков двигают по воронке 4 «горячие» сделки; CAS против блокировки на сделке.
+   * Запуск — с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportTransitionThroughputOnHotDealsUnderContention() throws Exception {
+    int threads = 16;
+    int operations = 200_000;
+    runContention(threads, operations, () -> new LockedDeal(hotDeal())); // прогрев
+    runContention(threads, operations, () -> new CasDeal(hotDeal()));
+
+    long lockedNs = runContention(threads, operations, () -> new LockedDeal(hotDeal()));
+    long casNs = runContention(threads, operations, () -> new CasDeal(hotDeal()));
+
+    long total = (long) threads * operations;
+    System.out.printf(
+        "Hot deal transitions (%d threads, %d ops): synchronized %.0f ops/ms,"
+            + " CAS %.0f ops/ms%n",
+        threads,
+        total,
+        total * 1e6 / lockedNs,
+        total * 1e6 / casNs);
+  }
+
+  /**
+   * Гоняет потоки по общим горячим сделкам: каждый шаг — попытка перехода к следующему статусу
+   * (иногда сразу в LOST); дошедшая до конца сделка заменяется новой. После прогона проверяет, что
+   * успешных переходов столько же, сколько в сумме версий, и ни одна сделка не прошла лишний шаг.
+   *
+   * @return затраченное время в наносекундах
+   */
+  private static long runContention(
+      int threads, int operationsPerThread, Supplier<TransitionTarget> factory) throws Exception {
+    AtomicReferenceArray<TransitionTarget> hot = new AtomicReferenceArray<>(HOT_DEALS);
+    Queue<TransitionTarget> all = new ConcurrentLinkedQueue<>();
+    for (int i = 0; i < HOT_DEALS; i++) {
+      hot.set(i, factory.get());
+      all.add(hot.get(i));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Long>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long succeeded = 0;
+                for (int i = 0; i < operationsPerThread; i++) {
+                  int slot = random.nextInt(HOT_DEALS);
+                  TransitionTarget target = hot.get(slot);
+                  DealStatus status = target.deal().getStatus();
+                  if (status == DealStatus.WON || status == DealStatus.LOST) {
+                    TransitionTarget fresh = factory.get();
+                    if (hot.compareAndSet(slot, target, fresh)) {
+                      all.add(fresh);
+                    }
+                    continue;
+                  }
+                  DealStatus next = random.nextInt(8) == 0 ? DealStatus.LOST : next(status);
+                  if (target.tryTransition(next)) {
+                    succeeded++;
+                  }
+                }
+                return succeeded;
+              }));
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    long succeeded = 0;
+    for (Future<Long> future : futures) {
+      succeeded += future.get(60, TimeUnit.SECONDS);
+    }
+    long elapsedNs = System.nanoTime() - begin;
+    executor.shutdown();
+
+    assertThat(all.stream().mapToLong(target -> target.deal().getVersion()).sum())
+        .isEqualTo(succeeded);
+    assertThat(all).allSatisfy(target -> assertThat(target.deal().getVersion()).isLessThan(5));
+    return elapsedNs;
+  }
+
+  private static Deal hotDeal() {
+    return new Deal(UUID.randomUUID(), BigDecimal.ONE);
+  }
+
+  private static DealStatus next(DealStatus status) {
+    return switch (status) {
+      case NEW -> DealStatus.QUALIFIED;
+      case QUALIFIED -> DealStatus.PROPOSAL_SENT;
+      case PROPOSAL_SENT -> DealStatus.NEGOTIATION;
+      case NEGOTIATION -> DealStatus.WON;
+      case WON, LOST -> throw new IllegalArgumentException("Terminal status: " + status);
+    };
+  }
+
+  /** Способ выполнить переход над сделкой в бенчмарке. */
+  private interface TransitionTarget {
+    Deal deal();
+
+    boolean tryTransition(DealStatus next);
+  }
+
+  /** Переход через {@link Deal#transitionTo(DealStatus)} без блокировок. */
+  private record CasDeal(Deal deal) implements TransitionTarget {
+    @Override
+    public boolean tryTransition(DealStatus next) {
+      if (!deal.getStatus().canTransitionTo(next)) {
+        return false;
+      }
+      try {
+        deal.transitionTo(next);
+        return true;
+      } catch (IllegalStateException lostRace) {
+        return false;
+      }
+    }
+  }
+
+  /** Базовая линия: проверка и переход под монитором сделки. */
+  private record LockedDeal(Deal deal) implements TransitionTarget {
+    @Override
+    public boolean tryTransition(DealStatus next) {
+      synchronized (deal) {
+        if (!deal.getStatus().canTransitionTo(next)) {
+          return false;
+        }
+        deal.transitionTo(next);
+        return true;
+      }
+    }
+  }
 }
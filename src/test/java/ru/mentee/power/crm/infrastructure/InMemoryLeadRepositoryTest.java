@@ -2,8 +2,10 @@ package ru.mentee.power.crm.infrastructure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import ru.mentee.power.crm.domain.Address;
@@ -81,15 +83,18 @@ class InMemoryLeadRepositoryTest {
     Lead leadToRemove = createLead("test@test.com", "+7000", "TestCompany");
     UUID idToRemove = leadToRemove.getId();
     repository.add(leadToRemove);
+    List<Lead> remaining = new ArrayList<>();
     for (int i = 0; i < 4; i++) {
-      repository.add(createLead("lead" + i + "@test.com", "+71234" + i, "Company" + i));
+      Lead lead = createLead("lead" + i + "@test.com", "+71234" + i, "Company" + i);
+      remaining.add(lead);
+      repository.add(lead);
     }
 
     // When: вызываю remove(uuid) для существующего лида
     repository.remove(idToRemove);
 
-    // Then: findAll() возвращает 4 лида, findById(uuid) возвращает Optional.empty()
-    assertThat(repository.findAll()).hasSize(4);
+    // Then: findAll() возвращает 4 лида в порядке добавления, findById(uuid) — Optional.empty()
+    assertThat(repository.findAll()).containsExactlyElementsOf(remaining);
 
     assertThat(repository.findById(idToRemove)).isEmpty();
   }
@@ -108,4 +113,22 @@ class InMemoryLeadRepositoryTest {
     // Then: изменения не влияют на internal storage (defensive copy)
     assertThat(repository.findAll()).hasSize(1);
   }
+
+  @Test
+  void shouldStreamLeadsWithSizedSpliteratorWithoutCopying() {
+    // Given
+    InMemoryLeadRepository repository = new InMemoryLeadRepository();
+    for (int i = 0; i < 10; i++) {
+      repository.add(createLead("lead" + i + "@test.com", "+71234" + i, "Company" + i));
+    }
+
+    // When
+    Spliterator<Lead> spliterator = repository.stream().spliterator();
+
+    // Then
+    assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isTrue();
+    assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(10);
+    assertThat(repository.stream().parallel().map(Lead::getId).toList())
+        .containsExactlyElementsOf(repository.findAll().stream().map(Lead::getId).toList());
+  }
 }
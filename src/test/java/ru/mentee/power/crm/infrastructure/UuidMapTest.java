@@ -0,0 +1,89 @@
+package ru.mentee.power.crm.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+
+class UuidMapTest {
+
+  @Test
+  void shouldPutGetAndRemoveByUuidAndByLongHalves() {
+    // Given
+    UuidMap<String> map = new UuidMap<>();
+    UUID id = UUID.randomUUID();
+
+    // When
+    String previous = map.putIfAbsent(id, "first");
+    String kept = map.putIfAbsent(id, "second");
+
+    // Then
+    assertThat(previous).isNull();
+    assertThat(kept).isEqualTo("first");
+    assertThat(map.get(id.getMostSignificantBits(), id.getLeastSignificantBits()))
+        .isEqualTo("first");
+    assertThat(map.put(id, "third")).isEqualTo("first");
+    assertThat(map.remove(id)).isEqualTo("third");
+    assertThat(map.get(id)).isNull();
+    assertThat(map.size()).isZero();
+  }
+
+  @Test
+  void shouldMatchLinkedHashMapUnderRandomInsertsAndRemovals() {
+    // Given: ключи с общей младшей половиной, чтобы цепочки пробирования пересекались
+    Random random = new Random(42);
+    UUID[] keys = new UUID[2_000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new UUID(random.nextLong(), i % 3);
+    }
+    UuidMap<Integer> map = new UuidMap<>();
+    Map<UUID, Integer> reference = new LinkedHashMap<>();
+
+    // When
+    for (int step = 0; step < 50_000; step++) {
+      UUID key = keys[random.nextInt(keys.length)];
+      if (random.nextInt(3) == 0) {
+        assertThat(map.remove(key)).isEqualTo(reference.remove(key));
+      } else {
+        assertThat(map.put(key, step)).isEqualTo(reference.put(key, step));
+      }
+    }
+
+    // Then
+    assertThat(map.size()).isEqualTo(reference.size());
+    for (UUID key : keys) {
+      assertThat(map.get(key)).isEqualTo(reference.get(key));
+    }
+    // And: порядок обхода — порядок добавления, как у LinkedHashMap
+    assertThat(map.values()).containsExactlyElementsOf(reference.values());
+  }
+
+  @Test
+  void shouldSplitForParallelStreamsAndFailFastOnModification() {
+    // Given
+    UuidMap<Integer> map = new UuidMap<>();
+    for (int i = 0; i < 10_000; i++) {
+      map.put(UUID.randomUUID(), i);
+    }
+
+    // When
+    Spliterator<Integer> spliterator = map.spliterator();
+    long exactSize = spliterator.getExactSizeIfKnown();
+    List<Integer> parallel = StreamSupport.stream(map.spliterator(), true).toList();
+
+    // Then
+    assertThat(exactSize).isEqualTo(10_000);
+    assertThat(parallel).containsExactlyElementsOf(map.values());
+    map.put(UUID.randomUUID(), -1);
+    assertThatThrownBy(() -> spliterator.tryAdvance(value -> {}))
+        .isInstanceOf(ConcurrentModificationException.class);
+  }
+}
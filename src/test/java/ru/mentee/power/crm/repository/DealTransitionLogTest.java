@@ -0,0 +1,247 @@
+package ru.mentee.power.crm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import ru.mentee.power.crm.domain.Deal;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealTransition;
+import ru.mentee.power.crm.spring.repository.DealPipelineProjection;
+import ru.mentee.power.crm.spring.repository.DealTransitionLog;
+import ru.mentee.power.crm.spring.repository.InMemoryDealRepository;
+
+class DealTransitionLogTest {
+  private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+  private static final DealStatus[] WON_PATH =
+      EnumSet.range(DealStatus.NEW, DealStatus.WON).toArray(DealStatus[]::new);
+
+  @Test
+  void shouldRecordCreationAndStatusChangesSavedThroughRepository() {
+    // Given
+    DealTransitionLog log = new DealTransitionLog(4, Clock.fixed(START, ZoneOffset.UTC));
+    InMemoryDealRepository repository = new InMemoryDealRepository(log);
+    Deal deal = new Deal(UUID.randomUUID(), new BigDecimal("500"));
+
+    // When: повторное сохранение без смены статуса событий не порождает
+    repository.save(deal);
+    deal.transitionTo(DealStatus.QUALIFIED);
+    repository.save(deal);
+    repository.save(deal);
+    deal.transitionTo(DealStatus.LOST);
+    repository.save(deal);
+
+    // Then
+    List<DealTransition> events = new ArrayList<>();
+    log.replay(events::add);
+    assertThat(events)
+        .extracting(DealTransition::from, DealTransition::to)
+        .containsExactly(
+            tuple(null, DealStatus.NEW),
+            tuple(DealStatus.NEW, DealStatus.QUALIFIED),
+            tuple(DealStatus.QUALIFIED, DealStatus.LOST));
+    assertThat(events.getFirst().isCreation()).isTrue();
+    assertThat(events).allMatch(event -> event.dealId().equals(deal.getId()));
+    assertThat(log.project().currentStatus(deal.getId())).contains(DealStatus.LOST);
+  }
+
+  @Test
+  void shouldRecordEveryTransitionMadeBetweenTwoSaves() {
+    // Given
+    DealTransitionLog log = new DealTransitionLog(4, Clock.fixed(START, ZoneOffset.UTC));
+    InMemoryDealRepository repository = new InMemoryDealRepository(log);
+    Deal deal = new Deal(UUID.randomUUID(), new BigDecimal("500"));
+    repository.save(deal);
+
+    // When: два перехода подряд, затем одно сохранение
+    deal.transitionTo(DealStatus.QUALIFIED);
+    deal.transitionTo(DealStatus.PROPOSAL_SENT);
+    repository.save(deal);
+
+    // Then: промежуточная стадия QUALIFIED не потерялась
+    List<DealTransition> events = new ArrayList<>();
+    log.replay(events::add);
+    assertThat(events)
+        .extracting(DealTransition::from, DealTransition::to)
+        .containsExactly(
+            tuple(null, DealStatus.NEW),
+            tuple(DealStatus.NEW, DealStatus.QUALIFIED),
+            tuple(DealStatus.QUALIFIED, DealStatus.PROPOSAL_SENT));
+    assertThat(log.project().currentStatus(deal.getId())).contains(DealStatus.PROPOSAL_SENT);
+    assertThat(repository.findByStatus(DealStatus.PROPOSAL_SENT)).containsExactly(deal);
+  }
+
+  @Test
+  void shouldRebuildCurrentStatusTimeInStageAndFunnelByReplay() {
+    // Given: первая сделка выиграна, вторая проиграна после квалификации, третья только создана
+    DealTransitionLog log = new DealTransitionLog(4, Clock.systemUTC());
+    UUID won = UUID.randomUUID();
+    UUID lost = UUID.randomUUID();
+    UUID fresh = UUID.randomUUID();
+    appendPath(log, won, new BigDecimal("100"), Duration.ofHours(1), WON_PATH);
+    appendPath(
+        log,
+        lost,
+        new BigDecimal("40"),
+        Duration.ofHours(3),
+        DealStatus.NEW,
+        DealStatus.QUALIFIED,
+        DealStatus.LOST);
+    appendPath(log, fresh, new BigDecimal("7"), Duration.ZERO, DealStatus.NEW);
+
+    // When
+    DealPipelineProjection projection = log.project();
+
+    // Then
+    assertThat(projection.events()).isEqualTo(9);
+    assertThat(projection.deals()).isEqualTo(3);
+    assertThat(projection.currentStatus(won)).contains(DealStatus.WON);
+    assertThat(projection.currentStatus(lost)).contains(DealStatus.LOST);
+    assertThat(projection.currentStatus(fresh)).contains(DealStatus.NEW);
+    assertThat(projection.currentStatus(UUID.randomUUID())).isEmpty();
+
+    DealPipelineProjection.Stage created = projection.stage(DealStatus.NEW);
+    assertThat(created.reached()).isEqualTo(3);
+    assertThat(created.current()).isEqualTo(1);
+    assertThat(created.currentAmount()).isEqualByComparingTo("7");
+    assertThat(created.exited()).isEqualTo(2);
+    assertThat(created.averageTimeInStage()).isEqualTo(Duration.ofHours(2));
+
+    DealPipelineProjection.Stage qualified = projection.stage(DealStatus.QUALIFIED);
+    assertThat(qualified.reached()).isEqualTo(2);
+    assertThat(qualified.current()).isZero();
+    assertThat(qualified.currentAmount()).isEqualByComparingTo("0");
+    assertThat(qualified.timeInStage()).isEqualTo(Duration.ofHours(4));
+
+    assertThat(projection.stage(DealStatus.PROPOSAL_SENT).reached()).isEqualTo(1);
+    assertThat(projection.stage(DealStatus.WON).currentAmount()).isEqualByComparingTo("100");
+    assertThat(projection.stage(DealStatus.LOST).current()).isEqualTo(1);
+    assertThat(projection.stage(DealStatus.WON).averageTimeInStage()).isEqualTo(Duration.ZERO);
+  }
+
+  @Test
+  void shouldKeepPerDealOrderUnderConcurrentAppends() throws Exception {
+    // Given: каждый поток ведёт свои сделки по полному пути до WON
+    DealTransitionLog log = new DealTransitionLog(8, Clock.systemUTC());
+    int threads = 8;
+    int dealsPerThread = 2_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < dealsPerThread; i++) {
+                  appendPath(
+                      log, UUID.randomUUID(), BigDecimal.ONE, Duration.ofMinutes(1), WON_PATH);
+                }
+                return null;
+              }));
+    }
+
+    // When
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    DealPipelineProjection projection = log.project();
+
+    // Then: ни одно событие не потеряно и не переставлено внутри сделки
+    long deals = (long) threads * dealsPerThread;
+    assertThat(log.size()).isEqualTo(deals * WON_PATH.length);
+    assertThat(projection.stage(DealStatus.WON).current()).isEqualTo(deals);
+    assertThat(projection.stage(DealStatus.NEGOTIATION).exited()).isEqualTo(deals);
+    assertThat(projection.stage(DealStatus.NEGOTIATION).averageTimeInStage())
+        .isEqualTo(Duration.ofMinutes(1));
+  }
+
+  /**
+   * Бенчмарк: восстановление проекций из 10 млн событий в одном потоке и по разделам параллельно.
+   * Запуск — с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportProjectionRebuildCostOverTenMillionEvents() {
+    int deals = 2_000_000;
+    DealTransitionLog log =
+        new DealTransitionLog(Runtime.getRuntime().availableProcessors(), Clock.systemUTC());
+    BigDecimal[] amounts = new BigDecimal[1000];
+    for (int i = 0; i < amounts.length; i++) {
+      amounts[i] = BigDecimal.valueOf(i);
+    }
+    for (int i = 0; i < deals; i++) {
+      UUID dealId = UUID.randomUUID();
+      if (i % 4 == 0) {
+        appendPath(
+            log,
+            dealId,
+            amounts[i % amounts.length],
+            Duration.ofMinutes(5),
+            DealStatus.NEW,
+            DealStatus.QUALIFIED,
+            DealStatus.PROPOSAL_SENT,
+            DealStatus.NEGOTIATION,
+            DealStatus.LOST);
+      } else {
+        appendPath(log, dealId, amounts[i % amounts.length], Duration.ofMinutes(5), WON_PATH);
+      }
+    }
+    int rounds = 3;
+
+    long sequentialNs = Long.MAX_VALUE;
+    List<DealPipelineProjection.Stage> expected = List.of();
+    for (int i = 0; i < rounds; i++) {
+      long started = System.nanoTime();
+      expected = log.projectSequentially().stages();
+      sequentialNs = Math.min(sequentialNs, System.nanoTime() - started);
+    }
+
+    long parallelNs = Long.MAX_VALUE;
+    DealPipelineProjection parallel = null;
+    for (int i = 0; i < rounds; i++) {
+      long started = System.nanoTime();
+      parallel = log.project();
+      parallelNs = Math.min(parallelNs, System.nanoTime() - started);
+    }
+
+    System.out.printf(
+        "Deal pipeline rebuild over %d events in %d partitions: sequential %d ms, parallel %d ms%n",
+        log.size(), log.partitions(), sequentialNs / 1_000_000, parallelNs / 1_000_000);
+    assertThat(log.size()).isEqualTo(5L * deals);
+    assertThat(parallel.events()).isEqualTo(log.size());
+    assertThat(parallel.stages()).isEqualTo(expected);
+    assertThat(parallel.stage(DealStatus.NEW).reached()).isEqualTo(deals);
+    assertThat(parallel.stage(DealStatus.LOST).current()).isEqualTo(deals / 4);
+    assertThat(parallel.stage(DealStatus.WON).current()).isEqualTo(deals - deals / 4);
+  }
+
+  /** Дописывает события сделки, проходящей статусы по порядку с заданной паузой между ними. */
+  private static void appendPath(
+      DealTransitionLog log, UUID dealId, BigDecimal amount, Duration step, DealStatus... path) {
+    Instant at = START;
+    DealStatus from = null;
+    for (DealStatus to : path) {
+      log.append(new DealTransition(dealId, from, to, at, amount));
+      from = to;
+      at = at.plus(step);
+    }
+  }
+}
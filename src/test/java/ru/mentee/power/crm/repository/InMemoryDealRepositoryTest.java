@@ -0,0 +1,202 @@
+package ru.mentee.power.crm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import ru.mentee.power.crm.domain.Deal;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
+import ru.mentee.power.crm.spring.repository.InMemoryDealRepository;
+
+class InMemoryDealRepositoryTest {
+  private InMemoryDealRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new InMemoryDealRepository();
+  }
+
+  @Test
+  void shouldMoveDealBetweenStatusBucketsWhenTransitionIsSaved() {
+    // Given
+    Deal deal = deal("1000");
+    repository.save(deal);
+
+    // When: статус меняется на месте, затем сделка сохраняется
+    deal.transitionTo(DealStatus.QUALIFIED);
+    repository.save(deal);
+
+    // Then
+    assertThat(repository.findByStatus(DealStatus.NEW)).isEmpty();
+    assertThat(repository.findByStatus(DealStatus.QUALIFIED)).containsExactly(deal);
+    assertThat(summary(DealStatus.NEW)).isEqualTo(DealStatusSummary.empty(DealStatus.NEW));
+    assertThat(summary(DealStatus.QUALIFIED).count()).isEqualTo(1);
+    assertThat(summary(DealStatus.QUALIFIED).totalAmount()).isEqualByComparingTo("1000");
+  }
+
+  @Test
+  void shouldKeepRunningTotalsOnOverwriteAndDelete() {
+    // Given
+    Deal first = deal("100.50");
+    Deal second = deal("200");
+    repository.save(first);
+    repository.save(second);
+
+    // When: сделка перезаписана другим объектом с тем же ID и другой суммой, вторая удалена
+    repository.save(
+        new Deal(
+            first.getId(),
+            first.getLeadId(),
+            new BigDecimal("300"),
+            DealStatus.LOST,
+            first.getCreatedAt()));
+    repository.deleteById(second.getId());
+
+    // Then
+    assertThat(summary(DealStatus.NEW).count()).isZero();
+    assertThat(summary(DealStatus.NEW).totalAmount()).isEqualByComparingTo("0");
+    assertThat(summary(DealStatus.LOST).count()).isEqualTo(1);
+    assertThat(summary(DealStatus.LOST).totalAmount()).isEqualByComparingTo("300");
+    assertThat(repository.summarizeByStatus())
+        .extracting(DealStatusSummary::status)
+        .containsExactly(DealStatus.values());
+  }
+
+  @Test
+  void shouldGroupOnlyNonEmptyStatusesInFunnelOrder() {
+    // Given
+    Deal won = deal("10");
+    advance(won, DealStatus.QUALIFIED, DealStatus.PROPOSAL_SENT);
+    advance(won, DealStatus.NEGOTIATION, DealStatus.WON);
+    Deal fresh = deal("20");
+    repository.save(won);
+    repository.save(fresh);
+
+    // When
+    Map<DealStatus, List<Deal>> grouped = repository.findAllGroupedByStatus();
+
+    // Then
+    assertThat(grouped.keySet()).containsExactly(DealStatus.NEW, DealStatus.WON);
+    assertThat(grouped.get(DealStatus.WON)).containsExactly(won);
+    assertThat(grouped.get(DealStatus.NEW)).containsExactly(fresh);
+  }
+
+  @Test
+  void shouldMatchFullScanAfterConcurrentSavesAndTransitions() throws Exception {
+    // Given
+    int threads = 8;
+    int dealsPerThread = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < dealsPerThread; i++) {
+                  Deal deal = deal(String.valueOf(i));
+                  repository.save(deal);
+                  if (i % 2 == 0) {
+                    deal.transitionTo(DealStatus.QUALIFIED);
+                    repository.save(deal);
+                  }
+                  if (i % 5 == 0) {
+                    repository.deleteById(deal.getId());
+                  }
+                }
+                return null;
+              }));
+    }
+
+    // When
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then: колонки совпадают с честным пересчётом по всем сделкам
+    Map<DealStatus, List<Deal>> scanned =
+        repository.findAll().stream().collect(Collectors.groupingBy(Deal::getStatus));
+    for (DealStatus status : DealStatus.values()) {
+      List<Deal> expected = scanned.getOrDefault(status, List.of());
+      BigDecimal expectedAmount =
+          expected.stream().map(Deal::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+      assertThat(repository.findByStatus(status)).containsExactlyInAnyOrderElementsOf(expected);
+      assertThat(summary(status).count()).isEqualTo(expected.size());
+      assertThat(summary(status).totalAmount()).isEqualByComparingTo(expectedAmount);
+    }
+  }
+
+  /**
+   * Бенчмарк: итоги воронки из колонок против группировки всех сделок при каждом запросе. Время
+   * только печатается; запуск — с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportKanbanSummaryCostComparedToFullScan() {
+    int count = 200_000;
+    for (int i = 0; i < count; i++) {
+      Deal deal = deal(String.valueOf(i % 1000));
+      if (i % 3 == 0) {
+        deal.transitionTo(DealStatus.QUALIFIED);
+      }
+      repository.save(deal);
+    }
+    int rounds = 50;
+
+    long scanStart = System.nanoTime();
+    long scanned = 0;
+    for (int i = 0; i < rounds; i++) {
+      scanned +=
+          repository.findAll().stream()
+              .collect(
+                  Collectors.groupingBy(
+                      Deal::getStatus,
+                      Collectors.reducing(BigDecimal.ZERO, Deal::getAmount, BigDecimal::add)))
+              .size();
+    }
+    long scanNs = System.nanoTime() - scanStart;
+
+    long summaryStart = System.nanoTime();
+    long summarized = 0;
+    for (int i = 0; i < rounds; i++) {
+      summarized += repository.summarizeByStatus().size();
+    }
+    long summaryNs = System.nanoTime() - summaryStart;
+
+    System.out.printf(
+        "Deal summary over %d deals: full scan %d us/op, status columns %d us/op%n",
+        count, scanNs / rounds / 1_000, summaryNs / rounds / 1_000);
+    assertThat(scanned).isPositive();
+    assertThat(summarized).isEqualTo((long) rounds * DealStatus.values().length);
+  }
+
+  private DealStatusSummary summary(DealStatus status) {
+    return repository.summarizeByStatus().get(status.ordinal());
+  }
+
+  private static void advance(Deal deal, DealStatus... path) {
+    for (DealStatus status : path) {
+      deal.transitionTo(status);
+    }
+  }
+
+  private static Deal deal(String amount) {
+    return new Deal(UUID.randomUUID(), new BigDecimal(amount));
+  }
+}
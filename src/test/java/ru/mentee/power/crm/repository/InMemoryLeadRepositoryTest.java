@@ -1,16 +1,27 @@
 package ru.mentee.power.crm.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
 import ru.mentee.power.crm.model.Lead;
 import ru.mentee.power.crm.model.LeadStatus;
 import ru.mentee.power.crm.spring.repository.InMemoryLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 
 class InMemoryLeadRepositoryTest {
   private InMemoryLeadRepository repository;
@@ -213,4 +224,369 @@ class InMemoryLeadRepositoryTest {
     // Then
     assertThat(repository.size()).isEqualTo(2);
   }
+
+  @Test
+  void shouldNotLoseUpdatesWhenManyThreadsSaveConcurrently() throws Exception {
+    // Given: 32 потока-писателя, каждый сохраняет по 500 уникальных лидов
+    int threads = 32;
+    int leadsPerThread = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+
+    // When: все потоки стартуют одновременно
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < leadsPerThread; i++) {
+                  repository.save(
+                      Lead.builder()
+                          .id(UUID.randomUUID())
+                          .email("t" + thread + "-" + i + "@example.com")
+                          .phone("+7" + i)
+                          .company("Company" + thread)
+                          .status(LeadStatus.NEW)
+                          .build());
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then: ни одна запись не потеряна, индексы согласованы
+    int expected = threads * leadsPerThread;
+    assertThat(repository.size()).isEqualTo(expected);
+    assertThat(repository.findAll()).hasSize(expected).doesNotHaveDuplicates();
+    assertThat(repository.findByEmail("t7-123@example.com")).isPresent();
+  }
+
+  @Test
+  void shouldKeepSingleOwnerPerEmailWhenThreadsRaceForSameEmails() throws Exception {
+    // Given: 32 потока борются за одни и те же 200 email адресов
+    int threads = 32;
+    int emails = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger accepted = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < emails; i++) {
+                  Lead lead =
+                      Lead.builder()
+                          .id(UUID.randomUUID())
+                          .email("shared" + i + "@example.com")
+                          .phone("+7" + i)
+                          .company("Race")
+                          .status(LeadStatus.NEW)
+                          .build();
+                  if (repository.saveIfEmailAbsent(lead)) {
+                    accepted.incrementAndGet();
+                  }
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then: на каждый email ровно один победитель
+    assertThat(accepted.get()).isEqualTo(emails);
+    assertThat(repository.size()).isEqualTo(emails);
+    assertThat(repository.findAll()).extracting(Lead::email).doesNotHaveDuplicates();
+  }
+
+  @Test
+  void shouldReleaseEmailWhenLeadDeleted() {
+    // Given
+    Lead lead =
+        Lead.builder()
+            .id(UUID.randomUUID())
+            .email("free@example.com")
+            .phone("+1")
+            .company("A")
+            .status(LeadStatus.NEW)
+            .build();
+    repository.saveIfEmailAbsent(lead);
+
+    // When
+    repository.deleteById(lead.id());
+
+    // Then: email снова доступен для нового лида
+    Lead another =
+        Lead.builder()
+            .id(UUID.randomUUID())
+            .email("free@example.com")
+            .phone("+2")
+            .company("B")
+            .status(LeadStatus.NEW)
+            .build();
+    assertThat(repository.saveIfEmailAbsent(another)).isTrue();
+    assertThat(repository.findByEmail("free@example.com")).contains(another);
+  }
+
+  @Test
+  void shouldKeepInsertionOrderWhenLeadOverwritten() {
+    // Given
+    Lead first = Lead.builder().id(UUID.randomUUID()).email("1@x.com").build();
+    Lead second = Lead.builder().id(UUID.randomUUID()).email("2@x.com").build();
+    repository.save(first);
+    repository.save(second);
+
+    // When: перезаписываем первого лида
+    Lead updatedFirst = Lead.builder().id(first.id()).email("1-new@x.com").build();
+    repository.save(updatedFirst);
+
+    // Then: позиция сохранилась, старый email освобождён
+    assertThat(repository.findAll()).containsExactly(updatedFirst, second);
+    assertThat(repository.findByEmail("1@x.com")).isEmpty();
+  }
+
+  @Test
+  void shouldMoveLeadBetweenStatusBucketsWhenStatusChanged() {
+    // Given
+    UUID id = UUID.randomUUID();
+    Lead lead = Lead.builder().id(id).email("s@x.com").status(LeadStatus.NEW).build();
+    Lead other =
+        Lead.builder().id(UUID.randomUUID()).email("o@x.com").status(LeadStatus.NEW).build();
+    repository.save(lead);
+    repository.save(other);
+
+    // When: лид переходит в CONTACTED
+    Lead contacted = Lead.builder().id(id).email("s@x.com").status(LeadStatus.CONTACTED).build();
+    repository.save(contacted);
+
+    // Then: индекс статусов обновлён
+    assertThat(repository.findByStatus(LeadStatus.NEW)).containsExactly(other);
+    assertThat(repository.findByStatus(LeadStatus.CONTACTED)).containsExactly(contacted);
+  }
+
+  @Test
+  void shouldRemoveLeadFromStatusIndexWhenDeleted() {
+    // Given
+    Lead lead =
+        Lead.builder().id(UUID.randomUUID()).email("d@x.com").status(LeadStatus.QUALIFIED).build();
+    repository.save(lead);
+
+    // When
+    repository.deleteById(lead.id());
+
+    // Then
+    assertThat(repository.findByStatus(LeadStatus.QUALIFIED)).isEmpty();
+  }
+
+  @Test
+  void shouldReindexTextWhenLeadOverwritten() {
+    // Given
+    UUID id = UUID.randomUUID();
+    repository.save(
+        Lead.builder().id(id).name("Alice").email("alice@old.com").company("OldCorp").build());
+
+    // When: меняем имя и компанию
+    Lead updated =
+        Lead.builder().id(id).name("Alicia").email("alice@new.com").company("NewCorp").build();
+    repository.save(updated);
+
+    // Then: старые подстроки больше не находятся, новые находятся
+    assertThat(repository.searchByText("oldcorp")).isEmpty();
+    assertThat(repository.searchByText("NEWC")).containsExactly(updated);
+    assertThat(repository.searchByText("licia")).containsExactly(updated);
+  }
+
+  @Test
+  void shouldReturnSearchResultsInInsertionOrderAndSkipDeleted() {
+    // Given
+    Lead first = Lead.builder().id(UUID.randomUUID()).name("Sam").email("sam1@x.com").build();
+    Lead second = Lead.builder().id(UUID.randomUUID()).name("Sam").email("sam2@x.com").build();
+    Lead third = Lead.builder().id(UUID.randomUUID()).name("Samuel").email("s3@x.com").build();
+    repository.save(first);
+    repository.save(second);
+    repository.save(third);
+
+    // When
+    repository.deleteById(second.id());
+
+    // Then
+    assertThat(repository.searchByText("sam")).containsExactly(first, third);
+    assertThat(repository.searchByText("zzz")).isEmpty();
+  }
+
+  @Test
+  void shouldShareSnapshotBetweenReadsAndRefreshAfterWrite() {
+    // Given
+    Lead first = Lead.builder().id(UUID.randomUUID()).email("a@x.com").build();
+    repository.save(first);
+
+    // When: два чтения без записи между ними
+    List<Lead> snapshot = repository.findAll();
+
+    // Then: возвращается тот же неизменяемый снимок, без повторного копирования
+    assertThat(repository.findAll()).isSameAs(snapshot);
+    assertThatThrownBy(() -> snapshot.add(first)).isInstanceOf(UnsupportedOperationException.class);
+
+    // When: запись публикует новую версию
+    Lead second = Lead.builder().id(UUID.randomUUID()).email("b@x.com").build();
+    repository.save(second);
+
+    // Then: старый снимок не изменился, новый содержит запись
+    assertThat(snapshot).containsExactly(first);
+    assertThat(repository.findAll()).isNotSameAs(snapshot).containsExactly(first, second);
+  }
+
+  @Test
+  void shouldShareCompanyInstanceAndFilterByCompanyCode() {
+    // Given: одинаковые названия компании в разных экземплярах String
+    Lead first = lead("a@x.com", new String("Acme"));
+    Lead other = lead("b@x.com", "Globex");
+    Lead second = lead("c@x.com", new String("Acme"));
+    repository.save(first);
+    repository.save(other);
+    repository.save(second);
+
+    // When
+    List<Lead> acme = repository.findByCompany("Acme");
+
+    // Then: порядок добавления сохранён, оба лида ссылаются на один экземпляр строки
+    assertThat(acme).containsExactly(first, second);
+    assertThat(acme.get(0).company()).isSameAs(acme.get(1).company());
+    assertThat(repository.findByCompany("Initech")).isEmpty();
+    assertThat(repository.findByCompany(null)).isEmpty();
+  }
+
+  @Test
+  void shouldMoveLeadBetweenCompanyIndexesOnOverwriteAndDropItOnDelete() {
+    // Given
+    Lead first = lead("a@x.com", "Acme");
+    Lead second = lead("b@x.com", "Acme");
+    repository.save(first);
+    repository.save(second);
+
+    // When: первый лид переходит в другую компанию, второй удаляется
+    Lead moved =
+        new Lead(first.id(), first.name(), first.email(), first.phone(), "Globex", first.status());
+    repository.save(moved);
+    repository.deleteById(second.id());
+
+    // Then
+    assertThat(repository.findByCompany("Acme")).isEmpty();
+    assertThat(repository.findByCompany("Globex")).containsExactly(moved);
+  }
+
+  @Test
+  void shouldPageByCursorInInsertionOrderAndSkipDeletedLeads() {
+    // Given
+    List<Lead> leads = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Lead lead = lead("page" + i + "@x.com", "Acme");
+      leads.add(lead);
+      repository.save(lead);
+    }
+
+    // When: первая страница прочитана, затем удалён лид со следующей страницы
+    KeysetPage<Lead> first = repository.findPage(null, 2);
+    repository.deleteById(leads.get(2).id());
+    KeysetPage<Lead> second = repository.findPage(first.nextCursor(), 2);
+
+    // Then: удаление не сдвигает позицию курсора
+    assertThat(first.items()).containsExactly(leads.get(0), leads.get(1));
+    assertThat(second.items()).containsExactly(leads.get(3), leads.get(4));
+    assertThat(second.hasNext()).isFalse();
+    assertThatThrownBy(() -> repository.findPage("???", 2))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldStreamLeadsInInsertionOrderSequentiallyAndInParallel() {
+    // Given
+    List<Lead> leads = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      Lead lead = lead("stream" + i + "@x.com", "Acme");
+      leads.add(lead);
+      repository.save(lead);
+    }
+
+    // When / Then
+    assertThat(repository.stream().toList()).containsExactlyElementsOf(leads);
+    assertThat(repository.stream().parallel().map(Lead::id).toList())
+        .containsExactlyElementsOf(leads.stream().map(Lead::id).toList());
+  }
+
+  @Test
+  void shouldShareOneCompanyStringAcrossStoredLeads() {
+    // Given: у каждого лида своя копия названия компании
+    for (int i = 0; i < 20; i++) {
+      repository.save(lead("shared" + i + "@example.com", new String("Company " + (i % 2))));
+    }
+
+    // When
+    List<Lead> stored = repository.findAll();
+
+    // Then: лиды одной компании ссылаются на один экземпляр строки
+    Map<String, String> instances = new HashMap<>();
+    for (Lead lead : stored) {
+      String first = instances.putIfAbsent(lead.company(), lead.company());
+      if (first != null) {
+        assertThat(lead.company()).isSameAs(first);
+      }
+    }
+    assertThat(stored).hasSize(20);
+    assertThat(instances).hasSize(2);
+  }
+
+  /**
+   * Бенчмарк: как в TestDataUtils, десяток компаний на множество лидов. Замер по занятой куче после
+   * {@code System.gc()} приблизителен, поэтому результат только печатается; запуск — с {@code
+   * CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportBytesPerLeadBeforeAndAfterCompanyDictionary() {
+    int count = 100_000;
+    long baseline = usedHeap();
+    List<Lead> raw = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      raw.add(lead("lead" + i + "@example.com", "Company " + (i % 10)));
+    }
+    long rawBytes = usedHeap() - baseline;
+
+    for (Lead lead : raw) {
+      repository.save(lead);
+    }
+    List<Lead> stored = repository.findAll();
+    raw = null;
+    repository = new InMemoryLeadRepository();
+    long encodedBytes = usedHeap() - baseline;
+
+    System.out.printf(
+        "Lead bytes for %d leads: %d B/lead with per-lead company strings,"
+            + " %d B/lead with dictionary-encoded companies%n",
+        stored.size(), rawBytes / count, encodedBytes / count);
+  }
+
+  private static Lead lead(String email, String company) {
+    return new Lead(UUID.randomUUID(), "Name", email, "+7000", company, LeadStatus.NEW);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
 }
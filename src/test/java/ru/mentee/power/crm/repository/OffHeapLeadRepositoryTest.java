@@ -0,0 +1,310 @@
+package ru.mentee.power.crm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
+import ru.mentee.power.crm.spring.repository.InMemoryLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
+import ru.mentee.power.crm.spring.repository.LeadRepository;
+import ru.mentee.power.crm.spring.repository.OffHeapLeadRepository;
+
+class OffHeapLeadRepositoryTest {
+  private OffHeapLeadRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    repository = new OffHeapLeadRepository();
+  }
+
+  @AfterEach
+  void tearDown() {
+    repository.close();
+  }
+
+  @Test
+  void shouldRoundTripAllFieldsIncludingNullsAndUnicode() {
+    // Given
+    Lead full =
+        new Lead(UUID.randomUUID(), "Иван", "ivan@пример.рф", "+7900", "Рога", LeadStatus.NEW);
+    Lead sparse = new Lead(UUID.randomUUID(), null, null, null, null, null);
+
+    // When
+    repository.save(full);
+    repository.save(sparse);
+
+    // Then
+    assertThat(repository.findById(full.id())).contains(full);
+    assertThat(repository.findById(sparse.id())).contains(sparse);
+    assertThat(repository.findByEmail("ivan@пример.рф")).contains(full);
+    assertThat(repository.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldReindexEmailAndStatusOnOverwrite() {
+    // Given
+    Lead lead = lead("old@example.com", LeadStatus.NEW);
+    repository.save(lead);
+
+    // When
+    Lead updated =
+        new Lead(lead.id(), "Renamed", "new@example.com", "+7", "Acme", LeadStatus.CONTACTED);
+    repository.save(updated);
+
+    // Then
+    assertThat(repository.findByEmail("old@example.com")).isEmpty();
+    assertThat(repository.findByEmail("new@example.com")).contains(updated);
+    assertThat(repository.findByStatus(LeadStatus.NEW)).isEmpty();
+    assertThat(repository.findByStatus(LeadStatus.CONTACTED)).containsExactly(updated);
+    assertThat(repository.findAll()).containsExactly(updated);
+  }
+
+  @Test
+  void shouldRejectEmailOwnedByAnotherLeadAndReleaseItOnDelete() {
+    // Given
+    Lead owner = lead("taken@example.com", LeadStatus.NEW);
+    repository.save(owner);
+    Lead rival = lead("taken@example.com", LeadStatus.NEW);
+
+    // When / Then
+    assertThat(repository.saveIfEmailAbsent(rival)).isFalse();
+    repository.deleteById(owner.id());
+    assertThat(repository.findById(owner.id())).isEmpty();
+    assertThat(repository.saveIfEmailAbsent(rival)).isTrue();
+    assertThat(repository.findByEmail("taken@example.com")).contains(rival);
+  }
+
+  @Test
+  void shouldSearchCaseInsensitivelyInInsertionOrder() {
+    // Given
+    Lead first = new Lead(UUID.randomUUID(), "Anna", "a@acme.io", "+7", "ACME", LeadStatus.NEW);
+    Lead other = new Lead(UUID.randomUUID(), "Boris", "b@mail.io", "+7", "Other", LeadStatus.NEW);
+    Lead second = new Lead(UUID.randomUUID(), "Carl", "c@x.io", "+7", "acme labs", LeadStatus.LOST);
+    repository.save(first);
+    repository.save(other);
+    repository.save(second);
+
+    // When / Then
+    assertThat(repository.searchByText("Acme")).containsExactly(first, second);
+  }
+
+  @Test
+  void shouldFilterByDictionaryEncodedCompany() {
+    // Given
+    Lead first = new Lead(UUID.randomUUID(), "Anna", "a@x.io", "+7", "Acme", LeadStatus.NEW);
+    Lead other = new Lead(UUID.randomUUID(), "Boris", "b@x.io", "+7", "Globex", LeadStatus.NEW);
+    Lead second = new Lead(UUID.randomUUID(), "Carl", "c@x.io", "+7", "Acme", LeadStatus.LOST);
+    repository.save(first);
+    repository.save(other);
+    repository.save(second);
+
+    // When
+    repository.deleteById(first.id());
+
+    // Then
+    assertThat(repository.findByCompany("Acme")).containsExactly(second);
+    assertThat(repository.findByCompany("acme")).isEmpty();
+    assertThat(repository.findByCompany(null)).isEmpty();
+  }
+
+  @Test
+  void shouldPageBySlotCursorSkippingDeletedLeads() {
+    // Given
+    Lead[] leads = new Lead[5];
+    for (int i = 0; i < leads.length; i++) {
+      leads[i] = lead("page" + i + "@example.com", LeadStatus.NEW);
+      repository.save(leads[i]);
+    }
+    repository.deleteById(leads[1].id());
+
+    // When
+    KeysetPage<Lead> first = repository.findPage(null, 2);
+    KeysetPage<Lead> second = repository.findPage(first.nextCursor(), 2);
+
+    // Then
+    assertThat(first.items()).containsExactly(leads[0], leads[2]);
+    assertThat(second.items()).containsExactly(leads[3], leads[4]);
+    assertThat(second.nextCursor()).isNull();
+  }
+
+  @Test
+  void shouldStreamLiveLeadsAndSplitForParallelProcessing() {
+    // Given
+    int count = 10_000;
+    List<UUID> kept = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Lead lead = lead("stream" + i + "@example.com", LeadStatus.NEW);
+      repository.save(lead);
+      if (i % 3 == 0) {
+        repository.deleteById(lead.id());
+      } else {
+        kept.add(lead.id());
+      }
+    }
+
+    // When
+    Spliterator<Lead> spliterator = repository.stream().spliterator();
+
+    // Then
+    assertThat(spliterator.trySplit()).isNotNull();
+    assertThat(repository.stream().map(Lead::id).toList()).containsExactlyElementsOf(kept);
+    assertThat(repository.stream().parallel().map(Lead::id).toList())
+        .containsExactlyElementsOf(kept);
+  }
+
+  @Test
+  void shouldKeepDataConsistentWhenColumnsGrowAndStringHeapIsCompacted() {
+    // Given: больше лидов, чем начальная ёмкость, и многократные перезаписи одного лида
+    int count = 5_000;
+    UUID[] ids = new UUID[count];
+    for (int i = 0; i < count; i++) {
+      Lead lead = lead("lead" + i + "@example.com", LeadStatus.NEW);
+      ids[i] = lead.id();
+      repository.save(lead);
+    }
+    for (int i = 0; i < 20_000; i++) {
+      repository.save(
+          new Lead(ids[0], "Name " + i, "lead0@example.com", "+7", "Company", LeadStatus.NEW));
+    }
+
+    // When
+    for (int i = 1; i < count; i += 2) {
+      repository.deleteById(ids[i]);
+    }
+
+    // Then
+    assertThat(repository.size()).isEqualTo(count / 2);
+    assertThat(repository.findById(ids[0])).get().extracting(Lead::name).isEqualTo("Name 19999");
+    assertThat(repository.findByEmail("lead4998@example.com"))
+        .get()
+        .extracting(Lead::id)
+        .isEqualTo(ids[4998]);
+    assertThat(repository.findByEmail("lead4999@example.com")).isEmpty();
+    assertThat(repository.findByStatus(LeadStatus.NEW)).hasSize(count / 2);
+  }
+
+  @Test
+  void shouldCompactDeletedSlotsWithoutBreakingOrderCursorsOrOpenStreams() {
+    // Given: страница и поток открыты до массового удаления
+    int count = 20_000;
+    List<Lead> leads = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Lead lead = lead("compact" + i + "@example.com", LeadStatus.NEW);
+      leads.add(lead);
+      repository.save(lead);
+    }
+    long peakBytes = repository.offHeapBytes();
+    KeysetPage<Lead> first = repository.findPage(null, 10);
+    Spliterator<Lead> openStream = repository.stream().spliterator();
+    openStream.tryAdvance(lead -> {});
+
+    // When: удаляются все лиды, кроме каждого десятого
+    List<Lead> kept = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (i % 10 == 0) {
+        kept.add(leads.get(i));
+      } else {
+        repository.deleteById(leads.get(i).id());
+      }
+    }
+    Lead added = lead("after-compaction@example.com", LeadStatus.NEW);
+    repository.save(added);
+
+    // Then: колонки ужались, индексы и порядок вставки сохранились
+    assertThat(repository.offHeapBytes()).isLessThan(peakBytes / 2);
+    assertThat(repository.findAll()).containsExactlyElementsOf(append(kept, added));
+    assertThat(repository.findById(kept.get(500).id())).contains(kept.get(500));
+    assertThat(repository.findByEmail("compact19990@example.com")).contains(kept.getLast());
+    assertThat(repository.findByEmail("compact19991@example.com")).isEmpty();
+    assertThat(repository.findPage(first.nextCursor(), 2).items())
+        .containsExactly(kept.get(1), kept.get(2));
+    List<Lead> rest = new ArrayList<>();
+    openStream.forEachRemaining(rest::add);
+    assertThat(rest).containsExactlyElementsOf(kept.subList(1, kept.size()));
+  }
+
+  /**
+   * Бенчмарк: сколько памяти занимает один лид в каждом хранилище. Замер по занятой куче после
+   * {@code System.gc()} приблизителен, поэтому результат только печатается; запуск — с {@code
+   * CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportMemoryFootprintComparedToHeapRepository() {
+    int count = 100_000;
+    long heapRepository = measureHeap(InMemoryLeadRepository::new, count);
+    long offHeapRepositoryHeap = measureHeap(OffHeapLeadRepository::new, count);
+    long offHeapBytes;
+    try (OffHeapLeadRepository offHeap = new OffHeapLeadRepository()) {
+      fill(offHeap, count);
+      offHeapBytes = offHeap.offHeapBytes();
+    }
+
+    long offHeapTotal = offHeapRepositoryHeap + offHeapBytes;
+    System.out.printf(
+        "Lead footprint for %d leads: heap repository %d B/lead;"
+            + " off-heap repository %d B/lead (heap %d + off-heap %d)%n",
+        count,
+        heapRepository / count,
+        offHeapTotal / count,
+        offHeapRepositoryHeap / count,
+        offHeapBytes / count);
+  }
+
+  private static long measureHeap(Supplier<? extends LeadRepository> factory, int count) {
+    long before = usedHeap();
+    LeadRepository measured = factory.get();
+    fill(measured, count);
+    long after = usedHeap();
+    assertThat(measured.size()).isEqualTo(count);
+    if (measured instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return Math.max(0, after - before);
+  }
+
+  private static List<Lead> append(List<Lead> leads, Lead lead) {
+    List<Lead> result = new ArrayList<>(leads);
+    result.add(lead);
+    return result;
+  }
+
+  private static void fill(LeadRepository target, int count) {
+    LeadStatus[] statuses = LeadStatus.values();
+    for (int i = 0; i < count; i++) {
+      target.save(
+          new Lead(
+              UUID.randomUUID(),
+              "Lead " + i,
+              "lead" + i + "@example.com",
+              "+7900" + i,
+              "Company " + (i % 500),
+              statuses[i % statuses.length]));
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static Lead lead(String email, LeadStatus status) {
+    return new Lead(UUID.randomUUID(), "Name", email, "+7000", "Company", status);
+  }
+}
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -19,6 +20,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.mentee.power.crm.domain.Deal;
 import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealStatusSummary;
 import ru.mentee.power.crm.model.Lead;
 import ru.mentee.power.crm.model.LeadStatus;
 import ru.mentee.power.crm.spring.repository.DealRepository;
@@ -138,8 +140,9 @@ class DealServiceTest {
     Deal deal2 = new Deal(UUID.randomUUID(), leadId, BigDecimal.TEN, DealStatus.QUALIFIED, null);
     Deal deal3 = new Deal(UUID.randomUUID(), leadId, BigDecimal.TEN, DealStatus.NEW, null);
 
-    List<Deal> allDeals = List.of(deal1, deal2, deal3);
-    when(dealRepository.findAll()).thenReturn(allDeals);
+    when(dealRepository.findAllGroupedByStatus())
+        .thenReturn(
+            Map.of(DealStatus.NEW, List.of(deal1, deal3), DealStatus.QUALIFIED, List.of(deal2)));
 
     // When
     Map<DealStatus, List<Deal>> result = dealService.getDealsByStatusForKanban();
@@ -148,5 +151,20 @@ class DealServiceTest {
     assertThat(result).hasSize(2);
     assertThat(result.get(DealStatus.NEW)).hasSize(2);
     assertThat(result.get(DealStatus.QUALIFIED)).hasSize(1);
+    verify(dealRepository, never()).findAll();
+  }
+
+  @Test
+  void shouldReturnStatusSummaryFromRepositoryTotals() {
+    // Given
+    List<DealStatusSummary> summary =
+        List.of(new DealStatusSummary(DealStatus.NEW, 2, BigDecimal.valueOf(300)));
+    when(dealRepository.summarizeByStatus()).thenReturn(summary);
+
+    // When
+    List<DealStatusSummary> result = dealService.getStatusSummary();
+
+    // Then
+    assertThat(result).isEqualTo(summary);
   }
 }
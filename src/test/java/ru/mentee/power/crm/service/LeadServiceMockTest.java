@@ -42,8 +42,8 @@ class LeadServiceMockTest {
     // Given: Repository возвращает пустой Optional (email уникален)
     when(mockRepository.findByEmail(anyString())).thenReturn(Optional.empty());
 
-    // When: настраиваем save чтобы возвращал переданный Lead
-    when(mockRepository.save(any(Lead.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    // When: настраиваем атомарное сохранение, чтобы email был свободен
+    when(mockRepository.saveIfEmailAbsent(any(Lead.class))).thenReturn(true);
 
     // When: вызываем бизнес-метод
     Lead result =
@@ -57,7 +57,7 @@ class LeadServiceMockTest {
                 .build());
 
     // Then: проверяем что Repository.save() был вызван ровно 1 раз
-    verify(mockRepository, times(1)).save(any(Lead.class));
+    verify(mockRepository, times(1)).saveIfEmailAbsent(any(Lead.class));
 
     // Then: проверяем результат
     assertThat(result.email()).isEqualTo("new@example.com");
@@ -90,14 +90,14 @@ class LeadServiceMockTest {
         .isInstanceOf(IllegalStateException.class);
 
     // Then: save() НЕ должен быть вызван
-    verify(mockRepository, never()).save(any(Lead.class));
+    verify(mockRepository, never()).saveIfEmailAbsent(any(Lead.class));
   }
 
   @Test
   void shouldCallFindByEmail_beforeSave() {
     // Given
     when(mockRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-    when(mockRepository.save(any(Lead.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(mockRepository.saveIfEmailAbsent(any(Lead.class))).thenReturn(true);
 
     // When
     service.addLead(
@@ -112,6 +112,27 @@ class LeadServiceMockTest {
     // Then: проверяем порядок вызовов
     var inOrder = inOrder(mockRepository);
     inOrder.verify(mockRepository).findByEmail("test@example.com");
-    inOrder.verify(mockRepository).save(any(Lead.class));
+    inOrder.verify(mockRepository).saveIfEmailAbsent(any(Lead.class));
+  }
+
+  @Test
+  void shouldThrow_whenEmailReservedConcurrently() {
+    // Given: findByEmail не видит дубликат, но email занят параллельным запросом
+    when(mockRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+    when(mockRepository.saveIfEmailAbsent(any(Lead.class))).thenReturn(false);
+
+    // When/Then
+    assertThatThrownBy(
+            () ->
+                service.addLead(
+                    Lead.builder()
+                        .name("Test")
+                        .email("race@example.com")
+                        .phone("+71235")
+                        .company("Company")
+                        .status(LeadStatus.NEW)
+                        .build()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("race@example.com");
   }
 }
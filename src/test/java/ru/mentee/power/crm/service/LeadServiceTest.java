@@ -334,4 +334,22 @@ class LeadServiceTest {
     // Then
     assertThat(result).hasSize(10);
   }
+
+  @Test
+  void shouldFindLeadsByEmailSubstringIgnoringCase() {
+    // Given/When
+    List<Lead> result = service.findLeads("JOHN2@EXAMPLE", null);
+
+    // Then
+    assertThat(result).extracting(Lead::email).containsExactly("john2@example.com");
+  }
+
+  @Test
+  void shouldFindLeadsBySearchShorterThanTrigram() {
+    // Given/When: запрос короче трёх символов не покрывается индексом
+    List<Lead> result = service.findLeads("Bo", null);
+
+    // Then
+    assertThat(result).hasSize(2).allMatch(lead -> lead.name().equals("Bob"));
+  }
 }
@@ -0,0 +1,60 @@
+package ru.mentee.power.crm.spring.config;
+
+import org.assertj.core.api.AbstractAssert;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+
+/**
+ * Проверки числа SQL-запросов Hibernate в тестах, например {@code assertQueries(queryCounter, () ->
+ * mockMvc.perform(get("/jpa-leads"))).isAtMost(1)}. Считаются запросы текущего потока, поэтому
+ * MockMvc и вызовы сервисов подходят, а код в других потоках — нет.
+ */
+public final class QueryCountAssert extends AbstractAssert<QueryCountAssert, QueryCounter.Scope> {
+
+  private QueryCountAssert(QueryCounter.Scope scope) {
+    super(scope, QueryCountAssert.class);
+  }
+
+  /** Выполняет действие в новой области подсчёта и проверяет её после завершения. */
+  public static QueryCountAssert assertQueries(QueryCounter queryCounter, ThrowingCallable action) {
+    QueryCounter.Scope scope = queryCounter.open("test");
+    try {
+      action.call();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    } finally {
+      scope.close();
+    }
+    return new QueryCountAssert(scope);
+  }
+
+  /** Проверяет уже закрытую область, открытую через {@link QueryCounter#open}. */
+  public static QueryCountAssert assertQueries(QueryCounter.Scope scope) {
+    return new QueryCountAssert(scope);
+  }
+
+  public QueryCountAssert hasCount(int expected) {
+    isNotNull();
+    if (actual.count() != expected) {
+      failWithMessage("Expected %d SQL statements but was %s", expected, actual.describe());
+    }
+    return this;
+  }
+
+  public QueryCountAssert isAtMost(int max) {
+    isNotNull();
+    if (actual.count() > max) {
+      failWithMessage("Expected at most %d SQL statements but was %s", max, actual.describe());
+    }
+    return this;
+  }
+
+  public QueryCountAssert isAtLeast(int min) {
+    isNotNull();
+    if (actual.count() < min) {
+      failWithMessage("Expected at least %d SQL statements but was %s", min, actual.describe());
+    }
+    return this;
+  }
+}
@@ -0,0 +1,57 @@
+package ru.mentee.power.crm.spring.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import ru.mentee.power.crm.spring.exception.QueryCountExceededException;
+
+class QueryCounterTest {
+  private final QueryCounter queryCounter = new QueryCounter();
+
+  @Test
+  void shouldCountStatementsInAllOpenScopesOfCurrentThread() throws Exception {
+    // Given
+    QueryCounter.Scope request = queryCounter.open("GET /jpa-leads");
+    queryCounter.inspect("select l from leads");
+
+    // When: вложенная область, затем запрос из другого потока
+    try (QueryCounter.Scope transaction = queryCounter.open("tx")) {
+      queryCounter.inspect("select c from companies");
+      queryCounter.inspect("select c from companies");
+      assertThat(transaction.count()).isEqualTo(2);
+    }
+    Thread other = Thread.ofPlatform().start(() -> queryCounter.inspect("select 1"));
+    other.join();
+    queryCounter.inspect("select p from products");
+    request.close();
+    queryCounter.inspect("select after close");
+
+    // Then
+    assertThat(request.count()).isEqualTo(4);
+    assertThat(request.statements())
+        .containsEntry("select l from leads", 1)
+        .containsEntry("select c from companies", 2)
+        .doesNotContainKey("select 1");
+    assertThat(request.describe())
+        .isEqualTo(
+            "GET /jpa-leads: 4 SQL statements, most repeated 2 times: select c from companies");
+  }
+
+  @Test
+  void limitShouldFailOrPassDependingOnThreshold() {
+    // Given
+    QueryCounter.Scope scope = queryCounter.open("tx");
+    queryCounter.inspect("select 1");
+    queryCounter.inspect("select 1");
+    scope.close();
+
+    // When / Then
+    new QueryCountLimit(2, true).check(scope);
+    new QueryCountLimit(1, false).check(scope);
+    assertThatThrownBy(() -> new QueryCountLimit(1, true).check(scope))
+        .isInstanceOf(QueryCountExceededException.class)
+        .hasMessageContaining("tx: 2 SQL statements")
+        .hasMessageEndingWith("(threshold 1)");
+  }
+}
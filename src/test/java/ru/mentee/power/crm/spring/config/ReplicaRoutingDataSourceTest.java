@@ -0,0 +1,116 @@
+package ru.mentee.power.crm.spring.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Маршрутизация на двух базах H2: «основной» и «реплике» с разным содержимым. */
+class ReplicaRoutingDataSourceTest {
+  private static final String LAG_QUERY = "SELECT lag_seconds FROM replica_status";
+
+  private DataSource primary;
+  private DataSource replica;
+  private ReplicaRoutingDataSource replicas;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate readOnlyTransaction;
+  private TransactionTemplate writeTransaction;
+
+  @BeforeEach
+  void setUp() {
+    String suffix = UUID.randomUUID().toString();
+    primary = database("primary-" + suffix, "primary");
+    replica = database("replica-" + suffix, "replica");
+    new JdbcTemplate(replica).execute("CREATE TABLE replica_status (lag_seconds DOUBLE)");
+    new JdbcTemplate(replica).update("INSERT INTO replica_status VALUES (0.2)");
+  }
+
+  @AfterEach
+  void tearDown() {
+    replicas.close();
+  }
+
+  @Test
+  void shouldRouteReadOnlyTransactionsToReplicaAndWritesToPrimary() {
+    // Given
+    route(Map.of("replica-0", replica));
+
+    // When / Then
+    assertThat(readOnlyTransaction.execute(status -> source())).isEqualTo("replica");
+    assertThat(writeTransaction.execute(status -> source())).isEqualTo("primary");
+    assertThat(source()).isEqualTo("primary");
+    assertThat(replicas.lagSeconds("replica-0")).isEqualTo(0.2);
+  }
+
+  @Test
+  void shouldFallBackToPrimary_whenReplicaLagExceedsThreshold() {
+    // Given
+    route(Map.of("replica-0", replica));
+    new JdbcTemplate(replica).update("UPDATE replica_status SET lag_seconds = 30");
+
+    // When
+    replicas.refreshLag();
+
+    // Then
+    assertThat(readOnlyTransaction.execute(status -> source())).isEqualTo("primary");
+
+    // When: реплика догнала основную БД
+    new JdbcTemplate(replica).update("UPDATE replica_status SET lag_seconds = 0");
+    replicas.refreshLag();
+
+    // Then
+    assertThat(readOnlyTransaction.execute(status -> source())).isEqualTo("replica");
+  }
+
+  @Test
+  void shouldSkipUnavailableReplica() {
+    // Given: первая реплика не существует
+    Map<String, DataSource> targets = new LinkedHashMap<>();
+    targets.put("replica-0", new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE"));
+    targets.put("replica-1", replica);
+    route(targets);
+
+    // When / Then
+    assertThat(replicas.lagSeconds("replica-0")).isInfinite();
+    for (int i = 0; i < 4; i++) {
+      assertThat(readOnlyTransaction.execute(status -> source())).isEqualTo("replica");
+    }
+  }
+
+  private void route(Map<String, DataSource> targets) {
+    replicas =
+        new ReplicaRoutingDataSource(primary, targets, Duration.ofSeconds(1), null, LAG_QUERY);
+    replicas.refreshLag();
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+    dataSource.setReadOnlyDataSource(replicas);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    writeTransaction = new TransactionTemplate(transactionManager);
+    readOnlyTransaction = new TransactionTemplate(transactionManager);
+    readOnlyTransaction.setReadOnly(true);
+  }
+
+  private String source() {
+    return jdbcTemplate.queryForObject("SELECT name FROM source", String.class);
+  }
+
+  private static DataSource database(String name, String source) {
+    DataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE source (name VARCHAR(20))");
+    jdbcTemplate.update("INSERT INTO source VALUES (?)", source);
+    return dataSource;
+  }
+}
@@ -2,6 +2,7 @@ package ru.mentee.power.crm.spring.controller;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -18,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
 import ru.mentee.power.crm.spring.service.JpaCompanyService;
@@ -37,15 +39,11 @@ class JpaLeadControllerTest {
   @Test
   void shouldShowLeadsList() throws Exception {
     // Given
-    Lead lead =
-        Lead.builder()
-            .id(UUID.randomUUID())
-            .name("Test")
-            .email("test@example.com")
-            .status(StatusEnum.NEW)
-            .build();
+    LeadListItem lead =
+        new LeadListItem(
+            UUID.randomUUID(), "Test", "test@example.com", null, null, StatusEnum.NEW);
 
-    when(leadService.findLeads(null, null)).thenReturn(List.of(lead));
+    when(leadService.findLeadItems(null, null)).thenReturn(List.of(lead));
 
     // When & Then
     mockMvc
@@ -55,6 +53,27 @@ class JpaLeadControllerTest {
         .andExpect(model().attributeExists("leads"));
   }
 
+  @Test
+  void shouldReturnRankedSearchResultsAsJson() throws Exception {
+    // Given
+    LeadListItem lead =
+        new LeadListItem(
+            UUID.randomUUID(), "Test", "test@example.com", null, "Acme", StatusEnum.NEW);
+
+    when(leadService.searchLeadItems("test", StatusEnum.NEW, 10)).thenReturn(List.of(lead));
+
+    // When & Then
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.get("/jpa-leads/search")
+                .param("q", "test")
+                .param("status", "NEW")
+                .param("limit", "10"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].email").value("test@example.com"))
+        .andExpect(jsonPath("$[0].companyName").value("Acme"));
+  }
+
   @Test
   void shouldShowCreateForm() throws Exception {
     // When & Then
@@ -1,15 +1,24 @@
 package ru.mentee.power.crm.spring.controller;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+import static ru.mentee.power.crm.spring.config.QueryCountAssert.assertQueries;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.config.QueryCounter;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -17,6 +26,18 @@ class LeadControllerIntegrationTest {
 
   @Autowired private MockMvc mockMvc;
 
+  @Autowired private QueryCounter queryCounter;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private CompanyRepository companyRepository;
+
+  @AfterEach
+  void tearDown() {
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+  }
+
   @Test
   void shouldReturnLeadsPageWithStatus200() throws Exception {
     mockMvc
@@ -24,6 +45,33 @@ class LeadControllerIntegrationTest {
         .andExpect(status().isOk())
         .andExpect(view().name("leads/list"))
         .andExpect(content().contentType("text/html;charset=UTF-8"))
-        .andExpect(content().string(org.hamcrest.Matchers.containsString("@")));
+        .andExpect(content().string(containsString("@")));
+  }
+
+  @Test
+  void jpaLeadsPage_shouldLoadLeadsWithCompaniesInOneQuery() {
+    // Given: у каждого лида своя компания — при N+1 на Lead.company было бы 1 + 3 запроса
+    for (int i = 1; i <= 3; i++) {
+      Company company =
+          companyRepository.save(Company.builder().name("Query Count Company " + i).build());
+      leadRepository.save(
+          Lead.builder()
+              .name("Lead " + i)
+              .email("query-count-" + i + "@example.com")
+              .phone("+7900")
+              .company(company)
+              .status(StatusEnum.NEW)
+              .build());
+    }
+
+    // When / Then
+    assertQueries(
+            queryCounter,
+            () ->
+                mockMvc
+                    .perform(get("/jpa-leads"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(containsString("Query Count Company 3"))))
+        .isAtMost(1);
   }
 }
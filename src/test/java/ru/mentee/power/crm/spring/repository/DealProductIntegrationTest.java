@@ -1,21 +1,28 @@
 package ru.mentee.power.crm.spring.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static ru.mentee.power.crm.spring.config.QueryCountAssert.assertQueries;
 
 import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 import ru.mentee.power.crm.entity.Deal;
 import ru.mentee.power.crm.entity.DealProduct;
 import ru.mentee.power.crm.entity.Lead;
 import ru.mentee.power.crm.entity.Product;
+import ru.mentee.power.crm.spring.config.QueryCountConfig;
+import ru.mentee.power.crm.spring.config.QueryCounter;
+import ru.mentee.power.crm.spring.dto.DealListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 @DataJpaTest
+@Import(QueryCountConfig.class)
 class DealProductIntegrationTest {
 
   @Autowired private JpaDealRepository dealRepository;
@@ -26,6 +33,8 @@ class DealProductIntegrationTest {
 
   @Autowired private EntityManager entityManager;
 
+  @Autowired private QueryCounter queryCounter;
+
   @Test
   void testSaveDealWithProducts() {
     Lead lead =
@@ -179,6 +188,7 @@ class DealProductIntegrationTest {
     // Тест без @EntityGraph (проблема N+1)
     System.out.println("БЕЗ @EntityGraph (N+1 проблема)");
     entityManager.clear();
+    QueryCounter.Scope withoutGraphQueries = queryCounter.open("findById");
     Deal dealWithoutGraph = dealRepository.findById(savedDeal.getId()).orElseThrow();
 
     List<DealProduct> withoutGraph = dealWithoutGraph.getDealProducts();
@@ -189,9 +199,12 @@ class DealProductIntegrationTest {
           "  - " + dp.getProduct().getName() + " (SKU: " + dp.getProduct().getSku() + ")");
     }
 
+    withoutGraphQueries.close();
+
     // Тест с @EntityGraph (решение N+1)
     System.out.println("С @EntityGraph (1 запрос)");
     entityManager.clear();
+    QueryCounter.Scope withGraphQueries = queryCounter.open("findDealWithProducts");
     Deal dealWithGraph = dealRepository.findDealWithProducts(savedDeal.getId()).orElseThrow();
 
     List<DealProduct> withGraph = dealWithGraph.getDealProducts();
@@ -202,6 +215,11 @@ class DealProductIntegrationTest {
           "  - " + dp.getProduct().getName() + " (SKU: " + dp.getProduct().getSku() + ")");
     }
 
+    withGraphQueries.close();
+
+    // Без графа позиции догружаются отдельным запросом, с графом всё приходит одним
+    assertQueries(withoutGraphQueries).isAtLeast(2);
+    assertQueries(withGraphQueries).hasCount(1);
     assertThat(withGraph).hasSize(3);
     assertThat(withoutGraph).hasSize(3);
     assertThat(withGraph.stream().map(dp -> dp.getProduct().getSku()))
@@ -209,4 +227,45 @@ class DealProductIntegrationTest {
     assertThat(withoutGraph.stream().map(dp -> dp.getProduct().getSku()))
         .containsExactlyInAnyOrder("KEYBOARD-001", "MOUSE-001", "STAND-001");
   }
+
+  @Test
+  void findListItems_shouldReturnDisplayedColumnsWithoutManagedEntities() {
+    // Given
+    Lead lead =
+        leadRepository.save(
+            Lead.builder()
+                .name("Пётр Петров")
+                .email("petr@example.com")
+                .phone("+79990000000")
+                .status(StatusEnum.NEW)
+                .build());
+    Deal deal =
+        dealRepository.save(
+            Deal.builder()
+                .title("Поставка")
+                .amount(new BigDecimal("1500.00"))
+                .status(ru.mentee.power.crm.domain.DealStatus.NEW)
+                .leadId(lead.getId())
+                .build());
+    entityManager.flush();
+    entityManager.clear();
+
+    // When
+    QueryCounter.Scope queries = queryCounter.open("findListItems");
+    List<DealListItem> items = dealRepository.findListItems();
+    queries.close();
+
+    // Then
+    assertThat(items)
+        .singleElement()
+        .satisfies(
+            item -> {
+              assertThat(item.id()).isEqualTo(deal.getId());
+              assertThat(item.amount()).isEqualByComparingTo("1500.00");
+              assertThat(item.leadId()).isEqualTo(lead.getId());
+              assertThat(item.createdAt()).isNotNull();
+            });
+    assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    assertQueries(queries).hasCount(1);
+  }
 }
@@ -1,6 +1,7 @@
 package ru.mentee.power.crm.spring.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -16,6 +17,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
 import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 @DataJpaTest
@@ -65,7 +67,7 @@ class JpaLeadRepositoryTest {
   @Test
   void shouldSaveAndFindLeadById_whenValidData() {
     // Given
-    Company company = Company.builder().name("ACME Corp").build();
+    Company company = Company.builder().name("ACME Labs").build();
     companyRepository.save(company);
 
     Lead lead =
@@ -278,4 +280,85 @@ class JpaLeadRepositoryTest {
 
     assertThat(found).isEmpty();
   }
+
+  @Test
+  void searchRanked_shouldMatchCompanyNameAndRankPrefixMatchesFirst() {
+    // Given: у John совпадает только компания ACME Corp, у нового лида — начало имени
+    Lead buyer =
+        Lead.builder()
+            .name("Acme Buyer")
+            .email("buyer@shop.com")
+            .phone("789")
+            .company(companySecond)
+            .status(StatusEnum.NEW)
+            .build();
+    leadRepository.save(buyer);
+
+    // When
+    List<Lead> found = leadRepository.searchRanked("ACME", null, 10);
+
+    // Then
+    assertThat(found).extracting(Lead::getName).containsExactly("Acme Buyer", "John");
+  }
+
+  @Test
+  void searchRanked_shouldFilterByStatusAndLimitResults() {
+    assertThat(leadRepository.searchRanked("example", "CONTACTED", 10))
+        .extracting(Lead::getEmail)
+        .containsExactly("jane@example.com");
+    assertThat(leadRepository.searchRanked("example", null, 1)).hasSize(1);
+  }
+
+  @Test
+  void searchRanked_shouldTreatLikeWildcardsLiterally() {
+    // Given
+    Lead discount =
+        Lead.builder()
+            .name("Скидка 100%")
+            .email("sale_team@example.com")
+            .phone("100")
+            .status(StatusEnum.NEW)
+            .build();
+    leadRepository.save(discount);
+
+    // When & Then
+    assertThat(leadRepository.searchRanked("100%", null, 10))
+        .extracting(Lead::getEmail)
+        .containsExactly("sale_team@example.com");
+    assertThat(leadRepository.searchRanked("_team", null, 10)).hasSize(1);
+    assertThat(leadRepository.searchRanked("%", null, 10)).hasSize(1);
+  }
+
+  @Test
+  void findListItems_shouldJoinCompanyNameAndFilterByStatus() {
+    // When
+    List<LeadListItem> all = leadRepository.findListItems(null);
+    List<LeadListItem> contacted = leadRepository.findListItems(StatusEnum.CONTACTED);
+
+    // Then
+    assertThat(all)
+        .extracting(LeadListItem::name, LeadListItem::companyName)
+        .containsExactly(tuple("John", "ACME Corp"), tuple("Jane", "Tech Inc"));
+    assertThat(contacted).extracting(LeadListItem::email).containsExactly("jane@example.com");
+  }
+
+  @Test
+  void searchRankedItems_shouldReturnSameLeadsAsEntitySearch() {
+    // When
+    List<LeadListItem> items = leadRepository.searchRankedItems("example", null, 10);
+
+    // Then
+    assertThat(items)
+        .extracting(LeadListItem::id)
+        .containsExactlyElementsOf(
+            leadRepository.searchRanked("example", null, 10).stream().map(Lead::getId).toList());
+    assertThat(items)
+        .filteredOn(item -> item.name().equals("Jane"))
+        .singleElement()
+        .satisfies(
+            item -> {
+              assertThat(item.companyName()).isEqualTo("Tech Inc");
+              assertThat(item.status()).isEqualTo(StatusEnum.CONTACTED);
+            });
+  }
 }
@@ -0,0 +1,114 @@
+package ru.mentee.power.crm.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.mentee.power.crm.entity.Lead;
+
+/**
+ * Бенчмарк: старый поиск {@code findLeadsNative} против {@code searchRanked} на 1 млн лидов.
+ * Триграммные индексы есть только в PostgreSQL, поэтому тест запускается лишь при заданной
+ * переменной окружения {@code CRM_BENCH_DB_URL} с адресом отдельной пустой базы, например {@code
+ * jdbc:postgresql://localhost:5432/crm_bench}; логин и пароль берутся из {@code CRM_BENCH_DB_USER}
+ * и {@code CRM_BENCH_DB_PASSWORD}. Данные генерируются при первом запуске и остаются в базе.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "CRM_BENCH_DB_URL", matches = ".+")
+class LeadSearchBenchmarkTest {
+  private static final int LEADS = 1_000_000;
+  private static final int COMPANIES = 10_000;
+  private static final int ROUNDS = 5;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void benchDatabase(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", () -> System.getenv("CRM_BENCH_DB_URL"));
+    registry.add("spring.datasource.username", () -> env("CRM_BENCH_DB_USER", "postgres"));
+    registry.add("spring.datasource.password", () -> env("CRM_BENCH_DB_PASSWORD", "postgres"));
+    registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    registry.add("spring.jpa.show-sql", () -> "false");
+    registry.add("logging.level.org.hibernate.SQL", () -> "WARN");
+    registry.add("logging.level.org.hibernate.orm.jdbc.bind", () -> "WARN");
+  }
+
+  @BeforeEach
+  void generateLeads() {
+    Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM leads", Long.class);
+    if (existing != null && existing >= LEADS) {
+      return;
+    }
+    jdbcTemplate.update(
+        """
+        INSERT INTO companies (id, name)
+        SELECT gen_random_uuid(), 'Company ' || substr(md5('c' || g), 1, 10)
+        FROM generate_series(1, ?) g
+        """,
+        COMPANIES);
+    jdbcTemplate.update(
+        """
+        WITH c AS (SELECT array_agg(id) AS ids FROM companies)
+        INSERT INTO leads (id, name, email, phone, company_id, status, created_at)
+        SELECT gen_random_uuid(),
+               'Lead ' || substr(md5(g::text), 1, 12),
+               'lead' || g || '@mail' || (g % 997) || '.example',
+               '+7' || g,
+               c.ids[1 + g % array_length(c.ids, 1)],
+               (ARRAY['NEW', 'CONTACTED', 'QUALIFIED'])[1 + g % 3],
+               now() - g * interval '1 second'
+        FROM generate_series(1, ?) g, c
+        """,
+        LEADS);
+    jdbcTemplate.execute("ANALYZE companies");
+    jdbcTemplate.execute("ANALYZE leads");
+  }
+
+  @Test
+  void shouldReportSearchLatencyDropOnMillionLeads() {
+    String nameTerm =
+        jdbcTemplate.queryForObject("SELECT substr(md5('500000'), 3, 6)", String.class);
+    String companyTerm =
+        jdbcTemplate.queryForObject("SELECT substr(md5('c4242'), 1, 8)", String.class);
+    for (String term : List.of(nameTerm, "lead777777@", companyTerm)) {
+      List<Lead> legacy = leadRepository.findLeadsNative(term, null);
+      List<Lead> ranked = leadRepository.searchRanked(term, null, 200);
+
+      long legacyNs = bestOf(() -> leadRepository.findLeadsNative(term, null));
+      long rankedNs = bestOf(() -> leadRepository.searchRanked(term, null, 200));
+
+      System.out.printf(
+          "Lead search '%s' over %d leads: LIKE scan %d ms (%d rows), trigram %d ms (%d rows)%n",
+          term, LEADS, legacyNs / 1_000_000, legacy.size(), rankedNs / 1_000_000, ranked.size());
+      assertThat(legacy).isNotEmpty().hasSizeLessThanOrEqualTo(200);
+      assertThat(ranked)
+          .extracting(Lead::getId)
+          .containsAll(legacy.stream().map(Lead::getId).toList());
+    }
+  }
+
+  private static long bestOf(Supplier<List<Lead>> search) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < ROUNDS; i++) {
+      long started = System.nanoTime();
+      search.get();
+      best = Math.min(best, System.nanoTime() - started);
+    }
+    return best;
+  }
+
+  private static String env(String name, String defaultValue) {
+    String value = System.getenv(name);
+    return value != null ? value : defaultValue;
+  }
+}
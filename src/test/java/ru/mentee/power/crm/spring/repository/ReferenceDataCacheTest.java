@@ -0,0 +1,161 @@
+package ru.mentee.power.crm.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mentee.power.crm.entity.CacheRegions;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.entity.Product;
+import ru.mentee.power.crm.spring.service.JpaCompanyService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReferenceDataCacheTest {
+
+  @Autowired private JpaCompanyService companyService;
+
+  @Autowired private CompanyRepository companyRepository;
+
+  @Autowired private ProductJpaRepository productRepository;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Autowired private MeterBinder hibernateCacheMetrics;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    tearDown();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @AfterEach
+  void tearDown() {
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+    productRepository.deleteAllInBatch();
+    companyService.clearIdCache();
+  }
+
+  @Test
+  void shouldServeRepeatedCompanyLookupByNameFromQueryCache() {
+    // Given
+    companyRepository.save(Company.builder().name("Cached Corp").build());
+    companyRepository.findByName("Cached Corp");
+    statistics.clear();
+
+    // When
+    Company first = companyRepository.findByName("Cached Corp").orElseThrow();
+    long statementsAfterFirst = statistics.getPrepareStatementCount();
+    Company second = companyRepository.findByName("Cached Corp").orElseThrow();
+
+    // Then
+    assertThat(second.getId()).isEqualTo(first.getId());
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsAfterFirst);
+    assertThat(statistics.getQueryRegionStatistics(CacheRegions.COMPANY_QUERIES).getHitCount())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldResolveKnownCompanyNameWithoutDatabaseRoundTrip() {
+    // Given
+    Company created = companyService.findOrCreateByName("Known Corp");
+    statistics.clear();
+
+    // When: каждая отправка формы лида ищет компанию по названию заново
+    Company found = companyService.findOrCreateByName("  known   CORP ");
+
+    // Then: id взят из кэша сервиса, сама компания — из кэша второго уровня
+    assertThat(found.getId()).isEqualTo(created.getId());
+    assertThat(found.getName()).isEqualTo("Known Corp");
+    assertThat(statistics.getPrepareStatementCount()).isZero();
+  }
+
+  @Test
+  void shouldSeeCompanyCreatedByUpsertAfterCachedEmptyLookup() {
+    // Given: пустой результат поиска уже в кэше запросов
+    assertThat(companyRepository.findByName("Late Corp")).isEmpty();
+
+    // When: вставка идёт нативным запросом в обход Hibernate
+    Company company = companyService.findOrCreateByName("Late Corp");
+
+    // Then
+    assertThat(companyRepository.findByName("Late Corp"))
+        .get()
+        .extracting(Company::getId)
+        .isEqualTo(company.getId());
+  }
+
+  @Test
+  void shouldInvalidateCachedQueryWhenCompanyIsRenamed() {
+    // Given: результат запроса уже в кэше
+    Company company = companyService.findOrCreateByName("Old Name");
+    assertThat(companyRepository.findByName("Old Name")).isPresent();
+
+    // When
+    company.setName("New Name");
+    companyRepository.save(company);
+
+    // Then
+    assertThat(companyRepository.findByName("Old Name")).isEmpty();
+    assertThat(companyRepository.findByName("New Name"))
+        .get()
+        .extracting(Company::getId)
+        .isEqualTo(company.getId());
+  }
+
+  @Test
+  void shouldCacheProductsByIdAndSkuAndExposeHitRatio() {
+    // Given
+    Product product =
+        productRepository.save(
+            Product.builder()
+                .name("Кэшируемый продукт")
+                .sku("CACHE-001")
+                .price(new BigDecimal("10.00"))
+                .active(true)
+                .build());
+    productRepository.findBySku("CACHE-001");
+    statistics.clear();
+
+    // When
+    productRepository.findBySku("CACHE-001");
+    productRepository.findById(product.getId());
+    productRepository.findByActiveTrue();
+    productRepository.findByActiveTrue();
+
+    // Then
+    assertThat(statistics.getDomainDataRegionStatistics(CacheRegions.PRODUCT).getHitCount())
+        .isPositive();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    hibernateCacheMetrics.bindTo(registry);
+    assertThat(
+            registry
+                .get("crm.cache.hit.ratio")
+                .tag("region", CacheRegions.PRODUCT_QUERIES)
+                .gauge()
+                .value())
+        .isEqualTo(2.0 / 3);
+    assertThat(
+            registry
+                .get("crm.cache.requests")
+                .tags("region", CacheRegions.PRODUCT_QUERIES, "result", "miss")
+                .functionCounter()
+                .count())
+        .isEqualTo(1);
+  }
+}
@@ -0,0 +1,77 @@
+package ru.mentee.power.crm.spring.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+  @Test
+  void shouldReturnCandidatesContainingAllGramsInSequenceOrder() {
+    // Given: документы вставлены не по порядку номеров
+    TrigramIndex index = new TrigramIndex();
+    index.update(3, Set.of(), TrigramIndex.grams("Acme Corp"));
+    index.update(7, Set.of(), TrigramIndex.grams("Globex"));
+    index.update(1, Set.of(), TrigramIndex.grams("acme labs"));
+
+    // When / Then
+    assertThat(index.candidates("acme")).containsExactly(1, 3);
+    assertThat(index.candidates("globex")).containsExactly(7);
+    assertThat(index.candidates("initech")).isEmpty();
+  }
+
+  @Test
+  void shouldForgetRemovedGramsAndRestoreThemOnReindex() {
+    // Given
+    TrigramIndex index = new TrigramIndex();
+    Set<Long> acme = TrigramIndex.grams("Acme");
+    Set<Long> globex = TrigramIndex.grams("Globex");
+    index.update(1, Set.of(), acme);
+    index.update(2, Set.of(), acme);
+
+    // When: первый документ переименован, затем возвращён к прежнему названию
+    index.update(1, acme, globex);
+    assertThat(index.candidates("acme")).containsExactly(2);
+    index.update(1, globex, acme);
+
+    // Then
+    assertThat(index.candidates("acme")).containsExactly(1, 2);
+    assertThat(index.candidates("globex")).isEmpty();
+  }
+
+  @Test
+  void shouldKeepPostingsWithinTwoLongsPerEntryAfterMassRemoval() {
+    // Given: у всех документов есть общие триграммы, как у доменов email
+    TrigramIndex index = new TrigramIndex();
+    int count = 50_000;
+    long entries = 0;
+    for (int i = 1; i <= count; i++) {
+      Set<Long> grams = TrigramIndex.grams("lead" + i + "@example.com");
+      index.update(i, Set.of(), grams);
+      entries += grams.size();
+    }
+    long initialSlack = (long) index.grams() * 4 * Long.BYTES;
+
+    // Then: массивы растут удвоением — не больше двух long на вхождение плюс начальный запас
+    assertThat(index.postingBytes()).isLessThanOrEqualTo(2 * Long.BYTES * entries + initialSlack);
+
+    // When: удалены девять документов из десяти
+    long remaining = 0;
+    for (int i = 1; i <= count; i++) {
+      Set<Long> grams = TrigramIndex.grams("lead" + i + "@example.com");
+      if (i % 10 == 0) {
+        remaining += grams.size();
+      } else {
+        index.update(i, grams, Set.of());
+      }
+    }
+
+    // Then: надгробия пересобраны, и объём снова пропорционален живым вхождениям
+    long slack = (long) index.grams() * 4 * Long.BYTES;
+    assertThat(index.postingBytes()).isLessThanOrEqualTo(4 * Long.BYTES * remaining + slack);
+    assertThat(index.candidates("example.com")).hasSize(count / 10);
+    assertThat(index.candidates("lead20@")).contains(20);
+    assertThat(index.candidates("lead21@")).isEmpty();
+  }
+}
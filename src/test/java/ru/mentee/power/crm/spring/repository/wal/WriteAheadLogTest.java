@@ -0,0 +1,371 @@
+package ru.mentee.power.crm.spring.repository.wal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import ru.mentee.power.crm.domain.Deal;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.model.Lead;
+import ru.mentee.power.crm.model.LeadStatus;
+import ru.mentee.power.crm.spring.repository.InMemoryDealRepository;
+import ru.mentee.power.crm.spring.repository.InMemoryLeadRepository;
+
+class WriteAheadLogTest {
+
+  private static final Duration FLUSH_INTERVAL = Duration.ofMillis(5);
+
+  @TempDir Path dir;
+
+  @Test
+  void shouldRestoreLeadsAfterRestart() {
+    // Given: репозиторий с журналом, сохранены, обновлены и удалены лиды
+    Path file = dir.resolve("leads.wal");
+    Lead kept = lead("kept@example.com", LeadStatus.NEW);
+    Lead removed = lead("removed@example.com", LeadStatus.NEW);
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      InMemoryLeadRepository repository = new InMemoryLeadRepository(log);
+      repository.save(kept);
+      repository.save(removed);
+      repository.save(
+          new Lead(kept.id(), "Renamed", kept.email(), kept.phone(), kept.company(), null));
+      repository.deleteById(removed.id());
+    }
+
+    // When: «перезапуск» — новый репозиторий поверх того же файла
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      InMemoryLeadRepository restored = new InMemoryLeadRepository(log);
+
+      // Then
+      assertThat(restored.size()).isEqualTo(1);
+      assertThat(restored.findById(kept.id())).get().extracting(Lead::name).isEqualTo("Renamed");
+      assertThat(restored.findByEmail("removed@example.com")).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldRestoreDealTransitionsAfterRestart() {
+    // Given
+    Path file = dir.resolve("deals.wal");
+    Deal deal = new Deal(UUID.randomUUID(), new BigDecimal("150000.50"));
+    try (WriteAheadLog log = open(file, DurabilityMode.GROUP_COMMIT)) {
+      InMemoryDealRepository repository = new InMemoryDealRepository(log);
+      repository.save(deal);
+      deal.transitionTo(DealStatus.QUALIFIED);
+      repository.save(deal);
+    }
+
+    // When
+    try (WriteAheadLog log = open(file, DurabilityMode.GROUP_COMMIT)) {
+      InMemoryDealRepository restored = new InMemoryDealRepository(log);
+
+      // Then
+      assertThat(restored.findById(deal.getId()))
+          .get()
+          .satisfies(
+              found -> {
+                assertThat(found.getStatus()).isEqualTo(DealStatus.QUALIFIED);
+                assertThat(found.getAmount()).isEqualByComparingTo("150000.50");
+                assertThat(found.getCreatedAt()).isEqualTo(deal.getCreatedAt());
+              });
+    }
+  }
+
+  @Test
+  void shouldTruncateTornTailOnOpen() throws IOException {
+    // Given: две целые записи и «оборванный» кадр после сбоя
+    Path file = dir.resolve("torn.wal");
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      log.appendDurably(new byte[] {1, 2, 3});
+      log.appendDurably(new byte[] {4, 5});
+    }
+    Path segment = dir.resolve("torn.wal.1");
+    long validSize = Files.size(segment);
+    Files.write(segment, new byte[] {0, 0, 0, 42, 7}, StandardOpenOption.APPEND);
+
+    // When
+    List<Integer> lengths = new ArrayList<>();
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      log.replay(record -> lengths.add(record.remaining()));
+    }
+
+    // Then: хвост отброшен, целые записи сохранены
+    assertThat(lengths).containsExactly(3, 2);
+    assertThat(Files.size(segment)).isEqualTo(validSize);
+  }
+
+  @Test
+  void shouldMakeEveryConcurrentWriteDurableInGroupCommitMode() throws Exception {
+    // Given
+    Path file = dir.resolve("group.wal");
+    int writes;
+    try (WriteAheadLog log = open(file, DurabilityMode.GROUP_COMMIT)) {
+      // When
+      writes = runWriters(new InMemoryLeadRepository(log), 16, 200);
+    }
+
+    // Then: после переоткрытия видны все записи
+    List<ByteBuffer> records = new ArrayList<>();
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      log.replay(records::add);
+    }
+    assertThat(records).hasSize(writes);
+  }
+
+  /**
+   * Бенчмарк: устойчивая пропускная способность долговечных записей лидов, 16 писателей. Запуск —
+   * с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportSustainedWriteThroughputForEachMode() throws Exception {
+    for (DurabilityMode mode : DurabilityMode.values()) {
+      Path file = dir.resolve(mode.name().toLowerCase() + ".wal");
+      try (WriteAheadLog log = open(file, mode)) {
+        runWriters(new InMemoryLeadRepository(log), 16, 50); // прогрев
+        long start = System.nanoTime();
+        int writes = runWriters(new InMemoryLeadRepository(log), 16, 250);
+        long elapsedNs = System.nanoTime() - start;
+
+        double opsPerSecond = writes * 1_000_000_000.0 / elapsedNs;
+        System.out.printf(
+            "WAL %s: %d durable writes in %d ms -> %.0f ops/s%n",
+            mode, writes, elapsedNs / 1_000_000, opsPerSecond);
+        assertThat(opsPerSecond).isPositive();
+      }
+    }
+  }
+
+  @Test
+  void shouldRecoverFromSnapshotPlusTailAndDropCoveredSegments() throws IOException {
+    // Given: часть лидов попала в снимок, часть — только в хвост журнала
+    Path file = dir.resolve("leads.wal");
+    Lead beforeSnapshot = lead("before@example.com", LeadStatus.NEW);
+    Lead afterSnapshot = lead("after@example.com", LeadStatus.CONTACTED);
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      InMemoryLeadRepository repository = new InMemoryLeadRepository(log);
+      repository.save(beforeSnapshot);
+      repository.save(lead("deleted@example.com", LeadStatus.NEW));
+      log.checkpoint(repository);
+      repository.save(afterSnapshot);
+      repository.deleteById(repository.findByEmail("deleted@example.com").orElseThrow().id());
+    }
+
+    // Then: первый сегмент удалён, остались снимок и хвост
+    assertThat(dir.resolve("leads.wal.1")).doesNotExist();
+    assertThat(dir.resolve("leads.wal.snapshot")).exists();
+
+    // When
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      InMemoryLeadRepository restored = new InMemoryLeadRepository(log);
+
+      // Then
+      assertThat(restored.findAll()).containsExactly(beforeSnapshot, afterSnapshot);
+    }
+  }
+
+  @Test
+  void shouldNotLoseWritesWhenCheckpointRunsConcurrently() throws Exception {
+    // Given: писатели работают, пока фоновый поток делает контрольные точки
+    Path file = dir.resolve("concurrent.wal");
+    int writes;
+    try (WriteAheadLog log = open(file, DurabilityMode.GROUP_COMMIT)) {
+      InMemoryLeadRepository repository = new InMemoryLeadRepository(log);
+      log.scheduleCheckpoints(repository, Duration.ofMillis(2));
+
+      // When
+      writes = runWriters(repository, 8, 300);
+      log.checkpoint(repository);
+    }
+
+    // Then: после восстановления видны все записи
+    try (WriteAheadLog log = open(file, DurabilityMode.SYNC)) {
+      assertThat(new InMemoryLeadRepository(log).size()).isEqualTo(writes);
+    }
+  }
+
+  @Test
+  void shouldFailWaitingWritersWhenBackgroundFsyncFails() throws Exception {
+    // Given: диск, на котором fsync всегда завершается ошибкой
+    Path file = dir.resolve("failing.wal");
+    WriteAheadLog log =
+        WriteAheadLog.open(
+            file, DurabilityMode.GROUP_COMMIT, FLUSH_INTERVAL, FailingForceChannel::new);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      // When: несколько писателей ждут фонового fsync
+      List<Future<?>> writers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        writers.add(executor.submit(() -> log.appendDurably(new byte[] {1, 2, 3})));
+      }
+
+      // Then: каждый получает ошибку вместо вечного ожидания, и следующие записи тоже
+      for (Future<?> writer : writers) {
+        assertThatThrownBy(() -> writer.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOf(UncheckedIOException.class)
+            .hasRootCauseMessage("fsync failed");
+      }
+      assertThatThrownBy(() -> log.appendDurably(new byte[] {4}))
+          .isInstanceOf(UncheckedIOException.class);
+    } finally {
+      executor.shutdownNow();
+      assertThatThrownBy(log::close).isInstanceOf(UncheckedIOException.class);
+    }
+  }
+
+  private static int runWriters(
+      InMemoryLeadRepository repository, int threads, int writesPerThread) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < writesPerThread; i++) {
+                  repository.save(lead(UUID.randomUUID() + "@example.com", LeadStatus.NEW));
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    return threads * writesPerThread;
+  }
+
+  private static WriteAheadLog open(Path file, DurabilityMode mode) {
+    return WriteAheadLog.open(file, mode, FLUSH_INTERVAL);
+  }
+
+  private static Lead lead(String email, LeadStatus status) {
+    return new Lead(UUID.randomUUID(), "Name", email, "+7000", "Company", status);
+  }
+
+  /** Канал сегмента, у которого пишет и читает настоящий файл, а fsync всегда падает. */
+  private static final class FailingForceChannel extends FileChannel {
+    private final FileChannel delegate;
+
+    FailingForceChannel(FileChannel delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+      throw new IOException("fsync failed");
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return delegate.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      return delegate.read(dsts, offset, length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return delegate.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return delegate.write(srcs, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+      return delegate.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+      delegate.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+      return delegate.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+      delegate.truncate(size);
+      return this;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+        throws IOException {
+      return delegate.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+        throws IOException {
+      return delegate.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      return delegate.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+      return delegate.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+      return delegate.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+      return delegate.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+      return delegate.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+      delegate.close();
+    }
+  }
+}
@@ -33,6 +33,7 @@ import ru.mentee.power.crm.spring.dto.generated.LeadResponse;
 import ru.mentee.power.crm.spring.dto.generated.UpdateLeadRequest;
 import ru.mentee.power.crm.spring.exception.EntityNotFoundException;
 import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 import ru.mentee.power.crm.spring.service.JpaLeadService;
 import ru.mentee.power.crm.spring.service.LeadRestServiceAdapter;
 
@@ -77,12 +78,14 @@ class LeadRestControllerTest {
             StatusEnum.CONTACTED,
             now);
 
-    when(leadRestServiceAdapter.findAllLeads()).thenReturn(List.of(responseFirst, responseSecond));
+    when(leadRestServiceAdapter.findLeadsPage(null, 50))
+        .thenReturn(new KeysetPage<>(List.of(responseFirst, responseSecond), null));
 
     mockMvc
         .perform(get("/api/leads"))
         .andExpect(status().isOk())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(header().doesNotExist("X-Next-Cursor"))
         .andExpect(jsonPath("$", hasSize(2)))
         .andExpect(jsonPath("$[0].id").value(leadFirstId.toString()))
         .andExpect(jsonPath("$[0].name").value("Иван Иванов"))
@@ -94,6 +97,28 @@ class LeadRestControllerTest {
         .andExpect(jsonPath("$[1].status").value("CONTACTED"));
   }
 
+  @Test
+  @DisplayName("Должен передать курсор и лимит и вернуть курсор следующей страницы в заголовке")
+  void shouldReturnNextCursorHeader_whenMorePagesExist() throws Exception {
+    LeadResponse response =
+        new LeadResponse(
+            UUID.randomUUID(),
+            "Иван Иванов",
+            "ivan@example.com",
+            "+79991234567",
+            UUID.randomUUID(),
+            StatusEnum.NEW,
+            OffsetDateTime.now());
+    when(leadRestServiceAdapter.findLeadsPage("abc", 1))
+        .thenReturn(new KeysetPage<>(List.of(response), "def"));
+
+    mockMvc
+        .perform(get("/api/leads").param("cursor", "abc").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Next-Cursor", "def"))
+        .andExpect(jsonPath("$", hasSize(1)));
+  }
+
   @Test
   @DisplayName("Должен вернуть 200 OK с лидом по ID")
   void shouldReturn200_whenGetLeadById() throws Exception {
@@ -0,0 +1,192 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.entity.Deal;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadImportReport;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.JpaDealRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkExportServiceTest {
+
+  @Autowired private BulkExportService exportService;
+
+  @Autowired private LeadImportService importService;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private JpaDealRepository dealRepository;
+
+  @Autowired private CompanyRepository companyRepository;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  private Company company;
+
+  private Lead first;
+
+  @BeforeEach
+  void setUp() {
+    tearDown();
+    company = companyRepository.save(Company.builder().name("Export Company").build());
+    first = saveLead("Петров, \"Иван\"", "ivan@example.com", company);
+    Lead second = saveLead("Анна", "anna@example.com", null);
+    dealRepository.save(
+        Deal.builder()
+            .leadId(second.getId())
+            .title("Поставка")
+            .amount(new BigDecimal("1500.50"))
+            .status(DealStatus.QUALIFIED)
+            .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    dealRepository.deleteAllInBatch();
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+  }
+
+  @Test
+  void shouldExportLeadsAsCsvReadableByImport() throws IOException {
+    // Given
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // When
+    long exported = exportService.exportLeads(output, BulkFormat.CSV);
+
+    // Then: значение с запятой и кавычками экранировано, у лида без компании companyId пуст
+    String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+    assertThat(exported).isEqualTo(2);
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0]).isEqualTo("id,name,email,phone,companyId,status,createdAt,updatedAt");
+    assertThat(lines)
+        .anySatisfy(
+            line ->
+                assertThat(line)
+                    .startsWith(first.getId() + ",\"Петров, \"\"Иван\"\"\",ivan@example.com,")
+                    .contains("," + company.getId() + ",NEW,"))
+        .anySatisfy(line -> assertThat(line).contains(",anna@example.com,+7900,,NEW,"));
+
+    // And: выгрузку можно загрузить обратно; существующие email импорт отклоняет
+    LeadImportReport report =
+        importService.importLeads(
+            new ByteArrayInputStream(output.toByteArray()), BulkFormat.CSV);
+    assertThat(report.processed()).isEqualTo(2);
+    assertThat(report.failed()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldExportDealsAsNdjson() throws IOException {
+    // Given
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // When
+    long exported = exportService.exportDeals(output, BulkFormat.NDJSON);
+
+    // Then
+    String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(exported).isEqualTo(1);
+    assertThat(lines).hasSize(1);
+    JsonNode deal = objectMapper.readTree(lines[0]);
+    assertThat(deal.get("title").asText()).isEqualTo("Поставка");
+    assertThat(deal.get("amount").decimalValue()).isEqualByComparingTo("1500.50");
+    assertThat(deal.get("status").asText()).isEqualTo("QUALIFIED");
+    assertThat(deal.get("leadId").asText()).isNotBlank();
+  }
+
+  @Test
+  void shouldRejectUnknownFormatName() {
+    assertThatThrownBy(() -> BulkFormat.fromName("xlsx"))
+        .isInstanceOf(BadRequestException.class)
+        .hasMessageContaining("xlsx");
+  }
+
+  /**
+   * Бенчмарк: выгрузка в поток, который только считает байты. Запуск — с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportStreamingExportThroughput() throws IOException {
+    int count = 10_000;
+    List<Lead> batch = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      batch.add(
+          Lead.builder()
+              .name("Lead " + i)
+              .email("export" + i + "@example.com")
+              .phone("+7" + i)
+              .company(company)
+              .status(StatusEnum.NEW)
+              .build());
+      if (batch.size() == 1_000) {
+        leadRepository.saveAll(batch);
+        batch.clear();
+      }
+    }
+    CountingOutputStream output = new CountingOutputStream();
+
+    // When
+    long started = System.nanoTime();
+    long exported = exportService.exportLeads(output, BulkFormat.NDJSON);
+    long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+
+    // Then
+    System.out.printf(
+        "Lead export of %d rows: %d ms (%d rows/s), %d KB written%n",
+        exported, elapsedMs, exported * 1_000 / elapsedMs, output.bytes / 1024);
+    assertThat(exported).isEqualTo(count + 2L);
+  }
+
+  private Lead saveLead(String name, String email, Company company) {
+    return leadRepository.save(
+        Lead.builder()
+            .name(name)
+            .email(email)
+            .phone("+7900")
+            .company(company)
+            .status(StatusEnum.NEW)
+            .build());
+  }
+
+  /** Поток, который не хранит данные, а только считает записанные байты. */
+  private static final class CountingOutputStream extends OutputStream {
+    private long bytes;
+
+    @Override
+    public void write(int b) {
+      bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      bytes += len;
+    }
+  }
+}
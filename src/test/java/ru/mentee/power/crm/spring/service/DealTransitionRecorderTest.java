@@ -0,0 +1,177 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.jayway.jsonpath.JsonPath;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.domain.DealTransition;
+import ru.mentee.power.crm.entity.Deal;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.CreateDealRequest;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+import ru.mentee.power.crm.spring.repository.DealRepository;
+import ru.mentee.power.crm.spring.repository.DealTransitionLog;
+import ru.mentee.power.crm.spring.repository.JpaDealRepository;
+import ru.mentee.power.crm.spring.repository.JpaDealTransitionRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DealTransitionRecorderTest {
+
+  @Autowired private JpaLeadService leadService;
+
+  @Autowired private JpaDealService dealService;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private JpaDealRepository dealRepository;
+
+  @Autowired private JpaDealTransitionRepository transitionRepository;
+
+  @Autowired private DealTransitionRecorder transitionRecorder;
+
+  @Autowired private DealRepository inMemoryDealRepository;
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private DealTransitionLog transitionLog;
+
+  @BeforeEach
+  void setUp() {
+    transitionLog = transitionRecorder.transitionLog();
+  }
+
+  @AfterEach
+  void tearDown() {
+    dealRepository.deleteAllInBatch();
+    leadRepository.deleteAllInBatch();
+  }
+
+  @Test
+  void shouldRecordDealHistoryFromConversionAndReplayItAfterRestart() {
+    // Given: сделка создана конвертацией лида и один раз сменила статус
+    UUID dealId = convertQualifiedLead("history@example.com", "1500.00");
+    dealService.transitionDealStatus(dealId, DealStatus.QUALIFIED);
+
+    // Then: в журнале есть и появление сделки, и смена статуса
+    List<DealTransition> recorded = transitionsOf(transitionLog, dealId);
+    assertThat(recorded)
+        .extracting(DealTransition::from, DealTransition::to)
+        .containsExactly(tuple(null, DealStatus.NEW), tuple(DealStatus.NEW, DealStatus.QUALIFIED));
+    assertThat(recorded.getFirst().amount()).isEqualByComparingTo("1500");
+
+    // When: «перезапуск» — пустой журнал заполняется из таблицы deal_transitions
+    DealTransitionLog restarted = new DealTransitionLog(2, Clock.systemUTC());
+    new DealTransitionRecorder(restarted, transitionRepository, transactionManager).replay();
+
+    // Then: история сделки восстановлена без потерь и в том же порядке
+    assertThat(transitionsOf(restarted, dealId))
+        .usingRecursiveFieldByFieldElementComparatorIgnoringFields("amount")
+        .containsExactlyElementsOf(recorded);
+  }
+
+  @Test
+  void shouldNotRecordRolledBackConversion() {
+    // Given: сумма не задана — вставка сделки нарушит NOT NULL и транзакция откатится
+    Lead lead = saveQualifiedLead("rollback@example.com");
+    long persisted = transitionRepository.count();
+    long logged = transitionLog.size();
+    CreateDealRequest request = new CreateDealRequest();
+    request.setTitle("Broken Deal");
+
+    // When
+    try {
+      leadService.convertLeadToDeal(lead.getId(), request);
+    } catch (RuntimeException _) {
+      // ожидаемый откат
+    }
+
+    // Then
+    assertThat(transitionRepository.count()).isEqualTo(persisted);
+    assertThat(transitionLog.size()).isEqualTo(logged);
+  }
+
+  @Test
+  void shouldKeepInMemoryAndJpaPipelinesSeparate() throws Exception {
+    // Given
+    long inMemoryCreated = createdDeals("/deals/pipeline");
+    long jpaCreated = createdDeals("/jpa-deals/pipeline");
+
+    // When: по одной новой сделке в каждом стеке
+    inMemoryDealRepository.save(
+        new ru.mentee.power.crm.domain.Deal(UUID.randomUUID(), new BigDecimal("700")));
+    convertQualifiedLead("separate@example.com", "900.00");
+
+    // Then: каждая воронка видит только сделку своего стека
+    assertThat(createdDeals("/deals/pipeline")).isEqualTo(inMemoryCreated + 1);
+    assertThat(createdDeals("/jpa-deals/pipeline")).isEqualTo(jpaCreated + 1);
+  }
+
+  /** Число сделок, когда-либо входивших в стадию NEW, по ответу JSON-эндпоинта воронки. */
+  private long createdDeals(String pipelineUrl) throws Exception {
+    String json =
+        mockMvc
+            .perform(get(pipelineUrl))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    assertThat(JsonPath.<String>read(json, "$[0].status")).isEqualTo("NEW");
+    return JsonPath.<Number>read(json, "$[0].reached").longValue();
+  }
+
+  private UUID convertQualifiedLead(String email, String amount) {
+    Lead lead = saveQualifiedLead(email);
+    CreateDealRequest request = new CreateDealRequest();
+    request.setTitle("History Deal");
+    request.setAmount(new BigDecimal(amount));
+    leadService.convertLeadToDeal(lead.getId(), request);
+    return dealRepository.findAll().stream()
+        .filter(deal -> lead.getId().equals(deal.getLeadId()))
+        .map(Deal::getId)
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private Lead saveQualifiedLead(String email) {
+    return leadRepository.save(
+        Lead.builder()
+            .name("History Lead")
+            .email(email)
+            .phone("+7900")
+            .status(StatusEnum.QUALIFIED)
+            .build());
+  }
+
+  private static List<DealTransition> transitionsOf(DealTransitionLog log, UUID dealId) {
+    List<DealTransition> transitions = new ArrayList<>();
+    log.replay(
+        event -> {
+          if (event.dealId().equals(dealId)) {
+            transitions.add(event);
+          }
+        });
+    return transitions;
+  }
+}
@@ -0,0 +1,155 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class EmailBloomFilterTest {
+
+  @Test
+  void shouldAnswerMaybePresentForEverythingUntilWarmedUp() {
+    // Given
+    EmailBloomFilter filter = new EmailBloomFilter(1_000, 0.01);
+    AtomicInteger queries = new AtomicInteger();
+
+    // When
+    Optional<String> found =
+        filter.findIfMightContain(
+            "new@example.com",
+            email -> {
+              queries.incrementAndGet();
+              return Optional.empty();
+            });
+
+    // Then: без прогрева каждый вызов идёт в БД и не попадает в статистику
+    assertThat(found).isEmpty();
+    assertThat(queries).hasValue(1);
+    assertThat(filter.mightContain("new@example.com")).isTrue();
+    assertThat(filter.stats()).isEqualTo(new EmailBloomFilter.Stats(0, 0, 0));
+  }
+
+  @Test
+  void shouldNeverMissAddedEmailAndStayNearTargetFalsePositiveRate() {
+    // Given
+    int count = 100_000;
+    EmailBloomFilter filter = new EmailBloomFilter(count, 0.01);
+    filter.rebuild(count / 2, emails("warm", count / 2));
+    emails("added", count / 2).forEach(filter::add);
+
+    // When
+    long falsePositives =
+        IntStream.range(0, count).filter(i -> filter.mightContain("absent" + i + "@x.io")).count();
+
+    // Then
+    assertThat(emails("warm", count / 2)).allMatch(filter::mightContain);
+    assertThat(emails("added", count / 2)).allMatch(filter::mightContain);
+    assertThat((double) falsePositives / count).isLessThan(0.02);
+  }
+
+  @Test
+  void shouldCountSkippedLookupsAndFalsePositives() {
+    // Given
+    EmailBloomFilter filter = new EmailBloomFilter(1_000, 0.01);
+    filter.rebuild(1, Stream.of("known@example.com"));
+
+    // When
+    Optional<String> known =
+        filter.findIfMightContain("known@example.com", email -> Optional.of("lead"));
+    Optional<String> deleted =
+        filter.findIfMightContain("known@example.com", email -> Optional.empty());
+    Optional<String> fresh =
+        filter.findIfMightContain(
+            "fresh@example.com",
+            email -> {
+              throw new AssertionError("database must not be queried");
+            });
+
+    // Then
+    assertThat(known).contains("lead");
+    assertThat(deleted).isEmpty();
+    assertThat(fresh).isEmpty();
+    EmailBloomFilter.Stats stats = filter.stats();
+    assertThat(stats).isEqualTo(new EmailBloomFilter.Stats(1, 2, 1));
+    assertThat(stats.hitRatio()).isEqualTo(1.0 / 3);
+    assertThat(stats.falsePositiveRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  void shouldKeepConcurrentAdditionsAcrossRebuild() throws Exception {
+    // Given: писатели добавляют email, пока фильтр пересобирается по «БД»
+    EmailBloomFilter filter = new EmailBloomFilter(10_000, 0.01);
+    filter.rebuild(0, Stream.empty());
+    int threads = 8;
+    int perThread = 5_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      String prefix = "writer" + t + "-";
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                emails(prefix, perThread).forEach(filter::add);
+                return null;
+              }));
+    }
+
+    // When
+    start.countDown();
+    filter.rebuild(200_000, emails("db", 200_000));
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then
+    for (int t = 0; t < threads; t++) {
+      assertThat(emails("writer" + t + "-", perThread)).allMatch(filter::mightContain);
+    }
+    assertThat(emails("db", 200_000)).allMatch(filter::mightContain);
+  }
+
+  @Test
+  void shouldRequestRebuildWhenMostEntriesAreStaleOrCapacityIsExceeded() {
+    // Given
+    int stale = (int) EmailBloomFilter.MIN_STALE_FOR_REBUILD;
+    EmailBloomFilter filter = new EmailBloomFilter(stale * 4L, 0.01);
+    filter.rebuild(stale, emails("lead", stale));
+    assertThat(filter.needsRebuild()).isFalse();
+
+    // When: удалены все лиды
+    for (int i = 0; i < stale; i++) {
+      filter.markStale();
+    }
+
+    // Then
+    assertThat(filter.needsRebuild()).isTrue();
+    filter.rebuild(0, Stream.empty());
+    assertThat(filter.needsRebuild()).isFalse();
+    assertThat(filter.mightContain("lead0@example.com")).isTrue(); // прежнее поколение ещё в силе
+    filter.rebuild(0, Stream.empty());
+    assertThat(filter.mightContain("lead0@example.com")).isFalse();
+
+    // When: добавлено больше email, чем рассчитан фильтр
+    emails("overflow", stale * 8).forEach(filter::add);
+
+    // Then
+    assertThat(filter.needsRebuild()).isTrue();
+  }
+
+  private static Stream<String> emails(String prefix, int count) {
+    return IntStream.range(0, count).mapToObj(i -> prefix + i + "@example.com");
+  }
+}
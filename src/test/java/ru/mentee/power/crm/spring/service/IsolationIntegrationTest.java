@@ -49,7 +49,7 @@ class IsolationIntegrationTest {
             .name("Test Lead")
             .email("test@example.com")
             .phone("123")
-            .company(Company.builder().name("Test").build())
+            .company(Company.builder().name("Isolation Company").build())
             .status(StatusEnum.NEW)
             .build();
     return leadRepository.save(lead);
@@ -0,0 +1,111 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JpaCompanyServiceTest {
+  private static final int THREADS = 8;
+
+  @Autowired private JpaCompanyService companyService;
+
+  @Autowired private CompanyRepository companyRepository;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    tearDown();
+  }
+
+  @AfterEach
+  void tearDown() {
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+    companyService.clearIdCache();
+  }
+
+  @Test
+  void shouldReturnSameCompanyForNamesDifferingInCaseAndSpaces() {
+    // Given
+    UUID id = companyService.findOrCreateByName("Acme  Corp").getId();
+
+    // When
+    companyService.clearIdCache();
+    UUID sameId = companyService.findOrCreateByName(" ACME corp ").getId();
+
+    // Then: вторая вставка не создала дубликат, название осталось от первой
+    assertThat(sameId).isEqualTo(id);
+    assertThat(companyRepository.findAll())
+        .singleElement()
+        .satisfies(
+            company -> {
+              assertThat(company.getName()).isEqualTo("Acme  Corp");
+              assertThat(company.getNameKey()).isEqualTo("acme corp");
+            });
+  }
+
+  @Test
+  void shouldCreateSingleCompany_whenRacingInsideCallerTransactions() throws Exception {
+    // Given
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    List<Future<UUID>> tasks = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      tasks.add(
+          executor.submit(
+              () -> {
+                startLatch.await();
+                // Как в контроллере: создание внутри транзакции вызывающего
+                return transactionTemplate.execute(
+                    status -> companyService.findOrCreateByName("Race Corp").getId());
+              }));
+    }
+
+    // When
+    startLatch.countDown();
+    List<UUID> ids = new ArrayList<>();
+    for (Future<UUID> task : tasks) {
+      ids.add(task.get(10, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+
+    // Then
+    assertThat(ids).containsOnly(ids.getFirst());
+    assertThat(companyRepository.findAll())
+        .extracting(Company::getId)
+        .containsExactly(ids.getFirst());
+  }
+
+  @Test
+  void shouldRejectBlankName() {
+    assertThatThrownBy(() -> companyService.findOrCreateByName("   "))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
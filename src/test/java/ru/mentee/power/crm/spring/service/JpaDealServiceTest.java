@@ -0,0 +1,151 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mentee.power.crm.domain.DealStatus;
+import ru.mentee.power.crm.entity.Deal;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.DealListItem;
+import ru.mentee.power.crm.spring.dto.KanbanColumn;
+import ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+import ru.mentee.power.crm.spring.repository.JpaDealRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class JpaDealServiceTest {
+  private static final OffsetDateTime START =
+      OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+  @Autowired private JpaDealService dealService;
+
+  @Autowired private JpaDealRepository dealRepository;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  private Lead lead;
+
+  @BeforeEach
+  void setUp() {
+    tearDown();
+    lead =
+        leadRepository.save(
+            Lead.builder()
+                .name("Kanban Lead")
+                .email("kanban@example.com")
+                .phone("+7900")
+                .status(StatusEnum.NEW)
+                .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    dealRepository.deleteAllInBatch();
+    leadRepository.deleteAllInBatch();
+  }
+
+  @Test
+  void getKanbanBoard_shouldSummarizeEveryStatusAndLimitCards() {
+    // Given: 5 новых сделок по 100 и одна выигранная на 1000
+    List<Deal> fresh = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      fresh.add(saveDeal(DealStatus.NEW, "100.00", START.plusMinutes(i)));
+    }
+    saveDeal(DealStatus.WON, "1000.00", START);
+
+    // When
+    List<KanbanColumn> board = dealService.getKanbanBoard(3);
+
+    // Then: колонки в порядке статусов, итоги по всем сделкам, карточки — самые новые
+    assertThat(board)
+        .extracting(column -> column.summary().status())
+        .containsExactly(DealStatus.values());
+    KanbanColumn newColumn = board.getFirst();
+    assertThat(newColumn.summary().count()).isEqualTo(5);
+    assertThat(newColumn.summary().totalAmount()).isEqualByComparingTo("500");
+    assertThat(newColumn.deals().items())
+        .extracting(DealListItem::id)
+        .containsExactly(fresh.get(4).getId(), fresh.get(3).getId(), fresh.get(2).getId());
+    assertThat(newColumn.deals().hasNext()).isTrue();
+
+    KanbanColumn wonColumn = column(board, DealStatus.WON);
+    assertThat(wonColumn.summary().count()).isEqualTo(1);
+    assertThat(wonColumn.deals().items()).hasSize(1);
+    assertThat(wonColumn.deals().hasNext()).isFalse();
+
+    KanbanColumn lostColumn = column(board, DealStatus.LOST);
+    assertThat(lostColumn.summary().count()).isZero();
+    assertThat(lostColumn.summary().totalAmount()).isEqualByComparingTo("0");
+    assertThat(lostColumn.deals().items()).isEmpty();
+  }
+
+  @Test
+  void getKanbanColumn_shouldPageThroughColumnWithoutGapsOrDuplicates() {
+    // Given: у части сделок одинаковое время создания — порядок держится на id
+    List<UUID> expected = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      expected.add(saveDeal(DealStatus.QUALIFIED, "10.00", START.plusSeconds(i / 2)).getId());
+    }
+    saveDeal(DealStatus.NEW, "10.00", START);
+
+    // When
+    List<UUID> visited = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      KeysetPage<DealListItem> page =
+          dealService.getKanbanColumn(DealStatus.QUALIFIED, cursor, 3);
+      page.items().forEach(deal -> visited.add(deal.id()));
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    // Then
+    assertThat(pages).isEqualTo(3);
+    assertThat(visited).containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  @Test
+  void getKanbanColumn_shouldRejectInvalidCursorAndLimit() {
+    assertThatThrownBy(() -> dealService.getKanbanColumn(DealStatus.NEW, "not-a-cursor", 10))
+        .isInstanceOf(BadRequestException.class);
+    int tooLarge = JpaDealService.MAX_PAGE_SIZE + 1;
+    assertThatThrownBy(() -> dealService.getKanbanColumn(DealStatus.NEW, null, tooLarge))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(() -> dealService.getKanbanBoard(0))
+        .isInstanceOf(BadRequestException.class);
+  }
+
+  private Deal saveDeal(DealStatus status, String amount, OffsetDateTime createdAt) {
+    return dealRepository.save(
+        Deal.builder()
+            .leadId(lead.getId())
+            .title("Сделка")
+            .amount(new BigDecimal(amount))
+            .status(status)
+            .createdAt(createdAt)
+            .build());
+  }
+
+  private static KanbanColumn column(List<KanbanColumn> board, DealStatus status) {
+    return board.stream()
+        .filter(column -> column.summary().status() == status)
+        .findFirst()
+        .orElseThrow();
+  }
+}
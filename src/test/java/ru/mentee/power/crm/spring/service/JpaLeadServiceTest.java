@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,11 +19,14 @@ import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
 import ru.mentee.power.crm.model.LeadStatus;
 import ru.mentee.power.crm.spring.dto.CreateDealRequest;
+import ru.mentee.power.crm.spring.dto.LeadListItem;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
 import ru.mentee.power.crm.spring.exception.DuplicateEmailException;
 import ru.mentee.power.crm.spring.exception.EntityNotFoundException;
 import ru.mentee.power.crm.spring.exception.IllegalLeadStateException;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
 import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+import ru.mentee.power.crm.spring.repository.KeysetPage;
 
 @SpringBootTest
 @Transactional
@@ -34,6 +38,8 @@ class JpaLeadServiceTest {
 
   @Autowired private CompanyRepository companyRepository;
 
+  @Autowired private EmailBloomFilter emailFilter;
+
   @BeforeEach
   void setUp() {
     leadRepository.deleteAll();
@@ -200,6 +206,61 @@ class JpaLeadServiceTest {
     assertThat(results.getFirst().getEmail()).isEqualTo("lead1@example.com");
   }
 
+  @Test
+  void findLeads_shouldReturnEveryMatch_beyondSearchResultLimit() {
+    // Given: совпадений больше, чем ранжированный поиск отдаёт за раз
+    int count = JpaLeadService.MAX_SEARCH_RESULTS + 5;
+    for (int i = 0; i < count; i++) {
+      leadRepository.save(
+          Lead.builder()
+              .name("Bulk" + i)
+              .email("bulk" + i + "@example.com")
+              .phone("9" + i)
+              .status(StatusEnum.NEW)
+              .build());
+    }
+
+    // When
+    List<Lead> leads = leadService.findLeads("bulk", null);
+    List<LeadListItem> items = leadService.findLeadItems("bulk", StatusEnum.NEW);
+
+    // Then
+    assertThat(leads).hasSize(count);
+    assertThat(items).hasSize(count);
+    assertThat(items.getFirst().name()).isEqualTo("Bulk0");
+  }
+
+  @Test
+  void findLeadItems_shouldMatchCompanyNameLikeFindLeads() {
+    // When
+    List<LeadListItem> items = leadService.findLeadItems("lostcompany", null);
+
+    // Then
+    assertThat(items).extracting(LeadListItem::name).containsExactly("LostLead4", "LostLead5");
+    assertThat(leadService.findLeads("lostcompany", null)).hasSize(2);
+  }
+
+  @Test
+  void searchLeadItems_shouldRankPrefixMatchesFirstAndRespectLimit() {
+    // When: "lead" есть во всех пяти лидах, но с него начинаются только Lead1..Lead3
+    List<LeadListItem> items = leadService.searchLeadItems("lead", null, 2);
+
+    // Then
+    assertThat(items).hasSize(2).allSatisfy(item -> assertThat(item.name()).startsWith("Lead"));
+  }
+
+  @Test
+  void searchLeadItems_shouldRejectBlankTermAndOutOfRangeLimit() {
+    assertThatThrownBy(() -> leadService.searchLeadItems(" ", null, 10))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(() -> leadService.searchLeadItems("lead", null, 0))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(
+            () ->
+                leadService.searchLeadItems("lead", null, JpaLeadService.MAX_SEARCH_RESULTS + 1))
+        .isInstanceOf(BadRequestException.class);
+  }
+
   @Test
   void findByEmail_shouldReturnLead_whenExists() {
     Optional<Lead> found = leadService.findByEmail("lead1@example.com");
@@ -236,6 +297,66 @@ class JpaLeadServiceTest {
     assertThat(page.getContent().getFirst().getEmail()).isEqualTo("lead1@example.com");
   }
 
+  @Test
+  void findPage_shouldWalkAllLeadsByCursorWithoutGapsOrDuplicates() {
+    // Given
+    List<Lead> visited = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+
+    // When
+    do {
+      KeysetPage<Lead> page = leadService.findPage(cursor, 2);
+      visited.addAll(page.items());
+      cursor = page.nextCursor();
+      pages++;
+    } while (cursor != null);
+
+    // Then
+    assertThat(pages).isEqualTo(3);
+    assertThat(visited).extracting(Lead::getId).doesNotHaveDuplicates().hasSize(5);
+    assertThat(visited)
+        .extracting(Lead::getId)
+        .containsExactlyInAnyOrderElementsOf(
+            leadRepository.findAll().stream().map(Lead::getId).toList());
+  }
+
+  @Test
+  void forEachLead_shouldStreamEveryLeadInCreationOrder() {
+    List<String> emails = new ArrayList<>();
+
+    long processed = leadService.forEachLead(lead -> emails.add(lead.getEmail()));
+
+    assertThat(processed).isEqualTo(5);
+    assertThat(emails)
+        .containsExactlyInAnyOrder(
+            "lead1@example.com",
+            "lead2@example.com",
+            "lead3@example.com",
+            "lost4@example.com",
+            "lost5@example.com");
+  }
+
+  @Test
+  void findPageByCompany_shouldReturnOnlyCompanyLeads() {
+    Company company =
+        companyRepository
+            .findByName("Company 1")
+            .orElseThrow(() -> new RuntimeException("Company 'Company 1' not found"));
+
+    KeysetPage<Lead> page = leadService.findPageByCompany(company, null, 10);
+
+    assertThat(page.items()).extracting(Lead::getEmail).containsExactly("lead1@example.com");
+    assertThat(page.hasNext()).isFalse();
+  }
+
+  @Test
+  void findPage_shouldRejectMalformedCursorAndLimit() {
+    assertThatThrownBy(() -> leadService.findPage("not-a-cursor", 10))
+        .isInstanceOf(BadRequestException.class);
+    assertThatThrownBy(() -> leadService.findPage(null, 0)).isInstanceOf(BadRequestException.class);
+  }
+
   @Test
   void changeStatus_shouldUpdateLeadsByCompany() {
     Company company =
@@ -325,6 +446,31 @@ class JpaLeadServiceTest {
         .hasMessageContaining("Email already in use");
   }
 
+  @Test
+  void updateLead_shouldSkipDatabaseLookupForEmailUnknownToBloomFilter() {
+    // Given: лиды из setUp сохранены напрямую через репозиторий, минуя сервис
+    Lead existingLead = leadRepository.findAll().getFirst();
+    EmailBloomFilter.Stats before = emailFilter.stats();
+
+    // When
+    leadService.updateLead(
+        existingLead.getId(),
+        Lead.builder()
+            .name("Renamed")
+            .email("never-seen@example.com")
+            .phone("999")
+            .company(existingLead.getCompany())
+            .status(StatusEnum.NEW)
+            .build());
+
+    // Then
+    EmailBloomFilter.Stats after = emailFilter.stats();
+    assertThat(after.absent()).isEqualTo(before.absent() + 1);
+    assertThat(after.maybePresent()).isEqualTo(before.maybePresent());
+    assertThat(emailFilter.mightContain("lost4@example.com")).isTrue();
+    assertThat(emailFilter.mightContain("never-seen@example.com")).isTrue();
+  }
+
   @Test
   void updateLead_shouldReturnEmpty_whenLeadNotFound() {
     // Given
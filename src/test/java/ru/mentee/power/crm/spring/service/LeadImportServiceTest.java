@@ -0,0 +1,171 @@
+package ru.mentee.power.crm.spring.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mentee.power.crm.entity.Company;
+import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.dto.LeadImportReport;
+import ru.mentee.power.crm.spring.exception.BadRequestException;
+import ru.mentee.power.crm.spring.repository.CompanyRepository;
+import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
+
+@SpringBootTest(properties = "crm.leads.import.batch-size=3")
+@ActiveProfiles("test")
+class LeadImportServiceTest {
+
+  @Autowired private LeadImportService importService;
+
+  @Autowired private JpaLeadRepository leadRepository;
+
+  @Autowired private CompanyRepository companyRepository;
+
+  private Company company;
+
+  @BeforeEach
+  void setUp() {
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+    company = companyRepository.save(Company.builder().name("Import Company").build());
+    leadRepository.save(
+        Lead.builder()
+            .name("Existing Lead")
+            .email("existing@example.com")
+            .phone("100")
+            .company(company)
+            .status(StatusEnum.NEW)
+            .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    leadRepository.deleteAllInBatch();
+    companyRepository.deleteAllInBatch();
+  }
+
+  @Test
+  void shouldImportValidCsvRowsAndReportEveryRejectedRow() {
+    // Given: пачки по 3 строки, дубликат во второй пачке повторяет email из первой
+    String csv =
+        """
+        name,email,phone,companyId,status
+        "Петров, Иван",ivan@example.com,+7900,%1$s,qualified
+        Анна,anna@example.com,+7901,%1$s,
+        Олег,existing@example.com,+7902,%1$s,NEW
+        Повтор,ivan@example.com,+7903,%1$s,NEW
+        Без почты,not-an-email,+7904,%1$s,NEW
+        Чужой,alien@example.com,+7905,%2$s,NEW
+
+        Странный,odd@example.com,+7906,%1$s,SLEEPING
+        """
+            .formatted(company.getId(), UUID.randomUUID());
+
+    // When
+    LeadImportReport report = importService.importLeads(stream(csv), BulkFormat.CSV);
+
+    // Then
+    assertThat(report.processed()).isEqualTo(7);
+    assertThat(report.imported()).isEqualTo(2);
+    assertThat(report.failed()).isEqualTo(5);
+    assertThat(report.errors())
+        .extracting(LeadImportReport.RowError::line)
+        .containsExactlyInAnyOrder(4L, 5L, 6L, 7L, 9L);
+    assertThat(report.errors())
+        .filteredOn(error -> error.line() == 5)
+        .singleElement()
+        .satisfies(error -> assertThat(error.email()).isEqualTo("ivan@example.com"));
+
+    Lead ivan = leadRepository.findByEmail("ivan@example.com").orElseThrow();
+    assertThat(ivan.getName()).isEqualTo("Петров, Иван");
+    assertThat(ivan.getStatus()).isEqualTo(StatusEnum.QUALIFIED);
+    assertThat(leadRepository.findByEmail("anna@example.com").orElseThrow().getStatus())
+        .isEqualTo(StatusEnum.NEW);
+    assertThat(leadRepository.count()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldImportNdjsonAndRejectMalformedLines() {
+    // Given
+    String ndjson =
+        """
+        {"name":"Мария","email":"maria@example.com","phone":"+7910","companyId":"%1$s"}
+        {"name":"Обрыв","email":
+        ["not","an","object"]
+        {"name":"Пётр","email":"petr@example.com","phone":"+7911","companyId":"%1$s"}
+        """
+            .formatted(company.getId());
+
+    // When
+    LeadImportReport report = importService.importLeads(stream(ndjson), BulkFormat.NDJSON);
+
+    // Then
+    assertThat(report.imported()).isEqualTo(2);
+    assertThat(report.errors())
+        .extracting(LeadImportReport.RowError::line)
+        .containsExactly(2L, 3L);
+    assertThat(leadRepository.existsByEmail("petr@example.com")).isTrue();
+  }
+
+  @Test
+  void shouldRejectCsvWithoutRequiredColumns() {
+    // Given
+    String csv = "name,phone\nИван,+7900\n";
+
+    // When & Then
+    assertThatThrownBy(() -> importService.importLeads(stream(csv), BulkFormat.CSV))
+        .isInstanceOf(BadRequestException.class)
+        .hasMessageContaining("email");
+  }
+
+  /**
+   * Бенчмарк: импорт CSV пачками; размер пачки в этом контексте намеренно мал (3 строки). Запуск —
+   * с {@code CRM_BENCH=true}.
+   */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportBulkImportThroughput() {
+    int count = 5_000;
+    StringBuilder csv = new StringBuilder("name,email,phone,companyId\n");
+    for (int i = 0; i < count; i++) {
+      csv.append("Lead ")
+          .append(i)
+          .append(",bulk")
+          .append(i)
+          .append("@example.com,+7")
+          .append(i)
+          .append(',')
+          .append(company.getId())
+          .append('\n');
+    }
+
+    // When
+    LeadImportReport report =
+        importService.importLeads(stream(csv.toString()), BulkFormat.CSV);
+
+    // Then
+    System.out.printf(
+        "Lead import of %d rows: %d ms (%d rows/s)%n",
+        count,
+        report.durationMs(),
+        count * 1_000L / Math.max(1, report.durationMs()));
+    assertThat(report.imported()).isEqualTo(count);
+    assertThat(report.errors()).isEmpty();
+    assertThat(leadRepository.count()).isEqualTo(count + 1L);
+  }
+
+  private static InputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
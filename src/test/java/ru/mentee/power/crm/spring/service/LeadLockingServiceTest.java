@@ -31,7 +31,7 @@ class LeadLockingServiceTest {
   @SuppressWarnings("resource")
   @Test
   void shouldPreventLostUpdate_whenPessimisticLockUsed() throws Exception {
-    Company company = Company.builder().name("company A").build();
+    Company company = Company.builder().name("Pessimistic Company").build();
     companyRepository.save(company);
 
     Lead lead =
@@ -92,7 +92,7 @@ class LeadLockingServiceTest {
   @Test
   void shouldThrowOptimisticLockException_whenConcurrentUpdateWithoutLock() throws Exception {
     // Given: Lead с optimistic locking через @Version
-    Company company = Company.builder().name("company A").build();
+    Company company = Company.builder().name("Optimistic Company").build();
     companyRepository.save(company);
 
     Lead lead =
@@ -148,10 +148,10 @@ class LeadLockingServiceTest {
   @Test
   void shouldDetectDeadlock_whenLeadsLockedInDifferentOrder() throws Exception {
     // Given: два лида
-    Company company1 = Company.builder().name("company A").build();
+    Company company1 = Company.builder().name("Deadlock Company A").build();
     companyRepository.save(company1);
 
-    Company company2 = Company.builder().name("Company B").build();
+    Company company2 = Company.builder().name("Deadlock Company B").build();
     companyRepository.save(company2);
 
     Lead lead1 =
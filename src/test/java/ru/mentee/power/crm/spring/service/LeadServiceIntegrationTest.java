@@ -2,6 +2,7 @@ package ru.mentee.power.crm.spring.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.mentee.power.crm.spring.config.QueryCountAssert.assertQueries;
 import static ru.mentee.power.crm.spring.dto.generated.LeadResponse.StatusEnum;
 
 import java.util.List;
@@ -11,10 +12,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import ru.mentee.power.crm.entity.Company;
 import ru.mentee.power.crm.entity.Lead;
+import ru.mentee.power.crm.spring.config.QueryCounter;
 import ru.mentee.power.crm.spring.dto.CreateDealRequest;
+import ru.mentee.power.crm.spring.exception.DuplicateEmailException;
 import ru.mentee.power.crm.spring.repository.CompanyRepository;
 import ru.mentee.power.crm.spring.repository.JpaDealRepository;
 import ru.mentee.power.crm.spring.repository.JpaLeadRepository;
@@ -31,6 +35,10 @@ class LeadServiceIntegrationTest {
 
   @Autowired private CompanyRepository companyRepository;
 
+  @Autowired private QueryCounter queryCounter;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
   @BeforeEach
   void setUp() {
     leadRepository.deleteAll();
@@ -74,7 +82,7 @@ class LeadServiceIntegrationTest {
 
   // Вспомогательный метод
   private Lead createLead(String email) {
-    Company company = Company.builder().name("Test").build();
+    Company company = Company.builder().name("Company of " + email).build();
     companyRepository.save(company);
 
     Lead lead =
@@ -115,6 +123,59 @@ class LeadServiceIntegrationTest {
     assertLeadStatus(lead3.getId(), StatusEnum.NEW);
   }
 
+  @Test
+  void findLeadItems_shouldReadCompanyNamesInSameQuery() {
+    // Given: ещё два лида, каждый со своей компанией
+    createLead("items1@example.com");
+    createLead("items2@example.com");
+
+    // When / Then: без JOIN каждая компания догружалась бы отдельным запросом
+    assertQueries(
+            queryCounter,
+            () ->
+                assertThat(leadService.findLeadItems(null, null))
+                    .hasSize(3)
+                    .allSatisfy(item -> assertThat(item.companyName()).isNotNull()))
+        .hasCount(1);
+  }
+
+  @Test
+  void createLead_shouldReportDuplicateEmailInsertedByAnotherInstance() {
+    // Given: лид вставлен в обход JPA, как другим экземпляром — локальный фильтр email не знает
+    String email = "other-instance@example.com";
+    jdbcTemplate.update(
+        "INSERT INTO leads (id, name, email, phone, status) VALUES (?, ?, ?, ?, ?)",
+        UUID.randomUUID(),
+        "Other Instance Lead",
+        email,
+        "123",
+        StatusEnum.NEW.name());
+    Lead duplicate =
+        Lead.builder().name("Duplicate").email(email).phone("456").status(StatusEnum.NEW).build();
+
+    // When & Then: нарушение уникального индекса превращается в 409, а не в 500
+    assertThatThrownBy(() -> leadService.createLead(duplicate))
+        .isInstanceOf(DuplicateEmailException.class);
+    assertThat(leadRepository.findByEmailNative(email))
+        .hasValueSatisfying(lead -> assertThat(lead.getName()).isEqualTo("Other Instance Lead"));
+  }
+
+  @Test
+  void createLead_shouldNotReportOtherIntegrityViolationsAsDuplicateEmail() {
+    // Given: у лида не заполнен обязательный телефон
+    Lead lead =
+        Lead.builder()
+            .name("No Phone")
+            .email("no-phone@example.com")
+            .status(StatusEnum.NEW)
+            .build();
+
+    // When & Then: нарушение NOT NULL не выдаётся за дубликат email
+    assertThatThrownBy(() -> leadService.createLead(lead))
+        .isInstanceOf(DataIntegrityViolationException.class)
+        .isNotInstanceOf(DuplicateEmailException.class);
+  }
+
   private void assertLeadStatus(UUID id, StatusEnum expectedStatus) {
     Lead lead =
         leadRepository.findById(id).orElseThrow(() -> new AssertionError("Lead not found: " + id));
@@ -51,7 +51,7 @@ class PropagationIntegrationTest {
   }
 
   private Lead createLead(String email) {
-    Company company = Company.builder().name("Test").build();
+    Company company = Company.builder().name("Propagation Company " + email).build();
     companyRepository.save(company);
 
     Lead lead =
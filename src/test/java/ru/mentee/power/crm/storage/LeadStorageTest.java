@@ -3,8 +3,10 @@ package ru.mentee.power.crm.storage;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.Arrays;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
 import ru.mentee.power.crm.domain.Address;
 import ru.mentee.power.crm.domain.Contact;
 import ru.mentee.power.crm.domain.Lead;
@@ -57,19 +59,26 @@ class LeadStorageTest {
   }
 
   @Test
-  void shouldThrowExceptionWhenStorageIsFull() {
-    // Given: Заполни хранилище 100 лидами
+  void shouldGrowBeyondFormerFixedCapacityAndKeepIndexes() {
+    // Given: больше лидов, чем прежний предел в 100 ячеек
     LeadStorage storage = new LeadStorage();
-    for (int index = 0; index < 100; index++) {
-      storage.add(createLead("lead" + index + "@mail.ru", "+7000", "Company"));
+    Lead[] added = new Lead[1_000];
+    for (int index = 0; index < added.length; index++) {
+      added[index] = createLead("lead" + index + "@mail.ru", "+7000", "Company");
+      storage.add(added[index]);
     }
 
-    // When + Then: 101-й лид должен выбросить исключение
-    Lead hundredFirstLead = createLead("lead101@mail.ru", "+7001", "Company");
+    // When
+    boolean duplicateAdded = storage.add(createLead("lead500@mail.ru", "+7001", "Company"));
 
-    assertThatThrownBy(() -> storage.add(hundredFirstLead))
-        .isInstanceOf(IllegalStateException.class)
-        .hasMessageContaining("Storage is full");
+    // Then
+    assertThat(duplicateAdded).isFalse();
+    assertThat(storage.size()).isEqualTo(1_000);
+    assertThat(storage.findAll()).containsExactly(added);
+    for (Lead lead : added) {
+      assertThat(storage.findById(lead.getId())).isSameAs(lead);
+    }
+    assertThat(storage.findById(UUID.randomUUID())).isNull();
   }
 
   @Test
@@ -93,4 +102,86 @@ class LeadStorageTest {
     LeadStorage storage = new LeadStorage();
     assertThatThrownBy(() -> storage.add(null)).isInstanceOf(NullPointerException.class);
   }
+
+  @Test
+  void shouldReportAddAndFindThroughputComparedToLinearScan() {
+    // Бенчмарк: добавление и поиск по ID на 10k лидов; линейный скан — прежний алгоритм
+    long hashNs = reportThroughput(10_000);
+
+    LinearScanStorage baseline = new LinearScanStorage(10_000);
+    Lead[] leads = createLeads(10_000);
+    long baselineAddNs = timeNs(() -> Arrays.stream(leads).forEach(baseline::add));
+    long baselineFindNs =
+        timeNs(() -> Arrays.stream(leads).forEach(lead -> baseline.findById(lead.getId())));
+    System.out.printf(
+        "Linear scan %,d leads: add %.1f ns/op, findById %.1f ns/op%n",
+        leads.length,
+        (double) baselineAddNs / leads.length,
+        (double) baselineFindNs / leads.length);
+    assertThat(hashNs).isLessThan(baselineAddNs + baselineFindNs);
+  }
+
+  /** Тот же замер на 1M лидов; запуск — с {@code CRM_BENCH=true}. */
+  @Test
+  @EnabledIfEnvironmentVariable(named = "CRM_BENCH", matches = "true")
+  void shouldReportAddAndFindThroughputForMillionLeads() {
+    reportThroughput(1_000_000);
+  }
+
+  /** Печатает время добавления и поиска по ID и возвращает их сумму в наносекундах. */
+  private static long reportThroughput(int count) {
+    Lead[] leads = createLeads(count);
+    LeadStorage storage = new LeadStorage();
+    long addNs = timeNs(() -> Arrays.stream(leads).forEach(storage::add));
+    long findNs =
+        timeNs(() -> Arrays.stream(leads).forEach(lead -> storage.findById(lead.getId())));
+    System.out.printf(
+        "LeadStorage %,d leads: add %.1f ns/op, findById %.1f ns/op%n",
+        count, (double) addNs / count, (double) findNs / count);
+    assertThat(storage.size()).isEqualTo(count);
+    return addNs + findNs;
+  }
+
+  private static Lead[] createLeads(int count) {
+    Lead[] leads = new Lead[count];
+    for (int index = 0; index < count; index++) {
+      leads[index] = createLead("lead" + index + "@mail.ru", "+7000", "Company");
+    }
+    return leads;
+  }
+
+  private static long timeNs(Runnable action) {
+    long start = System.nanoTime();
+    action.run();
+    return System.nanoTime() - start;
+  }
+
+  /** Прежний алгоритм хранилища: полный проход по массиву при добавлении и поиске. */
+  private static final class LinearScanStorage {
+    private final Lead[] leads;
+    private int size;
+
+    LinearScanStorage(int capacity) {
+      leads = new Lead[capacity];
+    }
+
+    boolean add(Lead lead) {
+      for (int index = 0; index < size; index++) {
+        if (leads[index].getContact().email().equals(lead.getContact().email())) {
+          return false;
+        }
+      }
+      leads[size++] = lead;
+      return true;
+    }
+
+    Lead findById(UUID id) {
+      for (int index = 0; index < size; index++) {
+        if (leads[index].getId().equals(id)) {
+          return leads[index];
+        }
+      }
+      return null;
+    }
+  }
 }